@@ -0,0 +1,29 @@
+#!/usr/bin/env bash
+# Starts a throwaway single-node MongoDB replica set in Docker, which is all
+# change streams need. Then run the backend or the replset tests against it:
+#
+#   scripts/mongo-replset.sh
+#   export MONGODB_URI='mongodb://localhost:27018/habit-tracker?directConnection=true'
+#   HABITFLOW_CHANGE_STREAMS=true ./mvnw spring-boot:run
+#   ./mvnw test -Preplset
+#
+# Stop it with: docker rm -f habitflow-mongo-rs
+set -euo pipefail
+
+NAME=habitflow-mongo-rs
+PORT=${PORT:-27018}
+
+docker rm -f "$NAME" >/dev/null 2>&1 || true
+docker run -d --name "$NAME" -p "$PORT:27017" mongo:7 --replSet rs0 --bind_ip_all >/dev/null
+
+until docker exec "$NAME" mongosh --quiet --eval 'db.runCommand({ ping: 1 }).ok' >/dev/null 2>&1; do
+  sleep 1
+done
+# Clients connect with directConnection=true, so the member's own address does not matter
+docker exec "$NAME" mongosh --quiet --eval "rs.initiate({ _id: 'rs0', members: [{ _id: 0, host: 'localhost:27017' }] })" >/dev/null
+
+until docker exec "$NAME" mongosh --quiet --eval 'rs.status().myState' 2>/dev/null | grep -q '^1$'; do
+  sleep 1
+done
+echo "Replica set rs0 ready on localhost:$PORT"
+echo "MONGODB_URI=mongodb://localhost:$PORT/habit-tracker?directConnection=true"
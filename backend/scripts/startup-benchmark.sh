@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Compares time-to-first-request of the plain jar against the fast-start layout
+# the Dockerfile builds (AppCDS + faststart profile, no Spring AOT).
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+# The same jar is used for both modes; the plain mode simply runs it without CDS
+# or the faststart profile. Neither mode touches the
+# database before the first request (indexes are created afterwards in both), so
+# no server is needed; point MONGODB_URI at one to include the deferred work.
+# Report the output together with the machine and JDK it ran on.
+set -euo pipefail
+
+RUNS=${1:-3}
+PORT=${PORT:-18080}
+cd "$(dirname "$0")/.."
+
+./mvnw -q -B -DskipTests package
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+cp target/*-SNAPSHOT.jar "$WORK/app.jar"
+(cd "$WORK" && java -Djarmode=tools -jar app.jar extract --destination extracted >/dev/null)
+(cd "$WORK/extracted" && java -XX:ArchiveClassesAtExit=app.jsa \
+    -Dspring.profiles.active=faststart -Dspring.context.exit=onRefresh -jar app.jar >/dev/null 2>&1)
+
+# Milliseconds from launch until the server answers any HTTP request
+first_request_ms() {
+    local start end pid
+    start=$(date +%s%3N)
+    "$@" --server.port="$PORT" >/dev/null 2>&1 &
+    pid=$!
+    until curl -s -o /dev/null "http://localhost:$PORT/api/auth/login"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "server exited before answering" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    end=$(date +%s%3N)
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo $((end - start))
+}
+
+for mode in plain faststart; do
+    total=0
+    for _ in $(seq "$RUNS"); do
+        if [ "$mode" = plain ]; then
+            ms=$(first_request_ms java -jar "$WORK/app.jar")
+        else
+            ms=$(cd "$WORK/extracted" && first_request_ms java -XX:SharedArchiveFile=app.jsa \
+                -Dspring.profiles.active=faststart -jar app.jar)
+        fi
+        total=$((total + ms))
+    done
+    echo "$mode: average time-to-first-request $((total / RUNS)) ms over $RUNS runs"
+done
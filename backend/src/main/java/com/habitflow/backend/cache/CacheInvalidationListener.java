@@ -0,0 +1,14 @@
+package com.habitflow.backend.cache;
+
+/**
+ * Implemented by anything that keeps per-user data in memory. Called by
+ * {@link InvalidationBus} whenever that data may have changed, on this node or
+ * another one.
+ */
+public interface CacheInvalidationListener {
+
+    void invalidateUser(String userId);
+
+    /** Everything may be stale, e.g. after the bus lost track of changes. */
+    void invalidateAll();
+}
@@ -0,0 +1,287 @@
+package com.habitflow.backend.cache;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails a MongoDB change stream on users, habits and habit_templates and turns
+ * every write - including those made by other nodes - into a per-user
+ * invalidation on the {@link InvalidationBus}.
+ *
+ * The resume token is checkpointed per node into {@code invalidation_checkpoints},
+ * so a restarted node picks up where it left off. When that is not possible
+ * (history rolled off the oplog, the stream was invalidated, a delete carries no
+ * owner) the bus is told to flush everything instead. Deletes name their owner
+ * through pre-images, which are turned on where the server supports them
+ * (MongoDB 6.0+); on older servers every delete is such a flush.
+ *
+ * Change streams need a replica set; a single-node one is enough locally, see
+ * {@code scripts/mongo-replset.sh}.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty("habitflow.invalidation.change-streams")
+public class ChangeStreamInvalidator {
+
+    static final String CHECKPOINTS = "invalidation_checkpoints";
+    private static final String USERS = "users";
+    private static final List<String> COLLECTIONS = List.of(USERS, "habits", "habit_templates");
+    // CappedPositionLost, ChangeStreamFatalError, ChangeStreamHistoryLost
+    private static final Set<Integer> HISTORY_LOST = Set.of(136, 280, 286);
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final InvalidationBus bus;
+    private final String nodeId;
+    private final long checkpointIntervalMillis;
+    // Only read and written by the tailer once started
+    private boolean preImages;
+
+    private volatile boolean running;
+    private Thread tailer;
+    private BsonDocument resumeToken;
+    private long lastCheckpoint;
+
+    public ChangeStreamInvalidator(MongoTemplate mongoTemplate, InvalidationBus bus,
+            @Value("${habitflow.invalidation.node-id:}") String nodeId,
+            @Value("${habitflow.invalidation.checkpoint-interval:5s}") Duration checkpointInterval,
+            @Value("${habitflow.invalidation.pre-images:true}") boolean preImages) {
+        this.mongoTemplate = mongoTemplate;
+        this.bus = bus;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.checkpointIntervalMillis = checkpointInterval.toMillis();
+        this.preImages = preImages;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        tailer = new Thread(this::tail, "invalidation-tail");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (tailer != null) {
+            tailer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void tail() {
+        if (preImages) {
+            preImages = enablePreImages();
+        }
+        resumeToken = loadCheckpoint();
+        log.info("Tailing changes as node {} ({})", nodeId, resumeToken == null ? "from now" : "resuming");
+
+        long backoff = 1000;
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+                backoff = 1000;
+                boolean invalidated = false;
+                while (running && !invalidated) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        invalidated = handle(change);
+                    }
+                    // Also moves while idle (post-batch token), so the checkpoint stays fresh
+                    if (cursor.getResumeToken() != null) {
+                        resumeToken = cursor.getResumeToken();
+                    }
+                    if (invalidated) {
+                        resumeToken = null;
+                    }
+                    checkpoint(false);
+                }
+            } catch (MongoException e) {
+                if (!running) {
+                    break;
+                }
+                if (HISTORY_LOST.contains(e.getCode())) {
+                    log.warn("Cannot resume change stream ({}), flushing all caches", e.getMessage());
+                    resumeToken = null;
+                    bus.invalidateAll();
+                    continue;
+                }
+                log.warn("Change stream interrupted, retrying in {} ms: {}", backoff, e.getMessage());
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (RuntimeException e) {
+                log.error("Change stream tailer failed, retrying in {} ms", backoff, e);
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+        checkpoint(true);
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        // Only the owner is needed, not the (potentially years of) logs
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.in("ns.coll", COLLECTIONS)),
+                Aggregates.project(Projections.include(
+                        "operationType", "ns", "documentKey", "fullDocument.userId", "fullDocumentBeforeChange.userId")));
+        var stream = mongoTemplate.getDb().watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (preImages) {
+            stream = stream.fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE);
+        }
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        return stream.cursor();
+    }
+
+    /** Returns true when the stream was invalidated and has to be reopened from scratch. */
+    private boolean handle(ChangeStreamDocument<Document> change) {
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE, DELETE -> {
+                String userId = ownerOf(change);
+                if (userId != null) {
+                    bus.invalidateUser(userId);
+                } else {
+                    // e.g. a habit delete without pre-images: we cannot tell whose it was
+                    bus.invalidateAll();
+                }
+                return false;
+            }
+            case DROP, RENAME, DROP_DATABASE -> {
+                bus.invalidateAll();
+                return false;
+            }
+            case INVALIDATE -> {
+                log.warn("Change stream invalidated, flushing all caches");
+                bus.invalidateAll();
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private String ownerOf(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace() != null ? change.getNamespace().getCollectionName() : null;
+        if (USERS.equals(collection)) {
+            BsonValue id = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+            if (id == null) {
+                return null;
+            }
+            return id.isObjectId() ? id.asObjectId().getValue().toHexString()
+                    : id.isString() ? id.asString().getValue() : null;
+        }
+        String owner = userIdOf(change.getFullDocument());
+        return owner != null ? owner : userIdOf(change.getFullDocumentBeforeChange());
+    }
+
+    private static String userIdOf(Document document) {
+        Object userId = document != null ? document.get("userId") : null;
+        if (userId instanceof ObjectId objectId) {
+            return objectId.toHexString();
+        }
+        return userId instanceof String s ? s : null;
+    }
+
+    private BsonDocument loadCheckpoint() {
+        try {
+            BsonDocument checkpoint = checkpoints().find(Filters.eq("_id", nodeId)).first();
+            return checkpoint != null && checkpoint.isDocument("token") ? checkpoint.getDocument("token") : null;
+        } catch (MongoException e) {
+            log.warn("Could not read change stream checkpoint: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void checkpoint(boolean force) {
+        long now = System.currentTimeMillis();
+        if (resumeToken == null || (!force && now - lastCheckpoint < checkpointIntervalMillis)) {
+            return;
+        }
+        try {
+            BsonDocument checkpoint = new BsonDocument("_id", new BsonString(nodeId))
+                    .append("token", resumeToken)
+                    .append("updatedAt", new BsonDateTime(now));
+            checkpoints().replaceOne(Filters.eq("_id", nodeId), checkpoint, new ReplaceOptions().upsert(true));
+            lastCheckpoint = now;
+        } catch (MongoException e) {
+            log.warn("Could not save change stream checkpoint: {}", e.getMessage());
+        }
+    }
+
+    private MongoCollection<BsonDocument> checkpoints() {
+        return mongoTemplate.getDb().getCollection(CHECKPOINTS, BsonDocument.class);
+    }
+
+    // Lets deletes carry the owner instead of forcing a full flush; false if the server is too old
+    private boolean enablePreImages() {
+        try {
+            List<Object> version = mongoTemplate.executeCommand(new Document("buildInfo", 1))
+                    .getList("versionArray", Object.class);
+            if (version != null && !version.isEmpty() && ((Number) version.get(0)).intValue() < 6) {
+                log.warn("MongoDB {} has no change stream pre-images: every delete will flush all caches", version);
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not read the MongoDB version, trying pre-images anyway: {}", e.getMessage());
+        }
+        for (String collection : COLLECTIONS) {
+            try {
+                mongoTemplate.executeCommand(new Document("collMod", collection)
+                        .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+            } catch (RuntimeException e) {
+                log.warn("Could not enable pre-images on {}: {}", collection, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.habitflow.backend.cache;
+
+/**
+ * The database did not answer in time and there was no earlier value to fall
+ * back on. Worth retrying after {@code retryAfterSeconds}.
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public DatabaseUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,53 @@
+package com.habitflow.backend.cache;
+
+import com.habitflow.backend.event.HabitChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivers invalidations to the local {@link CacheInvalidationListener}s. Writes
+ * made by this node arrive straight from the services' {@link HabitChangeEvent}s;
+ * writes made by other nodes arrive through {@link ChangeStreamInvalidator} when
+ * it is enabled.
+ */
+@Slf4j
+@Component
+public class InvalidationBus {
+
+    private final ObjectProvider<CacheInvalidationListener> listeners;
+
+    public InvalidationBus(ObjectProvider<CacheInvalidationListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    public void invalidateUser(String userId) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.invalidateUser(userId);
+            } catch (RuntimeException e) {
+                log.warn("Invalidating user {} in {} failed", userId, listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.invalidateAll();
+            } catch (RuntimeException e) {
+                log.warn("Flushing {} failed", listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    // First, so listeners that update in place (CompletionIndex) see the new version
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onHabitChange(HabitChangeEvent event) {
+        invalidateUser(event.getUserId());
+    }
+}
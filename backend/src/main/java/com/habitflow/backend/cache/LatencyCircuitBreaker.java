@@ -0,0 +1,121 @@
+package com.habitflow.backend.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * A count-based circuit breaker that treats slow calls like failed ones. It trips
+ * when at least {@code failureRate}% of the last {@code windowSize} calls were bad,
+ * refuses calls while open, and after {@code openFor} lets one probe through:
+ * a good probe closes it, a bad one opens it again.
+ */
+@Slf4j
+public class LatencyCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int minCalls;
+    private final int failureRate;
+    private final long openForNanos;
+
+    // Ring of the last calls, true = slow or failed
+    private final boolean[] window;
+    private int next;
+    private int filled;
+    private int bad;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+
+    public LatencyCircuitBreaker(String name, int windowSize, int minCalls, int failureRate, Duration openFor) {
+        if (minCalls < 1 || minCalls > windowSize) {
+            throw new IllegalArgumentException("minCalls must be between 1 and windowSize");
+        }
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minCalls = minCalls;
+        this.failureRate = failureRate;
+        this.openForNanos = openFor.toNanos();
+    }
+
+    /** Whether a call may go ahead now; every permitted call must be followed by {@link #record}. */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED -> {
+                return true;
+            }
+            case OPEN -> {
+                if (System.nanoTime() - openedAt < openForNanos) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                probing = true;
+                return true;
+            }
+            default -> {
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+            }
+        }
+    }
+
+    public synchronized void record(boolean good) {
+        switch (state) {
+            case HALF_OPEN -> {
+                probing = false;
+                if (good) {
+                    clear();
+                    transition(State.CLOSED);
+                } else {
+                    open();
+                }
+            }
+            case CLOSED -> {
+                if (filled == window.length && window[next]) {
+                    bad--;
+                }
+                window[next] = !good;
+                if (!good) {
+                    bad++;
+                }
+                next = (next + 1) % window.length;
+                filled = Math.min(filled + 1, window.length);
+                if (filled >= minCalls && bad * 100 >= failureRate * filled) {
+                    open();
+                }
+            }
+            default -> {
+                // A call started before the breaker opened; the probe decides what happens next
+            }
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        clear();
+        transition(State.OPEN);
+    }
+
+    private void clear() {
+        next = 0;
+        filled = 0;
+        bad = 0;
+    }
+
+    private void transition(State to) {
+        if (state != to) {
+            log.warn("Circuit breaker {} {} -> {}", name, state, to);
+            state = to;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.habitflow.backend.cache;
+
+import java.time.Instant;
+
+/**
+ * A value read through {@link ResilientReads}. {@code stale} means the database
+ * did not answer in time and this is the last good value, as of {@code asOf}.
+ */
+public record ReadResult<T>(T value, Instant asOf, boolean stale) {
+
+    public static <T> ReadResult<T> fresh(T value) {
+        return new ReadResult<>(value, Instant.now(), false);
+    }
+}
@@ -0,0 +1,257 @@
+package com.habitflow.backend.cache;
+
+import com.habitflow.backend.trace.QueryTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keeps request threads off a stalled database. Reads run on a bounded pool and
+ * the caller waits at most {@code deadline} for them; past that, or while the
+ * endpoint's {@link LatencyCircuitBreaker} is open, the caller gets the last good
+ * value for the same (endpoint, subject), marked stale. A read that overran keeps
+ * going and refreshes the stored value when it lands, and the breaker's half-open
+ * probe is the retry once the database is back.
+ *
+ * Only the time spent in database commands, as seen by {@link QueryTrace}, counts
+ * as slow: a read that is heavy on the CPU or waiting on a single-flight leader
+ * never opens a breaker. Without a stored value the caller waits up to
+ * {@code max-wait} for a read stuck in the database and then gets a
+ * {@link DatabaseUnavailableException}; one that is merely busy is waited out.
+ * Only {@link DataAccessException}s count as database failures; other exceptions
+ * are the caller's own.
+ */
+@Slf4j
+@Component
+public class ResilientReads {
+
+    private final boolean enabled;
+    private final long deadlineNanos;
+    private final long maxWaitNanos;
+    private final long slowCallNanos;
+    private final long retryAfterSeconds;
+    private final int windowSize;
+    private final int minCalls;
+    private final int failureRate;
+    private final Duration openFor;
+    private final Map<String, LatencyCircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor pool;
+    private final Map<Key, Stored> lastKnownGood;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ResilientReads(MeterRegistry meterRegistry,
+            @Value("${habitflow.resilience.enabled:true}") boolean enabled,
+            @Value("${habitflow.resilience.deadline:500ms}") Duration deadline,
+            @Value("${habitflow.resilience.max-wait:3s}") Duration maxWait,
+            @Value("${habitflow.resilience.slow-call:300ms}") Duration slowCall,
+            @Value("${habitflow.resilience.breaker.window-size:20}") int windowSize,
+            @Value("${habitflow.resilience.breaker.min-calls:10}") int minCalls,
+            @Value("${habitflow.resilience.breaker.failure-rate:50}") int failureRate,
+            @Value("${habitflow.resilience.breaker.open-for:10s}") Duration openFor,
+            @Value("${habitflow.resilience.pool-size:${server.tomcat.threads.max:200}}") int poolSize,
+            @Value("${habitflow.resilience.max-entries:5000}") int maxEntries) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.deadlineNanos = deadline.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.slowCallNanos = slowCall.toNanos();
+        this.retryAfterSeconds = Math.max(1, openFor.toSeconds());
+        this.windowSize = windowSize;
+        this.minCalls = minCalls;
+        this.failureRate = failureRate;
+        this.openFor = openFor;
+        AtomicInteger threads = new AtomicInteger();
+        // As many threads as there are request threads, so every request can have its read running;
+        // the queue only fills with reads that overran their callers, i.e. when the database is not keeping up
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(poolSize * 4), r -> {
+                    Thread thread = new Thread(r, "resilient-read-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.lastKnownGood = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Stored> eldest) {
+                return size() > maxEntries;
+            }
+        });
+
+        Gauge.builder("habitflow.resilience.pool.queued", pool, p -> p.getQueue().size()).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> ReadResult<T> read(String endpoint, String subject, Supplier<T> loader) {
+        if (!enabled) {
+            return ReadResult.fresh(loader.get());
+        }
+        Key key = new Key(endpoint, subject);
+        Stored stored = lastKnownGood.get(key);
+        LatencyCircuitBreaker breaker = breaker(endpoint);
+        if (!breaker.tryAcquire()) {
+            return fallback(key, stored, "open", null);
+        }
+
+        Load load = new Load(breaker);
+        try {
+            pool.execute(() -> load.run(key, loader, QueryTrace.current()));
+        } catch (RejectedExecutionException e) {
+            load.finish(false);
+            return fallback(key, stored, "saturated", e);
+        }
+        long waitNanos = stored != null ? deadlineNanos : maxWaitNanos;
+        try {
+            while (true) {
+                try {
+                    T value = (T) load.result.get(waitNanos, TimeUnit.NANOSECONDS);
+                    counter("habitflow.resilience.reads", endpoint, "fresh").increment();
+                    return ReadResult.fresh(value);
+                } catch (TimeoutException e) {
+                    if (load.inDatabaseTooLong()) {
+                        // Counts against the breaker now; the load itself carries on and refreshes the stored value
+                        load.finish(false);
+                        return fallback(key, stored, "timeout", e);
+                    }
+                    if (stored != null) {
+                        // Busy, not stalled: the load reports for itself when it finishes
+                        return fallback(key, stored, "slow", e);
+                    }
+                    waitNanos = deadlineNanos;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataAccessException) {
+                return fallback(key, stored, "error", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for " + endpoint);
+        }
+    }
+
+    // One breaker per endpoint, so a misbehaving query only takes its own endpoint to stale values
+    private LatencyCircuitBreaker breaker(String endpoint) {
+        return breakers.computeIfAbsent(endpoint, e -> {
+            LatencyCircuitBreaker breaker = new LatencyCircuitBreaker("reads-" + e, windowSize, minCalls,
+                    failureRate, openFor);
+            Gauge.builder("habitflow.resilience.breaker.state", breaker, b -> b.state().ordinal())
+                    .description("0 closed, 1 open, 2 half-open")
+                    .tag("endpoint", e)
+                    .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    private <T> ReadResult<T> fallback(Key key, Stored stored, String reason, Throwable cause) {
+        if (stored == null) {
+            counter("habitflow.resilience.unavailable", key.endpoint(), reason).increment();
+            throw new DatabaseUnavailableException("Database unavailable (" + reason + ")", retryAfterSeconds, cause);
+        }
+        counter("habitflow.resilience.stale-serves", key.endpoint(), reason).increment();
+        @SuppressWarnings("unchecked")
+        T value = (T) stored.value();
+        return new ReadResult<>(value, stored.asOf(), true);
+    }
+
+    private Counter counter(String name, String endpoint, String reason) {
+        return counters.computeIfAbsent(name + ":" + endpoint + ":" + reason, k -> Counter.builder(name)
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(meterRegistry));
+    }
+
+    /** One database read; reports to its breaker once, whichever of it and its caller gets there first. */
+    private class Load {
+
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final LatencyCircuitBreaker breaker;
+        private final AtomicBoolean reported = new AtomicBoolean();
+        private volatile QueryTrace trace;
+
+        Load(LatencyCircuitBreaker breaker) {
+            this.breaker = breaker;
+        }
+
+        void run(Key key, Supplier<?> loader, QueryTrace parent) {
+            Instant asOf = Instant.now();
+            try {
+                Object value = QueryTrace.within(parent, () -> traced(loader));
+                store(key, new Stored(value, asOf));
+                finish(trace.databaseNanos() <= slowCallNanos);
+                result.complete(value);
+            } catch (Throwable e) {
+                finish(!(e instanceof DataAccessException) && trace.databaseNanos() <= slowCallNanos);
+                result.completeExceptionally(e);
+            }
+        }
+
+        private Object traced(Supplier<?> loader) {
+            QueryTrace own = QueryTrace.start();
+            trace = own;
+            try {
+                return loader.get();
+            } finally {
+                own.end();
+            }
+        }
+
+        // Still queued behind other reads counts too: the pool only backs up when they are stuck
+        boolean inDatabaseTooLong() {
+            QueryTrace current = trace;
+            return current == null || current.databaseNanos() > slowCallNanos;
+        }
+
+        void finish(boolean good) {
+            if (reported.compareAndSet(false, true)) {
+                breaker.record(good);
+            }
+        }
+    }
+
+    // A read that started earlier but finished later must not replace a newer value
+    private void store(Key key, Stored value) {
+        lastKnownGood.merge(key, value, (old, fresh) -> fresh.asOf().isBefore(old.asOf()) ? old : fresh);
+    }
+
+    private record Key(String endpoint, String subject) {
+    }
+
+    private record Stored(Object value, Instant asOf) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.habitflow.backend.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical reads into one execution. Callers asking for the
+ * same (endpoint, user, data version) while a computation is running wait for it
+ * and get its result - or its exception - instead of running their own. Nothing
+ * is kept once the computation finishes; this is not a cache.
+ *
+ * The first caller runs the computation on its own thread. Waiters give up after
+ * {@code habitflow.single-flight.timeout}.
+ */
+@Component
+public class SingleFlight {
+
+    private final UserDataVersions versions;
+    private final MeterRegistry meterRegistry;
+    private final long timeoutMillis;
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public SingleFlight(UserDataVersions versions, MeterRegistry meterRegistry,
+            @Value("${habitflow.single-flight.timeout:10s}") Duration timeout) {
+        this.versions = versions;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String endpoint, String userId, Supplier<T> computation) {
+        Key key = new Key(endpoint, userId, versions.current(userId));
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+
+        if (running != null) {
+            counter("coalesced", endpoint).increment();
+            return (T) await(running, endpoint);
+        }
+
+        counter("executions", endpoint).increment();
+        try {
+            T result = computation.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            counter("failures", endpoint).increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> running, String endpoint) {
+        try {
+            return running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            counter("timeouts", endpoint).increment();
+            throw new RuntimeException("Timed out waiting for " + endpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for " + endpoint);
+        }
+    }
+
+    private Counter counter(String outcome, String endpoint) {
+        return counters.computeIfAbsent(outcome + ":" + endpoint, k -> Counter.builder("habitflow.singleflight." + outcome)
+                .tag("endpoint", endpoint)
+                .register(meterRegistry));
+    }
+
+    private record Key(String endpoint, String userId, long version) {
+    }
+}
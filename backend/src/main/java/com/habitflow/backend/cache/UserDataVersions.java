@@ -0,0 +1,43 @@
+package com.habitflow.backend.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per-user counter that moves on every write to the user's data. Anything
+ * computed from a user's data can be keyed by it, so a result read before a
+ * write is never handed out after it.
+ */
+@Component
+public class UserDataVersions implements CacheInvalidationListener {
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    // Added to every user's counter, so a flush moves all of them at once
+    private final AtomicLong global = new AtomicLong();
+    // Counters start over on every node and restart, so versions handed to clients carry this
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    public long current(String userId) {
+        AtomicLong version = versions.get(userId);
+        return global.get() + (version == null ? 0 : version.get());
+    }
+
+    /** The current version as a token for clients, e.g. in an ETag; never equal to one from another node or run. */
+    public String tag(String userId) {
+        return epoch + "." + current(userId);
+    }
+
+    @Override
+    public void invalidateUser(String userId) {
+        versions.computeIfAbsent(userId, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public void invalidateAll() {
+        global.incrementAndGet();
+    }
+}
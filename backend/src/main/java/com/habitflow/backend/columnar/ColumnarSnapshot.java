@@ -0,0 +1,264 @@
+package com.habitflow.backend.columnar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Every user's habits and completions as of one export, read straight from a
+ * memory-mapped file written by {@link ColumnarSnapshotWriter}. Reads use absolute
+ * offsets into the shared mapping, so any number of threads can read at once and
+ * counting completions allocates nothing; only ids and titles are decoded.
+ *
+ * Layout (big-endian, offsets from the start of the file):
+ * <pre>
+ * header   magic, version, exportedAt (epoch millis), asOf (epoch day),
+ *          users, habits, and where each section below starts
+ * users    one 24-byte record per user, sorted by email hash:
+ *          email hash (long), email, first habit, habit count, streak (ints)
+ * habits   one int column per field, each {@code habits} long: created on
+ *          (epoch day), bitmap origin (epoch day), first bitmap word, bitmap
+ *          words, id, title
+ * bitmaps  longs; bit i of a habit's words is its origin plus i days
+ * strings  int length, then UTF-8 bytes
+ * </pre>
+ * A user's habits are consecutive, so a user costs one binary search and every
+ * habit's completions one contiguous run of words. The streak is the user's run of
+ * active days up to the day before {@code asOf}.
+ */
+public final class ColumnarSnapshot {
+
+    static final int MAGIC = 0x48464143;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+    static final int USER_BYTES = 24;
+    static final int HABIT_COLUMNS = 6;
+
+    static final int CREATED_ON = 0;
+    static final int ORIGIN = 1;
+    static final int FIRST_WORD = 2;
+    static final int WORDS = 3;
+    static final int ID = 4;
+    static final int TITLE = 5;
+
+    private final ByteBuffer buffer;
+    private final Path path;
+    private final Instant exportedAt;
+    private final LocalDate asOf;
+    private final int users;
+    private final int habits;
+    private final int usersAt;
+    private final int habitsAt;
+    private final int bitmapsAt;
+    private final int stringsAt;
+
+    private ColumnarSnapshot(Path path, ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(path + " is not an analytics snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException(path + " has snapshot version " + buffer.getInt(4));
+        }
+        this.exportedAt = Instant.ofEpochMilli(buffer.getLong(8));
+        this.asOf = LocalDate.ofEpochDay(buffer.getInt(16));
+        this.users = buffer.getInt(20);
+        this.habits = buffer.getInt(24);
+        this.usersAt = buffer.getInt(28);
+        this.habitsAt = buffer.getInt(32);
+        this.bitmapsAt = buffer.getInt(36);
+        this.stringsAt = buffer.getInt(40);
+        if (stringsAt > buffer.capacity() || bitmapsAt > stringsAt
+                || habitsAt + (long) habits * HABIT_COLUMNS * Integer.BYTES > bitmapsAt
+                || usersAt + (long) users * USER_BYTES > habitsAt) {
+            throw new IllegalArgumentException(path + " is truncated");
+        }
+    }
+
+    /** Maps {@code path} read-only; the mapping stays valid after the file is replaced. */
+    public static ColumnarSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(path + " is larger than one mapping can hold");
+            }
+            return new ColumnarSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public Instant exportedAt() {
+        return exportedAt;
+    }
+
+    /** The day of the export: the snapshot's "today". */
+    public LocalDate asOf() {
+        return asOf;
+    }
+
+    public int userCount() {
+        return users;
+    }
+
+    public int habitCount() {
+        return habits;
+    }
+
+    /** The user's index, or -1 if the user had no account at export time. */
+    public int findUser(String email) {
+        byte[] key = email.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        int low = 0;
+        int high = users;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (userHash(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int user = low; user < users && userHash(user) == hash; user++) {
+            if (stringEquals(buffer.getInt(userAt(user) + 8), key)) {
+                return user;
+            }
+        }
+        return -1;
+    }
+
+    public int firstHabit(int user) {
+        return buffer.getInt(userAt(user) + 12);
+    }
+
+    public int habitCount(int user) {
+        return buffer.getInt(userAt(user) + 16);
+    }
+
+    /** Active days in a row up to the day before {@link #asOf()}. */
+    public int streak(int user) {
+        return buffer.getInt(userAt(user) + 20);
+    }
+
+    public long createdOn(int habit) {
+        return column(CREATED_ON, habit);
+    }
+
+    public String habitId(int habit) {
+        return string(column(ID, habit));
+    }
+
+    public String title(int habit) {
+        return string(column(TITLE, habit));
+    }
+
+    public boolean doneOn(int habit, long day) {
+        long bit = day - column(ORIGIN, habit);
+        if (bit < 0 || bit >= (long) column(WORDS, habit) * Long.SIZE) {
+            return false;
+        }
+        return (word(habit, (int) (bit >>> 6)) >>> (bit & 63) & 1) != 0;
+    }
+
+    /** Completed days from {@code from} to {@code to}, both inclusive. */
+    public int completedDays(int habit, long from, long to) {
+        long origin = column(ORIGIN, habit);
+        int words = column(WORDS, habit);
+        long first = Math.max(from - origin, 0);
+        long last = Math.min(to - origin, (long) words * Long.SIZE - 1);
+        if (first > last) {
+            return 0;
+        }
+        int firstWord = (int) (first >>> 6);
+        int lastWord = (int) (last >>> 6);
+        long lowMask = -1L << (first & 63);
+        long highMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord) {
+            return Long.bitCount(word(habit, firstWord) & lowMask & highMask);
+        }
+        int count = Long.bitCount(word(habit, firstWord) & lowMask);
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            count += Long.bitCount(word(habit, i));
+        }
+        return count + Long.bitCount(word(habit, lastWord) & highMask);
+    }
+
+    /** Every completion, including days logged before the habit was created or after the export. */
+    public int totalCompletions(int habit) {
+        int count = 0;
+        int first = column(FIRST_WORD, habit);
+        for (int i = 0, words = column(WORDS, habit); i < words; i++) {
+            count += Long.bitCount(buffer.getLong(bitmapsAt + (first + i) * Long.BYTES));
+        }
+        return count;
+    }
+
+    /** The {@code days} days ending on {@code end} as a bitmask, bit i being {@code end} minus i days. */
+    public int window(int habit, long end, int days) {
+        int mask = 0;
+        for (int i = 0; i < days; i++) {
+            if (doneOn(habit, end - i)) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private long userHash(int user) {
+        return buffer.getLong(userAt(user));
+    }
+
+    private int userAt(int user) {
+        return usersAt + user * USER_BYTES;
+    }
+
+    private int column(int column, int habit) {
+        return buffer.getInt(habitsAt + (column * habits + habit) * Integer.BYTES);
+    }
+
+    private long word(int habit, int index) {
+        return buffer.getLong(bitmapsAt + (column(FIRST_WORD, habit) + index) * Long.BYTES);
+    }
+
+    private String string(int offset) {
+        int at = stringsAt + offset;
+        byte[] bytes = new byte[buffer.getInt(at)];
+        buffer.get(at + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int offset, byte[] key) {
+        int at = stringsAt + offset;
+        if (buffer.getInt(at) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(at + Integer.BYTES + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a, then the MurmurHash3 finalizer to spread the bits
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
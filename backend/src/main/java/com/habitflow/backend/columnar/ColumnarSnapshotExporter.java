@@ -0,0 +1,124 @@
+package com.habitflow.backend.columnar;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import com.habitflow.backend.service.MappedAnalyticsService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes every user's habits to the {@link ColumnarSnapshot} file at {@code path}
+ * every {@code interval}, for analytics nodes to map. Users are read through one
+ * cursor and their habits one {@code $in} query per batch, so an export costs the
+ * database a scan per interval however many reports are run against it.
+ *
+ * Enable it on one node; the file is replaced atomically, so readers never see a
+ * partial export.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "habitflow.analytics.columnar.export.enabled")
+public class ColumnarSnapshotExporter {
+
+    private static final ObjectId MIN_ID = new ObjectId("000000000000000000000000");
+
+    private final UserRepository userRepository;
+    private final HabitRepository habitRepository;
+    private final ObjectProvider<MappedAnalyticsService> reader;
+    private final Path path;
+    private final long intervalMillis;
+    private final int batchSize;
+
+    private final ScheduledExecutorService exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "columnar-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ColumnarSnapshotExporter(UserRepository userRepository, HabitRepository habitRepository,
+            ObjectProvider<MappedAnalyticsService> reader,
+            @Value("${habitflow.analytics.columnar.path:${java.io.tmpdir}/habitflow-analytics/analytics.col}") Path path,
+            @Value("${habitflow.analytics.columnar.export.interval:15m}") Duration interval,
+            @Value("${habitflow.analytics.columnar.export.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("habitflow.analytics.columnar.export.batch-size must be positive");
+        }
+        this.userRepository = userRepository;
+        this.habitRepository = habitRepository;
+        this.reader = reader;
+        this.path = path;
+        this.intervalMillis = interval.toMillis();
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        exporter.scheduleWithFixedDelay(this::exportQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        exporter.shutdownNow();
+    }
+
+    public synchronized void export() {
+        long start = System.nanoTime();
+        int users = 0;
+        try (ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(path, LocalDate.now());
+                Stream<User> cursor = userRepository.streamEmailsAfter(MIN_ID)) {
+            Iterator<User> iterator = cursor.iterator();
+            while (iterator.hasNext()) {
+                List<User> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                Map<String, List<Habit>> habits = habitRepository
+                        .findByUserIdIn(batch.stream().map(User::getId).toList()).stream()
+                        .collect(Collectors.groupingBy(Habit::getUserId));
+                for (User user : batch) {
+                    writer.addUser(user.getEmail(), habits.getOrDefault(user.getId(), List.of()));
+                }
+                users += batch.size();
+            }
+            writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing the analytics snapshot to " + path + " failed", e);
+        }
+        log.info("Analytics snapshot of {} users written to {} in {} ms", users, path,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        // An analytics node on this same node need not wait for its next check
+        reader.ifAvailable(MappedAnalyticsService::reload);
+    }
+
+    private void exportQuietly() {
+        try {
+            export();
+        } catch (RuntimeException e) {
+            log.warn("Analytics snapshot export failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.habitflow.backend.columnar;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitArchive;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes a {@link ColumnarSnapshot}, one user at a time. Bitmaps and strings are
+ * streamed to scratch files next to the target; only the fixed-size user records
+ * and habit columns stay in memory until {@link #finish}, which assembles the file
+ * under a temporary name and renames it over the target, so a reader mapping the
+ * target sees the old snapshot or the new one, never a partial file.
+ */
+public final class ColumnarSnapshotWriter implements Closeable {
+
+    private final Path target;
+    private final LocalDate asOf;
+    private final Path bitmapsFile;
+    private final Path stringsFile;
+    private final DataOutputStream bitmaps;
+    private final DataOutputStream strings;
+    private final List<UserRecord> users = new ArrayList<>();
+    private final int[][] columns = new int[ColumnarSnapshot.HABIT_COLUMNS][];
+    private int habits;
+    private long words;
+    private long stringBytes;
+
+    public ColumnarSnapshotWriter(Path target, LocalDate asOf) throws IOException {
+        this.target = target;
+        this.asOf = asOf;
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        this.bitmapsFile = Files.createTempFile(dir, "bitmaps", ".tmp");
+        this.stringsFile = Files.createTempFile(dir, "strings", ".tmp");
+        this.bitmaps = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(bitmapsFile)));
+        this.strings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringsFile)));
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new int[1024];
+        }
+    }
+
+    /** Adds a user with all of their habits; {@code userHabits} may be empty. */
+    public void addUser(String email, List<Habit> userHabits) throws IOException {
+        byte[] key = email.getBytes(StandardCharsets.UTF_8);
+        int first = habits;
+        Set<Long> activeDays = new HashSet<>();
+        for (Habit habit : userHabits) {
+            long[] days = completedDays(habit);
+            for (long day : days) {
+                activeDays.add(day);
+            }
+            addHabit(habit, days);
+        }
+        int streak = 0;
+        for (long day = asOf.toEpochDay() - 1; activeDays.contains(day); day--) {
+            streak++;
+        }
+        users.add(new UserRecord(ColumnarSnapshot.hash(key), string(key), first, userHabits.size(), streak));
+    }
+
+    /** Writes the snapshot and moves it over the target. */
+    public void finish() throws IOException {
+        bitmaps.close();
+        strings.close();
+        users.sort(Comparator.comparingLong(UserRecord::hash));
+
+        long usersAt = ColumnarSnapshot.HEADER_BYTES;
+        long habitsAt = usersAt + (long) users.size() * ColumnarSnapshot.USER_BYTES;
+        long columnsEnd = habitsAt + (long) habits * ColumnarSnapshot.HABIT_COLUMNS * Integer.BYTES;
+        // Bitmap words are read as longs; keep them aligned
+        long bitmapsAt = (columnsEnd + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+        long stringsAt = bitmapsAt + words * Long.BYTES;
+        if (stringsAt + stringBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Analytics snapshot would be " + (stringsAt + stringBytes)
+                    + " bytes, more than one mapping can hold");
+        }
+
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        try (FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream head = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)));
+            head.writeInt(ColumnarSnapshot.MAGIC);
+            head.writeInt(ColumnarSnapshot.VERSION);
+            head.writeLong(Instant.now().toEpochMilli());
+            head.writeInt((int) asOf.toEpochDay());
+            head.writeInt(users.size());
+            head.writeInt(habits);
+            head.writeInt((int) usersAt);
+            head.writeInt((int) habitsAt);
+            head.writeInt((int) bitmapsAt);
+            head.writeInt((int) stringsAt);
+            head.write(new byte[(int) usersAt - head.size()]);
+            for (UserRecord user : users) {
+                head.writeLong(user.hash());
+                head.writeInt(user.email());
+                head.writeInt(user.firstHabit());
+                head.writeInt(user.habitCount());
+                head.writeInt(user.streak());
+            }
+            for (int[] column : columns) {
+                for (int i = 0; i < habits; i++) {
+                    head.writeInt(column[i]);
+                }
+            }
+            head.write(new byte[(int) (bitmapsAt - columnsEnd)]);
+            // Not closed: that would close the channel the sections are appended to
+            head.flush();
+            append(out, bitmapsFile);
+            append(out, stringsFile);
+            out.force(true);
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        bitmaps.close();
+        strings.close();
+        Files.deleteIfExists(bitmapsFile);
+        Files.deleteIfExists(stringsFile);
+        Files.deleteIfExists(target.resolveSibling(target.getFileName() + ".partial"));
+    }
+
+    private void addHabit(Habit habit, long[] days) throws IOException {
+        if (habits == columns[0].length) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], habits * 2);
+            }
+        }
+        long createdOn = habit.getCreatedAt().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+        long origin = createdOn;
+        int habitWords = 0;
+        if (days.length > 0) {
+            // Whole words from the first completion's to the last one's
+            origin = Math.floorDiv(days[0], Long.SIZE) * Long.SIZE;
+            long[] bits = new long[(int) ((days[days.length - 1] - origin) / Long.SIZE + 1)];
+            for (long day : days) {
+                long bit = day - origin;
+                bits[(int) (bit >>> 6)] |= 1L << (bit & 63);
+            }
+            for (long word : bits) {
+                bitmaps.writeLong(word);
+            }
+            habitWords = bits.length;
+        }
+        columns[ColumnarSnapshot.CREATED_ON][habits] = (int) createdOn;
+        columns[ColumnarSnapshot.ORIGIN][habits] = (int) origin;
+        columns[ColumnarSnapshot.FIRST_WORD][habits] = (int) words;
+        columns[ColumnarSnapshot.WORDS][habits] = habitWords;
+        columns[ColumnarSnapshot.ID][habits] = string(habit.getId().getBytes(StandardCharsets.UTF_8));
+        columns[ColumnarSnapshot.TITLE][habits] = string(habit.getTitle().getBytes(StandardCharsets.UTF_8));
+        words += habitWords;
+        habits++;
+    }
+
+    // Sorted epoch days the habit was done on, archived ones included unless the logs say otherwise
+    private static long[] completedDays(Habit habit) {
+        Set<Long> days = new HashSet<>();
+        if (habit.getArchive() != null) {
+            habit.getArchive().forEach((year, bits) -> {
+                for (int dayOfYear = 1; dayOfYear <= HabitArchive.YEAR_BYTES * 8; dayOfYear++) {
+                    if (HabitArchive.isSet(bits, dayOfYear)) {
+                        LocalDate date = LocalDate.ofYearDay(Integer.parseInt(year), dayOfYear);
+                        if (!habit.getLogs().containsKey(date.toString())) {
+                            days.add(date.toEpochDay());
+                        }
+                    }
+                }
+            });
+        }
+        habit.getLogs().forEach((date, done) -> {
+            if (Boolean.TRUE.equals(done)) {
+                days.add(LocalDate.parse(date).toEpochDay());
+            }
+        });
+        return days.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private int string(byte[] bytes) throws IOException {
+        long offset = stringBytes;
+        strings.writeInt(bytes.length);
+        strings.write(bytes);
+        stringBytes += Integer.BYTES + bytes.length;
+        if (stringBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Analytics snapshot strings exceed one mapping");
+        }
+        return (int) offset;
+    }
+
+    private static void append(FileChannel out, Path part) throws IOException {
+        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+            long size = in.size();
+            for (long done = 0; done < size; ) {
+                done += in.transferTo(done, size - done, out);
+            }
+        }
+    }
+
+    private record UserRecord(long hash, int email, int firstHabit, int habitCount, int streak) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.habitflow.backend.config;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueSerializer;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Writes a habit's logs map as bitmasks instead of one "YYYY-MM-DD": true pair
+ * per day: {@code {"from": "2024-01-03", "days": <bytes>, "undone": <bytes>}},
+ * where bit {@code i} (least significant bit first within each byte) of
+ * {@code days} means the habit was done on {@code from + i} days, and of
+ * {@code undone} that the day is logged as not done. A false entry is not the
+ * same as a missing day: it overrides the day in the habit's archive. Each mask
+ * is left out when empty. Used only for the binary formats, see
+ * {@link WireFormatConfig}.
+ */
+public class CompactLogsSerializer extends ValueSerializer<Map<String, Boolean>> {
+
+    @Override
+    public void serialize(Map<String, Boolean> logs, JsonGenerator gen, SerializationContext ctxt) {
+        long[] epochDays = new long[logs.size()];
+        boolean[] done = new boolean[logs.size()];
+        int count = 0;
+        long first = Long.MAX_VALUE;
+        long lastDone = Long.MIN_VALUE;
+        long lastUndone = Long.MIN_VALUE;
+        for (Map.Entry<String, Boolean> entry : logs.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            long day = epochDay(entry.getKey());
+            epochDays[count] = day;
+            done[count++] = entry.getValue();
+            first = Math.min(first, day);
+            if (entry.getValue()) {
+                lastDone = Math.max(lastDone, day);
+            } else {
+                lastUndone = Math.max(lastUndone, day);
+            }
+        }
+
+        gen.writeStartObject();
+        if (count > 0) {
+            gen.writeName("from");
+            gen.writeString(LocalDate.ofEpochDay(first).toString());
+            writeMask(gen, "days", true, epochDays, done, count, first, lastDone);
+            writeMask(gen, "undone", false, epochDays, done, count, first, lastUndone);
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeMask(JsonGenerator gen, String name, boolean value, long[] epochDays, boolean[] done,
+                                  int count, long first, long last) {
+        if (last == Long.MIN_VALUE) {
+            return;
+        }
+        byte[] mask = new byte[(int) ((last - first) / 8 + 1)];
+        for (int i = 0; i < count; i++) {
+            if (done[i] == value) {
+                int offset = (int) (epochDays[i] - first);
+                mask[offset >> 3] |= (byte) (1 << (offset & 7));
+            }
+        }
+        gen.writeName(name);
+        gen.writeBinary(mask);
+    }
+
+    // Keys are always ISO dates; reading the digits directly avoids the formatter
+    private static long epochDay(String key) {
+        if (key.length() != 10 || key.charAt(4) != '-' || key.charAt(7) != '-') {
+            return LocalDate.parse(key).toEpochDay();
+        }
+        return LocalDate.of(digits(key, 0, 4), digits(key, 5, 7), digits(key, 8, 10)).toEpochDay();
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Invalid date key: " + s);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
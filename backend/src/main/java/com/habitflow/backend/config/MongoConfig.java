@@ -1,5 +1,6 @@
 package com.habitflow.backend.config;
 
+import com.habitflow.backend.trace.MongoQueryTracer;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
@@ -27,6 +28,7 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         ConnectionString connectionString = new ConnectionString(mongoUri);
         MongoClientSettings settings = MongoClientSettings.builder()
                 .applyConnectionString(connectionString)
+                .addCommandListener(new MongoQueryTracer())
                 .build();
         return MongoClients.create(settings);
     }
@@ -1,10 +1,17 @@
 package com.habitflow.backend.config;
 
+import com.habitflow.backend.fairness.FairnessFilter;
+import com.habitflow.backend.fairness.FairnessLimiter;
 import com.habitflow.backend.security.JwtAuthenticationEntryPoint;
 import com.habitflow.backend.security.JwtAuthenticationFilter;
+import com.habitflow.backend.security.JwtTokenProvider;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -27,6 +34,12 @@ public class SecurityConfig {
 
     private final JwtAuthenticationEntryPoint authenticationEntryPoint;
     private final JwtAuthenticationFilter authenticationFilter;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ObjectProvider<FairnessLimiter> fairnessLimiter;
+
+    // Set (native or framework) when a proxy in front supplies the client's address
+    @Value("${server.forward-headers-strategy:none}")
+    private String forwardHeadersStrategy;
 
     @Bean
     public static PasswordEncoder passwordEncoder() {
@@ -43,7 +56,11 @@ public class SecurityConfig {
         http.csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(authorize -> authorize
+                        // Async re-dispatches (SSE streams) were already authorized on the initial request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/users/*/avatar").permitAll()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .exceptionHandling(exception -> exception
                         .authenticationEntryPoint(authenticationEntryPoint))
@@ -51,6 +68,10 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
         http.addFilterBefore(authenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        // Before authentication, so a rejected request costs no user lookup
+        fairnessLimiter.ifAvailable(limiter -> http.addFilterBefore(
+                new FairnessFilter(limiter, jwtTokenProvider, !"none".equalsIgnoreCase(forwardHeadersStrategy)),
+                JwtAuthenticationFilter.class));
 
         return http.build();
     }
@@ -65,7 +86,7 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(List.of(frontendUrl, "http://localhost:5173", "http://127.0.0.1:5173"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Last-Event-ID"));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
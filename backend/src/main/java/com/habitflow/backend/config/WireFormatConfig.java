@@ -0,0 +1,47 @@
+package com.habitflow.backend.config;
+
+import com.habitflow.backend.model.Habit;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tools.jackson.databind.annotation.JsonSerialize;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.util.Map;
+
+/**
+ * Compact wire formats, chosen by the Accept header: {@code application/cbor} or
+ * {@code application/x-jackson-smile}. Both also switch habit logs to the
+ * bitmask encoding of {@link CompactLogsSerializer}. JSON stays the default and
+ * is unchanged for existing clients (it is gzip-compressed instead, see
+ * {@code server.compression} in application.yml).
+ */
+@Configuration
+public class WireFormatConfig implements WebMvcConfigurer {
+
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        builder.withCborConverter(new JacksonCborHttpMessageConverter(compactCborMapper()))
+                .withSmileConverter(new JacksonSmileHttpMessageConverter(compactSmileMapper()));
+    }
+
+    public static CBORMapper compactCborMapper() {
+        return CBORMapper.builder()
+                .addMixIn(Habit.class, CompactHabitMixin.class)
+                .build();
+    }
+
+    public static SmileMapper compactSmileMapper() {
+        return SmileMapper.builder()
+                .addMixIn(Habit.class, CompactHabitMixin.class)
+                .build();
+    }
+
+    abstract static class CompactHabitMixin {
+        @JsonSerialize(using = CompactLogsSerializer.class)
+        abstract Map<String, Boolean> getLogs();
+    }
+}
@@ -0,0 +1,98 @@
+package com.habitflow.backend.controller;
+
+import com.habitflow.backend.jfr.FlightRecordings;
+import com.habitflow.backend.jfr.FlightRecordings.RecordingInfo;
+import com.habitflow.backend.usage.UsageStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+// Only for the accounts listed in habitflow.admin.emails (see SecurityConfig)
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final FlightRecordings flightRecordings;
+    private final ObjectProvider<UsageStats> usageStats;
+
+    // Merged from every node's sketches: one query whatever the number of users
+    @GetMapping("/usage")
+    public ResponseEntity<?> getUsage(@RequestParam(defaultValue = "7") int days) {
+        UsageStats usage = usageStats.getIfAvailable();
+        if (usage == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(usage.report(days));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/jfr")
+    public ResponseEntity<List<RecordingInfo>> listRecordings() {
+        return ResponseEntity.ok(flightRecordings.list());
+    }
+
+    // e.g. POST /api/admin/jfr?duration=PT2M&maxSize=50MB; both are capped by habitflow.jfr
+    @PostMapping("/jfr")
+    public ResponseEntity<?> startRecording(@RequestParam(required = false) String duration,
+            @RequestParam(required = false) String maxSize) {
+        try {
+            return ResponseEntity.ok(flightRecordings.start(
+                    duration != null ? Duration.parse(duration) : null,
+                    maxSize != null ? DataSize.parse(maxSize) : null));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid duration. Use ISO-8601, e.g. PT2M");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/jfr/{id}/stop")
+    public ResponseEntity<RecordingInfo> stopRecording(@PathVariable long id) {
+        return ResponseEntity.of(flightRecordings.stop(id));
+    }
+
+    @DeleteMapping("/jfr/{id}")
+    public ResponseEntity<Void> deleteRecording(@PathVariable long id) {
+        return flightRecordings.delete(id) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    // id -1 is the continuous recording; a running recording is dumped as far as it got
+    @GetMapping("/jfr/{id}")
+    public ResponseEntity<Resource> downloadRecording(@PathVariable long id) throws IOException {
+        Path file = flightRecordings.dump(id).orElse(null);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        long length = Files.size(file);
+        // The dump is a temporary copy: gone once it has been sent
+        Resource body = new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(length)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(file.getFileName().toString()).build().toString())
+                .body(body);
+    }
+}
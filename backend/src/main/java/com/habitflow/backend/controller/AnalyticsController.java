@@ -1,23 +1,46 @@
 package com.habitflow.backend.controller;
 
-import com.habitflow.backend.dto.AnalyticsResponse;
-import com.habitflow.backend.service.AnalyticsService;
+import com.habitflow.backend.cache.ReadResult;
+import com.habitflow.backend.service.AnalyticsReader;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
 @RestController
 @RequestMapping("/api/analytics")
 @RequiredArgsConstructor
 public class AnalyticsController {
 
-    private final AnalyticsService analyticsService;
+    // Live from MongoDB, or from the mapped snapshot on an analytics node
+    private final AnalyticsReader analyticsService;
 
+    // Without a range: the fixed 7/30-day dashboard
     @GetMapping
-    public ResponseEntity<AnalyticsResponse> getAnalytics(Authentication authentication) {
-        return ResponseEntity.ok(analyticsService.getAnalytics(authentication.getName()));
+    public ResponseEntity<?> getAnalytics(@RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            Authentication authentication) {
+        if (from == null && to == null) {
+            return ReadResponses.of(() -> analyticsService.getAnalytics(authentication.getName()));
+        }
+        if (from == null || to == null) {
+            return ResponseEntity.badRequest().body("Both from and to are required");
+        }
+        try {
+            LocalDate fromDate = LocalDate.parse(from);
+            LocalDate toDate = LocalDate.parse(to);
+            return ReadResponses.of(() -> ReadResult.fresh(
+                    analyticsService.getRangeAnalytics(authentication.getName(), fromDate, toDate)));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid date format. Use YYYY-MM-DD");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 }
@@ -1,14 +1,29 @@
 package com.habitflow.backend.controller;
 
+import com.habitflow.backend.dto.CalendarResponse;
 import com.habitflow.backend.dto.HabitRequest;
+import com.habitflow.backend.dto.ReminderRequest;
+import com.habitflow.backend.dto.TitleSuggestion;
 import com.habitflow.backend.dto.UpdateHabitRequest;
-import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.event.HabitEventHub;
+import com.habitflow.backend.security.AuthenticatedUser;
+import com.habitflow.backend.service.CalendarService;
 import com.habitflow.backend.service.HabitService;
+import com.habitflow.backend.service.HabitStatsService;
+import com.habitflow.backend.service.ReminderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -17,15 +32,86 @@ import java.util.List;
 public class HabitController {
 
     private final HabitService habitService;
+    private final HabitEventHub habitEventHub;
+    private final CalendarService calendarService;
+    private final ReminderService reminderService;
+    private final HabitStatsService habitStatsService;
 
     @PostMapping
-    public ResponseEntity<Habit> createHabit(@RequestBody HabitRequest request, Authentication authentication) {
-        return ResponseEntity.ok(habitService.createHabit(authentication.getName(), request.getTitle()));
+    public ResponseEntity<?> createHabit(@RequestBody HabitRequest request, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(habitService.createHabit(authentication.getName(), request.getTitle()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<TitleSuggestion>> suggestTitles(@RequestParam(defaultValue = "") String prefix,
+            @RequestParam(required = false) Integer limit, Authentication authentication) {
+        return ResponseEntity.ok(habitService.suggestTitles(authentication.getName(), prefix, limit));
     }
 
     @GetMapping
-    public ResponseEntity<List<Habit>> getHabits(Authentication authentication) {
-        return ResponseEntity.ok(habitService.getUserHabits(authentication.getName()));
+    public ResponseEntity<?> getHabits(@RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean includeLogs,
+            Authentication authentication) {
+        // Plain list for existing clients; paged envelope once a limit or cursor is given
+        if (limit == null && cursor == null && includeLogs) {
+            return ReadResponses.of(() -> habitService.getUserHabits(authentication.getName()));
+        }
+        try {
+            return ResponseEntity.ok(
+                    habitService.getUserHabitsPage(authentication.getName(), limit, cursor, includeLogs));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/calendar")
+    public ResponseEntity<?> getCalendar(@RequestParam String month,
+            @RequestParam(defaultValue = "false") boolean habits,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid month format. Use YYYY-MM");
+        }
+
+        // Past months rarely change, so clients may reuse them for a while; the current
+        // month is always revalidated. Either way an unchanged month costs a 304, and no query.
+        CacheControl cacheControl = calendarService.isPastMonth(yearMonth)
+                ? CacheControl.maxAge(Duration.ofHours(1)).cachePrivate()
+                : CacheControl.noCache().cachePrivate();
+        String etag = calendarService.etag(user.getId(), yearMonth, habits);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        CalendarResponse calendar = calendarService.getMonth(user.getUsername(), yearMonth, habits);
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(calendar);
+    }
+
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            Authentication authentication) {
+        return habitEventHub.subscribe(habitService.getUserId(authentication.getName()), lastEventId);
+    }
+
+    // e.g. ?windows=7,30,90; each window ends today
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<?> getHabitStats(@PathVariable String id,
+            @RequestParam(required = false) List<Integer> windows,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        try {
+            return ResponseEntity.ok(habitStatsService.getStats(id, user.getId(), windows));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(403).body(e.getMessage());
+        }
     }
 
     @PostMapping("/{id}/toggle")
@@ -61,4 +147,28 @@ public class HabitController {
             return ResponseEntity.status(403).body(e.getMessage());
         }
     }
+
+    // Daily, at a local time; delivered through habitflow.reminders.sink
+    @PutMapping("/{id}/reminder")
+    public ResponseEntity<?> setReminder(@PathVariable String id, @RequestBody ReminderRequest request,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(reminderService.setReminder(id, authentication.getName(), request.getTime(),
+                    request.getZone()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(403).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}/reminder")
+    public ResponseEntity<?> clearReminder(@PathVariable String id, Authentication authentication) {
+        try {
+            reminderService.clearReminder(id, authentication.getName());
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(403).body(e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package com.habitflow.backend.controller;
+
+import com.habitflow.backend.cache.DatabaseUnavailableException;
+import com.habitflow.backend.cache.ReadResult;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/** Turns reads that may be served stale into responses that say so. */
+final class ReadResponses {
+
+    private ReadResponses() {
+    }
+
+    static ResponseEntity<?> of(Supplier<? extends ReadResult<?>> read) {
+        ReadResult<?> result;
+        try {
+            result = read.get();
+        } catch (DatabaseUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        }
+        if (!result.stale()) {
+            return ResponseEntity.ok(result.value());
+        }
+        long age = Math.max(0, Duration.between(result.asOf(), Instant.now()).toSeconds());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, Long.toString(age))
+                .header(HttpHeaders.WARNING, "110 - \"Response is Stale\"")
+                .body(result.value());
+    }
+}
@@ -8,8 +8,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/templates")
 @RequiredArgsConstructor
@@ -25,8 +23,17 @@ public class TemplateController {
     }
 
     @GetMapping
-    public ResponseEntity<List<HabitTemplate>> getTemplates(Authentication authentication) {
-        return ResponseEntity.ok(templateService.getUserTemplates(authentication.getName()));
+    public ResponseEntity<?> getTemplates(@RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication) {
+        if (limit == null && cursor == null) {
+            return ReadResponses.of(() -> templateService.getUserTemplates(authentication.getName()));
+        }
+        try {
+            return ResponseEntity.ok(templateService.getUserTemplatesPage(authentication.getName(), limit, cursor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -1,11 +1,24 @@
 package com.habitflow.backend.controller;
 
+import com.habitflow.backend.dto.ImportResult;
+import com.habitflow.backend.dto.ProfileView;
 import com.habitflow.backend.model.User;
+import com.habitflow.backend.service.AvatarService;
+import com.habitflow.backend.service.ImportService;
 import com.habitflow.backend.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/api/users")
@@ -13,17 +26,30 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService userService;
+    private final AvatarService avatarService;
+    private final ImportService importService;
 
     @GetMapping("/me")
-    public ResponseEntity<User> getCurrentUser(Authentication authentication) {
-        return userService.findByEmail(authentication.getName())
+    public ResponseEntity<ProfileView> getCurrentUser(Authentication authentication) {
+        return userService.findProfile(authentication.getName())
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/me")
-    public ResponseEntity<User> updateProfile(@RequestBody User user, Authentication authentication) {
-        return ResponseEntity.ok(userService.updateUser(authentication.getName(), user));
+    public ResponseEntity<?> updateProfile(@RequestBody User user, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(userService.updateUser(authentication.getName(), user));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Revokes every token of the account, this one included
+    @PostMapping("/me/logout-all")
+    public ResponseEntity<Void> logoutEverywhere(Authentication authentication) {
+        userService.logoutEverywhere(authentication.getName());
+        return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/me")
@@ -32,6 +58,48 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    // Public, like any <img> source. With the current ?v= the response never changes
+    @GetMapping("/{id}/avatar")
+    public ResponseEntity<byte[]> getAvatar(@PathVariable String id,
+                                            @RequestParam(defaultValue = "256") int size,
+                                            @RequestParam(required = false) String v,
+                                            WebRequest request) {
+        return avatarService.load(id, size).map(avatar -> {
+            String etag = "\"" + avatar.version() + "-" + size + "\"";
+            CacheControl cacheControl = avatar.version().equals(v)
+                    ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                    : CacheControl.noCache().cachePublic();
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).<byte[]>build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .body(avatar.data());
+        }).orElse(ResponseEntity.notFound().build());
+    }
+
+    // Streams the body; large uploads go straight to batched writes
+    @PostMapping(path = "/me/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importHistory(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                           HttpServletRequest request,
+                                           Authentication authentication) throws IOException {
+        ImportService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? ImportService.Format.CSV : ImportService.Format.NDJSON;
+        try {
+            return ResponseEntity.ok(importService.importHistory(authentication.getName(), request.getInputStream(), format));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/me/import")
+    public ResponseEntity<ImportResult> getImportProgress(Authentication authentication) {
+        ImportResult progress = importService.getProgress(authentication.getName());
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.notFound().build();
+    }
+
     @DeleteMapping("/me/data")
     public ResponseEntity<Void> deleteData(Authentication authentication) {
         userService.deleteUserData(authentication.getName());
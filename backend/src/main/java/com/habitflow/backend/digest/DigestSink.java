@@ -0,0 +1,15 @@
+package com.habitflow.backend.digest;
+
+import com.habitflow.backend.model.WeeklyDigest;
+
+import java.util.List;
+
+/**
+ * Where weekly digests go, chosen with {@code habitflow.digest.sink}. Called from
+ * the job's workers with one batch of users at a time, possibly concurrently. A
+ * resumed run delivers the batches after its checkpoint again.
+ */
+public interface DigestSink {
+
+    void deliver(List<WeeklyDigest> digests);
+}
@@ -0,0 +1,56 @@
+package com.habitflow.backend.digest;
+
+import com.habitflow.backend.model.WeeklyDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends digests to {@code <dir>/digests-<weekEnd>.ndjson}, one JSON object per
+ * line, for running without MongoDB. Batches delivered again after a restart
+ * appear twice; readers keep the last line per id.
+ */
+@Component
+@ConditionalOnProperty(name = "habitflow.digest.sink", havingValue = "file")
+public class FileDigestSink implements DigestSink {
+
+    private final Path dir;
+    private final JsonMapper json;
+
+    public FileDigestSink(@Value("${habitflow.digest.dir:${java.io.tmpdir}/habitflow-digests}") Path dir,
+            JsonMapper json) {
+        this.dir = dir;
+        this.json = json;
+    }
+
+    @Override
+    public void deliver(List<WeeklyDigest> digests) {
+        if (digests.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (WeeklyDigest digest : digests) {
+            lines.append(json.writeValueAsString(digest)).append('\n');
+        }
+        Path file = dir.resolve("digests-" + digests.get(0).getWeekEnd() + ".ndjson");
+        // One write per batch, so concurrent batches do not interleave within a line
+        synchronized (this) {
+            try {
+                Files.createDirectories(dir);
+                Files.writeString(file, lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
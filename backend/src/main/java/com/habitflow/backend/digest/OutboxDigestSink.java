@@ -0,0 +1,39 @@
+package com.habitflow.backend.digest;
+
+import com.habitflow.backend.model.WeeklyDigest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Upserts digests into {@code weekly_digests} in one bulk write per batch, keyed by
+ * user and week, so batches delivered again after a restart replace their earlier
+ * copies.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "habitflow.digest.sink", havingValue = "outbox", matchIfMissing = true)
+public class OutboxDigestSink implements DigestSink {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void deliver(List<WeeklyDigest> digests) {
+        if (digests.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WeeklyDigest.class);
+        for (WeeklyDigest digest : digests) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(digest.getId())), digest,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+}
@@ -0,0 +1,101 @@
+package com.habitflow.backend.digest;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.WeeklyDigest;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.service.AnalyticsService;
+import com.habitflow.backend.service.UserSweep;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Weekly pass that digests every user's last week (Monday to Sunday) and hands
+ * the digests to the {@link DigestSink}.
+ *
+ * User ids are streamed in order and cut into batches by the {@link UserSweep},
+ * which checkpoints progress like the nightly snapshots. Each batch's habits come
+ * from one {@code $in} query, issued from the cursor thread no more than
+ * {@code max-batches-per-second} times a second, and the digests are computed on
+ * a fork-join pool.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "habitflow.digest.enabled", matchIfMissing = true)
+public class WeeklyDigestJob {
+
+    private final UserSweep sweep;
+    private final HabitRepository habitRepository;
+    private final AnalyticsService analyticsService;
+    private final DigestSink sink;
+    private final int workers;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final long batchIntervalNanos;
+    private final Duration staleAfter;
+
+    public WeeklyDigestJob(UserSweep sweep, HabitRepository habitRepository, AnalyticsService analyticsService,
+            DigestSink sink,
+            @Value("${habitflow.digest.workers:4}") int workers,
+            @Value("${habitflow.digest.batch-size:200}") int batchSize,
+            @Value("${habitflow.digest.max-in-flight:8}") int maxInFlight,
+            @Value("${habitflow.digest.max-batches-per-second:20}") double maxBatchesPerSecond,
+            @Value("${habitflow.digest.stale-after:10m}") Duration staleAfter) {
+        if (workers < 1 || batchSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("habitflow.digest workers, batch-size and max-in-flight must be positive");
+        }
+        this.sweep = sweep;
+        this.habitRepository = habitRepository;
+        this.analyticsService = analyticsService;
+        this.sink = sink;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        // 0 or less: no pacing
+        this.batchIntervalNanos = maxBatchesPerSecond > 0 ? (long) (1_000_000_000L / maxBatchesPerSecond) : 0;
+        this.staleAfter = staleAfter;
+    }
+
+    @Scheduled(cron = "${habitflow.digest.cron:0 0 6 * * MON}")
+    public void runWeekly() {
+        run(LocalDate.now().with(TemporalAdjusters.previous(DayOfWeek.SUNDAY)));
+    }
+
+    public void run(LocalDate weekEnd) {
+        // Shares the snapshot runs' collection; the prefix keeps the ids apart
+        String runId = "digest-" + weekEnd;
+        AtomicInteger delivered = new AtomicInteger();
+        sweep.run(runId, "Digest", staleAfter, batchSize, maxInFlight, batchIntervalNanos, new ForkJoinPool(workers),
+                userIds -> {
+                    List<Habit> habits = habitRepository.findByUserIdIn(userIds);
+                    return () -> {
+                        List<WeeklyDigest> digests = digest(habits, weekEnd);
+                        sink.deliver(digests);
+                        delivered.addAndGet(digests.size());
+                    };
+                }).ifPresent(summary -> log.info("Digest run {} finished: {} users, {} digests, {} failed, {} ms",
+                runId, summary.processed(), delivered.get(), summary.failed(), summary.millis()));
+    }
+
+    // Users without habits that week get no digest
+    private List<WeeklyDigest> digest(List<Habit> habits, LocalDate weekEnd) {
+        Map<String, List<Habit>> byUser = habits.stream().collect(Collectors.groupingBy(Habit::getUserId));
+        return byUser.entrySet().parallelStream()
+                .map(entry -> analyticsService.weeklyDigest(entry.getKey(), entry.getValue(), weekEnd))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
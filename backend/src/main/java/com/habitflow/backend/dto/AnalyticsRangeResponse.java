@@ -0,0 +1,33 @@
+package com.habitflow.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsRangeResponse {
+    private String from;
+    private String to;
+    private int totalPossible;
+    private int totalDone;
+    private double percentage;
+    private List<HabitRange> habitStats;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HabitRange {
+        private String id;
+        private String title;
+        private int possibleDays;
+        private int completedCount;
+        private double completionRate;
+    }
+}
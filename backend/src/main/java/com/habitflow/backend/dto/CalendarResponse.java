@@ -0,0 +1,42 @@
+package com.habitflow.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CalendarResponse {
+    private String month;
+    private List<DayTotals> days;
+
+    // Only when requested with habits=true
+    private List<HabitMonth> habits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DayTotals {
+        private String date;
+        private int completed;
+        private int active;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HabitMonth {
+        private String id;
+        private String title;
+
+        // Bit (day - 1) is set when the habit was done on that day of the month
+        private int mask;
+    }
+}
@@ -0,0 +1,36 @@
+package com.habitflow.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitStatsResponse {
+    private String habitId;
+    // The day the windows and the current streak end on
+    private String asOf;
+    private int currentStreak;
+    private int longestStreak;
+    private int totalCompleted;
+    private List<WindowStats> windows;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WindowStats {
+        private int days;
+        // Days in the window on which the habit existed
+        private int possibleDays;
+        private int completedDays;
+        private int missedDays;
+        private double completionRate;
+        private String trend;
+    }
+}
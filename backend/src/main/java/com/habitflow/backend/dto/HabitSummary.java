@@ -0,0 +1,22 @@
+package com.habitflow.backend.dto;
+
+import com.habitflow.backend.model.Habit;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// A habit without its history, for responses to create and rename
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitSummary {
+    private String id;
+    private String title;
+    private Instant createdAt;
+
+    public static HabitSummary of(Habit habit) {
+        return new HabitSummary(habit.getId(), habit.getTitle(), habit.getCreatedAt());
+    }
+}
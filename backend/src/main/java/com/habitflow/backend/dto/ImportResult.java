@@ -0,0 +1,31 @@
+package com.habitflow.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResult {
+    private boolean finished;
+    private long rowsRead;
+    private long rowsImported;
+    private int habits;
+    private long errorCount;
+    // The first few only, see errorCount for the total
+    private List<RowError> errors;
+    private long durationMs;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,44 @@
+package com.habitflow.backend.dto;
+
+import org.bson.types.ObjectId;
+
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor. Wraps the last returned document id so the next page can
+ * continue with {@code _id > cursor} instead of skipping over earlier pages.
+ */
+public final class PageCursor {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private PageCursor() {
+    }
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(new ObjectId(lastId).toByteArray());
+    }
+
+    public static ObjectId decode(String cursor) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != 12) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ObjectId(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,17 @@
+package com.habitflow.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> items;
+
+    // Opaque cursor for the next page, null when this is the last page
+    private String next;
+}
@@ -0,0 +1,40 @@
+package com.habitflow.backend.dto;
+
+import com.habitflow.backend.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// The user as shown to themselves: no password hash, the picture as a URL
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileView {
+    private String id;
+    private String email;
+    private String username;
+    private String name;
+    private String age;
+    private String height;
+    private String weight;
+    private String profilePicture;
+    private Instant createdAt;
+
+    public static ProfileView of(User user, String avatarUrl) {
+        return ProfileView.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .username(user.getUsername())
+                .name(user.getName())
+                .age(user.getAge())
+                .height(user.getHeight())
+                .weight(user.getWeight())
+                .profilePicture(avatarUrl)
+                .createdAt(user.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.habitflow.backend.dto;
+
+import lombok.Data;
+
+@Data
+public class ReminderRequest {
+    // HH:mm, local to zone
+    private String time;
+    // IANA zone id, e.g. Europe/Berlin; UTC when missing
+    private String zone;
+}
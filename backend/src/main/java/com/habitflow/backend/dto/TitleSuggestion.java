@@ -0,0 +1,17 @@
+package com.habitflow.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// An autocomplete entry: one of the user's habit titles, or a title from one of their templates
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TitleSuggestion {
+    public static final String HABIT = "habit";
+    public static final String TEMPLATE = "template";
+
+    private String title;
+    private String source;
+}
@@ -0,0 +1,15 @@
+package com.habitflow.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Just the day that changed; the client already has the rest of the history
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToggleResult {
+    private String habitId;
+    private String date;
+    private boolean value;
+}
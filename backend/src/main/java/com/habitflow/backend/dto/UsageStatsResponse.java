@@ -0,0 +1,55 @@
+package com.habitflow.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsageStatsResponse {
+    private String from;
+    private String to;
+    private int nodes;
+
+    // Distinct users over the whole range and over the 7 days ending at "to"
+    private long activeUsers;
+    private long weeklyActiveUsers;
+    // Relative standard error of every active-user count
+    private double activeUsersError;
+    // Every quantile is within this fraction of a value actually seen
+    private double quantileError;
+
+    private List<Day> days;
+    // As of the last day the nightly snapshot pass covered
+    private Quantiles habitsPerUser;
+    private Quantiles completionDelayMinutes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Day {
+        private String date;
+        private long activeUsers;
+        private long completions;
+        private long habitsCreated;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Quantiles {
+        private String asOf;
+        private long count;
+        private double p50;
+        private double p90;
+        private double p99;
+        private double max;
+    }
+}
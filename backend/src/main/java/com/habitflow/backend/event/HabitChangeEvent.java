@@ -0,0 +1,98 @@
+package com.habitflow.backend.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.habitflow.backend.model.Habit;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A change to one user's habits, published by the services after the write
+ * succeeded. Serialized as-is into the SSE stream, so only the changed bits are
+ * carried (e.g. a toggle sends the date and new value, not the whole logs map).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HabitChangeEvent {
+    @JsonIgnore
+    private String userId;
+
+    private HabitChangeType type;
+    private String habitId;
+    private String title;
+    private String date;
+    private Boolean value;
+    private String templateId;
+    private List<String> habitIds;
+
+    public static HabitChangeEvent created(Habit habit) {
+        return HabitChangeEvent.builder()
+                .userId(habit.getUserId())
+                .type(HabitChangeType.CREATE)
+                .habitId(habit.getId())
+                .title(habit.getTitle())
+                .build();
+    }
+
+    public static HabitChangeEvent toggled(Habit habit, String date, boolean value) {
+        return HabitChangeEvent.builder()
+                .userId(habit.getUserId())
+                .type(HabitChangeType.TOGGLE)
+                .habitId(habit.getId())
+                .date(date)
+                .value(value)
+                .build();
+    }
+
+    public static HabitChangeEvent renamed(Habit habit) {
+        return HabitChangeEvent.builder()
+                .userId(habit.getUserId())
+                .type(HabitChangeType.RENAME)
+                .habitId(habit.getId())
+                .title(habit.getTitle())
+                .build();
+    }
+
+    public static HabitChangeEvent deleted(Habit habit) {
+        return HabitChangeEvent.builder()
+                .userId(habit.getUserId())
+                .type(HabitChangeType.DELETE)
+                .habitId(habit.getId())
+                .build();
+    }
+
+    // Not a change: handed straight to the SSE hub by the reminder scheduler
+    public static HabitChangeEvent reminder(String userId, String habitId, String title, String date) {
+        return HabitChangeEvent.builder()
+                .userId(userId)
+                .type(HabitChangeType.REMINDER)
+                .habitId(habitId)
+                .title(title)
+                .date(date)
+                .build();
+    }
+
+    // Bulk writes carry no detail: clients reload
+    public static HabitChangeEvent imported(String userId) {
+        return HabitChangeEvent.builder()
+                .userId(userId)
+                .type(HabitChangeType.IMPORT)
+                .build();
+    }
+
+    public static HabitChangeEvent templateApplied(String userId, String templateId, List<Habit> createdHabits) {
+        return HabitChangeEvent.builder()
+                .userId(userId)
+                .type(HabitChangeType.TEMPLATE_APPLY)
+                .templateId(templateId)
+                .habitIds(createdHabits.stream().map(Habit::getId).toList())
+                .build();
+    }
+}
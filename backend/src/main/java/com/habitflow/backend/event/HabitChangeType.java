@@ -0,0 +1,11 @@
+package com.habitflow.backend.event;
+
+public enum HabitChangeType {
+    CREATE,
+    TOGGLE,
+    RENAME,
+    DELETE,
+    TEMPLATE_APPLY,
+    IMPORT,
+    REMINDER
+}
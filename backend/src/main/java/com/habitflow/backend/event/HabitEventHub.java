@@ -0,0 +1,340 @@
+package com.habitflow.backend.event;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans {@link HabitChangeEvent}s out to the SSE connections of the owning user.
+ *
+ * Connections are plain async {@link SseEmitter}s, so an idle connection holds no
+ * thread - only a small queue. A connection with something to send gets a sender
+ * thread of its own until its queue is empty, so one client behind a full socket
+ * never holds up the others. A client that cannot keep up - its buffer overflows,
+ * or a single send takes longer than {@code send-timeout} - is cut off and catches
+ * up through {@code Last-Event-ID} from its user's replay ring.
+ */
+@Slf4j
+@Component
+public class HabitEventHub {
+
+    static final String RESYNC_EVENT = "resync";
+
+    private final int maxConnectionsPerUser;
+    private final int bufferSize;
+    private final int replaySize;
+    private final long emitterTimeoutMillis;
+    private final long sendTimeoutNanos;
+
+    // Event ids are "<epoch>-<seq>"; a different epoch means the id came from another
+    // node or an earlier process and cannot be resumed from our rings
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<String, List<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    // user id -> that user's recent events, least recently used first; guarded by itself.
+    // Dropping a whole ring loses events up to droppedUpTo for users without one.
+    private final LinkedHashMap<String, ReplayRing> replay;
+    private long droppedUpTo;
+
+    private final ExecutorService senders = Executors.newCachedThreadPool(daemon("sse-send"));
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("sse-heartbeat"));
+
+    public HabitEventHub(@Value("${habitflow.events.max-connections-per-user:5}") int maxConnectionsPerUser,
+                         @Value("${habitflow.events.buffer-size:64}") int bufferSize,
+                         @Value("${habitflow.events.replay-size:64}") int replaySize,
+                         @Value("${habitflow.events.replay-users:10000}") int replayUsers,
+                         @Value("${habitflow.events.timeout:30m}") Duration emitterTimeout,
+                         @Value("${habitflow.events.send-timeout:10s}") Duration sendTimeout,
+                         @Value("${habitflow.events.heartbeat-interval:25s}") Duration heartbeatInterval) {
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.replay = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ReplayRing> eldest) {
+                if (size() <= replayUsers) {
+                    return false;
+                }
+                droppedUpTo = Math.max(droppedUpTo, eldest.getValue().lastSeq());
+                return true;
+            }
+        };
+        long interval = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, interval, interval, TimeUnit.MILLISECONDS);
+        long check = Math.max(1, sendTimeout.toMillis() / 2);
+        heartbeat.scheduleAtFixedRate(this::cutOffStuckSends, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        return subscribe(userId, lastEventId, new SseEmitter(emitterTimeoutMillis));
+    }
+
+    SseEmitter subscribe(String userId, String lastEventId, SseEmitter emitter) {
+        Connection connection = new Connection(userId, emitter);
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+
+        // Registered and replayed under the replay lock: events up to registeredAt come from
+        // the replay, later ones live, so none is sent twice or ahead of an older one
+        List<Connection> userConnections;
+        synchronized (replay) {
+            connection.registeredAt = sequence.get();
+            userConnections = connections.compute(userId, (k, list) -> {
+                List<Connection> target = list != null ? list : new CopyOnWriteArrayList<>();
+                target.add(connection);
+                return target;
+            });
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                replay(connection, lastEventId);
+            }
+        }
+        connectionCount.incrementAndGet();
+
+        // Over the cap: drop the oldest connection, it is most likely an abandoned tab
+        while (userConnections.size() > maxConnectionsPerUser) {
+            userConnections.get(0).cutOff();
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onChange(HabitChangeEvent event) {
+        // Numbered and queued under the lock, so each connection gets its user's events in order
+        synchronized (replay) {
+            long seq = sequence.incrementAndGet();
+            String id = epoch + "-" + seq;
+            replay.computeIfAbsent(event.getUserId(), k -> new ReplayRing()).add(new ReplayEntry(seq, id, event));
+
+            List<Connection> userConnections = connections.get(event.getUserId());
+            if (userConnections == null) {
+                return;
+            }
+            // Builders are single-use, so each connection gets its own
+            for (Connection connection : userConnections) {
+                if (connection.registeredAt < seq) {
+                    connection.enqueue(toMessage(id, event));
+                }
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    // Called holding the replay lock
+    private void replay(Connection connection, String lastEventId) {
+        long lastSeq = parseSequence(lastEventId);
+        ReplayRing ring = replay.get(connection.userId);
+        long lostUpTo = ring != null ? ring.evictedUpTo : droppedUpTo;
+        if (lastSeq < 0 || lastSeq < lostUpTo) {
+            // Gap we cannot fill: tell the client to refetch instead of silently losing events
+            connection.enqueue(SseEmitter.event().name(RESYNC_EVENT).data(""));
+            return;
+        }
+        if (ring != null) {
+            for (ReplayEntry entry : ring.entries) {
+                if (entry.seq > lastSeq) {
+                    connection.enqueue(toMessage(entry.id, entry.event));
+                }
+            }
+        }
+    }
+
+    private long parseSequence(String lastEventId) {
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toMessage(String id, HabitChangeEvent event) {
+        return SseEmitter.event()
+                .id(id)
+                .name(event.getType().name().toLowerCase())
+                .data(event);
+    }
+
+    private void sendHeartbeats() {
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.enqueue(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    private void cutOffStuckSends() {
+        long now = System.nanoTime();
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                long started = connection.sendStartedAt;
+                if (started != 0 && now - started > sendTimeoutNanos) {
+                    log.debug("SSE send to user {} stuck, closing connection", connection.userId);
+                    connection.cutOff();
+                }
+            }
+        }
+    }
+
+    private void remove(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        connections.computeIfPresent(connection.userId, (k, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.emitter.complete();
+            }
+        }
+        connections.clear();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record ReplayEntry(long seq, String id, HabitChangeEvent event) {
+    }
+
+    private class ReplayRing {
+        final Deque<ReplayEntry> entries = new ArrayDeque<>();
+        // Events up to here were pushed out of the ring
+        long evictedUpTo;
+
+        void add(ReplayEntry entry) {
+            entries.addLast(entry);
+            if (entries.size() > replaySize) {
+                evictedUpTo = entries.removeFirst().seq;
+            }
+        }
+
+        long lastSeq() {
+            return entries.isEmpty() ? evictedUpTo : entries.peekLast().seq;
+        }
+    }
+
+    private class Connection {
+        final String userId;
+        final SseEmitter emitter;
+        final Queue<SseEmitter.SseEventBuilder> buffer = new ConcurrentLinkedQueue<>();
+        final AtomicInteger buffered = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean completed = new AtomicBoolean();
+        // Last sequence number taken when registered; events up to it are the replay's to send
+        long registeredAt;
+        // When the send in progress started, 0 if none
+        volatile long sendStartedAt;
+
+        Connection(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder message) {
+            if (closed.get()) {
+                return;
+            }
+            if (buffered.incrementAndGet() > bufferSize) {
+                // Slow consumer: cut it off, it will resume from the replay ring
+                log.debug("SSE buffer overflow for user {}, closing connection", userId);
+                cutOff();
+                return;
+            }
+            buffer.add(message);
+            schedule();
+        }
+
+        // Never blocks: a send stuck in a full socket holds the emitter's lock, so completing
+        // is left to this connection's sender, which gets to it once that send fails
+        void cutOff() {
+            remove(this);
+            buffer.clear();
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            try {
+                SseEmitter.SseEventBuilder message;
+                while (!closed.get() && (message = buffer.poll()) != null) {
+                    buffered.decrementAndGet();
+                    sendStartedAt = System.nanoTime();
+                    try {
+                        emitter.send(message);
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+            } finally {
+                draining.set(false);
+            }
+            if (closed.get()) {
+                if (completed.compareAndSet(false, true)) {
+                    emitter.complete();
+                }
+                return;
+            }
+            // Re-check: a message may have arrived between the last poll and releasing the flag
+            if (!buffer.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
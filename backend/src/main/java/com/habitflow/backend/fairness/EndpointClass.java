@@ -0,0 +1,27 @@
+package com.habitflow.backend.fairness;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/** How expensive a request is, for the per-user rates of {@link FairnessLimiter}. */
+public enum EndpointClass {
+
+    READ,
+    WRITE,
+    // Reads that scan a user's history
+    ANALYTICS,
+    // Login and registration: anonymous, and slow on purpose (BCrypt)
+    AUTH;
+
+    public static EndpointClass of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (path.startsWith("/api/analytics") || path.startsWith("/api/admin/usage")
+                || (path.startsWith("/api/habits/") && path.endsWith("/stats"))) {
+            return ANALYTICS;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) ? READ : WRITE;
+    }
+}
@@ -0,0 +1,67 @@
+package com.habitflow.backend.fairness;
+
+import com.habitflow.backend.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Runs each request past the {@link FairnessLimiter} ahead of authentication, so a
+ * rejected request costs no user lookup. The key is the subject of a valid bearer
+ * token - a signature check, no database - and otherwise the client's address,
+ * but only when forwarded headers are trusted; otherwise the remote address is the
+ * load balancer's, shared by everyone, and anonymous requests go unkeyed. Added to
+ * the security chain by {@code SecurityConfig} rather than declared a bean, so it
+ * is not registered with the servlet container a second time.
+ */
+public class FairnessFilter extends OncePerRequestFilter {
+
+    private final FairnessLimiter limiter;
+    private final JwtTokenProvider tokenProvider;
+    private final boolean trustClientAddress;
+
+    public FairnessFilter(FairnessLimiter limiter, JwtTokenProvider tokenProvider, boolean trustClientAddress) {
+        this.limiter = limiter;
+        this.tokenProvider = tokenProvider;
+        this.trustClientAddress = trustClientAddress;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // CORS preflights never reach a controller
+        return "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        FairnessLimiter.Admission admission = limiter.admit(key(request), EndpointClass.of(request));
+        if (!admission.admitted()) {
+            response.setStatus(admission.status());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(admission.retryAfterSeconds()));
+            response.setContentType("text/plain");
+            response.getWriter().write(admission.status() == 429 ? "Too many requests" : "Server busy");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(admission);
+        }
+    }
+
+    // The parsed token is kept on the request for JwtAuthenticationFilter
+    private String key(HttpServletRequest request) {
+        Claims claims = tokenProvider.parse(request);
+        if (claims != null) {
+            return claims.getSubject();
+        }
+        return trustClientAddress ? "address:" + request.getRemoteAddr() : null;
+    }
+}
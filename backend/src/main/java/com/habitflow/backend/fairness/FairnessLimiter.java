@@ -0,0 +1,230 @@
+package com.habitflow.backend.fairness;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps one client from taking the worker threads and database connections
+ * everyone else needs. A request is admitted if its user
+ * <ul>
+ * <li>has fewer than {@code max-concurrent-per-user} requests in flight,</li>
+ * <li>is within the rate of the request's {@link EndpointClass} (a token bucket
+ *     with a burst), and</li>
+ * <li>gets one of the {@code max-concurrent} node-wide slots within
+ *     {@code max-wait}, queueing first-come first-served behind at most
+ *     {@code max-queued} others.</li>
+ * </ul>
+ * The first two are the user's own doing and get a 429; the last is the node
+ * being busy and gets a 503, either way with a Retry-After. Login and
+ * registration are kept apart: they are limited by client address at their own
+ * rate, with no concurrency cap, since BCrypt makes every one of them slow.
+ * Requests without a key (anonymous, with no trustworthy client address) only
+ * wait for a node-wide slot.
+ *
+ * Per-user state lives in fixed arrays of {@code stripes} slots indexed by a hash
+ * of the user, updated with compare-and-set: no locks, no allocation and no
+ * eviction. Two users sharing a slot share its limits, which with enough stripes
+ * only matters when both are busy at once.
+ */
+@Component
+@ConditionalOnBooleanProperty(name = "habitflow.fairness.enabled", matchIfMissing = true)
+public class FairnessLimiter {
+
+    private static final EndpointClass[] CLASSES = EndpointClass.values();
+    private static final int NO_STRIPE = -1;
+
+    private final int stripeMask;
+    private final int maxPerUser;
+    private final long[] intervalNanos = new long[CLASSES.length];
+    private final long[] toleranceNanos = new long[CLASSES.length];
+    private final int maxQueued;
+    private final long maxWaitNanos;
+
+    // Theoretical arrival time of each stripe's next request per class (GCRA), in nanos since origin
+    private final AtomicLongArray buckets;
+    private final AtomicIntegerArray inFlight;
+    private final Semaphore slots;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final long origin = System.nanoTime();
+    private final Counter[][] rejected = new Counter[Rejection.values().length][CLASSES.length];
+
+    public FairnessLimiter(MeterRegistry meterRegistry,
+            @Value("${habitflow.fairness.stripes:16384}") int stripes,
+            @Value("${habitflow.fairness.max-concurrent-per-user:8}") int maxPerUser,
+            @Value("${habitflow.fairness.read.rate:20}") double readRate,
+            @Value("${habitflow.fairness.read.burst:40}") int readBurst,
+            @Value("${habitflow.fairness.write.rate:10}") double writeRate,
+            @Value("${habitflow.fairness.write.burst:20}") int writeBurst,
+            @Value("${habitflow.fairness.analytics.rate:2}") double analyticsRate,
+            @Value("${habitflow.fairness.analytics.burst:10}") int analyticsBurst,
+            @Value("${habitflow.fairness.auth.rate:20}") double authRate,
+            @Value("${habitflow.fairness.auth.burst:50}") int authBurst,
+            @Value("${habitflow.fairness.max-concurrent:150}") int maxConcurrent,
+            @Value("${habitflow.fairness.max-queued:100}") int maxQueued,
+            @Value("${habitflow.fairness.max-wait:2s}") Duration maxWait) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("habitflow.fairness.stripes must be a power of two");
+        }
+        if (maxPerUser < 1 || maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("habitflow.fairness concurrency limits must be positive");
+        }
+        this.stripeMask = stripes - 1;
+        this.maxPerUser = maxPerUser;
+        rate(EndpointClass.READ, readRate, readBurst);
+        rate(EndpointClass.WRITE, writeRate, writeBurst);
+        rate(EndpointClass.ANALYTICS, analyticsRate, analyticsBurst);
+        rate(EndpointClass.AUTH, authRate, authBurst);
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.buckets = new AtomicLongArray(stripes * CLASSES.length);
+        this.inFlight = new AtomicIntegerArray(stripes);
+        this.slots = new Semaphore(maxConcurrent, true);
+
+        for (Rejection reason : Rejection.values()) {
+            for (EndpointClass endpoint : CLASSES) {
+                rejected[reason.ordinal()][endpoint.ordinal()] = Counter.builder("habitflow.fairness.rejected")
+                        .tag("reason", reason.tag)
+                        .tag("class", endpoint.name().toLowerCase())
+                        .register(meterRegistry);
+            }
+        }
+        Gauge.builder("habitflow.fairness.queued", queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    private void rate(EndpointClass endpoint, double perSecond, int burst) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("habitflow.fairness rates and bursts must be positive");
+        }
+        intervalNanos[endpoint.ordinal()] = (long) (1_000_000_000L / perSecond);
+        toleranceNanos[endpoint.ordinal()] = (burst - 1) * intervalNanos[endpoint.ordinal()];
+    }
+
+    /**
+     * Admits the request of {@code user} (null if there is nobody to limit) or says
+     * why not; an admitted one must be {@link #release released}.
+     */
+    public Admission admit(String user, EndpointClass endpoint) {
+        int stripe = NO_STRIPE;
+        if (user != null) {
+            int userStripe = stripe(user);
+            // Auth requests only hold their slot for as long as BCrypt takes; the rate is their limit
+            boolean capped = endpoint != EndpointClass.AUTH;
+            if (capped && inFlight.incrementAndGet(userStripe) > maxPerUser) {
+                inFlight.decrementAndGet(userStripe);
+                return reject(Rejection.USER_CONCURRENCY, endpoint, 1);
+            }
+            stripe = capped ? userStripe : NO_STRIPE;
+            long waitNanos = take(userStripe * CLASSES.length + endpoint.ordinal(), endpoint);
+            if (waitNanos > 0) {
+                releaseStripe(stripe);
+                return reject(Rejection.RATE, endpoint, seconds(waitNanos));
+            }
+        }
+
+        Rejection busy = acquireSlot();
+        if (busy != null) {
+            releaseStripe(stripe);
+            return reject(busy, endpoint, seconds(maxWaitNanos));
+        }
+        return new Admission(stripe, 0, 0);
+    }
+
+    public void release(Admission admission) {
+        if (admission.admitted()) {
+            slots.release();
+            releaseStripe(admission.stripe());
+        }
+    }
+
+    private void releaseStripe(int stripe) {
+        if (stripe != NO_STRIPE) {
+            inFlight.decrementAndGet(stripe);
+        }
+    }
+
+    // 0 if the bucket had room, else how long until it will
+    private long take(int slot, EndpointClass endpoint) {
+        long interval = intervalNanos[endpoint.ordinal()];
+        long tolerance = toleranceNanos[endpoint.ordinal()];
+        while (true) {
+            long now = System.nanoTime() - origin;
+            long arrival = buckets.get(slot);
+            if (arrival - now > tolerance) {
+                return arrival - tolerance - now;
+            }
+            if (buckets.compareAndSet(slot, arrival, Math.max(arrival, now) + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    // Null once a slot is held
+    private Rejection acquireSlot() {
+        try {
+            // Not plain tryAcquire(): that would jump the queue
+            if (slots.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                return Rejection.QUEUE_FULL;
+            }
+            try {
+                return slots.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS) ? null : Rejection.QUEUE_TIMEOUT;
+            } finally {
+                queued.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Rejection.QUEUE_TIMEOUT;
+        }
+    }
+
+    private Admission reject(Rejection reason, EndpointClass endpoint, long retryAfterSeconds) {
+        rejected[reason.ordinal()][endpoint.ordinal()].increment();
+        return new Admission(NO_STRIPE, reason.status, retryAfterSeconds);
+    }
+
+    private int stripe(String user) {
+        int hash = user.hashCode() * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & stripeMask;
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    /** An admitted request ({@code status} 0), or the status and Retry-After to turn it away with. */
+    public record Admission(int stripe, int status, long retryAfterSeconds) {
+
+        public boolean admitted() {
+            return status == 0;
+        }
+    }
+
+    private enum Rejection {
+        USER_CONCURRENCY("user-concurrency", 429),
+        RATE("rate", 429),
+        QUEUE_FULL("queue-full", 503),
+        QUEUE_TIMEOUT("queue-timeout", 503);
+
+        final String tag;
+        final int status;
+
+        Rejection(String tag, int status) {
+            this.tag = tag;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.habitflow.backend.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("habitflow.AnalyticsPhase")
+@Label("Analytics Phase")
+@Description("One phase of computing a user's analytics")
+@Category({"HabitFlow", "Analytics"})
+@StackTrace(false)
+public class AnalyticsPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Habits")
+    int habits;
+
+    public static AnalyticsPhaseEvent begin(String phase, int habits) {
+        AnalyticsPhaseEvent event = new AnalyticsPhaseEvent();
+        event.phase = phase;
+        event.habits = habits;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,210 @@
+package com.habitflow.backend.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JDK Flight Recorder recordings for diagnosing a slow node. A continuous
+ * recording with the JDK's low-overhead "default" settings keeps the last
+ * {@code continuous.max-age} on disk, with this application's events past
+ * {@code continuous.threshold}; dumping it shows what just happened.
+ *
+ * On-demand recordings use the "profile" settings and record every application
+ * event. They always stop on their own after at most {@code max-duration} and
+ * {@code max-size}, and at most {@code max-recordings} of them are kept; the
+ * oldest finished one makes room for a new one.
+ */
+@Slf4j
+@Component
+public class FlightRecordings {
+
+    public static final long CONTINUOUS = -1;
+
+    private static final List<Class<? extends jdk.jfr.Event>> EVENTS = List.of(AnalyticsPhaseEvent.class,
+            ToggleEvent.class, JwtVerificationEvent.class, RepositoryCallEvent.class);
+
+    private final boolean continuousEnabled;
+    private final Duration continuousMaxAge;
+    private final DataSize continuousMaxSize;
+    private final Duration continuousThreshold;
+    private final Duration maxDuration;
+    private final DataSize maxSize;
+    private final int maxRecordings;
+
+    private final Map<Long, Recording> onDemand = new ConcurrentHashMap<>();
+    private volatile Recording continuous;
+
+    public FlightRecordings(@Value("${habitflow.jfr.continuous.enabled:true}") boolean continuousEnabled,
+            @Value("${habitflow.jfr.continuous.max-age:30m}") Duration continuousMaxAge,
+            @Value("${habitflow.jfr.continuous.max-size:100MB}") DataSize continuousMaxSize,
+            @Value("${habitflow.jfr.continuous.threshold:20ms}") Duration continuousThreshold,
+            @Value("${habitflow.jfr.max-duration:5m}") Duration maxDuration,
+            @Value("${habitflow.jfr.max-size:200MB}") DataSize maxSize,
+            @Value("${habitflow.jfr.max-recordings:3}") int maxRecordings) {
+        this.continuousEnabled = continuousEnabled;
+        this.continuousMaxAge = continuousMaxAge;
+        this.continuousMaxSize = continuousMaxSize;
+        this.continuousThreshold = continuousThreshold;
+        this.maxDuration = maxDuration;
+        this.maxSize = maxSize;
+        this.maxRecordings = maxRecordings;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startContinuous() {
+        if (!continuousEnabled) {
+            return;
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("habitflow-continuous");
+            recording.setToDisk(true);
+            recording.setMaxAge(continuousMaxAge);
+            recording.setMaxSize(continuousMaxSize.toBytes());
+            for (Class<? extends jdk.jfr.Event> event : EVENTS) {
+                recording.enable(event).withThreshold(continuousThreshold);
+            }
+            recording.start();
+            continuous = recording;
+            log.info("Continuous flight recording started, keeping {}", continuousMaxAge);
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            // Not every runtime allows it; the application does not depend on it
+            log.warn("Could not start the continuous flight recording: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        onDemand.values().forEach(Recording::close);
+        onDemand.clear();
+        if (continuous != null) {
+            continuous.close();
+        }
+    }
+
+    public RecordingInfo start(Duration duration, DataSize size) {
+        Duration bounded = duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+        DataSize boundedSize = size == null || size.compareTo(maxSize) > 0 ? maxSize : size;
+        if (bounded.isNegative() || bounded.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        synchronized (onDemand) {
+            if (onDemand.size() >= maxRecordings && !evictOldestFinished()) {
+                throw new IllegalStateException("Already " + maxRecordings + " recordings running");
+            }
+            Recording recording;
+            try {
+                recording = new Recording(Configuration.getConfiguration("profile"));
+            } catch (IOException | ParseException e) {
+                throw new IllegalStateException("JFR profile settings unavailable: " + e.getMessage());
+            }
+            recording.setName("habitflow-" + Instant.now());
+            recording.setToDisk(true);
+            recording.setDuration(bounded);
+            recording.setMaxSize(boundedSize.toBytes());
+            EVENTS.forEach(event -> recording.enable(event).withThreshold(Duration.ZERO));
+            recording.start();
+            onDemand.put(recording.getId(), recording);
+            log.info("Flight recording {} started for {}", recording.getId(), bounded);
+            return RecordingInfo.of(recording);
+        }
+    }
+
+    public Optional<RecordingInfo> stop(long id) {
+        Recording recording = onDemand.get(id);
+        if (recording == null) {
+            return Optional.empty();
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return Optional.of(RecordingInfo.of(recording));
+    }
+
+    public boolean delete(long id) {
+        Recording recording = onDemand.remove(id);
+        if (recording == null) {
+            return false;
+        }
+        recording.close();
+        return true;
+    }
+
+    public List<RecordingInfo> list() {
+        List<RecordingInfo> recordings = new ArrayList<>();
+        if (continuous != null) {
+            recordings.add(RecordingInfo.of(continuous, CONTINUOUS));
+        }
+        onDemand.values().forEach(recording -> recordings.add(RecordingInfo.of(recording)));
+        return recordings;
+    }
+
+    /**
+     * Writes what the recording holds so far to a temporary file the caller must
+     * delete; {@link #CONTINUOUS} is the continuous recording.
+     */
+    public Optional<Path> dump(long id) throws IOException {
+        Recording recording = id == CONTINUOUS ? continuous : onDemand.get(id);
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return Optional.empty();
+        }
+        Path file = Files.createTempFile("habitflow-" + (id == CONTINUOUS ? "continuous" : id) + "-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return Optional.of(file);
+    }
+
+    // Called holding the lock on onDemand
+    private boolean evictOldestFinished() {
+        Recording oldest = null;
+        for (Recording recording : onDemand.values()) {
+            if (recording.getState() == RecordingState.STOPPED
+                    && (oldest == null || recording.getStopTime().isBefore(oldest.getStopTime()))) {
+                oldest = recording;
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        onDemand.remove(oldest.getId());
+        oldest.close();
+        return true;
+    }
+
+    public record RecordingInfo(long id, String name, String state, Instant startTime, Instant stopTime,
+            Duration duration, long sizeBytes) {
+
+        static RecordingInfo of(Recording recording) {
+            return of(recording, recording.getId());
+        }
+
+        static RecordingInfo of(Recording recording, long id) {
+            return new RecordingInfo(id, recording.getName(), recording.getState().name(), recording.getStartTime(),
+                    recording.getStopTime(), recording.getDuration(), recording.getSize());
+        }
+    }
+}
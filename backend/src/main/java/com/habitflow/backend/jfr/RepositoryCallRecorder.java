@@ -0,0 +1,53 @@
+package com.habitflow.backend.jfr;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Wraps every repository bean, MongoDB-backed or in-memory, so each call is a
+ * {@link RepositoryCallEvent}. A disabled event costs one flag check per call.
+ */
+@Component
+public class RepositoryCallRecorder implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof Repository<?, ?>)) {
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory();
+        factory.setTarget(bean);
+        for (Class<?> type : ClassUtils.getAllInterfacesAsSet(bean)) {
+            // Spring Data's own proxy markers; the new proxy adds its own
+            if (type != SpringProxy.class && type != Advised.class && type != DecoratingProxy.class) {
+                factory.addInterface(type);
+            }
+        }
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            RepositoryCallEvent event = new RepositoryCallEvent();
+            event.begin();
+            boolean failed = true;
+            try {
+                Object result = invocation.proceed();
+                failed = false;
+                return result;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.repository = beanName;
+                    event.method = invocation.getMethod().getName();
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        });
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+}
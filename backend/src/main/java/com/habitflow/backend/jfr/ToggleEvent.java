@@ -0,0 +1,26 @@
+package com.habitflow.backend.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("habitflow.Toggle")
+@Label("Habit Toggle")
+@Category({"HabitFlow", "Habits"})
+@StackTrace(false)
+public class ToggleEvent extends Event {
+
+    @Label("Habit Id")
+    public String habitId;
+
+    @Label("Date")
+    public String date;
+
+    @Label("Attempts")
+    public int attempts;
+
+    @Label("Outcome")
+    public String outcome;
+}
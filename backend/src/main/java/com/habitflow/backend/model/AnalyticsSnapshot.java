@@ -0,0 +1,49 @@
+package com.habitflow.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The part of a user's analytics that only changes at day boundaries, computed
+ * up to and including {@code asOf} (normally yesterday). Today is merged in live.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "analytics_snapshots")
+public class AnalyticsSnapshot {
+    @Id
+    private String id; // User ID
+
+    private String asOf; // YYYY-MM-DD
+
+    // Set when a day up to asOf changes; the snapshot is then recomputed on next read
+    private boolean dirty;
+
+    // Bumped with every dirty mark, so a snapshot computed from older data cannot overwrite it
+    private long edits;
+
+    // Consecutive days ending at asOf with at least one habit done
+    private int streak;
+
+    private List<HabitSnapshot> habits = new ArrayList<>();
+
+    private Instant computedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HabitSnapshot {
+        private String id;
+        // Bit i: done on asOf minus i days, for the 30 days ending at asOf
+        private int recent;
+        // All-time completions up to asOf
+        private int completed;
+    }
+}
@@ -0,0 +1,30 @@
+package com.habitflow.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Progress of one nightly snapshot run or weekly digest run, so a run interrupted
+ * by a restart resumes after the last user it finished and only one node works on
+ * it at a time.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "analytics_snapshot_runs")
+public class AnalyticsSnapshotRun {
+    @Id
+    private String id; // asOf date, YYYY-MM-DD, or digest-<week end date>
+
+    private String owner;
+    private Instant heartbeatAt;
+
+    // Every user up to and including this id has been processed
+    private String lastUserId;
+    private long processed;
+
+    private Instant finishedAt;
+}
@@ -0,0 +1,35 @@
+package com.habitflow.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * What one node saw of one day's usage, as mergeable sketches. Each node rewrites
+ * its own document as the day goes on; the operator view merges all of them.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "usage_stats")
+public class DailyUsage {
+    @Id
+    private String id; // day:node
+
+    private String day; // YYYY-MM-DD
+    private String node;
+
+    private long completions;
+    private long habitsCreated;
+
+    // HyperLogLog registers of the users who created or toggled a habit
+    private byte[] activeUsers;
+    // Quantile sketches: habits owned per user (from the nightly snapshot pass),
+    // and minutes from the start of a day to it being marked done
+    private byte[] habitsPerUser;
+    private byte[] completionDelay;
+
+    private Instant updatedAt;
+}
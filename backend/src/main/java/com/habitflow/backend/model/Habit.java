@@ -1,19 +1,33 @@
 package com.habitflow.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.text.Normalizer;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 @Data
 @NoArgsConstructor
 @Document(collection = "habits")
+@CompoundIndex(name = "userId_id", def = "{'userId': 1, '_id': 1}")
+// Habits written before titleKey existed have none and are left out
+@CompoundIndex(name = "userId_titleKey", def = "{'userId': 1, 'titleKey': 1}", unique = true,
+        partialFilter = "{ 'titleKey': { '$exists': true } }")
+@CompoundIndex(name = "reminder_due", def = "{'reminder.shard': 1, 'reminder.nextFireAt': 1}", sparse = true)
 public class Habit {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     @Id
     private String id;
 
@@ -21,14 +35,65 @@ public class Habit {
 
     private String title;
 
+    // The title as titleKey(title) folds it; unique per user
+    @JsonIgnore
+    private String titleKey;
+
     @CreatedDate
     private Instant createdAt;
 
     // Key: YYYY-MM-DD, Value: true/false
     private Map<String, Boolean> logs = new HashMap<>();
 
+    // History older than the retention horizon, moved out of logs by HabitRetentionJob.
+    // Key: YYYY, value: HabitArchive bitmap. A day still present in logs overrides it.
+    // Not sent with habit lists; the calendar decodes it per month.
+    @JsonIgnore
+    private Map<String, byte[]> archive;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private HabitReminder reminder;
+
     public Habit(String userId, String title) {
         this.userId = userId;
+        setTitle(title);
+    }
+
+    /** Case, surrounding and repeated whitespace, and compatibility forms do not make titles different. */
+    public static String titleKey(String title) {
+        String folded = Normalizer.normalize(title, Normalizer.Form.NFKC).strip().toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(folded).replaceAll(" ");
+    }
+
+    public void setTitle(String title) {
         this.title = title;
+        this.titleKey = title != null ? titleKey(title) : null;
+    }
+
+    public boolean isDone(String date) {
+        Boolean logged = logs.get(date);
+        if (logged != null) {
+            return logged;
+        }
+        byte[] bits = archive != null ? archive.get(date.substring(0, 4)) : null;
+        return bits != null && HabitArchive.isSet(bits, LocalDate.parse(date).getDayOfYear());
+    }
+
+    // Completions in the archive, not counting days that logs overrides
+    public int archivedCompletions() {
+        if (archive == null) {
+            return 0;
+        }
+        int count = 0;
+        for (byte[] bits : archive.values()) {
+            count += HabitArchive.count(bits);
+        }
+        for (String date : logs.keySet()) {
+            byte[] bits = archive.get(date.substring(0, 4));
+            if (bits != null && HabitArchive.isSet(bits, LocalDate.parse(date).getDayOfYear())) {
+                count--;
+            }
+        }
+        return count;
     }
 }
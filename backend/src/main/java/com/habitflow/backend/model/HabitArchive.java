@@ -0,0 +1,36 @@
+package com.habitflow.backend.model;
+
+/**
+ * Packed completion bitmaps for one year of archived {@link Habit} history: bit
+ * {@code dayOfYear - 1} is set when the habit was completed that day.
+ */
+public final class HabitArchive {
+
+    // 366 days, rounded up to whole bytes
+    public static final int YEAR_BYTES = 46;
+
+    private HabitArchive() {
+    }
+
+    public static boolean isSet(byte[] bits, int dayOfYear) {
+        int bit = dayOfYear - 1;
+        return bit >>> 3 < bits.length && (bits[bit >>> 3] & (1 << (bit & 7))) != 0;
+    }
+
+    public static void set(byte[] bits, int dayOfYear, boolean done) {
+        int bit = dayOfYear - 1;
+        if (done) {
+            bits[bit >>> 3] |= (byte) (1 << (bit & 7));
+        } else {
+            bits[bit >>> 3] &= (byte) ~(1 << (bit & 7));
+        }
+    }
+
+    public static int count(byte[] bits) {
+        int count = 0;
+        for (byte b : bits) {
+            count += Integer.bitCount(b & 0xff);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,47 @@
+package com.habitflow.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * A daily reminder for a habit at a local time in the user's zone. {@code nextFireAt}
+ * is the next occurrence, indexed together with {@code shard} so each node loads
+ * only the shards it holds a lease on.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitReminder {
+
+    public static final int SHARDS = 64;
+
+    // HH:mm
+    private String time;
+    private String zone;
+    private Instant nextFireAt;
+    @JsonIgnore
+    private int shard;
+
+    public static int shardOf(String habitId) {
+        return Math.floorMod(habitId.hashCode(), SHARDS);
+    }
+
+    // The first occurrence strictly after the given instant; a time skipped by a DST
+    // change fires at the first valid moment after it
+    public Instant nextAfter(Instant after) {
+        ZoneId zoneId = ZoneId.of(zone);
+        ZonedDateTime local = after.atZone(zoneId);
+        ZonedDateTime candidate = local.toLocalDate().atTime(LocalTime.parse(time)).atZone(zoneId);
+        if (!candidate.isAfter(local)) {
+            candidate = local.toLocalDate().plusDays(1).atTime(LocalTime.parse(time)).atZone(zoneId);
+        }
+        return candidate.toInstant();
+    }
+}
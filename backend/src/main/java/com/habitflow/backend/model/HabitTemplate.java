@@ -3,6 +3,7 @@ package com.habitflow.backend.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @Document(collection = "habit_templates")
+@CompoundIndex(name = "userId_id", def = "{'userId': 1, '_id': 1}")
 public class HabitTemplate {
     @Id
     private String id;
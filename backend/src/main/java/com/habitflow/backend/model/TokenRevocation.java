@@ -0,0 +1,32 @@
+package com.habitflow.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Tokens of a user older than {@code minVersion} are no longer accepted. Only
+ * kept as long as such a token could still be unexpired.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "token_revocations")
+public class TokenRevocation {
+    @Id
+    private String id; // Email, the tokens' subject
+
+    private int minVersion;
+
+    // Nodes poll for revocations made after the last one they saw
+    @Indexed
+    private Instant revokedAt;
+
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -27,7 +27,12 @@ public class User {
     private String age;
     private String height;
     private String weight;
+    // Legacy inline data URL, moved to the avatar store; in responses, the avatar URL
     private String profilePicture;
+    // Hash of the current avatar upload, null when the user has none
+    private String avatarVersion;
+    // Carried in every token; tokens below the version in token_revocations are rejected
+    private int tokenVersion;
 
     @CreatedDate
     private Instant createdAt;
@@ -0,0 +1,41 @@
+package com.habitflow.backend.model;
+
+import com.habitflow.backend.dto.AnalyticsResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One user's week, Monday to Sunday, as produced by the weekly digest job for a
+ * sender (e-mail, push) to pick up.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "weekly_digests")
+public class WeeklyDigest {
+    @Id
+    private String id; // userId:weekEnd, so a rerun replaces rather than duplicates
+
+    private String userId;
+    private String weekStart; // YYYY-MM-DD
+    private String weekEnd;
+
+    private AnalyticsResponse.SummaryStats summary;
+
+    // Null when no habit was done (best) or none was missed (worst)
+    private String bestHabit;
+    private String worstHabit;
+
+    // Streak at the end of the week and its change since the end of the week before
+    private int streak;
+    private int streakChange;
+
+    private Instant createdAt;
+}
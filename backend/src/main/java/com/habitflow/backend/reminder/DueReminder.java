@@ -0,0 +1,7 @@
+package com.habitflow.backend.reminder;
+
+import java.time.Instant;
+
+/** A reminder that came due; {@code date} is the day it is for, in the user's zone. */
+public record DueReminder(String habitId, String userId, String title, String date, Instant fireAt) {
+}
@@ -0,0 +1,27 @@
+package com.habitflow.backend.reminder;
+
+import com.habitflow.backend.model.HabitReminder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Single node, no database: every shard is ours
+@Component
+@Profile("inmemory")
+public class LocalReminderLeases implements ReminderLeases {
+
+    private static final Set<Integer> ALL = IntStream.range(0, HabitReminder.SHARDS).boxed().collect(Collectors.toSet());
+
+    @Override
+    public Set<Integer> renew(String owner, Instant now, Instant until) {
+        return ALL;
+    }
+
+    @Override
+    public void releaseAll(String owner) {
+    }
+}
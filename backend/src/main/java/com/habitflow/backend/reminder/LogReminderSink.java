@@ -0,0 +1,21 @@
+package com.habitflow.backend.reminder;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "habitflow.reminders.sink", havingValue = "log")
+public class LogReminderSink implements ReminderSink {
+
+    @Override
+    public void deliver(List<DueReminder> reminders) {
+        for (DueReminder reminder : reminders) {
+            log.info("Reminder for habit {} of user {} ({}): {}", reminder.habitId(), reminder.userId(),
+                    reminder.date(), reminder.title());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.habitflow.backend.reminder;
+
+import com.habitflow.backend.model.HabitReminder;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Shard leases in {@code reminder_leases}, one document per shard. A node's fair
+ * share is the shard count divided by the nodes holding a live lease, so a node
+ * that joins gets shards as the others give back their surplus.
+ */
+@Component
+@Profile("!inmemory")
+@RequiredArgsConstructor
+public class MongoReminderLeases implements ReminderLeases {
+
+    static final String COLLECTION = "reminder_leases";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Set<Integer> renew(String owner, Instant now, Instant until) {
+        Set<String> liveOwners = new HashSet<>(Set.of(owner));
+        TreeSet<Integer> held = new TreeSet<>();
+        Set<Integer> taken = new HashSet<>();
+        for (Document lease : mongoTemplate.findAll(Document.class, COLLECTION)) {
+            if (lease.getDate("until").toInstant().isAfter(now)) {
+                liveOwners.add(lease.getString("owner"));
+                (owner.equals(lease.getString("owner")) ? held : taken).add(lease.getInteger("_id"));
+            }
+        }
+        int share = (HabitReminder.SHARDS + liveOwners.size() - 1) / liveOwners.size();
+
+        List<Integer> surplus = new ArrayList<>();
+        while (held.size() > share) {
+            surplus.add(held.pollLast());
+        }
+        if (!surplus.isEmpty()) {
+            mongoTemplate.updateMulti(mine(owner, surplus), Update.update("until", Date.from(now)), COLLECTION);
+        }
+        if (!held.isEmpty()) {
+            mongoTemplate.updateMulti(mine(owner, held), Update.update("until", Date.from(until)), COLLECTION);
+        }
+
+        List<Integer> free = new ArrayList<>();
+        for (int shard = 0; shard < HabitReminder.SHARDS; shard++) {
+            if (!held.contains(shard) && !taken.contains(shard) && !surplus.contains(shard)) {
+                free.add(shard);
+            }
+        }
+        // Nodes starting together should not all race for the same shards
+        Collections.shuffle(free);
+        for (int i = 0; i < free.size() && held.size() < share; i++) {
+            if (take(free.get(i), owner, now, until)) {
+                held.add(free.get(i));
+            }
+        }
+        return held;
+    }
+
+    @Override
+    public void releaseAll(String owner) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("owner").is(owner)),
+                Update.update("until", new Date()), COLLECTION);
+    }
+
+    private boolean take(int shard, String owner, Instant now, Instant until) {
+        Query query = Query.query(Criteria.where("_id").is(shard)
+                .orOperator(Criteria.where("until").lte(Date.from(now)), Criteria.where("owner").is(owner)));
+        Update update = new Update().set("owner", owner).set("until", Date.from(until));
+        try {
+            Document lease = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, COLLECTION);
+            return lease != null && owner.equals(lease.getString("owner"));
+        } catch (DuplicateKeyException e) {
+            // Someone else's live lease: the filter did not match and the upsert collided
+            return false;
+        }
+    }
+
+    private static Query mine(String owner, Iterable<Integer> shards) {
+        List<Integer> ids = new ArrayList<>();
+        shards.forEach(ids::add);
+        return Query.query(Criteria.where("_id").in(ids).and("owner").is(owner));
+    }
+}
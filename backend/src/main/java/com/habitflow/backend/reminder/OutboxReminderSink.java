@@ -0,0 +1,37 @@
+package com.habitflow.backend.reminder;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Appends due reminders to {@code reminder_outbox} in one insert per batch, for a
+ * separate sender (push, e-mail) to pick up and delete.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "habitflow.reminders.sink", havingValue = "outbox", matchIfMissing = true)
+public class OutboxReminderSink implements ReminderSink {
+
+    static final String COLLECTION = "reminder_outbox";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void deliver(List<DueReminder> reminders) {
+        List<Document> entries = reminders.stream()
+                .map(reminder -> new Document("habitId", reminder.habitId())
+                        .append("userId", reminder.userId())
+                        .append("title", reminder.title())
+                        .append("date", reminder.date())
+                        .append("fireAt", Date.from(reminder.fireAt()))
+                        .append("createdAt", new Date()))
+                .toList();
+        mongoTemplate.insert(entries, COLLECTION);
+    }
+}
@@ -0,0 +1,21 @@
+package com.habitflow.backend.reminder;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Which reminder shards this node fires. A shard is held by one node at a time
+ * until its lease runs out, so reminders are not fired twice when several nodes
+ * run the scheduler.
+ */
+public interface ReminderLeases {
+
+    /**
+     * Extends the leases {@code owner} still holds and takes free or expired ones up to
+     * its fair share, all until {@code until}; gives back any above that share.
+     * Returns the shards held now.
+     */
+    Set<Integer> renew(String owner, Instant now, Instant until);
+
+    void releaseAll(String owner);
+}
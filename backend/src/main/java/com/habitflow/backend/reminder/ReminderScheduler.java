@@ -0,0 +1,239 @@
+package com.habitflow.backend.reminder;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitReminder;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.HabitRepositoryCustom.ReminderAdvance;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires habit reminders from a {@link TimingWheel}. Every {@code load-interval} the
+ * node renews its shard leases and loads the reminders of its shards due within
+ * {@code lookahead} through the {@code reminder.shard, reminder.nextFireAt} index,
+ * so only a short window is ever in memory. Each second the wheel hands over what
+ * came due, and the batch is checked against the database in one read: reminders
+ * changed meanwhile are dropped, those whose day is already done are skipped, and
+ * all of them are moved on to their next occurrence in one bulk write before the
+ * rest goes to the {@link ReminderSink}.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "habitflow.reminders.enabled", matchIfMissing = true)
+public class ReminderScheduler {
+
+    private final HabitRepository habitRepository;
+    private final ReminderLeases leases;
+    private final ReminderSink sink;
+    private final String nodeId;
+    private final long lookaheadMillis;
+    private final long loadIntervalMillis;
+    private final long leaseMillis;
+    private final long missedGraceMillis;
+    private final int batchSize;
+    private final int loadLimit;
+
+    private final TimingWheel<Scheduled> wheel;
+    // habit id -> the fire time it is in the wheel for, so reloads do not add it twice
+    private final Map<String, Instant> inWheel = new ConcurrentHashMap<>();
+    private volatile Set<Integer> shards = Set.of();
+    private long nextLoad;
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "reminder-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter fired;
+    private final Counter skippedDone;
+    private final Counter missed;
+
+    public ReminderScheduler(HabitRepository habitRepository, ReminderLeases leases, ReminderSink sink,
+            MeterRegistry meterRegistry,
+            @Value("${habitflow.reminders.node-id:}") String nodeId,
+            @Value("${habitflow.reminders.lookahead:10m}") Duration lookahead,
+            @Value("${habitflow.reminders.load-interval:30s}") Duration loadInterval,
+            @Value("${habitflow.reminders.lease:60s}") Duration lease,
+            @Value("${habitflow.reminders.missed-grace:15m}") Duration missedGrace,
+            @Value("${habitflow.reminders.batch-size:500}") int batchSize,
+            @Value("${habitflow.reminders.load-limit:50000}") int loadLimit) {
+        this.habitRepository = habitRepository;
+        this.leases = leases;
+        this.sink = sink;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.lookaheadMillis = lookahead.toMillis();
+        this.loadIntervalMillis = loadInterval.toMillis();
+        this.leaseMillis = lease.toMillis();
+        this.missedGraceMillis = missedGrace.toMillis();
+        this.batchSize = batchSize;
+        this.loadLimit = loadLimit;
+        if (leaseMillis <= loadIntervalMillis * 2) {
+            throw new IllegalArgumentException("habitflow.reminders.lease must be more than twice the load-interval");
+        }
+        // 1s ticks, 60 slots: seconds, minutes, hours - 60 hours in all
+        this.wheel = new TimingWheel<>(1000, 60, 3, System.currentTimeMillis());
+        if (lookaheadMillis >= wheel.rangeMillis()) {
+            throw new IllegalArgumentException("habitflow.reminders.lookahead is beyond the wheel's range");
+        }
+
+        this.fired = Counter.builder("habitflow.reminders.fired").register(meterRegistry);
+        this.skippedDone = Counter.builder("habitflow.reminders.skipped").tag("reason", "done").register(meterRegistry);
+        this.missed = Counter.builder("habitflow.reminders.skipped").tag("reason", "missed").register(meterRegistry);
+        Gauge.builder("habitflow.reminders.scheduled", inWheel, Map::size).register(meterRegistry);
+        Gauge.builder("habitflow.reminders.shards", this, scheduler -> scheduler.shards.size()).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ticker.scheduleWithFixedDelay(this::tick, 0, 1, TimeUnit.SECONDS);
+        log.info("Reminder scheduler started as node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        ticker.shutdownNow();
+        ticker.awaitTermination(5, TimeUnit.SECONDS);
+        try {
+            leases.releaseAll(nodeId);
+        } catch (RuntimeException e) {
+            log.warn("Could not release reminder leases: {}", e.getMessage());
+        }
+    }
+
+    /** Called after a reminder was set on this node, so a time within the loaded window is not missed. */
+    public void schedule(String habitId, HabitReminder reminder) {
+        if (shards.contains(reminder.getShard())
+                && reminder.getNextFireAt().toEpochMilli() < System.currentTimeMillis() + lookaheadMillis) {
+            // The wheel belongs to the ticker thread
+            ticker.execute(() -> add(habitId, reminder));
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            if (now >= nextLoad) {
+                load(now);
+                nextLoad = now + loadIntervalMillis;
+            }
+            List<Scheduled> due = new ArrayList<>();
+            wheel.advance(now, scheduled -> {
+                // Rescheduled since it was added: the newer entry fires instead
+                if (inWheel.remove(scheduled.habitId(), scheduled.fireAt())) {
+                    due.add(scheduled);
+                }
+            });
+            for (int from = 0; from < due.size(); from += batchSize) {
+                dispatch(due.subList(from, Math.min(due.size(), from + batchSize)), now);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Reminder tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void load(long now) {
+        Set<Integer> held = leases.renew(nodeId, Instant.ofEpochMilli(now), Instant.ofEpochMilli(now + leaseMillis));
+        if (!held.equals(shards)) {
+            log.info("Reminder shards held: {} of {}", held.size(), HabitReminder.SHARDS);
+        }
+        shards = Set.copyOf(held);
+        if (shards.isEmpty()) {
+            return;
+        }
+        List<Habit> upcoming = habitRepository.findDueReminders(shards, Instant.ofEpochMilli(now + lookaheadMillis),
+                loadLimit);
+        for (Habit habit : upcoming) {
+            add(habit.getId(), habit.getReminder());
+        }
+    }
+
+    private void add(String habitId, HabitReminder reminder) {
+        Instant fireAt = reminder.getNextFireAt();
+        if (fireAt.equals(inWheel.put(habitId, fireAt))) {
+            return;
+        }
+        ZoneId zone = ZoneId.of(reminder.getZone());
+        wheel.add(new Scheduled(habitId, reminder.getShard(), fireAt, fireAt.atZone(zone).toLocalDate().toString()),
+                fireAt.toEpochMilli());
+    }
+
+    private void dispatch(List<Scheduled> batch, long now) {
+        Map<String, Scheduled> byId = new HashMap<>();
+        Set<String> dates = new HashSet<>();
+        for (Scheduled scheduled : batch) {
+            // Lost the shard since loading it: its new owner fires it
+            if (shards.contains(scheduled.shard())) {
+                byId.put(scheduled.habitId(), scheduled);
+                dates.add(scheduled.date());
+            }
+        }
+        if (byId.isEmpty()) {
+            return;
+        }
+
+        List<DueReminder> deliver = new ArrayList<>();
+        List<ReminderAdvance> advances = new ArrayList<>();
+        for (Habit habit : habitRepository.findReminderTargets(byId.keySet(), dates)) {
+            Scheduled scheduled = byId.get(habit.getId());
+            HabitReminder reminder = habit.getReminder();
+            if (reminder == null || !scheduled.fireAt().equals(reminder.getNextFireAt())) {
+                continue;
+            }
+            advances.add(new ReminderAdvance(habit.getId(), scheduled.fireAt(),
+                    reminder.nextAfter(scheduled.fireAt())));
+            if (Boolean.TRUE.equals(habit.getLogs().get(scheduled.date()))) {
+                skippedDone.increment();
+            } else if (now - scheduled.fireAt().toEpochMilli() > missedGraceMillis) {
+                missed.increment();
+            } else {
+                deliver.add(new DueReminder(habit.getId(), habit.getUserId(), habit.getTitle(), scheduled.date(),
+                        scheduled.fireAt()));
+            }
+        }
+        // Moved on first: a crash in between loses a reminder rather than sending it twice
+        habitRepository.advanceReminders(advances);
+        if (!deliver.isEmpty()) {
+            sink.deliver(deliver);
+            fired.increment(deliver.size());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    private record Scheduled(String habitId, int shard, Instant fireAt, String date) {
+    }
+}
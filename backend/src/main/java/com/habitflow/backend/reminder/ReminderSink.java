@@ -0,0 +1,13 @@
+package com.habitflow.backend.reminder;
+
+import java.util.List;
+
+/**
+ * Where due reminders go, chosen with {@code habitflow.reminders.sink}. Called from
+ * the scheduler thread with one batch per tick, so implementations should not block
+ * for long.
+ */
+public interface ReminderSink {
+
+    void deliver(List<DueReminder> reminders);
+}
@@ -0,0 +1,27 @@
+package com.habitflow.backend.reminder;
+
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.event.HabitEventHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Only reaches users connected to this node; use the outbox when running several
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "habitflow.reminders.sink", havingValue = "sse")
+public class SseReminderSink implements ReminderSink {
+
+    private final HabitEventHub habitEventHub;
+
+    @Override
+    public void deliver(List<DueReminder> reminders) {
+        // Straight to the hub, not published: a reminder changes nothing to invalidate
+        for (DueReminder reminder : reminders) {
+            habitEventHub.onChange(HabitChangeEvent.reminder(reminder.userId(), reminder.habitId(),
+                    reminder.title(), reminder.date()));
+        }
+    }
+}
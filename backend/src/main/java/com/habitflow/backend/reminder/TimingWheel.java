@@ -0,0 +1,102 @@
+package com.habitflow.backend.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel. Level 0 has {@code slots} buckets of one tick each;
+ * every level above has {@code slots} buckets each spanning a whole turn of the
+ * level below. Adding is O(1) whatever the delay, and advancing costs one bucket
+ * per tick plus, every {@code slots^n} ticks, moving one level-n bucket down.
+ *
+ * Not thread-safe; {@link ReminderScheduler} drives it from a single thread.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int slots;
+    private final List<List<Entry<T>>>[] levels;
+    // slots^level, in ticks
+    private final long[] spans;
+
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int slots, int levelCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = slots;
+        this.levels = new List[levelCount];
+        this.spans = new long[levelCount + 1];
+        spans[0] = 1;
+        for (int level = 0; level < levelCount; level++) {
+            spans[level + 1] = Math.multiplyExact(spans[level], slots);
+            levels[level] = new ArrayList<>(slots);
+            for (int slot = 0; slot < slots; slot++) {
+                levels[level].add(new ArrayList<>());
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /** The furthest ahead an item can be added, in milliseconds. */
+    public long rangeMillis() {
+        return (spans[levels.length] - 1) * tickMillis;
+    }
+
+    /** Adds an item due at {@code dueMillis}; overdue items fire on the next tick. Returns false when out of range. */
+    public boolean add(T item, long dueMillis) {
+        long dueTick = Math.max(dueMillis / tickMillis, currentTick + 1);
+        if (dueTick - currentTick >= spans[levels.length]) {
+            return false;
+        }
+        place(new Entry<>(item, dueTick));
+        size++;
+        return true;
+    }
+
+    /** Moves the wheel up to {@code nowMillis}, handing every item that came due to {@code expired}. */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            for (int level = levels.length - 1; level > 0; level--) {
+                if (currentTick % spans[level] == 0) {
+                    List<Entry<T>> bucket = levels[level].get((int) ((currentTick / spans[level]) % slots));
+                    List<Entry<T>> cascading = new ArrayList<>(bucket);
+                    bucket.clear();
+                    cascading.forEach(this::place);
+                }
+            }
+            List<Entry<T>> due = levels[0].get((int) (currentTick % slots));
+            for (Entry<T> entry : due) {
+                size--;
+                expired.accept(entry.item());
+            }
+            due.clear();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Into the lowest level whose range covers the delay, at the bucket of its due tick
+    private void place(Entry<T> entry) {
+        long delay = entry.dueTick() - currentTick;
+        int level = 0;
+        while (delay >= spans[level + 1]) {
+            level++;
+        }
+        if (level == 0 && delay <= 0) {
+            // Cascaded on its own tick: due now
+            levels[0].get((int) (currentTick % slots)).add(entry);
+            return;
+        }
+        levels[level].get((int) ((entry.dueTick() / spans[level]) % slots)).add(entry);
+    }
+
+    private record Entry<T>(T item, long dueTick) {
+    }
+}
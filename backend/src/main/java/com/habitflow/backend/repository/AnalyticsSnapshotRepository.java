@@ -0,0 +1,10 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.AnalyticsSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnalyticsSnapshotRepository extends MongoRepository<AnalyticsSnapshot, String>,
+        AnalyticsSnapshotRepositoryCustom {
+}
@@ -0,0 +1,12 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.AnalyticsSnapshot;
+
+public interface AnalyticsSnapshotRepositoryCustom {
+
+    // Flags the user's snapshot for recomputation, creating a placeholder if there is none yet
+    void markDirty(String userId);
+
+    // Stores the snapshot unless it was marked dirty again since its edits count was read
+    boolean saveIfUnchanged(AnalyticsSnapshot snapshot);
+}
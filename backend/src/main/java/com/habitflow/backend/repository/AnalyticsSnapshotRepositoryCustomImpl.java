@@ -0,0 +1,34 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.AnalyticsSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+public class AnalyticsSnapshotRepositoryCustomImpl implements AnalyticsSnapshotRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void markDirty(String userId) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(userId)),
+                new Update().set("dirty", true).inc("edits", 1), AnalyticsSnapshot.class);
+    }
+
+    @Override
+    public boolean saveIfUnchanged(AnalyticsSnapshot snapshot) {
+        Query query = Query.query(Criteria.where("_id").is(snapshot.getId()).and("edits").is(snapshot.getEdits()));
+        try {
+            // A newer edits count makes the filter miss and the upsert collide on _id
+            mongoTemplate.findAndReplace(query, snapshot, FindAndReplaceOptions.options().upsert());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.AnalyticsSnapshotRun;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnalyticsSnapshotRunRepository extends MongoRepository<AnalyticsSnapshotRun, String>,
+        AnalyticsSnapshotRunRepositoryCustom {
+}
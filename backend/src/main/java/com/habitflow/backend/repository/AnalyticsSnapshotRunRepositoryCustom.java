@@ -0,0 +1,17 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.AnalyticsSnapshotRun;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface AnalyticsSnapshotRunRepositoryCustom {
+
+    // Takes over an unfinished run that is new, already ours, or whose owner went quiet before staleBefore
+    Optional<AnalyticsSnapshotRun> claim(String runId, String owner, Instant staleBefore);
+
+    // Returns false when another node has taken the run over
+    boolean checkpoint(String runId, String owner, String lastUserId, long processed);
+
+    void finish(String runId, String owner);
+}
@@ -0,0 +1,49 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.AnalyticsSnapshotRun;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class AnalyticsSnapshotRunRepositoryCustomImpl implements AnalyticsSnapshotRunRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<AnalyticsSnapshotRun> claim(String runId, String owner, Instant staleBefore) {
+        Query query = Query.query(Criteria.where("_id").is(runId).and("finishedAt").is(null)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("heartbeatAt").lt(staleBefore)));
+        Update update = new Update().set("owner", owner).set("heartbeatAt", Instant.now());
+        try {
+            // Finished or held by a live owner: the filter misses and the upsert collides on _id
+            return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), AnalyticsSnapshotRun.class));
+        } catch (DuplicateKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean checkpoint(String runId, String owner, String lastUserId, long processed) {
+        Query query = Query.query(Criteria.where("_id").is(runId).and("owner").is(owner));
+        Update update = new Update().set("heartbeatAt", Instant.now()).set("processed", processed);
+        if (lastUserId != null) {
+            update.set("lastUserId", lastUserId);
+        }
+        return mongoTemplate.updateFirst(query, update, AnalyticsSnapshotRun.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public void finish(String runId, String owner) {
+        Query query = Query.query(Criteria.where("_id").is(runId).and("owner").is(owner));
+        mongoTemplate.updateFirst(query, new Update().set("finishedAt", Instant.now()), AnalyticsSnapshotRun.class);
+    }
+}
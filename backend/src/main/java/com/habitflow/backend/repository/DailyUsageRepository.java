@@ -0,0 +1,15 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.DailyUsage;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyUsageRepository extends MongoRepository<DailyUsage, String> {
+    List<DailyUsage> findByDayIn(Collection<String> days);
+
+    void deleteByDayLessThan(String day);
+}
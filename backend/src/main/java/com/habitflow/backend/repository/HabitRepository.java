@@ -1,14 +1,58 @@
 package com.habitflow.backend.repository;
 
 import com.habitflow.backend.model.Habit;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface HabitRepository extends MongoRepository<Habit, String> {
+public interface HabitRepository extends MongoRepository<Habit, String>, HabitRepositoryCustom {
     List<Habit> findByUserId(String userId);
 
+    // With the logs but without the archive, which habit lists do not send
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'archive': 0 }")
+    List<Habit> findListByUserId(String userId);
+
     void deleteByUserId(String userId);
+
+    // Owner and title only, for writes that do not touch the history
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'logs': 0, 'archive': 0 }")
+    Optional<Habit> findSummaryById(String id);
+
+    // Owner and history, for one habit's statistics
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'userId': 1, 'createdAt': 1, 'logs': 1, 'archive': 1 }")
+    Optional<Habit> findHistoryById(String id);
+
+    // Several users' habits in one query, for batch jobs
+    @Query(value = "{ 'userId': { '$in': ?0 } }", fields = "{ 'reminder': 0 }")
+    List<Habit> findByUserIdIn(Collection<String> userIds);
+
+    // Ids and titles only, for the title index
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'title': 1 }")
+    List<Habit> findTitlesByUserId(String userId);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'title': ?1, 'titleKey': ?2 } }")
+    long updateTitleById(String id, String title, String titleKey);
+
+    // Keyset pages, served by the {userId, _id} compound index
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'archive': 0 }", sort = "{ '_id': 1 }")
+    List<Habit> findPageByUserId(String userId, Limit limit);
+
+    @Query(value = "{ 'userId': ?0, '_id': { '$gt': ?1 } }", fields = "{ 'archive': 0 }", sort = "{ '_id': 1 }")
+    List<Habit> findPageByUserIdAfter(String userId, ObjectId afterId, Limit limit);
+
+    // Same pages without the log history, for list views
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'logs': 0, 'archive': 0 }", sort = "{ '_id': 1 }")
+    List<Habit> findSummaryPageByUserId(String userId, Limit limit);
+
+    @Query(value = "{ 'userId': ?0, '_id': { '$gt': ?1 } }", fields = "{ 'logs': 0, 'archive': 0 }", sort = "{ '_id': 1 }")
+    List<Habit> findSummaryPageByUserIdAfter(String userId, ObjectId afterId, Limit limit);
 }
@@ -0,0 +1,53 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitReminder;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface HabitRepositoryCustom {
+
+    // Habits of the user with only the log entries of the given month loaded
+    List<Habit> findMonthByUserId(String userId, YearMonth month);
+
+    // Habits of the user with only the log entries of the given days loaded
+    List<Habit> findDaysByUserId(String userId, Collection<LocalDate> days);
+
+    // The habit with only what decides the given day loaded: its log entry and archive year
+    Optional<Habit> findDayById(String habitId, LocalDate day);
+
+    // Sets the day's log entry unless it changed since the habit was read with findDayById;
+    // returns whether it was set
+    boolean setLog(Habit habit, String date, boolean done);
+
+    // Replaces the given archive years and drops the given log entries, unless any of
+    // them changed since the habit was read; returns whether the habit was updated
+    boolean archiveLogs(Habit habit, Map<String, byte[]> years, Collection<String> movedDates);
+
+    // Sets the habit's reminder, or removes it when null
+    void setReminder(String habitId, HabitReminder reminder);
+
+    // Ids and reminders only, of reminders in the given shards due before the given instant
+    List<Habit> findDueReminders(Collection<Integer> shards, Instant before, int limit);
+
+    // Owner, title and reminder, with only the log entries of the given days loaded
+    List<Habit> findReminderTargets(Collection<String> habitIds, Collection<String> dates);
+
+    // One unordered bulk write moving each reminder on, unless it was changed since it
+    // was loaded; returns how many were moved
+    long advanceReminders(Collection<ReminderAdvance> advances);
+
+    record ReminderAdvance(String habitId, Instant expected, Instant next) {
+    }
+
+    // One unordered bulk write: merges each habit's logs into the user's habit with its id or,
+    // without one, its title key (created if missing) and moves its createdAt back to the
+    // given one if earlier
+    void upsertLogs(String userId, Collection<Habit> habits);
+}
@@ -0,0 +1,142 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitReminder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Field;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class HabitRepositoryCustomImpl implements HabitRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Habit> findMonthByUserId(String userId, YearMonth month) {
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        Field fields = query.fields().include("userId", "title", "createdAt", "archive." + month.getYear());
+        for (int day = 1; day <= month.lengthOfMonth(); day++) {
+            fields.include("logs." + month.atDay(day));
+        }
+        return mongoTemplate.find(query, Habit.class);
+    }
+
+    @Override
+    public List<Habit> findDaysByUserId(String userId, Collection<LocalDate> days) {
+        Query query = Query.query(Criteria.where("userId").is(userId));
+        Field fields = query.fields().include("userId", "title", "createdAt");
+        for (LocalDate day : days) {
+            fields.include("logs." + day);
+        }
+        return mongoTemplate.find(query, Habit.class);
+    }
+
+    @Override
+    public Optional<Habit> findDayById(String habitId, LocalDate day) {
+        Query query = Query.query(Criteria.where("_id").is(habitId));
+        query.fields().include("userId", "title", "logs." + day, "archive." + day.getYear());
+        return Optional.ofNullable(mongoTemplate.findOne(query, Habit.class));
+    }
+
+    @Override
+    public boolean setLog(Habit habit, String date, boolean done) {
+        Boolean previous = habit.getLogs().get(date);
+        Criteria unchanged = Criteria.where("logs." + date);
+        Query query = Query.query(Criteria.where("_id").is(habit.getId())
+                .andOperator(previous != null ? unchanged.is(previous) : unchanged.exists(false)));
+        Update update = new Update().set("logs." + date, done);
+        return mongoTemplate.updateFirst(query, update, Habit.class).getModifiedCount() == 1;
+    }
+
+    @Override
+    public boolean archiveLogs(Habit habit, Map<String, byte[]> years, Collection<String> movedDates) {
+        Query query = Query.query(Criteria.where("_id").is(habit.getId()));
+        Update update = new Update();
+        for (String date : movedDates) {
+            query.addCriteria(Criteria.where("logs." + date).is(habit.getLogs().get(date)));
+            update.unset("logs." + date);
+        }
+        years.forEach((year, bits) -> {
+            byte[] previous = habit.getArchive() != null ? habit.getArchive().get(year) : null;
+            Criteria unchanged = Criteria.where("archive." + year);
+            query.addCriteria(previous != null ? unchanged.is(previous) : unchanged.exists(false));
+            update.set("archive." + year, bits);
+        });
+        return mongoTemplate.updateFirst(query, update, Habit.class).getModifiedCount() == 1;
+    }
+
+    @Override
+    public void setReminder(String habitId, HabitReminder reminder) {
+        Update update = reminder != null ? Update.update("reminder", reminder) : new Update().unset("reminder");
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(habitId)), update, Habit.class);
+    }
+
+    @Override
+    public List<Habit> findDueReminders(Collection<Integer> shards, Instant before, int limit) {
+        Query query = Query.query(Criteria.where("reminder.shard").in(shards).and("reminder.nextFireAt").lt(before))
+                .with(Sort.by("reminder.nextFireAt"))
+                .limit(limit);
+        query.fields().include("reminder");
+        return mongoTemplate.find(query, Habit.class);
+    }
+
+    @Override
+    public List<Habit> findReminderTargets(Collection<String> habitIds, Collection<String> dates) {
+        Query query = Query.query(Criteria.where("_id").in(habitIds));
+        Field fields = query.fields().include("userId", "title", "reminder");
+        for (String date : dates) {
+            fields.include("logs." + date);
+        }
+        return mongoTemplate.find(query, Habit.class);
+    }
+
+    @Override
+    public long advanceReminders(Collection<ReminderAdvance> advances) {
+        if (advances.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Habit.class);
+        for (ReminderAdvance advance : advances) {
+            bulk.updateOne(Query.query(Criteria.where("_id").is(advance.habitId())
+                            .and("reminder.nextFireAt").is(advance.expected())),
+                    Update.update("reminder.nextFireAt", advance.next()));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+
+    @Override
+    public void upsertLogs(String userId, Collection<Habit> habits) {
+        if (habits.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Habit.class);
+        for (Habit habit : habits) {
+            Update update = new Update().min("createdAt", habit.getCreatedAt());
+            habit.getLogs().forEach((date, done) -> update.set("logs." + date, done));
+            Criteria target;
+            if (habit.getId() != null) {
+                // Deleted meanwhile: comes back under the imported title rather than without one
+                target = Criteria.where("_id").is(habit.getId()).and("userId").is(userId);
+                update.setOnInsert("title", habit.getTitle()).setOnInsert("titleKey", habit.getTitleKey());
+            } else {
+                target = Criteria.where("userId").is(userId).and("titleKey").is(habit.getTitleKey());
+                update.setOnInsert("title", habit.getTitle());
+            }
+            bulk.upsert(Query.query(target), update);
+        }
+        bulk.execute();
+    }
+}
@@ -1,7 +1,10 @@
 package com.habitflow.backend.repository;
 
 import com.habitflow.backend.model.HabitTemplate;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +14,11 @@ public interface HabitTemplateRepository extends MongoRepository<HabitTemplate,
     List<HabitTemplate> findByUserId(String userId);
 
     void deleteByUserId(String userId);
+
+    // Keyset pages, served by the {userId, _id} compound index
+    @Query(value = "{ 'userId': ?0 }", sort = "{ '_id': 1 }")
+    List<HabitTemplate> findPageByUserId(String userId, Limit limit);
+
+    @Query(value = "{ 'userId': ?0, '_id': { '$gt': ?1 } }", sort = "{ '_id': 1 }")
+    List<HabitTemplate> findPageByUserIdAfter(String userId, ObjectId afterId, Limit limit);
 }
@@ -0,0 +1,16 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.TokenRevocation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends MongoRepository<TokenRevocation, String>,
+        TokenRevocationRepositoryCustom {
+    List<TokenRevocation> findByRevokedAtAfter(Instant revokedAt);
+
+    List<TokenRevocation> findByExpiresAtAfter(Instant expiresAt);
+}
@@ -0,0 +1,9 @@
+package com.habitflow.backend.repository;
+
+import java.time.Instant;
+
+public interface TokenRevocationRepositoryCustom {
+
+    // Upserts; the version only ever goes up, so racing revocations keep the highest
+    void revoke(String subject, int minVersion, Instant revokedAt, Instant expiresAt);
+}
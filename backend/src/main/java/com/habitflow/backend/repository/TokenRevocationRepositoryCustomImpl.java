@@ -0,0 +1,24 @@
+package com.habitflow.backend.repository;
+
+import com.habitflow.backend.model.TokenRevocation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class TokenRevocationRepositoryCustomImpl implements TokenRevocationRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void revoke(String subject, int minVersion, Instant revokedAt, Instant expiresAt) {
+        Update update = new Update().max("minVersion", minVersion)
+                .set("revokedAt", revokedAt)
+                .max("expiresAt", expiresAt);
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(subject)), update, TokenRevocation.class);
+    }
+}
@@ -1,18 +1,59 @@
 package com.habitflow.backend.repository;
 
 import com.habitflow.backend.model.User;
+import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends MongoRepository<User, String> {
+    // Every authenticated request reads the user; never drag a legacy inline picture along
+    @Query(value = "{ 'email': ?0 }", fields = "{ 'profilePicture': 0 }")
     Optional<User> findByEmail(String email);
 
+    // What the profile view shows: no password hash either
+    @Query(value = "{ 'email': ?0 }", fields = "{ 'password': 0, 'profilePicture': 0 }")
+    Optional<User> findProfileByEmail(String email);
+
     Optional<User> findByUsername(String username);
 
     Boolean existsByEmail(String email);
 
     Boolean existsByUsername(String username);
+
+    // Cursor over all user ids in order, for batch jobs; close the stream when done
+    @Query(value = "{ '_id': { '$gt': ?0 } }", fields = "{ '_id': 1 }", sort = "{ '_id': 1 }")
+    Stream<User> streamIdsAfter(ObjectId afterId);
+
+    // Same cursor with the emails, for the analytics snapshot export
+    @Query(value = "{ '_id': { '$gt': ?0 } }", fields = "{ 'email': 1 }", sort = "{ '_id': 1 }")
+    Stream<User> streamEmailsAfter(ObjectId afterId);
+
+    // Users whose picture is still stored inline, for the avatar migration
+    @Query(value = "{ 'profilePicture': { '$regex': '^data:' } }", fields = "{ 'profilePicture': 1 }")
+    Stream<User> streamWithInlinePicture();
+
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'profilePicture': 1 }")
+    Optional<User> findPictureById(String id);
+
+    // Logout everywhere: tokens carry the version they were issued with
+    @Query("{ 'email': ?0 }")
+    @Update("{ '$inc': { 'tokenVersion': 1 } }")
+    long incrementTokenVersion(String email);
+
+    // Profile edits touch only the profile fields, so a concurrent token version bump is kept
+    @Query("{ 'email': ?0 }")
+    @Update("{ '$set': { 'name': ?1, 'username': ?2, 'age': ?3, 'height': ?4, 'weight': ?5, 'avatarVersion': ?6 }, '$unset': { 'profilePicture': 1 } }")
+    long updateProfile(String email, String name, String username, String age, String height, String weight,
+                       String avatarVersion);
+
+    // Only if the picture was not changed meanwhile; returns the number of users updated
+    @Query("{ '_id': ?0, 'profilePicture': ?1 }")
+    @Update("{ '$set': { 'avatarVersion': ?2 }, '$unset': { 'profilePicture': 1 } }")
+    long moveInlinePicture(String id, String profilePicture, String avatarVersion);
 }
@@ -0,0 +1,46 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.model.AnalyticsSnapshot;
+import com.habitflow.backend.repository.AnalyticsSnapshotRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryAnalyticsSnapshotRepository extends InMemoryMongoRepository<AnalyticsSnapshot>
+        implements AnalyticsSnapshotRepository {
+
+    public InMemoryAnalyticsSnapshotRepository(MongoConverter converter) {
+        super(converter, AnalyticsSnapshot.class, Set.of(), Set.of());
+    }
+
+    @Override
+    public synchronized void markDirty(String userId) {
+        asOneCommand("update", () -> {
+            AnalyticsSnapshot snapshot = findById(userId).orElseGet(() -> {
+                AnalyticsSnapshot placeholder = new AnalyticsSnapshot();
+                placeholder.setId(userId);
+                return placeholder;
+            });
+            snapshot.setDirty(true);
+            snapshot.setEdits(snapshot.getEdits() + 1);
+            return save(snapshot);
+        });
+    }
+
+    @Override
+    public synchronized boolean saveIfUnchanged(AnalyticsSnapshot snapshot) {
+        return asOneCommand("findAndModify", () -> {
+            Optional<AnalyticsSnapshot> current = findById(snapshot.getId());
+            if (current.isPresent() && current.get().getEdits() != snapshot.getEdits()) {
+                return false;
+            }
+            save(snapshot);
+            return true;
+        });
+    }
+}
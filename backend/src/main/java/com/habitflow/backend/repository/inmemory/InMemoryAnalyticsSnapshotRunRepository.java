@@ -0,0 +1,63 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.model.AnalyticsSnapshotRun;
+import com.habitflow.backend.repository.AnalyticsSnapshotRunRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryAnalyticsSnapshotRunRepository extends InMemoryMongoRepository<AnalyticsSnapshotRun>
+        implements AnalyticsSnapshotRunRepository {
+
+    public InMemoryAnalyticsSnapshotRunRepository(MongoConverter converter) {
+        super(converter, AnalyticsSnapshotRun.class, Set.of(), Set.of());
+    }
+
+    @Override
+    public synchronized Optional<AnalyticsSnapshotRun> claim(String runId, String owner, Instant staleBefore) {
+        return asOneCommand("findAndModify", () -> {
+            AnalyticsSnapshotRun run = findById(runId).orElse(null);
+            if (run == null) {
+                run = new AnalyticsSnapshotRun();
+                run.setId(runId);
+            } else if (run.getFinishedAt() != null
+                    || !(owner.equals(run.getOwner()) || run.getHeartbeatAt().isBefore(staleBefore))) {
+                return Optional.empty();
+            }
+            run.setOwner(owner);
+            run.setHeartbeatAt(Instant.now());
+            return Optional.of(save(run));
+        });
+    }
+
+    @Override
+    public synchronized boolean checkpoint(String runId, String owner, String lastUserId, long processed) {
+        return asOneCommand("update", () -> {
+            AnalyticsSnapshotRun run = findById(runId).orElse(null);
+            if (run == null || !owner.equals(run.getOwner())) {
+                return false;
+            }
+            run.setHeartbeatAt(Instant.now());
+            run.setProcessed(processed);
+            if (lastUserId != null) {
+                run.setLastUserId(lastUserId);
+            }
+            save(run);
+            return true;
+        });
+    }
+
+    @Override
+    public synchronized void finish(String runId, String owner) {
+        asOneCommand("update", () -> findById(runId).filter(run -> owner.equals(run.getOwner())).map(run -> {
+            run.setFinishedAt(Instant.now());
+            return save(run);
+        }));
+    }
+}
@@ -0,0 +1,42 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.model.DailyUsage;
+import com.habitflow.backend.repository.DailyUsageRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryDailyUsageRepository extends InMemoryMongoRepository<DailyUsage> implements DailyUsageRepository {
+
+    public InMemoryDailyUsageRepository(MongoConverter converter) {
+        super(converter, DailyUsage.class, Set.of("day"), Set.of());
+    }
+
+    @Override
+    public List<DailyUsage> findByDayIn(Collection<String> days) {
+        return asOneCommand("find", () -> {
+            List<DailyUsage> result = new ArrayList<>();
+            for (String day : days) {
+                result.addAll(findAllBy("day", day));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void deleteByDayLessThan(String day) {
+        asOneCommand("delete", () -> {
+            findAll().stream()
+                    .filter(usage -> usage.getDay().compareTo(day) < 0)
+                    .forEach(usage -> deleteById(usage.getId()));
+            return null;
+        });
+    }
+}
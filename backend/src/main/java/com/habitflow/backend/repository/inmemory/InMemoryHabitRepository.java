@@ -0,0 +1,252 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitReminder;
+import com.habitflow.backend.repository.HabitRepository;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryHabitRepository extends InMemoryMongoRepository<Habit> implements HabitRepository {
+
+    public InMemoryHabitRepository(MongoConverter converter) {
+        super(converter, Habit.class, Set.of("userId"), Set.of("userId,titleKey"));
+    }
+
+    @Override
+    public List<Habit> findByUserId(String userId) {
+        return findAllBy("userId", userId);
+    }
+
+    @Override
+    public List<Habit> findListByUserId(String userId) {
+        return findAllBy("userId", userId, "archive");
+    }
+
+    @Override
+    public List<Habit> findByUserIdIn(Collection<String> userIds) {
+        return asOneCommand("find", () -> {
+            List<Habit> habits = new ArrayList<>();
+            for (String userId : userIds) {
+                habits.addAll(findAllBy("userId", userId, "reminder"));
+            }
+            return habits;
+        });
+    }
+
+    @Override
+    public List<Habit> findTitlesByUserId(String userId) {
+        return findAllBy("userId", userId, "logs", "archive", "reminder");
+    }
+
+    @Override
+    public void deleteByUserId(String userId) {
+        deleteAllBy("userId", userId);
+    }
+
+    @Override
+    public List<Habit> findPageByUserId(String userId, Limit limit) {
+        return findPageBy("userId", userId, null, limit.max(), "archive");
+    }
+
+    @Override
+    public List<Habit> findPageByUserIdAfter(String userId, ObjectId afterId, Limit limit) {
+        return findPageBy("userId", userId, afterId, limit.max(), "archive");
+    }
+
+    @Override
+    public List<Habit> findSummaryPageByUserId(String userId, Limit limit) {
+        return findPageBy("userId", userId, null, limit.max(), "logs", "archive");
+    }
+
+    @Override
+    public List<Habit> findMonthByUserId(String userId, YearMonth month) {
+        String prefix = month + "-";
+        List<Habit> habits = findAllBy("userId", userId);
+        for (Habit habit : habits) {
+            habit.getLogs().keySet().removeIf(date -> !date.startsWith(prefix));
+            if (habit.getArchive() != null) {
+                habit.getArchive().keySet().retainAll(Set.of(String.valueOf(month.getYear())));
+            }
+        }
+        return habits;
+    }
+
+    @Override
+    public List<Habit> findDaysByUserId(String userId, Collection<LocalDate> days) {
+        Set<String> keys = days.stream().map(LocalDate::toString).collect(Collectors.toSet());
+        List<Habit> habits = findAllBy("userId", userId);
+        for (Habit habit : habits) {
+            habit.getLogs().keySet().retainAll(keys);
+            habit.setArchive(null);
+        }
+        return habits;
+    }
+
+    @Override
+    public Optional<Habit> findSummaryById(String id) {
+        return findByIdExcluding(id, "logs", "archive");
+    }
+
+    @Override
+    public Optional<Habit> findHistoryById(String id) {
+        return findByIdExcluding(id, "title", "reminder");
+    }
+
+    @Override
+    public synchronized long updateTitleById(String id, String title, String titleKey) {
+        return asOneCommand("update", () -> findById(id).map(habit -> {
+            habit.setTitle(title);
+            save(habit);
+            return 1L;
+        }).orElse(0L));
+    }
+
+    @Override
+    public Optional<Habit> findDayById(String habitId, LocalDate day) {
+        return findById(habitId).map(habit -> {
+            habit.getLogs().keySet().retainAll(Set.of(day.toString()));
+            if (habit.getArchive() != null) {
+                habit.getArchive().keySet().retainAll(Set.of(String.valueOf(day.getYear())));
+            }
+            return habit;
+        });
+    }
+
+    @Override
+    public synchronized boolean setLog(Habit habit, String date, boolean done) {
+        return asOneCommand("update", () -> findById(habit.getId())
+                .filter(current -> Objects.equals(current.getLogs().get(date), habit.getLogs().get(date)))
+                .map(current -> {
+                    current.getLogs().put(date, done);
+                    save(current);
+                    return true;
+                })
+                .orElse(false));
+    }
+
+    @Override
+    public synchronized boolean archiveLogs(Habit habit, Map<String, byte[]> years, Collection<String> movedDates) {
+        return asOneCommand("update", () -> findById(habit.getId()).filter(current -> {
+            for (String date : movedDates) {
+                if (!Objects.equals(current.getLogs().get(date), habit.getLogs().get(date))) {
+                    return false;
+                }
+            }
+            for (String year : years.keySet()) {
+                byte[] expected = habit.getArchive() != null ? habit.getArchive().get(year) : null;
+                byte[] actual = current.getArchive() != null ? current.getArchive().get(year) : null;
+                if (!Arrays.equals(expected, actual)) {
+                    return false;
+                }
+            }
+            return true;
+        }).map(current -> {
+            current.getLogs().keySet().removeAll(movedDates);
+            if (current.getArchive() == null) {
+                current.setArchive(new HashMap<>());
+            }
+            current.getArchive().putAll(years);
+            save(current);
+            return true;
+        }).orElse(false));
+    }
+
+    @Override
+    public synchronized void setReminder(String habitId, HabitReminder reminder) {
+        asOneCommand("update", () -> findById(habitId).map(habit -> {
+            habit.setReminder(reminder);
+            return save(habit);
+        }));
+    }
+
+    @Override
+    public List<Habit> findDueReminders(Collection<Integer> shards, Instant before, int limit) {
+        // No index on the reminder here: a scan, without the history
+        try (var habits = streamAfter(new ObjectId("000000000000000000000000"), "logs", "archive")) {
+            return habits.filter(habit -> habit.getReminder() != null
+                            && shards.contains(habit.getReminder().getShard())
+                            && habit.getReminder().getNextFireAt().isBefore(before))
+                    .sorted(Comparator.comparing(habit -> habit.getReminder().getNextFireAt()))
+                    .limit(limit)
+                    .toList();
+        }
+    }
+
+    @Override
+    public List<Habit> findReminderTargets(Collection<String> habitIds, Collection<String> dates) {
+        List<Habit> habits = findAllById(habitIds);
+        for (Habit habit : habits) {
+            habit.getLogs().keySet().retainAll(dates);
+            habit.setArchive(null);
+        }
+        return habits;
+    }
+
+    @Override
+    public synchronized long advanceReminders(Collection<ReminderAdvance> advances) {
+        return asOneCommand("bulkWrite", () -> {
+            long moved = 0;
+            for (ReminderAdvance advance : advances) {
+                Habit habit = findById(advance.habitId()).orElse(null);
+                if (habit != null && habit.getReminder() != null
+                        && advance.expected().equals(habit.getReminder().getNextFireAt())) {
+                    habit.getReminder().setNextFireAt(advance.next());
+                    save(habit);
+                    moved++;
+                }
+            }
+            return moved;
+        });
+    }
+
+    @Override
+    public synchronized void upsertLogs(String userId, Collection<Habit> habits) {
+        asOneCommand("bulkWrite", () -> {
+            List<Habit> existing = findAllBy("userId", userId);
+            for (Habit imported : habits) {
+                Habit habit = existing.stream()
+                        .filter(candidate -> imported.getId() != null
+                                ? imported.getId().equals(candidate.getId())
+                                : imported.getTitleKey().equals(candidate.getTitleKey()))
+                        .findFirst()
+                        .orElseGet(() -> {
+                            Habit created = new Habit(userId, imported.getTitle());
+                            created.setId(imported.getId());
+                            existing.add(created);
+                            return created;
+                        });
+                habit.getLogs().putAll(imported.getLogs());
+                if (habit.getCreatedAt() == null || imported.getCreatedAt().isBefore(habit.getCreatedAt())) {
+                    habit.setCreatedAt(imported.getCreatedAt());
+                }
+                save(habit);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public List<Habit> findSummaryPageByUserIdAfter(String userId, ObjectId afterId, Limit limit) {
+        return findPageBy("userId", userId, afterId, limit.max(), "logs", "archive");
+    }
+}
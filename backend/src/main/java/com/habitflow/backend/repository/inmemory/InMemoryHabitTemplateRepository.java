@@ -0,0 +1,42 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.model.HabitTemplate;
+import com.habitflow.backend.repository.HabitTemplateRepository;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryHabitTemplateRepository extends InMemoryMongoRepository<HabitTemplate>
+        implements HabitTemplateRepository {
+
+    public InMemoryHabitTemplateRepository(MongoConverter converter) {
+        super(converter, HabitTemplate.class, Set.of("userId"), Set.of());
+    }
+
+    @Override
+    public List<HabitTemplate> findByUserId(String userId) {
+        return findAllBy("userId", userId);
+    }
+
+    @Override
+    public void deleteByUserId(String userId) {
+        deleteAllBy("userId", userId);
+    }
+
+    @Override
+    public List<HabitTemplate> findPageByUserId(String userId, Limit limit) {
+        return findPageBy("userId", userId, null, limit.max());
+    }
+
+    @Override
+    public List<HabitTemplate> findPageByUserIdAfter(String userId, ObjectId afterId, Limit limit) {
+        return findPageBy("userId", userId, afterId, limit.max());
+    }
+}
@@ -0,0 +1,410 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.trace.QueryTrace;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link MongoRepository} stand-in that keeps documents in memory, used by the
+ * {@code inmemory} profile for load tests without a MongoDB server.
+ *
+ * Entities go through the real {@link MongoConverter}, so what is stored and read
+ * back matches what Mongo would see (ids become ObjectIds, projections drop
+ * fields, every read returns a fresh copy). Documents are ordered by id, which
+ * gives keyset pages for free, and a few top-level fields can be indexed, alone
+ * or as a compound key such as {@code "userId,titleKey"} (left out while any part is missing).
+ *
+ * Every call is reported to {@link QueryTrace} as the command Mongo would have
+ * run, so query budgets hold in both modes.
+ */
+public abstract class InMemoryMongoRepository<T> implements MongoRepository<T, String> {
+
+    private final MongoConverter converter;
+    private final Class<T> type;
+    private final MongoPersistentEntity<?> entity;
+    private final Set<String> uniqueFields;
+    private final String collection;
+
+    // id (hex, so lexical order == ObjectId order) -> document
+    private final ConcurrentSkipListMap<String, Document> documents = new ConcurrentSkipListMap<>();
+    // field -> value -> ids
+    private final Map<String, Map<Object, ConcurrentSkipListSet<String>>> indexes = new ConcurrentHashMap<>();
+
+    protected InMemoryMongoRepository(MongoConverter converter, Class<T> type, Set<String> indexedFields,
+                                      Set<String> uniqueFields) {
+        this.converter = converter;
+        this.type = type;
+        this.entity = converter.getMappingContext().getRequiredPersistentEntity(type);
+        this.uniqueFields = uniqueFields;
+        this.collection = entity.getCollection();
+        for (String field : indexedFields) {
+            indexes.put(field, new ConcurrentHashMap<>());
+        }
+        for (String field : uniqueFields) {
+            indexes.put(field, new ConcurrentHashMap<>());
+        }
+    }
+
+    // ---- helpers for the derived and @Query methods of the concrete repositories ----
+
+    protected List<T> findAllBy(String field, Object value, String... excludedFields) {
+        trace("find");
+        List<T> result = new ArrayList<>();
+        for (String id : idsFor(field, value)) {
+            Document document = documents.get(id);
+            if (document != null) {
+                result.add(read(document, excludedFields));
+            }
+        }
+        return result;
+    }
+
+    protected Optional<T> findOneBy(String field, Object value, String... excludedFields) {
+        return findAllBy(field, value, excludedFields).stream().findFirst();
+    }
+
+    protected Optional<T> findByIdExcluding(String id, String... excludedFields) {
+        trace("find");
+        Document document = documents.get(id);
+        return document != null ? Optional.of(read(document, excludedFields)) : Optional.empty();
+    }
+
+    protected boolean existsBy(String field, Object value) {
+        trace("find");
+        return !idsFor(field, value).isEmpty();
+    }
+
+    protected List<T> findPageBy(String field, Object value, ObjectId after, int limit, String... excludedFields) {
+        trace("find");
+        Set<String> ids = idsFor(field, value);
+        if (after != null && ids instanceof ConcurrentSkipListSet<String> sorted) {
+            ids = sorted.tailSet(after.toHexString(), false);
+        }
+        List<T> result = new ArrayList<>();
+        for (String id : ids) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Document document = documents.get(id);
+            if (document != null) {
+                result.add(read(document, excludedFields));
+            }
+        }
+        return result;
+    }
+
+    protected Stream<T> streamAfter(ObjectId after, String... excludedFields) {
+        trace("find");
+        return documents.tailMap(after.toHexString(), false).values().stream()
+                .map(document -> read(document, excludedFields));
+    }
+
+    protected synchronized void deleteAllBy(String field, Object value) {
+        trace("delete");
+        for (String id : new ArrayList<>(idsFor(field, value))) {
+            remove(id);
+        }
+    }
+
+    /** Runs a compound in-memory operation that Mongo does in one command, e.g. findAndModify. */
+    protected <R> R asOneCommand(String command, Supplier<R> body) {
+        return QueryTrace.asOne(command, collection, body);
+    }
+
+    private void trace(String command) {
+        QueryTrace.record(command, collection, 0, 0);
+    }
+
+    private Set<String> idsFor(String field, Object value) {
+        Map<Object, ConcurrentSkipListSet<String>> index = indexes.get(field);
+        if (index != null) {
+            Set<String> ids = index.get(value);
+            return ids != null ? ids : Collections.emptySet();
+        }
+        // Unindexed field: full scan, in id order
+        ConcurrentSkipListSet<String> ids = new ConcurrentSkipListSet<>();
+        documents.forEach((id, document) -> {
+            if (Objects.equals(keyOf(document, field), value)) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    // ---- storage ----
+
+    private T read(Document document, String... excludedFields) {
+        Document source = document;
+        if (excludedFields.length > 0) {
+            source = new Document(document);
+            for (String field : excludedFields) {
+                source.remove(field);
+            }
+        }
+        return converter.read(type, source);
+    }
+
+    private synchronized <S extends T> S store(S value) {
+        PersistentPropertyAccessor<S> accessor = entity.getPropertyAccessor(value);
+        Object currentId = accessor.getProperty(entity.getRequiredIdProperty());
+        String id = currentId != null ? currentId.toString() : new ObjectId().toHexString();
+        if (currentId == null) {
+            accessor.setProperty(entity.getRequiredIdProperty(), id);
+        }
+
+        Document document = new Document();
+        converter.write(value, document);
+
+        for (String field : uniqueFields) {
+            Object key = keyOf(document, field);
+            if (key == null) {
+                continue;
+            }
+            for (String other : idsFor(field, key)) {
+                if (!other.equals(id)) {
+                    throw new DuplicateKeyException("Duplicate key on " + field + ": " + key);
+                }
+            }
+        }
+
+        Document previous = documents.put(id, document);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+        indexes.forEach((field, index) -> {
+            Object fieldValue = keyOf(document, field);
+            if (fieldValue != null) {
+                index.computeIfAbsent(fieldValue, k -> new ConcurrentSkipListSet<>()).add(id);
+            }
+        });
+        return accessor.getBean();
+    }
+
+    private synchronized void remove(String id) {
+        Document previous = documents.remove(id);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+    }
+
+    private void unindex(String id, Document document) {
+        indexes.forEach((field, index) -> {
+            Object fieldValue = keyOf(document, field);
+            if (fieldValue != null) {
+                index.computeIfPresent(fieldValue, (k, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        });
+    }
+
+    // The field's value, or for a compound key the list of its parts' values; null if any is missing
+    private static Object keyOf(Document document, String field) {
+        if (!field.contains(",")) {
+            return document.get(field);
+        }
+        List<Object> key = new ArrayList<>();
+        for (String part : field.split(",")) {
+            Object value = document.get(part);
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+
+    private String idOf(T value) {
+        Object id = entity.getPropertyAccessor(value).getProperty(entity.getRequiredIdProperty());
+        return id != null ? id.toString() : null;
+    }
+
+    // ---- CrudRepository ----
+
+    @Override
+    public <S extends T> S save(S value) {
+        trace(idOf(value) != null ? "update" : "insert");
+        return store(value);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> values) {
+        List<S> saved = new ArrayList<>();
+        for (S value : values) {
+            saved.add(save(value));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends T> S insert(S value) {
+        String id = idOf(value);
+        trace("insert");
+        if (id != null && documents.containsKey(id)) {
+            throw new DuplicateKeyException("Duplicate key on _id: " + id);
+        }
+        return store(value);
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> values) {
+        List<S> saved = new ArrayList<>();
+        for (S value : values) {
+            saved.add(insert(value));
+        }
+        return saved;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return findByIdExcluding(id);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        trace("find");
+        return documents.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        trace("find");
+        return documents.values().stream().map(this::read).toList();
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        trace("find");
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .map(this::read)
+                .toList();
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        if (sort.isSorted()) {
+            throw new UnsupportedOperationException("Sorting is not supported in memory");
+        }
+        return findAll();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll());
+        }
+        trace("find");
+        List<T> content = documents.values().stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(this::read)
+                .toList();
+        return new PageImpl<>(content, pageable, documents.size());
+    }
+
+    @Override
+    public long count() {
+        trace("count");
+        return documents.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        trace("delete");
+        remove(id);
+    }
+
+    @Override
+    public void delete(T value) {
+        trace("delete");
+        String id = idOf(value);
+        if (id != null) {
+            remove(id);
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        trace("delete");
+        ids.forEach(this::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> values) {
+        values.forEach(this::delete);
+    }
+
+    @Override
+    public synchronized void deleteAll() {
+        trace("delete");
+        documents.clear();
+        indexes.values().forEach(Map::clear);
+    }
+
+    // ---- Query by example is not used by the application ----
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example,
+                                     Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+}
@@ -0,0 +1,45 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.model.TokenRevocation;
+import com.habitflow.backend.repository.TokenRevocationRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryTokenRevocationRepository extends InMemoryMongoRepository<TokenRevocation>
+        implements TokenRevocationRepository {
+
+    public InMemoryTokenRevocationRepository(MongoConverter converter) {
+        super(converter, TokenRevocation.class, Set.of(), Set.of());
+    }
+
+    @Override
+    public List<TokenRevocation> findByRevokedAtAfter(Instant revokedAt) {
+        return findAll().stream().filter(revocation -> revocation.getRevokedAt().isAfter(revokedAt)).toList();
+    }
+
+    @Override
+    public List<TokenRevocation> findByExpiresAtAfter(Instant expiresAt) {
+        return findAll().stream().filter(revocation -> revocation.getExpiresAt().isAfter(expiresAt)).toList();
+    }
+
+    @Override
+    public synchronized void revoke(String subject, int minVersion, Instant revokedAt, Instant expiresAt) {
+        asOneCommand("update", () -> {
+            TokenRevocation revocation = findById(subject)
+                    .orElseGet(() -> new TokenRevocation(subject, minVersion, revokedAt, expiresAt));
+            revocation.setMinVersion(Math.max(revocation.getMinVersion(), minVersion));
+            revocation.setRevokedAt(revokedAt);
+            if (expiresAt.isAfter(revocation.getExpiresAt())) {
+                revocation.setExpiresAt(expiresAt);
+            }
+            return save(revocation);
+        });
+    }
+}
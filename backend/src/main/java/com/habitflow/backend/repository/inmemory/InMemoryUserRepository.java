@@ -0,0 +1,108 @@
+package com.habitflow.backend.repository.inmemory;
+
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryUserRepository extends InMemoryMongoRepository<User> implements UserRepository {
+
+    public InMemoryUserRepository(MongoConverter converter) {
+        super(converter, User.class, Set.of(), Set.of("email", "username"));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findOneBy("email", email, "profilePicture");
+    }
+
+    @Override
+    public Optional<User> findProfileByEmail(String email) {
+        return findOneBy("email", email, "password", "profilePicture");
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return findOneBy("username", username);
+    }
+
+    @Override
+    public Boolean existsByEmail(String email) {
+        return existsBy("email", email);
+    }
+
+    @Override
+    public Boolean existsByUsername(String username) {
+        return existsBy("username", username);
+    }
+
+    @Override
+    public Stream<User> streamIdsAfter(ObjectId afterId) {
+        return streamAfter(afterId);
+    }
+
+    @Override
+    public Stream<User> streamEmailsAfter(ObjectId afterId) {
+        return streamAfter(afterId, "password", "profilePicture");
+    }
+
+    @Override
+    public Stream<User> streamWithInlinePicture() {
+        return findAll().stream().filter(user -> user.getProfilePicture() != null && user.getProfilePicture().startsWith("data:"));
+    }
+
+    @Override
+    public Optional<User> findPictureById(String id) {
+        return findById(id);
+    }
+
+    @Override
+    public synchronized long incrementTokenVersion(String email) {
+        return asOneCommand("update", () -> findOneBy("email", email)
+                .map(user -> {
+                    user.setTokenVersion(user.getTokenVersion() + 1);
+                    save(user);
+                    return 1L;
+                })
+                .orElse(0L));
+    }
+
+    @Override
+    public synchronized long updateProfile(String email, String name, String username, String age, String height,
+                                           String weight, String avatarVersion) {
+        return asOneCommand("update", () -> findOneBy("email", email)
+                .map(user -> {
+                    user.setName(name);
+                    user.setUsername(username);
+                    user.setAge(age);
+                    user.setHeight(height);
+                    user.setWeight(weight);
+                    user.setAvatarVersion(avatarVersion);
+                    user.setProfilePicture(null);
+                    save(user);
+                    return 1L;
+                })
+                .orElse(0L));
+    }
+
+    @Override
+    public synchronized long moveInlinePicture(String id, String profilePicture, String avatarVersion) {
+        return asOneCommand("update", () -> findById(id)
+                .filter(user -> profilePicture.equals(user.getProfilePicture()))
+                .map(user -> {
+                    user.setProfilePicture(null);
+                    user.setAvatarVersion(avatarVersion);
+                    save(user);
+                    return 1L;
+                })
+                .orElse(0L));
+    }
+}
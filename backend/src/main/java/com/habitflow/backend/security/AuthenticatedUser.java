@@ -0,0 +1,24 @@
+package com.habitflow.backend.security;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// The principal of an authenticated request; carries the user id so services can check ownership without a lookup
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class AuthenticatedUser extends User {
+
+    private final String id;
+    private final int tokenVersion;
+
+    public AuthenticatedUser(String id, String email, String password, int tokenVersion,
+            Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+        this.tokenVersion = tokenVersion;
+    }
+}
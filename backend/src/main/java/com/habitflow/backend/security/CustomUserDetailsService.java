@@ -2,29 +2,48 @@ package com.habitflow.backend.security;
 
 import com.habitflow.backend.model.User;
 import com.habitflow.backend.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    // Accounts allowed on /api/admin/**
+    private final Set<String> adminEmails;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+            @Value("${habitflow.admin.emails:}") List<String> adminEmails) {
+        this.userRepository = userRepository;
+        this.adminEmails = adminEmails.stream()
+                .map(String::trim)
+                .filter(email -> !email.isEmpty())
+                .map(String::toLowerCase)
+                .collect(Collectors.toUnmodifiableSet());
+    }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
 
-        return new org.springframework.security.core.userdetails.User(
+        return new AuthenticatedUser(
+                user.getId(),
                 user.getEmail(),
                 user.getPassword(),
-                Collections.emptyList()
+                user.getTokenVersion(),
+                adminEmails.contains(user.getEmail().toLowerCase())
+                        ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+                        : Collections.emptyList()
         );
     }
 }
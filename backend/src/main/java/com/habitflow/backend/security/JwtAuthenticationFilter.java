@@ -1,17 +1,22 @@
 package com.habitflow.backend.security;
 
+import com.habitflow.backend.cache.DatabaseUnavailableException;
+import com.habitflow.backend.cache.ResilientReads;
+import com.habitflow.backend.jfr.JwtVerificationEvent;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -22,18 +27,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final UserDetailsService userDetailsService;
+    private final ResilientReads resilientReads;
+    private final TokenRevocations revocations;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        String token = getTokenFromRequest(request);
+        String username = verify(request);
+        if (username != null) {
 
-        if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-            String username = jwtTokenProvider.getUsername(token);
-
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // The token is already verified; a stale user beats hanging every request on a stalled database
+            UserDetails userDetails;
+            try {
+                userDetails = resilientReads.read("auth", username,
+                        () -> userDetailsService.loadUserByUsername(username)).value();
+            } catch (DatabaseUnavailableException e) {
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+                return;
+            }
 
             UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                     userDetails,
@@ -49,11 +63,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private String getTokenFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
+    // The subject of a valid token that was not revoked, or null
+    private String verify(HttpServletRequest request) {
+        if (request.getHeader(HttpHeaders.AUTHORIZATION) == null) {
+            return null;
+        }
+        JwtVerificationEvent event = new JwtVerificationEvent();
+        event.begin();
+        Claims claims = jwtTokenProvider.parse(request);
+        String username = claims != null
+                && !revocations.isRevoked(claims.getSubject(), JwtTokenProvider.tokenVersion(claims))
+                ? claims.getSubject() : null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.valid = username != null;
+            event.commit();
         }
-        return null;
+        return username;
     }
 }
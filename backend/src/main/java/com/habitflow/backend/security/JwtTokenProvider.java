@@ -4,9 +4,11 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import java.security.Key;
 import java.util.Date;
 import javax.crypto.SecretKey;
@@ -20,13 +22,19 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private long jwtExpirationDate;
 
+    // Claim holding the user's token version, see TokenRevocations
+    static final String VERSION_CLAIM = "ver";
+    private static final String CLAIMS_ATTRIBUTE = JwtTokenProvider.class.getName() + ".claims";
+
     public String generateToken(Authentication authentication) {
         String username = authentication.getName();
         Date currentDate = new Date();
         Date expireDate = new Date(currentDate.getTime() + jwtExpirationDate);
+        int version = authentication.getPrincipal() instanceof AuthenticatedUser user ? user.getTokenVersion() : 0;
 
         return Jwts.builder()
                 .subject(username)
+                .claim(VERSION_CLAIM, version)
                 .issuedAt(new Date())
                 .expiration(expireDate)
                 .signWith(key())
@@ -46,6 +54,46 @@ public class JwtTokenProvider {
                 .getSubject();
     }
 
+    // The claims of a valid token, or null; verifies the signature and expiry once
+    public Claims parse(String token) {
+        try {
+            return Jwts.parser()
+                    .verifyWith(key())
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // The claims of the request's bearer token if it is valid, or null; verified once per request,
+    // however many filters ask
+    public Claims parse(HttpServletRequest request) {
+        Object cached = request.getAttribute(CLAIMS_ATTRIBUTE);
+        if (cached != null) {
+            return cached instanceof Claims claims ? claims : null;
+        }
+        String token = bearerToken(request);
+        Claims claims = token != null ? parse(token) : null;
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims != null ? claims : Boolean.FALSE);
+        return claims;
+    }
+
+    private static String bearerToken(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+
+    // Tokens issued before versions existed count as version 0
+    public static int tokenVersion(Claims claims) {
+        Integer version = claims.get(VERSION_CLAIM, Integer.class);
+        return version != null ? version : 0;
+    }
+
     public boolean validateToken(String token) {
         try {
             Jwts.parser()
@@ -0,0 +1,168 @@
+package com.habitflow.backend.security;
+
+import com.habitflow.backend.model.TokenRevocation;
+import com.habitflow.backend.repository.TokenRevocationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked tokens, for logout everywhere and account deletion. Every token carries
+ * its user's token version; revoking stores the lowest version still accepted in
+ * {@code token_revocations} until the last token it rejects has expired anyway.
+ *
+ * Each node keeps the subjects with a revocation in a Bloom filter, so a request
+ * whose user was never revoked - nearly all of them - is checked without I/O. A
+ * hit is confirmed against the collection once and remembered. Revocations made
+ * on other nodes are picked up every {@code refresh-interval}; the filter is
+ * rebuilt every {@code rebuild-interval} to forget expired ones.
+ */
+@Slf4j
+@Component
+public class TokenRevocations {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final TokenRevocationRepository repository;
+    private final Duration tokenLifetime;
+    private final Duration refreshInterval;
+    private final Duration rebuildInterval;
+    private final Duration clockSkew;
+    private final int expectedRevocations;
+    private final Map<String, Integer> confirmed;
+
+    private volatile BloomFilter filter;
+    // Revocations up to here are in the filter; guarded by this, like the rebuild schedule
+    private Instant seenUntil;
+    private Instant nextRebuild = Instant.MIN;
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-revocations");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TokenRevocations(TokenRevocationRepository repository,
+            @Value("${jwt.expiration}") long tokenLifetimeMillis,
+            @Value("${habitflow.revocation.refresh-interval:5s}") Duration refreshInterval,
+            @Value("${habitflow.revocation.rebuild-interval:1h}") Duration rebuildInterval,
+            @Value("${habitflow.revocation.clock-skew:5s}") Duration clockSkew,
+            @Value("${habitflow.revocation.expected:100000}") int expectedRevocations,
+            @Value("${habitflow.revocation.max-confirmed:10000}") int maxConfirmed) {
+        this.repository = repository;
+        this.tokenLifetime = Duration.ofMillis(tokenLifetimeMillis);
+        this.refreshInterval = refreshInterval;
+        this.rebuildInterval = rebuildInterval;
+        this.clockSkew = clockSkew;
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        this.confirmed = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxConfirmed;
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    public boolean isRevoked(String subject, int tokenVersion) {
+        if (!filter.mightContain(subject)) {
+            return false;
+        }
+        return tokenVersion < minimumVersion(subject);
+    }
+
+    /** The lowest token version still accepted for {@code subject}; 0 if it was never revoked. */
+    public int minimumVersion(String subject) {
+        if (!filter.mightContain(subject)) {
+            return 0;
+        }
+        Integer known = confirmed.get(subject);
+        if (known != null) {
+            return known;
+        }
+        // Bloom hit: revoked, or one of the few false positives; either way asked only once
+        int minVersion = repository.findById(subject)
+                .filter(revocation -> revocation.getExpiresAt().isAfter(Instant.now()))
+                .map(TokenRevocation::getMinVersion)
+                .orElse(0);
+        confirmed.merge(subject, minVersion, Math::max);
+        return minVersion;
+    }
+
+    /**
+     * Rejects the subject's tokens below {@code minVersion}, on this node at once and
+     * on the others within a refresh. Holds the lock refresh takes, so a concurrent
+     * rebuild cannot drop it from the filter.
+     */
+    public synchronized void revoke(String subject, int minVersion) {
+        Instant now = Instant.now();
+        repository.revoke(subject, minVersion, now, now.plus(tokenLifetime));
+        filter.put(subject);
+        confirmed.merge(subject, minVersion, Math::max);
+    }
+
+    public synchronized void refresh() {
+        Instant now = Instant.now();
+        if (!now.isBefore(nextRebuild)) {
+            rebuild(now);
+            return;
+        }
+        // Overlapping by the clock skew: a revocation stamped late by another node's clock is still seen
+        List<TokenRevocation> changed = repository.findByRevokedAtAfter(seenUntil.minus(clockSkew));
+        for (TokenRevocation revocation : changed) {
+            apply(revocation, filter);
+            if (revocation.getRevokedAt().isAfter(seenUntil)) {
+                seenUntil = revocation.getRevokedAt();
+            }
+        }
+    }
+
+    private void rebuild(Instant now) {
+        List<TokenRevocation> active = repository.findByExpiresAtAfter(now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, active.size() * 2), FALSE_POSITIVE_RATE);
+        confirmed.clear();
+        for (TokenRevocation revocation : active) {
+            apply(revocation, rebuilt);
+        }
+        filter = rebuilt;
+        seenUntil = now;
+        nextRebuild = now.plus(rebuildInterval);
+        log.debug("Token revocation filter rebuilt with {} active revocations", active.size());
+    }
+
+    private void apply(TokenRevocation revocation, BloomFilter target) {
+        target.put(revocation.getId());
+        confirmed.put(revocation.getId(), revocation.getMinVersion());
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Refreshing token revocations failed: {}", e.getMessage());
+        }
+    }
+}
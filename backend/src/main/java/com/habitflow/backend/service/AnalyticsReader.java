@@ -0,0 +1,20 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.ReadResult;
+import com.habitflow.backend.dto.AnalyticsRangeResponse;
+import com.habitflow.backend.dto.AnalyticsResponse;
+
+import java.time.LocalDate;
+
+/**
+ * What /api/analytics serves. {@link AnalyticsService} answers from MongoDB;
+ * a node set up as an analytics node answers from a mapped snapshot file
+ * instead ({@link MappedAnalyticsService}).
+ */
+public interface AnalyticsReader {
+
+    ReadResult<AnalyticsResponse> getAnalytics(String email);
+
+    /** Completions per habit from {@code from} to {@code to}, both inclusive. */
+    AnalyticsRangeResponse getRangeAnalytics(String email, LocalDate from, LocalDate to);
+}
@@ -1,46 +1,171 @@
 package com.habitflow.backend.service;
 
+import com.habitflow.backend.cache.ReadResult;
+import com.habitflow.backend.cache.ResilientReads;
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.dto.AnalyticsRangeResponse;
 import com.habitflow.backend.dto.AnalyticsResponse;
+import com.habitflow.backend.jfr.AnalyticsPhaseEvent;
+import com.habitflow.backend.model.AnalyticsSnapshot;
 import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.WeeklyDigest;
 import com.habitflow.backend.model.User;
 import com.habitflow.backend.repository.HabitRepository;
 import com.habitflow.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 @Service
 @RequiredArgsConstructor
-public class AnalyticsService {
+public class AnalyticsService implements AnalyticsReader {
+
+    private static final int WINDOW_MASK = (1 << AnalyticsSnapshotService.WINDOW_DAYS) - 1;
+
+    // Best: most completed days, then higher completion rate, then most recent activity
+    private static final Comparator<HabitCalculation> MOST_COMPLETED = Comparator
+            .comparingInt((HabitCalculation c) -> c.completedDays)
+            .thenComparingDouble(c -> c.completionRate)
+            .thenComparing(c -> c.lastActivityDate != null ? c.lastActivityDate : LocalDate.MIN);
+    // Worst: most missed days, then lower completion rate
+    private static final Comparator<HabitCalculation> MOST_MISSED = Comparator
+            .comparingInt((HabitCalculation c) -> c.missedDays)
+            .thenComparingDouble(c -> -c.completionRate);
 
     private final HabitRepository habitRepository;
     private final UserRepository userRepository;
+    private final SingleFlight singleFlight;
+    private final AnalyticsSnapshotService snapshotService;
+    private final CompletionIndex completionIndex;
+    private final ResilientReads resilientReads;
+
+    @Override
+    public ReadResult<AnalyticsResponse> getAnalytics(String email) {
+        return resilientReads.read("analytics", email, () -> {
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            // Several devices or pages often ask at the same moment; compute once for all of them
+            return singleFlight.execute("analytics", user.getId(), () -> computeAnalytics(user.getId()));
+        });
+    }
 
-    public AnalyticsResponse getAnalytics(String email) {
+    // Any range, even years long, costs the same: two prefix-sum reads per habit
+    @Override
+    public AnalyticsRangeResponse getRangeAnalytics(String email, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        return rangeResponse(completionIndex.count(user.getId(), from, to), from, to);
+    }
+
+    static AnalyticsRangeResponse rangeResponse(List<CompletionIndex.RangeCounts> habits, LocalDate from, LocalDate to) {
+        List<AnalyticsRangeResponse.HabitRange> habitStats = new ArrayList<>();
+        int totalPossible = 0;
+        int totalDone = 0;
+        for (CompletionIndex.RangeCounts counts : habits) {
+            if (counts.possibleDays() == 0) {
+                continue;
+            }
+            totalPossible += counts.possibleDays();
+            totalDone += counts.completedDays();
+            habitStats.add(AnalyticsRangeResponse.HabitRange.builder()
+                    .id(counts.id())
+                    .title(counts.title())
+                    .possibleDays(counts.possibleDays())
+                    .completedCount(counts.completedDays())
+                    .completionRate(percentage(counts.completedDays(), counts.possibleDays()))
+                    .build());
+        }
+        return AnalyticsRangeResponse.builder()
+                .from(from.toString())
+                .to(to.toString())
+                .totalPossible(totalPossible)
+                .totalDone(totalDone)
+                .percentage(percentage(totalDone, totalPossible))
+                .habitStats(habitStats)
+                .build();
+    }
+
+    static double percentage(int done, int possible) {
+        double percentage = possible == 0 ? 0 : ((double) done / possible) * 100;
+        return Math.round(percentage * 10.0) / 10.0;
+    }
 
-        List<Habit> habits = habitRepository.findByUserId(user.getId());
+    private AnalyticsResponse computeAnalytics(String userId) {
         LocalDate today = LocalDate.now();
+        AnalyticsPhaseEvent load = AnalyticsPhaseEvent.begin("load", 0);
+        AnalyticsSnapshot snapshot = snapshotService.find(userId).orElse(null);
+
+        if (snapshot != null && snapshotService.isCurrent(snapshot, today)) {
+            // Everything up to yesterday is in the snapshot; only today's (and an early
+            // toggle of tomorrow's) log entries are read
+            List<Habit> live = habitRepository.findDaysByUserId(userId, List.of(today, today.plusDays(1)));
+            List<HabitDays> merged = merge(snapshot, live, today);
+            load.commit();
+            return buildResponse(merged, snapshot.getStreak(), today);
+        }
+
+        // No usable snapshot: scan once and leave a fresh one behind for the rest of the day
+        List<Habit> habits = habitRepository.findByUserId(userId);
+        AnalyticsSnapshot fresh = snapshotService.compute(userId, habits, today.minusDays(1),
+                snapshot != null ? snapshot.getEdits() : 0);
+        snapshotService.save(fresh);
+        List<HabitDays> merged = merge(fresh, habits, today);
+        load.commit();
+        return buildResponse(merged, fresh.getStreak(), today);
+    }
 
+    // Shifts each habit's window by one day to end at today and adds whatever was logged after asOf
+    private List<HabitDays> merge(AnalyticsSnapshot snapshot, List<Habit> habits, LocalDate today) {
+        Map<String, AnalyticsSnapshot.HabitSnapshot> byId = new HashMap<>();
+        for (AnalyticsSnapshot.HabitSnapshot habitSnapshot : snapshot.getHabits()) {
+            byId.put(habitSnapshot.getId(), habitSnapshot);
+        }
+        String asOf = snapshot.getAsOf();
+        String todayKey = today.toString();
+
+        List<HabitDays> result = new ArrayList<>(habits.size());
+        for (Habit habit : habits) {
+            AnalyticsSnapshot.HabitSnapshot past = byId.get(habit.getId());
+            int recent = past != null ? past.getRecent() << 1 : 0;
+            int completed = past != null ? past.getCompleted() : 0;
+            for (Map.Entry<String, Boolean> entry : habit.getLogs().entrySet()) {
+                if (Boolean.TRUE.equals(entry.getValue()) && entry.getKey().compareTo(asOf) > 0) {
+                    completed++;
+                    if (entry.getKey().equals(todayKey)) {
+                        recent |= 1;
+                    }
+                }
+            }
+            LocalDate createdOn = habit.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+            result.add(new HabitDays(habit.getId(), habit.getTitle(), createdOn, recent & WINDOW_MASK, completed));
+        }
+        return result;
+    }
+
+    static AnalyticsResponse buildResponse(List<HabitDays> habits, int streakBeforeToday, LocalDate today) {
         // Edge case: No habits
         if (habits.isEmpty()) {
             return createEmptyResponse();
         }
 
         // 1. LAST 7 DAYS ACTIVITY (BAR CHART)
+        AnalyticsPhaseEvent phase = AnalyticsPhaseEvent.begin("weekly", habits.size());
         List<AnalyticsResponse.DailyData> weeklyActivity = new ArrayList<>();
         LocalDate startOfActivity = today.minusDays(6);
         for (int i = 0; i < 7; i++) {
             LocalDate date = startOfActivity.plusDays(i);
-            String dateStr = date.toString();
             int count = 0;
-            for (Habit h : habits) {
-                if (h.getLogs().getOrDefault(dateStr, false)) {
+            for (HabitDays h : habits) {
+                if (h.doneOn(date, today)) {
                     count++;
                 }
             }
@@ -49,19 +174,22 @@ public class AnalyticsService {
                     count));
         }
 
+        phase.commit();
+
         // 2. HABIT PERFORMANCE (30 DAYS RANGE)
+        phase = AnalyticsPhaseEvent.begin("per-habit", habits.size());
         List<AnalyticsResponse.HabitStat> habitStats = new ArrayList<>();
         List<HabitCalculation> calcs = new ArrayList<>();
 
         LocalDate thirtyDaysAgo = today.minusDays(29);
 
-        for (Habit habit : habits) {
+        for (HabitDays habit : habits) {
             HabitCalculation calc = calculateForHabit(habit, thirtyDaysAgo, today);
             if (calc.totalDays > 0) {
                 calcs.add(calc);
                 habitStats.add(AnalyticsResponse.HabitStat.builder()
-                        .id(habit.getId())
-                        .title(habit.getTitle())
+                        .id(habit.id())
+                        .title(habit.title())
                         .completedCount(calc.completedDays)
                         .completionRate(Math.round(calc.completionRate * 10.0) / 10.0)
                         .trend(determineTrend(calc.completionRate, calc.totalDays))
@@ -71,24 +199,18 @@ public class AnalyticsService {
 
         // Edge case: No applicable habits in range
         if (calcs.isEmpty()) {
+            phase.commit();
             return createEmptyResponse();
         }
 
         // 3. MOST COMPLETED HABIT
         // Formula: MAX(completedDays). Tie: higher completionRate, then most recent
         // activity.
-        HabitCalculation bestHabit = calcs.stream()
-                .max(Comparator.comparingInt((HabitCalculation c) -> c.completedDays)
-                        .thenComparingDouble(c -> c.completionRate)
-                        .thenComparing(c -> c.lastActivityDate != null ? c.lastActivityDate : LocalDate.MIN))
-                .orElse(null);
+        HabitCalculation bestHabit = calcs.stream().max(MOST_COMPLETED).orElse(null);
 
         // 4. MOST MISSED HABIT
         // Formula: MAX(missedDays).
-        HabitCalculation worstHabit = calcs.stream()
-                .max(Comparator.comparingInt((HabitCalculation c) -> c.missedDays)
-                        .thenComparingDouble(c -> -c.completionRate)) // Secondary: lower completion rate
-                .orElse(null);
+        HabitCalculation worstHabit = calcs.stream().max(MOST_MISSED).orElse(null);
 
         String mostCompletedStr = bestHabit != null ? bestHabit.title : "None";
         String mostMissedStr = "None 🎉";
@@ -96,15 +218,22 @@ public class AnalyticsService {
             mostMissedStr = worstHabit.title;
         }
 
+        phase.commit();
+
         // 5. WEEKLY & MONTHLY SUMMARIES
         // Formula: (sum of completedDays) / (sum of totalDays) * 100
+        phase = AnalyticsPhaseEvent.begin("summaries", habits.size());
         AnalyticsResponse.SummaryStats weeklySummary = calculateOverallSummary(habits, today.minusDays(6), today);
         AnalyticsResponse.SummaryStats monthlySummary = calculateOverallSummary(habits, today.minusDays(29), today);
 
+        phase.commit();
+
         // 6. GLOBAL STATS
-        int currentStreak = calculateStreak(habits, today);
-        int totalCompletedOverall = habits.stream()
-                .mapToInt(h -> (int) h.getLogs().values().stream().filter(v -> v).count()).sum();
+        phase = AnalyticsPhaseEvent.begin("streak", habits.size());
+        boolean doneToday = habits.stream().anyMatch(h -> h.doneOn(today, today));
+        int currentStreak = doneToday ? streakBeforeToday + 1 : streakBeforeToday;
+        int totalCompletedOverall = habits.stream().mapToInt(HabitDays::completed).sum();
+        phase.commit();
 
         return AnalyticsResponse.builder()
                 .weeklyData(weeklyActivity)
@@ -120,7 +249,55 @@ public class AnalyticsService {
                 .build();
     }
 
-    private AnalyticsResponse createEmptyResponse() {
+    /**
+     * The week ending on {@code weekEnd}, with the same per-habit and summary math
+     * as {@link #getAnalytics}, from habits the caller already loaded. Null for a
+     * user without habits that week.
+     */
+    public WeeklyDigest weeklyDigest(String userId, List<Habit> habits, LocalDate weekEnd) {
+        AnalyticsSnapshot asOfEnd = snapshotService.compute(userId, habits, weekEnd, 0);
+        Map<String, AnalyticsSnapshot.HabitSnapshot> byId = new HashMap<>();
+        for (AnalyticsSnapshot.HabitSnapshot habitSnapshot : asOfEnd.getHabits()) {
+            byId.put(habitSnapshot.getId(), habitSnapshot);
+        }
+        List<HabitDays> days = new ArrayList<>(habits.size());
+        for (Habit habit : habits) {
+            AnalyticsSnapshot.HabitSnapshot habitSnapshot = byId.get(habit.getId());
+            LocalDate createdOn = habit.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+            days.add(new HabitDays(habit.getId(), habit.getTitle(), createdOn, habitSnapshot.getRecent(),
+                    habitSnapshot.getCompleted()));
+        }
+
+        LocalDate weekStart = weekEnd.minusDays(6);
+        List<HabitCalculation> calcs = new ArrayList<>();
+        for (HabitDays habit : days) {
+            HabitCalculation calc = calculateForHabit(habit, weekStart, weekEnd);
+            if (calc.totalDays > 0) {
+                calcs.add(calc);
+            }
+        }
+        if (calcs.isEmpty()) {
+            return null;
+        }
+
+        HabitCalculation best = calcs.stream().max(MOST_COMPLETED).orElseThrow();
+        HabitCalculation worst = calcs.stream().max(MOST_MISSED).orElseThrow();
+        int previousStreak = snapshotService.compute(userId, habits, weekEnd.minusDays(7), 0).getStreak();
+        return WeeklyDigest.builder()
+                .id(userId + ":" + weekEnd)
+                .userId(userId)
+                .weekStart(weekStart.toString())
+                .weekEnd(weekEnd.toString())
+                .summary(calculateOverallSummary(days, weekStart, weekEnd))
+                .bestHabit(best.completedDays > 0 ? best.title : null)
+                .worstHabit(worst.missedDays > 0 ? worst.title : null)
+                .streak(asOfEnd.getStreak())
+                .streakChange(asOfEnd.getStreak() - previousStreak)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static AnalyticsResponse createEmptyResponse() {
         AnalyticsResponse.SummaryStats zeroSummary = new AnalyticsResponse.SummaryStats(0, 0, 0);
         return AnalyticsResponse.builder()
                 .weeklyData(new ArrayList<>())
@@ -133,8 +310,8 @@ public class AnalyticsService {
                 .build();
     }
 
-    private HabitCalculation calculateForHabit(Habit habit, LocalDate start, LocalDate end) {
-        LocalDate creationDate = habit.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+    private static HabitCalculation calculateForHabit(HabitDays habit, LocalDate start, LocalDate end) {
+        LocalDate creationDate = habit.createdOn();
         LocalDate calcStart = creationDate.isAfter(start) ? creationDate : start;
 
         int totalDays = 0;
@@ -143,17 +320,17 @@ public class AnalyticsService {
 
         for (LocalDate d = calcStart; !d.isAfter(end); d = d.plusDays(1)) {
             totalDays++;
-            if (habit.getLogs().getOrDefault(d.toString(), false)) {
+            if (habit.doneOn(d, end)) {
                 completedDays++;
                 lastActivity = d;
             }
         }
 
         double rate = totalDays == 0 ? 0 : ((double) completedDays / totalDays) * 100;
-        return new HabitCalculation(habit.getTitle(), totalDays, completedDays, rate, lastActivity);
+        return new HabitCalculation(habit.title(), totalDays, completedDays, rate, lastActivity);
     }
 
-    private String determineTrend(double rate, int totalDays) {
+    static String determineTrend(double rate, int totalDays) {
         if (totalDays < 3)
             return "Insufficient Data";
         if (rate < 60)
@@ -163,17 +340,17 @@ public class AnalyticsService {
         return "Excellent";
     }
 
-    private AnalyticsResponse.SummaryStats calculateOverallSummary(List<Habit> habits, LocalDate start, LocalDate end) {
+    private static AnalyticsResponse.SummaryStats calculateOverallSummary(List<HabitDays> habits, LocalDate start, LocalDate end) {
         int totalPossible = 0;
         int totalDone = 0;
 
-        for (Habit h : habits) {
-            LocalDate creationDate = h.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+        for (HabitDays h : habits) {
+            LocalDate creationDate = h.createdOn();
             LocalDate effectiveStart = creationDate.isAfter(start) ? creationDate : start;
 
             for (LocalDate d = effectiveStart; !d.isAfter(end); d = d.plusDays(1)) {
                 totalPossible++;
-                if (h.getLogs().getOrDefault(d.toString(), false)) {
+                if (h.doneOn(d, end)) {
                     totalDone++;
                 }
             }
@@ -201,21 +378,13 @@ public class AnalyticsService {
         }
     }
 
-    // Reuse existing helper methods for streak
-    private int calculateStreak(List<Habit> habits, LocalDate today) {
-        int streak = 0;
-        LocalDate date = today;
-        if (!hasCompletionOnDate(habits, date))
-            date = date.minusDays(1);
-        while (hasCompletionOnDate(habits, date)) {
-            streak++;
-            date = date.minusDays(1);
-        }
-        return streak;
-    }
+    // One habit as analytics sees it: the 30 days ending today as a bitmask (bit i is
+    // today minus i days) and the all-time number of completions
+    record HabitDays(String id, String title, LocalDate createdOn, int recent, int completed) {
 
-    private boolean hasCompletionOnDate(List<Habit> habits, LocalDate date) {
-        String dateStr = date.toString();
-        return habits.stream().anyMatch(h -> h.getLogs().getOrDefault(dateStr, false));
+        boolean doneOn(LocalDate date, LocalDate today) {
+            long daysAgo = ChronoUnit.DAYS.between(date, today);
+            return daysAgo >= 0 && daysAgo < AnalyticsSnapshotService.WINDOW_DAYS && (recent >>> daysAgo & 1) != 0;
+        }
     }
 }
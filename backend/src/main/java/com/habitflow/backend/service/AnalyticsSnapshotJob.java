@@ -0,0 +1,67 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.usage.UsageStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Nightly pass that snapshots every user's analytics as of yesterday, so daytime
+ * requests only read today's log entries.
+ *
+ * Users are streamed in id order and handed one by one to a bounded worker pool,
+ * checkpointed by the {@link UserSweep}; a run that dies resumes where it left
+ * off, on this node or another. Users the run does not reach are computed lazily
+ * on their next analytics request.
+ */
+@Slf4j
+@Component
+public class AnalyticsSnapshotJob {
+
+    private final UserSweep sweep;
+    private final AnalyticsSnapshotService snapshotService;
+    private final ObjectProvider<UsageStats> usageStats;
+    private final int workers;
+    private final Duration staleAfter;
+
+    public AnalyticsSnapshotJob(UserSweep sweep, AnalyticsSnapshotService snapshotService,
+            ObjectProvider<UsageStats> usageStats,
+            @Value("${habitflow.analytics.snapshots.workers:4}") int workers,
+            @Value("${habitflow.analytics.snapshots.stale-after:10m}") Duration staleAfter) {
+        this.sweep = sweep;
+        this.snapshotService = snapshotService;
+        this.usageStats = usageStats;
+        this.workers = workers;
+        this.staleAfter = staleAfter;
+    }
+
+    @Scheduled(cron = "${habitflow.analytics.snapshots.cron:0 5 0 * * *}")
+    public void runNightly() {
+        run(LocalDate.now().minusDays(1));
+    }
+
+    public void run(LocalDate asOf) {
+        String runId = asOf.toString();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "analytics-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweep.run(runId, "Snapshot", staleAfter, 1, workers * 2, 0, pool, userIds -> () -> {
+            int habits = snapshotService.refresh(userIds.get(0), asOf).getHabits().size();
+            UsageStats usage = usageStats.getIfAvailable();
+            if (usage != null) {
+                // The one pass that sees every user exactly once
+                usage.recordHabitsOwned(asOf, habits);
+            }
+        }).ifPresent(summary -> log.info("Snapshot run {} finished: {} users, {} failed, {} ms", runId,
+                summary.processed(), summary.failed(), summary.millis()));
+    }
+}
@@ -0,0 +1,133 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.event.HabitChangeType;
+import com.habitflow.backend.model.AnalyticsSnapshot;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.repository.AnalyticsSnapshotRepository;
+import com.habitflow.backend.repository.HabitRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Builds and stores {@link AnalyticsSnapshot}s and keeps track of when they go
+ * stale: editing a past day, deleting a habit or importing history marks the
+ * owner's snapshot dirty.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsSnapshotService {
+
+    static final int WINDOW_DAYS = 30;
+
+    private final AnalyticsSnapshotRepository snapshotRepository;
+    private final HabitRepository habitRepository;
+
+    public Optional<AnalyticsSnapshot> find(String userId) {
+        return snapshotRepository.findById(userId);
+    }
+
+    // Usable for today only if it covers everything up to yesterday and nothing changed since
+    public boolean isCurrent(AnalyticsSnapshot snapshot, LocalDate today) {
+        return !snapshot.isDirty() && today.minusDays(1).toString().equals(snapshot.getAsOf());
+    }
+
+    // Recomputes from a full scan; used by the nightly job
+    public AnalyticsSnapshot refresh(String userId, LocalDate asOf) {
+        // Read edits before the scan, so a past-day toggle during the scan wins
+        long edits = find(userId).map(AnalyticsSnapshot::getEdits).orElse(0L);
+        List<Habit> habits = habitRepository.findByUserId(userId);
+        AnalyticsSnapshot snapshot = compute(userId, habits, asOf, edits);
+        save(snapshot);
+        return snapshot;
+    }
+
+    public AnalyticsSnapshot compute(String userId, List<Habit> habits, LocalDate asOf, long edits) {
+        String asOfKey = asOf.toString();
+        String[] windowKeys = new String[WINDOW_DAYS];
+        for (int i = 0; i < WINDOW_DAYS; i++) {
+            windowKeys[i] = asOf.minusDays(i).toString();
+        }
+
+        List<AnalyticsSnapshot.HabitSnapshot> habitSnapshots = new ArrayList<>(habits.size());
+        Set<String> activeDays = new HashSet<>();
+        for (Habit habit : habits) {
+            int recent = 0;
+            for (int i = 0; i < WINDOW_DAYS; i++) {
+                if (habit.isDone(windowKeys[i])) {
+                    recent |= 1 << i;
+                }
+            }
+            // The archive only holds days before the retention horizon, well before asOf
+            int completed = habit.archivedCompletions();
+            for (Map.Entry<String, Boolean> entry : habit.getLogs().entrySet()) {
+                if (Boolean.TRUE.equals(entry.getValue()) && entry.getKey().compareTo(asOfKey) <= 0) {
+                    completed++;
+                    activeDays.add(entry.getKey());
+                }
+            }
+            habitSnapshots.add(new AnalyticsSnapshot.HabitSnapshot(habit.getId(), recent, completed));
+        }
+
+        int streak = 0;
+        for (LocalDate day = asOf; isActive(day.toString(), activeDays, habits); day = day.minusDays(1)) {
+            streak++;
+        }
+
+        AnalyticsSnapshot snapshot = new AnalyticsSnapshot();
+        snapshot.setId(userId);
+        snapshot.setAsOf(asOfKey);
+        snapshot.setEdits(edits);
+        snapshot.setStreak(streak);
+        snapshot.setHabits(habitSnapshots);
+        snapshot.setComputedAt(Instant.now());
+        return snapshot;
+    }
+
+    // A streak longer than the retention horizon continues into the archive
+    private static boolean isActive(String day, Set<String> activeDays, List<Habit> habits) {
+        if (activeDays.contains(day)) {
+            return true;
+        }
+        for (Habit habit : habits) {
+            if (habit.getArchive() != null && habit.isDone(day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void save(AnalyticsSnapshot snapshot) {
+        if (!snapshotRepository.saveIfUnchanged(snapshot)) {
+            log.debug("Snapshot for {} changed while computing, left dirty", snapshot.getId());
+        }
+    }
+
+    @EventListener
+    public void onHabitChange(HabitChangeEvent event) {
+        boolean pastDayEdit = event.getType() == HabitChangeType.TOGGLE
+                && event.getDate() != null
+                && event.getDate().compareTo(LocalDate.now().toString()) < 0;
+        if (!pastDayEdit && event.getType() != HabitChangeType.DELETE && event.getType() != HabitChangeType.IMPORT) {
+            return;
+        }
+        try {
+            snapshotRepository.markDirty(event.getUserId());
+        } catch (RuntimeException e) {
+            // The write itself succeeded; the snapshot just stays stale until tonight's run
+            log.warn("Could not mark analytics snapshot of {} dirty: {}", event.getUserId(), e.getMessage());
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.habitflow.backend.dto.RegisterRequest;
 import com.habitflow.backend.model.User;
 import com.habitflow.backend.repository.UserRepository;
 import com.habitflow.backend.security.JwtTokenProvider;
+import com.habitflow.backend.security.TokenRevocations;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -24,6 +25,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenRevocations tokenRevocations;
 
     public AuthResponse login(LoginRequest request) {
         Authentication authentication = authenticationManager.authenticate(
@@ -46,8 +48,20 @@ public class AuthService {
                 passwordEncoder.encode(request.getPassword())
         );
         user.setCreatedAt(Instant.now());
+        // Usernames are unique and default to the email's local part, which bob@a.com and bob@b.com share
+        user.setUsername(freeUsername(user.getUsername()));
+        // A deleted account's unexpired tokens must not work for a new one with the same email
+        user.setTokenVersion(tokenRevocations.minimumVersion(user.getEmail()));
 
         userRepository.save(user);
         return "User registered successfully!";
     }
+
+    private String freeUsername(String base) {
+        String candidate = base;
+        for (int n = 2; userRepository.existsByUsername(candidate); n++) {
+            candidate = base + n;
+        }
+        return candidate;
+    }
 }
@@ -0,0 +1,189 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.storage.AvatarStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Turns uploaded pictures into fixed-size square JPEG thumbnails and keeps them in
+ * the {@link AvatarStore}. The user document only records the version (a hash of
+ * the upload), which makes the avatar URL change whenever the picture does.
+ */
+@Service
+public class AvatarService {
+
+    public static final List<Integer> SIZES = List.of(64, 256);
+    private static final int MAX_DIMENSION = 12_000;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final AvatarStore store;
+    private final long maxUploadBytes;
+
+    public AvatarService(AvatarStore store,
+            @Value("${habitflow.avatars.max-upload-size:5MB}") DataSize maxUploadSize) {
+        this.store = store;
+        this.maxUploadBytes = maxUploadSize.toBytes();
+    }
+
+    public static boolean isDataUrl(String value) {
+        return value != null && value.startsWith("data:");
+    }
+
+    /** Stores a {@code data:image/...;base64,} upload and returns its version. */
+    public String store(String userId, String dataUrl) {
+        byte[] bytes = decode(dataUrl);
+        BufferedImage image = read(bytes);
+        String version = version(bytes);
+        Map<Integer, byte[]> thumbnails = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            thumbnails.put(size, encode(thumbnail(image, size)));
+        }
+        store.save(userId, version, thumbnails);
+        return version;
+    }
+
+    /** The smallest stored thumbnail that is at least {@code size} pixels wide, else the largest. */
+    public Optional<AvatarStore.StoredAvatar> load(String userId, int size) {
+        int chosen = SIZES.stream().filter(s -> s >= size).findFirst().orElse(SIZES.get(SIZES.size() - 1));
+        return store.load(userId, chosen);
+    }
+
+    public void delete(String userId) {
+        store.delete(userId);
+    }
+
+    public static String urlFor(User user) {
+        return user.getAvatarVersion() == null ? null
+                : "/api/users/" + user.getId() + "/avatar?v=" + user.getAvatarVersion();
+    }
+
+    private byte[] decode(String dataUrl) {
+        int comma = dataUrl.indexOf(',');
+        if (!isDataUrl(dataUrl) || comma < 0 || !dataUrl.substring(0, comma).endsWith(";base64")) {
+            throw new IllegalArgumentException("Profile picture must be a base64 data URL");
+        }
+        // Base64 grows the payload by a third; reject before decoding it
+        if ((long) (dataUrl.length() - comma - 1) * 3 / 4 > maxUploadBytes) {
+            throw new IllegalArgumentException("Profile picture is too large");
+        }
+        try {
+            return Base64.getMimeDecoder().decode(dataUrl.substring(comma + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Profile picture is not valid base64");
+        }
+    }
+
+    private static BufferedImage read(byte[] bytes) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // Check the header before decoding, a small file can declare a huge image
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width > MAX_DIMENSION || height > MAX_DIMENSION) {
+                    throw new IllegalArgumentException("Profile picture dimensions are too large");
+                }
+                // Decode a phone photo at a fraction of its size, keeping twice the largest thumbnail
+                int step = Math.max(1, Math.min(width, height) / (2 * SIZES.get(SIZES.size() - 1)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read profile picture");
+        }
+    }
+
+    // Center crop to a square of size * 2^k, then halve down to size: bilinear
+    // only looks at neighbouring pixels, so larger single steps would alias
+    private static BufferedImage thumbnail(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        int first = size;
+        while (first * 2 <= side) {
+            first *= 2;
+        }
+        BufferedImage current = draw(source, x, y, side, first);
+        while (current.getWidth() / 2 >= size) {
+            current = draw(current, 0, 0, current.getWidth(), current.getWidth() / 2);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int x, int y, int side, int size) {
+        // JPEG has no alpha: flatten transparent pixels onto white
+        BufferedImage target = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, size, size);
+            g.drawImage(source, 0, 0, size, size, x, y, x + side, y + side, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encode(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode thumbnail", e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static String version(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.CalendarResponse;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitArchive;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class CalendarService {
+
+    private final HabitRepository habitRepository;
+    private final UserRepository userRepository;
+    private final UserDataVersions versions;
+
+    /**
+     * Changes with every write to the user's data, so an unchanged tag means an
+     * unchanged month without reading it. Taken before the month is read: a write
+     * meanwhile moves the tag past the response it went out with.
+     */
+    public String etag(String userId, YearMonth month, boolean includeHabits) {
+        return "W/\"" + month + (includeHabits ? "-habits-" : "-") + versions.tag(userId) + "\"";
+    }
+
+    public CalendarResponse getMonth(String email, YearMonth month, boolean includeHabits) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Only this month's log keys come back from Mongo, whatever the account's age
+        List<Habit> habits = habitRepository.findMonthByUserId(user.getId(), month);
+
+        int length = month.lengthOfMonth();
+        LocalDate monthStart = month.atDay(1);
+        LocalDate monthEnd = month.atEndOfMonth();
+        int[] completed = new int[length];
+        int[] active = new int[length];
+        List<CalendarResponse.HabitMonth> habitMonths = includeHabits ? new ArrayList<>() : null;
+
+        for (Habit habit : habits) {
+            LocalDate creationDate = habit.getCreatedAt() != null
+                    ? habit.getCreatedAt().atZone(ZoneId.systemDefault()).toLocalDate()
+                    : monthStart;
+            if (creationDate.isAfter(monthEnd)) {
+                continue;
+            }
+            int firstActive = creationDate.isAfter(monthStart) ? creationDate.getDayOfMonth() - 1 : 0;
+            for (int d = firstActive; d < length; d++) {
+                active[d]++;
+            }
+
+            int mask = 0;
+            for (Map.Entry<String, Boolean> entry : habit.getLogs().entrySet()) {
+                if (Boolean.TRUE.equals(entry.getValue())) {
+                    int day = LocalDate.parse(entry.getKey()).getDayOfMonth() - 1;
+                    completed[day]++;
+                    mask |= 1 << day;
+                }
+            }
+            byte[] archived = habit.getArchive() != null ? habit.getArchive().get(String.valueOf(month.getYear())) : null;
+            if (archived != null) {
+                int firstDayOfYear = monthStart.getDayOfYear();
+                for (int d = 0; d < length; d++) {
+                    // A day still in logs (this month's entries are all loaded) overrides the archive
+                    if ((mask & 1 << d) == 0 && HabitArchive.isSet(archived, firstDayOfYear + d)
+                            && !habit.getLogs().containsKey(month.atDay(d + 1).toString())) {
+                        completed[d]++;
+                        mask |= 1 << d;
+                    }
+                }
+            }
+            if (includeHabits) {
+                habitMonths.add(new CalendarResponse.HabitMonth(habit.getId(), habit.getTitle(), mask));
+            }
+        }
+
+        List<CalendarResponse.DayTotals> days = new ArrayList<>(length);
+        for (int d = 0; d < length; d++) {
+            days.add(new CalendarResponse.DayTotals(month.atDay(d + 1).toString(), completed[d], active[d]));
+        }
+
+        return CalendarResponse.builder()
+                .month(month.toString())
+                .days(days)
+                .habits(habitMonths)
+                .build();
+    }
+
+    public boolean isPastMonth(YearMonth month) {
+        return month.isBefore(YearMonth.now());
+    }
+}
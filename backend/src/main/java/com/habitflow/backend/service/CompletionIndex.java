@@ -0,0 +1,246 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.event.HabitChangeType;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitArchive;
+import com.habitflow.backend.repository.HabitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-habit prefix sums of completions over epoch days, so the number of
+ * completed days in any range costs two array reads however long the range is.
+ *
+ * A user's index is built from a full scan on first use and kept in memory,
+ * stamped with the user's {@link UserDataVersions data version}. A toggle made on
+ * this node shifts the sums after the toggled day and moves the stamp along;
+ * anything else that changes the user's data (another node, a new habit, a toggle
+ * outside the indexed days) leaves the stamp behind and the index is rebuilt on
+ * the next read.
+ */
+@Component
+public class CompletionIndex {
+
+    private final HabitRepository habitRepository;
+    private final UserDataVersions versions;
+    private final SingleFlight singleFlight;
+    private final Map<String, UserIndex> users;
+
+    public CompletionIndex(HabitRepository habitRepository, UserDataVersions versions, SingleFlight singleFlight,
+            @Value("${habitflow.analytics.range-index.max-users:10000}") int maxUsers) {
+        this.habitRepository = habitRepository;
+        this.versions = versions;
+        this.singleFlight = singleFlight;
+        this.users = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserIndex> eldest) {
+                return size() > maxUsers;
+            }
+        });
+    }
+
+    /** Each of the user's habits with its possible and completed days from {@code from} to {@code to}. */
+    public List<RangeCounts> count(String userId, LocalDate from, LocalDate to) {
+        UserIndex index = users.get(userId);
+        if (index == null || !index.isCurrent(versions.current(userId))) {
+            index = singleFlight.execute("completion-index", userId, () -> build(userId));
+            users.put(userId, index);
+        }
+        return index.count(from, to);
+    }
+
+    public record RangeCounts(String id, String title, int possibleDays, int completedDays) {
+    }
+
+    private UserIndex build(String userId) {
+        // Read the version first: a write during the scan leaves the index already stale
+        long version = versions.current(userId);
+        LocalDate lastDay = LocalDate.now().plusDays(1);
+        List<HabitCounts> habits = new ArrayList<>();
+        for (Habit habit : habitRepository.findByUserId(userId)) {
+            habits.add(HabitCounts.of(habit, lastDay));
+        }
+        return new UserIndex(version, habits);
+    }
+
+    // Runs after InvalidationBus has moved the user's version for this write
+    @EventListener
+    public void onHabitChange(HabitChangeEvent event) {
+        UserIndex index = users.get(event.getUserId());
+        if (index == null) {
+            return;
+        }
+        boolean applied = event.getType() == HabitChangeType.TOGGLE
+                && index.toggle(event.getHabitId(), LocalDate.parse(event.getDate()).toEpochDay(),
+                        Boolean.TRUE.equals(event.getValue()), versions.current(event.getUserId()));
+        if (!applied) {
+            users.remove(event.getUserId());
+        }
+    }
+
+    private static final class UserIndex {
+
+        private final Map<String, HabitCounts> byId = new LinkedHashMap<>();
+        private long version;
+
+        UserIndex(long version, List<HabitCounts> habits) {
+            this.version = version;
+            for (HabitCounts habit : habits) {
+                byId.put(habit.id, habit);
+            }
+        }
+
+        synchronized boolean isCurrent(long current) {
+            return version == current;
+        }
+
+        synchronized List<RangeCounts> count(LocalDate from, LocalDate to) {
+            List<RangeCounts> counts = new ArrayList<>(byId.size());
+            for (HabitCounts habit : byId.values()) {
+                counts.add(new RangeCounts(habit.id, habit.title,
+                        habit.possibleDays(from, to), habit.completedDays(from, to)));
+            }
+            return counts;
+        }
+
+        // Only if this toggle is the one write since the index was last current
+        synchronized boolean toggle(String habitId, long day, boolean done, long current) {
+            HabitCounts habit = byId.get(habitId);
+            if (version + 1 != current || habit == null || !habit.add(day, done ? 1 : -1)) {
+                return false;
+            }
+            version = current;
+            return true;
+        }
+    }
+
+    /** One habit's completions; {@code cumulative[i]} counts those before {@code origin + i}. */
+    static final class HabitCounts {
+
+        private final String id;
+        private final String title;
+        private final long createdOn;
+        private final long origin;
+        private final int[] cumulative;
+
+        private HabitCounts(String id, String title, long createdOn, long origin, int[] cumulative) {
+            this.id = id;
+            this.title = title;
+            this.createdOn = createdOn;
+            this.origin = origin;
+            this.cumulative = cumulative;
+        }
+
+        static HabitCounts of(Habit habit, LocalDate lastDay) {
+            long createdOn = habit.getCreatedAt().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+            long origin = createdOn;
+            List<Long> days = new ArrayList<>();
+            if (habit.getArchive() != null) {
+                habit.getArchive().forEach((year, bits) -> {
+                    for (int dayOfYear = 1; dayOfYear <= HabitArchive.YEAR_BYTES * 8; dayOfYear++) {
+                        if (HabitArchive.isSet(bits, dayOfYear)) {
+                            LocalDate date = LocalDate.ofYearDay(Integer.parseInt(year), dayOfYear);
+                            if (!habit.getLogs().containsKey(date.toString())) {
+                                days.add(date.toEpochDay());
+                            }
+                        }
+                    }
+                });
+            }
+            habit.getLogs().forEach((date, done) -> {
+                if (Boolean.TRUE.equals(done)) {
+                    days.add(LocalDate.parse(date).toEpochDay());
+                }
+            });
+            long last = lastDay.toEpochDay();
+            for (long day : days) {
+                origin = Math.min(origin, day);
+                last = Math.max(last, day);
+            }
+
+            int[] perDay = new int[(int) (last - origin + 2)];
+            for (long day : days) {
+                perDay[(int) (day - origin + 1)]++;
+            }
+            for (int i = 1; i < perDay.length; i++) {
+                perDay[i] += perDay[i - 1];
+            }
+            return new HabitCounts(habit.getId(), habit.getTitle(), createdOn, origin, perDay);
+        }
+
+        /** Days from {@code from} to {@code to} (inclusive) on which the habit existed. */
+        int possibleDays(LocalDate from, LocalDate to) {
+            long start = Math.max(from.toEpochDay(), createdOn);
+            return (int) Math.max(0, to.toEpochDay() - start + 1);
+        }
+
+        /** Completed days from {@code from} to {@code to} (inclusive) on which the habit existed. */
+        int completedDays(LocalDate from, LocalDate to) {
+            long start = Math.max(from.toEpochDay(), createdOn);
+            long end = to.toEpochDay();
+            if (start > end) {
+                return 0;
+            }
+            return before(end + 1) - before(start);
+        }
+
+        // Completions before the given day; none outside the indexed days
+        private int before(long day) {
+            long i = Math.min(Math.max(day - origin, 0), cumulative.length - 1);
+            return cumulative[(int) i];
+        }
+
+        /** Completions on any day, including logged days before the habit was created. */
+        int total() {
+            return cumulative[cumulative.length - 1];
+        }
+
+        /** Completed days in a row up to {@code today}, or up to the day before while today is still open. */
+        int currentStreak(long today) {
+            long day = doneOn(today) ? today : today - 1;
+            int streak = 0;
+            while (doneOn(day - streak)) {
+                streak++;
+            }
+            return streak;
+        }
+
+        int longestStreak() {
+            int longest = 0;
+            int run = 0;
+            for (long day = origin; day < origin + cumulative.length - 1; day++) {
+                run = doneOn(day) ? run + 1 : 0;
+                longest = Math.max(longest, run);
+            }
+            return longest;
+        }
+
+        private boolean doneOn(long day) {
+            long i = day - origin;
+            return i >= 0 && i < cumulative.length - 1 && cumulative[(int) i + 1] > cumulative[(int) i];
+        }
+
+        boolean add(long day, int delta) {
+            long i = day - origin;
+            if (i < 0 || i >= cumulative.length - 1) {
+                return false;
+            }
+            for (int j = (int) i + 1; j < cumulative.length; j++) {
+                cumulative[j] += delta;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitArchive;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Moves log entries older than the retention horizon into each habit's
+ * {@link Habit#getArchive() archive}, one 46-byte bitmap per year, so the
+ * documents read and rewritten on every request only carry recent history.
+ *
+ * Every habit is updated with a single conditional write that fails if the moved
+ * entries changed since they were read; such a habit is picked up again on the
+ * next run. That also makes overlapping runs on several nodes harmless.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "habitflow.retention.enabled", matchIfMissing = true)
+public class HabitRetentionJob {
+
+    private static final ObjectId MIN_ID = new ObjectId("000000000000000000000000");
+
+    private final UserRepository userRepository;
+    private final HabitRepository habitRepository;
+    private final int hotDays;
+
+    public HabitRetentionJob(UserRepository userRepository, HabitRepository habitRepository,
+            @Value("${habitflow.retention.hot-days:400}") int hotDays) {
+        // Analytics reads today's window straight from logs
+        if (hotDays <= AnalyticsSnapshotService.WINDOW_DAYS + 1) {
+            throw new IllegalArgumentException("habitflow.retention.hot-days must exceed the analytics window");
+        }
+        this.userRepository = userRepository;
+        this.habitRepository = habitRepository;
+        this.hotDays = hotDays;
+    }
+
+    @Scheduled(cron = "${habitflow.retention.cron:0 30 3 * * SUN}")
+    public void runScheduled() {
+        run(LocalDate.now().minusDays(hotDays));
+    }
+
+    public void run(LocalDate horizon) {
+        long start = System.nanoTime();
+        int habits = 0;
+        int conflicts = 0;
+        long moved = 0;
+        try (Stream<User> users = userRepository.streamIdsAfter(MIN_ID)) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                String userId = iterator.next().getId();
+                try {
+                    for (Habit habit : habitRepository.findByUserId(userId)) {
+                        int count = archive(habit, horizon);
+                        if (count > 0) {
+                            habits++;
+                            moved += count;
+                        } else if (count < 0) {
+                            conflicts++;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Archiving history of {} failed: {}", userId, e.getMessage());
+                }
+            }
+        }
+        log.info("Archived {} log entries before {} from {} habits ({} changed meanwhile) in {} ms",
+                moved, horizon, habits, conflicts, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Returns the number of log entries moved, 0 if there was nothing to move, -1 on a conflicting write. */
+    public int archive(Habit habit, LocalDate horizon) {
+        String horizonKey = horizon.toString();
+        List<String> movedDates = new ArrayList<>();
+        Map<String, byte[]> years = new HashMap<>();
+        for (Map.Entry<String, Boolean> entry : habit.getLogs().entrySet()) {
+            String date = entry.getKey();
+            if (date.compareTo(horizonKey) >= 0) {
+                continue;
+            }
+            byte[] bits = years.computeIfAbsent(date.substring(0, 4), year -> {
+                byte[] previous = habit.getArchive() != null ? habit.getArchive().get(year) : null;
+                return previous != null ? previous.clone() : new byte[HabitArchive.YEAR_BYTES];
+            });
+            HabitArchive.set(bits, LocalDate.parse(date).getDayOfYear(), Boolean.TRUE.equals(entry.getValue()));
+            movedDates.add(date);
+        }
+        if (movedDates.isEmpty()) {
+            return 0;
+        }
+        return habitRepository.archiveLogs(habit, years, movedDates) ? movedDates.size() : -1;
+    }
+}
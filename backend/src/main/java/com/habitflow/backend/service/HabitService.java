@@ -1,10 +1,24 @@
 package com.habitflow.backend.service;
 
+import com.habitflow.backend.cache.ReadResult;
+import com.habitflow.backend.cache.ResilientReads;
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.dto.HabitSummary;
+import com.habitflow.backend.dto.PageCursor;
+import com.habitflow.backend.dto.PageResponse;
+import com.habitflow.backend.dto.TitleSuggestion;
+import com.habitflow.backend.dto.ToggleResult;
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.jfr.ToggleEvent;
 import com.habitflow.backend.model.Habit;
 import com.habitflow.backend.model.User;
 import com.habitflow.backend.repository.HabitRepository;
 import com.habitflow.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -18,25 +32,80 @@ public class HabitService {
 
     private final HabitRepository habitRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight singleFlight;
+    private final ResilientReads resilientReads;
+    private final TitleIndex titleIndex;
 
     private User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
-    public Habit createHabit(String email, String title) {
+    public String getUserId(String email) {
+        return getUserByEmail(email).getId();
+    }
+
+    public HabitSummary createHabit(String email, String title) {
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("Habit title cannot be empty");
+        }
         User user = getUserByEmail(email);
-        Habit habit = new Habit(user.getId(), title);
+        if (titleIndex.habitWithTitle(user.getId(), title, null) != null) {
+            throw new IllegalArgumentException("You already have a habit called \"" + title.trim() + "\"");
+        }
+        Habit habit = new Habit(user.getId(), title.trim());
         habit.setCreatedAt(Instant.now());
-        return habitRepository.save(habit);
+        Habit saved;
+        try {
+            saved = habitRepository.save(habit);
+        } catch (DuplicateKeyException e) {
+            // Created meanwhile by another request or node; the unique title key caught it
+            throw new IllegalArgumentException("You already have a habit called \"" + title.trim() + "\"");
+        }
+        eventPublisher.publishEvent(HabitChangeEvent.created(saved));
+        return HabitSummary.of(saved);
     }
 
-    public List<Habit> getUserHabits(String email) {
+    public List<TitleSuggestion> suggestTitles(String email, String prefix, Integer limit) {
+        int max = limit == null ? 10 : Math.max(1, Math.min(limit, 50));
+        return titleIndex.suggest(getUserByEmail(email).getId(), prefix == null ? "" : prefix, max);
+    }
+
+    public ReadResult<List<Habit>> getUserHabits(String email) {
+        return resilientReads.read("habits", email, () -> {
+            User user = getUserByEmail(email);
+            return singleFlight.execute("habits", user.getId(), () -> habitRepository.findListByUserId(user.getId()));
+        });
+    }
+
+    // Without the logs the items are summaries, so list views get no logs field at all
+    public PageResponse<?> getUserHabitsPage(String email, Integer limit, String cursor, boolean includeLogs) {
+        int pageSize = PageCursor.clampLimit(limit);
+        ObjectId after = cursor != null ? PageCursor.decode(cursor) : null;
         User user = getUserByEmail(email);
-        return habitRepository.findByUserId(user.getId());
+
+        // Fetch one extra row to find out whether another page exists
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Habit> rows;
+        if (includeLogs) {
+            rows = after == null
+                    ? habitRepository.findPageByUserId(user.getId(), fetch)
+                    : habitRepository.findPageByUserIdAfter(user.getId(), after, fetch);
+        } else {
+            rows = after == null
+                    ? habitRepository.findSummaryPageByUserId(user.getId(), fetch)
+                    : habitRepository.findSummaryPageByUserIdAfter(user.getId(), after, fetch);
+        }
+
+        List<Habit> page = rows.size() <= pageSize ? rows : rows.subList(0, pageSize);
+        String next = rows.size() <= pageSize ? null : PageCursor.encode(page.get(pageSize - 1).getId());
+        return includeLogs
+                ? new PageResponse<>(page, next)
+                : new PageResponse<>(page.stream().map(HabitSummary::of).toList(), next);
     }
 
-    public Habit toggleHabit(String habitId, String email, String dateStr) {
+    public ToggleResult toggleHabit(String habitId, String email, String dateStr) {
         // 1. Validate Date Format
         LocalDate requestDate;
         try {
@@ -60,24 +129,47 @@ public class HabitService {
         // This ensures that at 12:05 AM for a user in IST, the server (in UTC)
         // doesn't block the update.
 
-        // 3. Fetch & Update
-        Habit habit = habitRepository.findById(habitId)
-                .orElseThrow(() -> new RuntimeException("Habit not found"));
-
-        User user = getUserByEmail(email);
-
-        if (!habit.getUserId().equals(user.getId())) {
-            throw new RuntimeException("Unauthorized access to habit");
+        // 3. Fetch & Update, only the one day: the rest of the history never leaves the database
+        ToggleEvent event = new ToggleEvent();
+        event.begin();
+        String outcome = "failed";
+        int attempt = 1;
+        try {
+            String userId = getUserByEmail(email).getId();
+            for (; ; attempt++) {
+                Habit habit = habitRepository.findDayById(habitId, requestDate)
+                        .orElseThrow(() -> new RuntimeException("Habit not found"));
+
+                if (!habit.getUserId().equals(userId)) {
+                    throw new RuntimeException("Unauthorized access to habit");
+                }
+
+                boolean done = !habit.isDone(dateStr);
+                if (habitRepository.setLog(habit, dateStr, done)) {
+                    eventPublisher.publishEvent(HabitChangeEvent.toggled(habit, dateStr, done));
+                    outcome = done ? "done" : "undone";
+                    return new ToggleResult(habitId, dateStr, done);
+                }
+                // Toggled from another device in between; flip what is there now
+                if (attempt == 3) {
+                    outcome = "conflict";
+                    throw new RuntimeException("Habit is being changed concurrently, try again");
+                }
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.habitId = habitId;
+                event.date = dateStr;
+                event.attempts = attempt;
+                event.outcome = outcome;
+                event.commit();
+            }
         }
-
-        Boolean currentStatus = habit.getLogs().getOrDefault(dateStr, false);
-        habit.getLogs().put(dateStr, !currentStatus);
-
-        return habitRepository.save(habit);
     }
 
     public void deleteHabit(String habitId, String email) {
-        Habit habit = habitRepository.findById(habitId)
+        Habit habit = habitRepository.findSummaryById(habitId)
                 .orElseThrow(() -> new RuntimeException("Habit not found"));
 
         User user = getUserByEmail(email);
@@ -87,10 +179,11 @@ public class HabitService {
         }
 
         habitRepository.delete(habit);
+        eventPublisher.publishEvent(HabitChangeEvent.deleted(habit));
     }
 
-    public Habit updateHabit(String habitId, String email, String newTitle) {
-        Habit habit = habitRepository.findById(habitId)
+    public HabitSummary updateHabit(String habitId, String email, String newTitle) {
+        Habit habit = habitRepository.findSummaryById(habitId)
                 .orElseThrow(() -> new RuntimeException("Habit not found"));
 
         User user = getUserByEmail(email);
@@ -103,7 +196,18 @@ public class HabitService {
             throw new IllegalArgumentException("Habit title cannot be empty");
         }
 
+        // Changing only its own case or spacing is fine
+        if (titleIndex.habitWithTitle(user.getId(), newTitle, habitId) != null) {
+            throw new IllegalArgumentException("You already have a habit called \"" + newTitle.trim() + "\"");
+        }
+
         habit.setTitle(newTitle.trim());
-        return habitRepository.save(habit);
+        try {
+            habitRepository.updateTitleById(habitId, habit.getTitle(), habit.getTitleKey());
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("You already have a habit called \"" + newTitle.trim() + "\"");
+        }
+        eventPublisher.publishEvent(HabitChangeEvent.renamed(habit));
+        return HabitSummary.of(habit);
     }
 }
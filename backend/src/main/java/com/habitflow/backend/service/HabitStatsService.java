@@ -0,0 +1,115 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.HabitStatsResponse;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.repository.HabitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics for a single habit, for detail views that should not pay for
+ * {@code GET /api/analytics}. Only that habit's history is read, so the cost does
+ * not depend on how many other habits its owner has, and the result is memoized
+ * per habit, owner {@link UserDataVersions data version}, day and windows: any
+ * write to the owner's data, on any node, moves the version and the next call
+ * computes afresh.
+ */
+@Service
+public class HabitStatsService {
+
+    public static final List<Integer> DEFAULT_WINDOWS = List.of(7, 30);
+    private static final int MAX_WINDOWS = 6;
+    private static final int MAX_WINDOW_DAYS = 3660;
+
+    private final HabitRepository habitRepository;
+    private final UserDataVersions versions;
+    private final Map<Key, Memo> memo;
+
+    public HabitStatsService(HabitRepository habitRepository, UserDataVersions versions,
+            @Value("${habitflow.habit-stats.max-entries:10000}") int maxEntries) {
+        this.habitRepository = habitRepository;
+        this.versions = versions;
+        this.memo = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Memo> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /** {@code userId} comes from the authenticated principal, so ownership costs no user lookup. */
+    public HabitStatsResponse getStats(String habitId, String userId, List<Integer> windows) {
+        List<Integer> days = windows == null || windows.isEmpty() ? DEFAULT_WINDOWS : windows;
+        if (days.size() > MAX_WINDOWS) {
+            throw new IllegalArgumentException("At most " + MAX_WINDOWS + " windows");
+        }
+        for (int window : days) {
+            if (window < 1 || window > MAX_WINDOW_DAYS) {
+                throw new IllegalArgumentException("Windows must be between 1 and " + MAX_WINDOW_DAYS + " days");
+            }
+        }
+
+        // Read the version first: a write during the load leaves the entry under an old key
+        LocalDate today = LocalDate.now();
+        Key key = new Key(habitId, versions.current(userId), today, List.copyOf(days));
+        Memo cached = memo.get(key);
+        if (cached != null) {
+            if (!cached.userId().equals(userId)) {
+                throw new RuntimeException("Unauthorized access to habit");
+            }
+            return cached.stats();
+        }
+
+        Habit habit = habitRepository.findHistoryById(habitId)
+                .orElseThrow(() -> new RuntimeException("Habit not found"));
+        if (!habit.getUserId().equals(userId)) {
+            throw new RuntimeException("Unauthorized access to habit");
+        }
+        HabitStatsResponse stats = compute(habit, today, key.windows());
+        memo.put(key, new Memo(userId, stats));
+        return stats;
+    }
+
+    private static HabitStatsResponse compute(Habit habit, LocalDate today, List<Integer> windows) {
+        CompletionIndex.HabitCounts counts = CompletionIndex.HabitCounts.of(habit, today.plusDays(1));
+
+        List<HabitStatsResponse.WindowStats> windowStats = new ArrayList<>(windows.size());
+        for (int days : windows) {
+            LocalDate from = today.minusDays(days - 1);
+            int possible = counts.possibleDays(from, today);
+            int completed = counts.completedDays(from, today);
+            double rate = AnalyticsService.percentage(completed, possible);
+            windowStats.add(HabitStatsResponse.WindowStats.builder()
+                    .days(days)
+                    .possibleDays(possible)
+                    .completedDays(completed)
+                    .missedDays(possible - completed)
+                    .completionRate(rate)
+                    .trend(AnalyticsService.determineTrend(rate, possible))
+                    .build());
+        }
+
+        return HabitStatsResponse.builder()
+                .habitId(habit.getId())
+                .asOf(today.toString())
+                .currentStreak(counts.currentStreak(today.toEpochDay()))
+                .longestStreak(counts.longestStreak())
+                .totalCompleted(counts.total())
+                .windows(windowStats)
+                .build();
+    }
+
+    private record Key(String habitId, long version, LocalDate day, List<Integer> windows) {
+    }
+
+    private record Memo(String userId, HabitStatsResponse stats) {
+    }
+}
@@ -0,0 +1,354 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.dto.ImportResult;
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports habit history from CSV ({@code title,date,done}) or NDJSON
+ * ({@code {"title":..,"date":..,"done":..}}) uploads.
+ *
+ * The body is read line by line while it arrives; rows are grouped per habit
+ * title, as {@link TitleIndex#normalize normalized} ("Read", "read " and "READ" are
+ * one habit, the user's existing one if there is one), and flushed as one unordered bulk upsert every {@code batch-size} rows,
+ * so memory stays bounded whatever the upload size. Bad rows are counted and the
+ * first few reported, the rest of the file still goes in. Imports are limited to
+ * one per user and a few per node, so a large one cannot starve regular requests
+ * of database time.
+ */
+@Slf4j
+@Service
+public class ImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int MAX_TITLE_LENGTH = 200;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MAX_HABITS = 1000;
+    private static final LocalDate EARLIEST = LocalDate.of(1900, 1, 1);
+    private static final long RESULT_RETENTION_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final UserRepository userRepository;
+    private final HabitRepository habitRepository;
+    private final TitleIndex titleIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JsonMapper jsonMapper;
+    private final int batchSize;
+    private final long maxRows;
+    private final Semaphore slots;
+    // user id -> progress of the running or last finished import
+    private final Map<String, Progress> imports = new ConcurrentHashMap<>();
+
+    public ImportService(UserRepository userRepository, HabitRepository habitRepository, TitleIndex titleIndex,
+            ApplicationEventPublisher eventPublisher, JsonMapper jsonMapper,
+            @Value("${habitflow.import.batch-size:5000}") int batchSize,
+            @Value("${habitflow.import.max-rows:1000000}") long maxRows,
+            @Value("${habitflow.import.max-concurrent:2}") int maxConcurrent) {
+        this.userRepository = userRepository;
+        this.habitRepository = habitRepository;
+        this.titleIndex = titleIndex;
+        this.eventPublisher = eventPublisher;
+        this.jsonMapper = jsonMapper;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+        this.slots = new Semaphore(maxConcurrent);
+    }
+
+    public ImportResult importHistory(String email, InputStream body, Format format) throws IOException {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        // Finished results stay readable for a while, not forever
+        imports.values().removeIf(Progress::expired);
+        Progress progress = new Progress();
+        Progress running = imports.compute(user.getId(),
+                (id, previous) -> previous != null && !previous.finished ? previous : progress);
+        if (running != progress) {
+            throw new IllegalStateException("An import is already running for this account");
+        }
+        if (!slots.tryAcquire()) {
+            imports.remove(user.getId(), progress);
+            throw new IllegalStateException("Too many imports in progress, try again later");
+        }
+        try {
+            run(user.getId(), new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 1 << 16),
+                    format, progress);
+        } finally {
+            progress.finish();
+            slots.release();
+            eventPublisher.publishEvent(HabitChangeEvent.imported(user.getId()));
+            log.info("Import for {}: {} rows read, {} imported, {} errors, {} ms", user.getId(),
+                    progress.rowsRead, progress.rowsImported, progress.errorCount, progress.durationMs());
+        }
+        return progress.toResult();
+    }
+
+    public ImportResult getProgress(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        Progress progress = imports.get(user.getId());
+        return progress != null ? progress.toResult() : null;
+    }
+
+    private void run(String userId, Reader reader, Format format, Progress progress) throws IOException {
+        LocalDate latest = LocalDate.now().plusDays(1);
+        // normalized title -> pending rows; at most batchSize rows across all titles
+        Map<String, Habit> pending = new LinkedHashMap<>();
+        // normalized title -> id of the user's habit with it, null for one this import creates
+        // under the first spelling seen
+        Map<String, String> targets = new HashMap<>();
+        Map<String, String> spellings = new HashMap<>();
+        int pendingRows = 0;
+        StringBuilder line = new StringBuilder();
+        long lineNumber = 0;
+        int length;
+        while ((length = readLine(reader, line)) >= 0) {
+            lineNumber++;
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line.deleteCharAt(0);
+            }
+            if (line.isEmpty() || (lineNumber == 1 && format == Format.CSV && isHeader(line))) {
+                continue;
+            }
+            if (progress.rowsRead >= maxRows) {
+                progress.error(lineNumber, "Too many rows, the rest of the file was skipped");
+                break;
+            }
+            progress.rowsRead++;
+            try {
+                if (length > MAX_LINE_LENGTH) {
+                    throw new IllegalArgumentException("Line is too long");
+                }
+                Row row = format == Format.CSV ? parseCsv(line) : parseJson(line);
+                LocalDate date = row.date(latest);
+                boolean done = row.done();
+                String key = TitleIndex.normalize(row.title());
+                if (!targets.containsKey(key)) {
+                    if (targets.size() >= MAX_HABITS) {
+                        throw new IllegalArgumentException("Too many habits, at most " + MAX_HABITS + " per import");
+                    }
+                    targets.put(key, titleIndex.habitWithTitle(userId, row.title(), null));
+                    spellings.put(key, row.title());
+                }
+                progress.habits = targets.size();
+                Habit habit = pending.computeIfAbsent(key, k -> {
+                    Habit h = new Habit(userId, spellings.get(k));
+                    h.setId(targets.get(k));
+                    h.setCreatedAt(Instant.MAX);
+                    return h;
+                });
+                habit.getLogs().put(date.toString(), done);
+                Instant day = date.atStartOfDay(ZoneId.systemDefault()).toInstant();
+                if (day.isBefore(habit.getCreatedAt())) {
+                    habit.setCreatedAt(day);
+                }
+                pendingRows++;
+            } catch (IllegalArgumentException e) {
+                progress.error(lineNumber, e.getMessage());
+            }
+            if (pendingRows >= batchSize) {
+                flush(userId, pending, progress);
+                pendingRows = 0;
+            }
+        }
+        flush(userId, pending, progress);
+    }
+
+    private void flush(String userId, Map<String, Habit> pending, Progress progress) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        habitRepository.upsertLogs(userId, pending.values());
+        for (Habit habit : pending.values()) {
+            progress.rowsImported += habit.getLogs().size();
+        }
+        pending.clear();
+    }
+
+    // Reads one line into {@code line}, keeping at most MAX_LINE_LENGTH + 1 characters of it.
+    // Returns the full length of the line, or -1 at the end of the input.
+    private static int readLine(Reader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int length = 0;
+        int c;
+        while ((c = reader.read()) >= 0 && c != '\n') {
+            if (c == '\r') {
+                continue;
+            }
+            if (length++ <= MAX_LINE_LENGTH) {
+                line.append((char) c);
+            }
+        }
+        return c < 0 && length == 0 ? -1 : length;
+    }
+
+    private static boolean isHeader(CharSequence line) {
+        return line.toString().replace("\"", "").trim().equalsIgnoreCase("title,date,done");
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and "" escapes
+    private static Row parseCsv(CharSequence line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        if (fields.size() != 3) {
+            throw new IllegalArgumentException("Expected 3 fields (title,date,done), got " + fields.size());
+        }
+        return new Row(fields.get(0), fields.get(1), fields.get(2));
+    }
+
+    private Row parseJson(CharSequence line) {
+        JsonNode node;
+        try {
+            node = jsonMapper.readTree(line.toString());
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Invalid JSON");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        JsonNode done = node.path("done");
+        return new Row(node.path("title").asString(""), node.path("date").asString(""),
+                done.isBoolean() ? String.valueOf(done.asBoolean()) : done.asString(""));
+    }
+
+    private record Row(String title, String rawDate, String rawDone) {
+
+        Row {
+            title = title.trim();
+            if (title.isEmpty()) {
+                throw new IllegalArgumentException("Missing title");
+            }
+            if (title.length() > MAX_TITLE_LENGTH) {
+                throw new IllegalArgumentException("Title is too long");
+            }
+        }
+
+        // Same bound as a toggle: at most one day ahead of the server
+        LocalDate date(LocalDate latest) {
+            LocalDate date;
+            try {
+                date = LocalDate.parse(rawDate.trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid date '" + rawDate + "', use YYYY-MM-DD");
+            }
+            if (date.isBefore(EARLIEST)) {
+                throw new IllegalArgumentException("Date " + date + " is too far in the past");
+            }
+            if (date.isAfter(latest)) {
+                throw new IllegalArgumentException("Date " + date + " is in the future");
+            }
+            return date;
+        }
+
+        boolean done() {
+            return switch (rawDone.trim().toLowerCase()) {
+                case "true", "1", "yes", "y", "x" -> true;
+                case "false", "0", "no", "n", "" -> false;
+                default -> throw new IllegalArgumentException("Invalid done value '" + rawDone + "'");
+            };
+        }
+    }
+
+    // Written by the importing thread only; read by progress requests
+    private static final class Progress {
+        private final long start = System.nanoTime();
+        private final List<ImportResult.RowError> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile long rowsRead;
+        private volatile long rowsImported;
+        private volatile int habits;
+        private volatile long errorCount;
+        private volatile boolean finished;
+        private volatile long finishedNanos;
+
+        void error(long line, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportResult.RowError(line, message));
+            }
+        }
+
+        void finish() {
+            finishedNanos = System.nanoTime();
+            finished = true;
+        }
+
+        boolean expired() {
+            return finished && System.nanoTime() - finishedNanos > RESULT_RETENTION_NANOS;
+        }
+
+        long durationMs() {
+            return ((finished ? finishedNanos : System.nanoTime()) - start) / 1_000_000;
+        }
+
+        ImportResult toResult() {
+            List<ImportResult.RowError> reported;
+            synchronized (errors) {
+                reported = new ArrayList<>(errors);
+            }
+            return ImportResult.builder()
+                    .finished(finished)
+                    .rowsRead(rowsRead)
+                    .rowsImported(rowsImported)
+                    .habits(habits)
+                    .errorCount(errorCount)
+                    .errors(reported)
+                    .durationMs(durationMs())
+                    .build();
+        }
+    }
+}
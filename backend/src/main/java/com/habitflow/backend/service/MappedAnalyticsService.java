@@ -0,0 +1,147 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.DatabaseUnavailableException;
+import com.habitflow.backend.cache.ReadResult;
+import com.habitflow.backend.columnar.ColumnarSnapshot;
+import com.habitflow.backend.dto.AnalyticsRangeResponse;
+import com.habitflow.backend.dto.AnalyticsResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analytics from the {@link ColumnarSnapshot} the exporter last wrote, for nodes
+ * that serve reports without touching MongoDB. Answers are as of the export: the
+ * export day is "today", and anything logged since shows up with the next one.
+ *
+ * The file is checked every {@code reload-interval}; a new one is mapped and
+ * swapped in with one volatile write, while requests already reading keep the
+ * mapping they started with.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnBooleanProperty(name = "habitflow.analytics.columnar.serve")
+public class MappedAnalyticsService implements AnalyticsReader {
+
+    private final Path path;
+    private final Duration reloadInterval;
+    private volatile ColumnarSnapshot snapshot;
+    private FileTime loadedModified;
+
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "columnar-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MappedAnalyticsService(@Value("${habitflow.analytics.columnar.path:${java.io.tmpdir}/habitflow-analytics/analytics.col}") Path path,
+            @Value("${habitflow.analytics.columnar.reload-interval:30s}") Duration reloadInterval) {
+        this.path = path;
+        this.reloadInterval = reloadInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reloader.scheduleWithFixedDelay(this::reload, 0, reloadInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        reloader.shutdownNow();
+    }
+
+    /** Maps the file if it changed since it was last mapped. */
+    public synchronized void reload() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(loadedModified)) {
+                return;
+            }
+            ColumnarSnapshot loaded = ColumnarSnapshot.open(path);
+            snapshot = loaded;
+            loadedModified = modified;
+            log.info("Analytics snapshot as of {} mapped: {} users, {} habits", loaded.asOf(), loaded.userCount(),
+                    loaded.habitCount());
+        } catch (NoSuchFileException e) {
+            log.debug("No analytics snapshot at {} yet", path);
+        } catch (IOException | RuntimeException e) {
+            // The last good snapshot stays in use
+            log.warn("Mapping the analytics snapshot {} failed: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public ReadResult<AnalyticsResponse> getAnalytics(String email) {
+        ColumnarSnapshot current = current();
+        LocalDate today = current.asOf();
+        int user = current.findUser(email);
+        if (user < 0) {
+            // Signed up after the export: nothing to show yet
+            return new ReadResult<>(AnalyticsService.buildResponse(List.of(), 0, today), current.exportedAt(), false);
+        }
+
+        long todayDay = today.toEpochDay();
+        int first = current.firstHabit(user);
+        List<AnalyticsService.HabitDays> habits = new ArrayList<>(current.habitCount(user));
+        for (int habit = first; habit < first + current.habitCount(user); habit++) {
+            habits.add(new AnalyticsService.HabitDays(current.habitId(habit), current.title(habit),
+                    LocalDate.ofEpochDay(current.createdOn(habit)),
+                    current.window(habit, todayDay, AnalyticsSnapshotService.WINDOW_DAYS),
+                    current.totalCompletions(habit)));
+        }
+        return new ReadResult<>(AnalyticsService.buildResponse(habits, current.streak(user), today),
+                current.exportedAt(), false);
+    }
+
+    @Override
+    public AnalyticsRangeResponse getRangeAnalytics(String email, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        ColumnarSnapshot current = current();
+        int user = current.findUser(email);
+        List<CompletionIndex.RangeCounts> counts = new ArrayList<>();
+        if (user >= 0) {
+            int first = current.firstHabit(user);
+            for (int habit = first; habit < first + current.habitCount(user); habit++) {
+                // Only the days the habit existed, as in the live range index
+                long start = Math.max(from.toEpochDay(), current.createdOn(habit));
+                long end = to.toEpochDay();
+                int possible = (int) Math.max(0, end - start + 1);
+                if (possible > 0) {
+                    counts.add(new CompletionIndex.RangeCounts(current.habitId(habit), current.title(habit),
+                            possible, current.completedDays(habit, start, end)));
+                }
+            }
+        }
+        return AnalyticsService.rangeResponse(counts, from, to);
+    }
+
+    private ColumnarSnapshot current() {
+        ColumnarSnapshot current = snapshot;
+        if (current == null) {
+            throw new DatabaseUnavailableException("No analytics snapshot has been loaded yet",
+                    Math.max(1, reloadInterval.toSeconds()), null);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,62 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitReminder;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.reminder.ReminderScheduler;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.regex.Pattern;
+
+@Service
+@RequiredArgsConstructor
+public class ReminderService {
+
+    private static final Pattern TIME = Pattern.compile("([01]\\d|2[0-3]):[0-5]\\d");
+
+    private final HabitRepository habitRepository;
+    private final UserRepository userRepository;
+    private final ObjectProvider<ReminderScheduler> scheduler;
+
+    public HabitReminder setReminder(String habitId, String email, String time, String zone) {
+        if (time == null || !TIME.matcher(time).matches()) {
+            throw new IllegalArgumentException("Invalid time format. Use HH:mm");
+        }
+        String zoneId = zone == null || zone.isBlank() ? "UTC" : zone;
+        try {
+            ZoneId.of(zoneId);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Unknown time zone '" + zoneId + "'");
+        }
+        Habit habit = getOwnHabit(habitId, email);
+
+        HabitReminder reminder = new HabitReminder(time, zoneId, null, HabitReminder.shardOf(habit.getId()));
+        reminder.setNextFireAt(reminder.nextAfter(Instant.now()));
+        habitRepository.setReminder(habit.getId(), reminder);
+        scheduler.ifAvailable(s -> s.schedule(habit.getId(), reminder));
+        return reminder;
+    }
+
+    public void clearReminder(String habitId, String email) {
+        // A reminder already in a scheduler's wheel is dropped when it comes due
+        habitRepository.setReminder(getOwnHabit(habitId, email).getId(), null);
+    }
+
+    private Habit getOwnHabit(String habitId, String email) {
+        Habit habit = habitRepository.findSummaryById(habitId)
+                .orElseThrow(() -> new RuntimeException("Habit not found"));
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!habit.getUserId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized access to habit");
+        }
+        return habit;
+    }
+}
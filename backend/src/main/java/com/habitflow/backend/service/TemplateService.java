@@ -1,5 +1,11 @@
 package com.habitflow.backend.service;
 
+import com.habitflow.backend.cache.ReadResult;
+import com.habitflow.backend.cache.ResilientReads;
+import com.habitflow.backend.dto.HabitSummary;
+import com.habitflow.backend.dto.PageCursor;
+import com.habitflow.backend.dto.PageResponse;
+import com.habitflow.backend.event.HabitChangeEvent;
 import com.habitflow.backend.model.Habit;
 import com.habitflow.backend.model.HabitTemplate;
 import com.habitflow.backend.model.User;
@@ -7,13 +13,16 @@ import com.habitflow.backend.repository.HabitRepository;
 import com.habitflow.backend.repository.HabitTemplateRepository;
 import com.habitflow.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +31,9 @@ public class TemplateService {
     private final HabitTemplateRepository templateRepository;
     private final HabitRepository habitRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResilientReads resilientReads;
+    private final TitleIndex titleIndex;
 
     private User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
@@ -31,12 +43,31 @@ public class TemplateService {
     public HabitTemplate createTemplate(String email, String name, List<String> habitTitles) {
         User user = getUserByEmail(email);
         HabitTemplate template = new HabitTemplate(user.getId(), name, habitTitles);
-        return templateRepository.save(template);
+        HabitTemplate saved = templateRepository.save(template);
+        titleIndex.templatesChanged(user.getId());
+        return saved;
     }
 
-    public List<HabitTemplate> getUserTemplates(String email) {
+    public ReadResult<List<HabitTemplate>> getUserTemplates(String email) {
+        return resilientReads.read("templates", email,
+                () -> templateRepository.findByUserId(getUserByEmail(email).getId()));
+    }
+
+    public PageResponse<HabitTemplate> getUserTemplatesPage(String email, Integer limit, String cursor) {
+        int pageSize = PageCursor.clampLimit(limit);
+        ObjectId after = cursor != null ? PageCursor.decode(cursor) : null;
         User user = getUserByEmail(email);
-        return templateRepository.findByUserId(user.getId());
+
+        Limit fetch = Limit.of(pageSize + 1);
+        List<HabitTemplate> rows = after == null
+                ? templateRepository.findPageByUserId(user.getId(), fetch)
+                : templateRepository.findPageByUserIdAfter(user.getId(), after, fetch);
+
+        if (rows.size() <= pageSize) {
+            return new PageResponse<>(rows, null);
+        }
+        List<HabitTemplate> page = rows.subList(0, pageSize);
+        return new PageResponse<>(page, PageCursor.encode(page.get(pageSize - 1).getId()));
     }
 
     public void deleteTemplate(String id, String email) {
@@ -48,9 +79,11 @@ public class TemplateService {
             throw new RuntimeException("Unauthorized");
         }
         templateRepository.delete(template);
+        titleIndex.templatesChanged(user.getId());
     }
 
-    public List<Habit> applyTemplate(String id, String email) {
+    /** Creates the template's habits the user does not have yet and returns just those. */
+    public List<HabitSummary> applyTemplate(String id, String email) {
         User user = getUserByEmail(email);
         HabitTemplate template = templateRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Template not found"));
@@ -59,22 +92,25 @@ public class TemplateService {
             throw new RuntimeException("Unauthorized");
         }
 
-        List<Habit> existingHabits = habitRepository.findByUserId(user.getId());
-        Set<String> existingTitles = existingHabits.stream()
-                .map(Habit::getTitle)
-                .collect(Collectors.toSet());
-
-        List<Habit> newlyCreated = new ArrayList<>();
+        // Taken titles come from the title index, so no habit (or its history) is loaded here
+        Set<String> seen = new HashSet<>();
+        List<Habit> toCreate = new ArrayList<>();
+        Instant now = Instant.now();
         for (String title : template.getHabitTitles()) {
-            if (!existingTitles.contains(title)) {
-                Habit newHabit = new Habit(user.getId(), title);
-                newHabit.setCreatedAt(Instant.now());
-                newlyCreated.add(habitRepository.save(newHabit));
+            if (title == null || title.isBlank() || !seen.add(TitleIndex.normalize(title))
+                    || titleIndex.habitWithTitle(user.getId(), title, null) != null) {
+                continue;
             }
+            Habit newHabit = new Habit(user.getId(), title.trim());
+            newHabit.setCreatedAt(now);
+            toCreate.add(newHabit);
+        }
+        if (toCreate.isEmpty()) {
+            return List.of();
         }
 
-        List<Habit> result = new ArrayList<>(existingHabits);
-        result.addAll(newlyCreated);
-        return result;
+        List<Habit> newlyCreated = habitRepository.saveAll(toCreate);
+        eventPublisher.publishEvent(HabitChangeEvent.templateApplied(user.getId(), template.getId(), newlyCreated));
+        return newlyCreated.stream().map(HabitSummary::of).toList();
     }
 }
@@ -0,0 +1,260 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.TitleSuggestion;
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitTemplate;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.HabitTemplateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Each user's habit and template titles, normalized and kept in a sorted array,
+ * so "is this title taken" is a binary search and autocomplete is a binary search
+ * followed by a short scan. Built from a titles-only query on first use, never
+ * from the log history.
+ *
+ * Like {@link CompletionIndex}, a user's titles are stamped with the user's
+ * {@link UserDataVersions data version}. Creates, renames and deletes made on
+ * this node are applied in place; any other write leaves the stamp behind and
+ * the titles are reloaded on the next use. Template edits do not move the version
+ * and drop the user's titles through {@link #templatesChanged}.
+ */
+@Component
+public class TitleIndex {
+
+    private final HabitRepository habitRepository;
+    private final HabitTemplateRepository templateRepository;
+    private final UserDataVersions versions;
+    private final SingleFlight singleFlight;
+    private final Map<String, UserTitles> users;
+
+    public TitleIndex(HabitRepository habitRepository, HabitTemplateRepository templateRepository,
+            UserDataVersions versions, SingleFlight singleFlight,
+            @Value("${habitflow.titles.max-users:10000}") int maxUsers) {
+        this.habitRepository = habitRepository;
+        this.templateRepository = templateRepository;
+        this.versions = versions;
+        this.singleFlight = singleFlight;
+        this.users = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserTitles> eldest) {
+                return size() > maxUsers;
+            }
+        });
+    }
+
+    /** Same as {@link Habit#titleKey}, for template titles and prefixes too. */
+    public static String normalize(String title) {
+        return Habit.titleKey(title);
+    }
+
+    /** The id of the user's habit with this title, ignoring {@code exceptHabitId}, or null. */
+    public String habitWithTitle(String userId, String title, String exceptHabitId) {
+        return titles(userId).habitWithTitle(normalize(title), exceptHabitId);
+    }
+
+    /** Up to {@code limit} habit titles, then template titles, starting with {@code prefix}. */
+    public List<TitleSuggestion> suggest(String userId, String prefix, int limit) {
+        return titles(userId).suggest(normalize(prefix), limit);
+    }
+
+    public void templatesChanged(String userId) {
+        users.remove(userId);
+    }
+
+    private UserTitles titles(String userId) {
+        UserTitles titles = users.get(userId);
+        if (titles == null || !titles.isCurrent(versions.current(userId))) {
+            titles = singleFlight.execute("title-index", userId, () -> build(userId));
+            users.put(userId, titles);
+        }
+        return titles;
+    }
+
+    private UserTitles build(String userId) {
+        // Read the version first: a write during the queries leaves the titles already stale
+        UserTitles titles = new UserTitles(versions.current(userId));
+        for (HabitTemplate template : templateRepository.findByUserId(userId)) {
+            if (template.getHabitTitles() != null) {
+                template.getHabitTitles().forEach(titles::addTemplateTitle);
+            }
+        }
+        for (Habit habit : habitRepository.findTitlesByUserId(userId)) {
+            titles.putHabit(habit.getId(), habit.getTitle());
+        }
+        return titles;
+    }
+
+    // Runs after InvalidationBus has moved the user's version for this write
+    @EventListener
+    public void onHabitChange(HabitChangeEvent event) {
+        UserTitles titles = users.get(event.getUserId());
+        if (titles != null && !titles.apply(event, versions.current(event.getUserId()))) {
+            users.remove(event.getUserId());
+        }
+    }
+
+    private static final class UserTitles {
+
+        // Sorted by key; a title stays while any habit or template still uses it
+        private Title[] sorted = new Title[16];
+        private int size;
+        private final Map<String, String> keyByHabit = new HashMap<>();
+        private long version;
+
+        UserTitles(long version) {
+            this.version = version;
+        }
+
+        synchronized boolean isCurrent(long current) {
+            return version == current;
+        }
+
+        // Only if this event is the one write since the titles were last current
+        synchronized boolean apply(HabitChangeEvent event, long current) {
+            if (version + 1 != current) {
+                return false;
+            }
+            switch (event.getType()) {
+                case CREATE, RENAME -> putHabit(event.getHabitId(), event.getTitle());
+                case DELETE -> removeHabit(event.getHabitId());
+                // Logs and reminders are not titles
+                case TOGGLE, REMINDER -> {
+                }
+                default -> {
+                    return false;
+                }
+            }
+            version = current;
+            return true;
+        }
+
+        synchronized String habitWithTitle(String key, String exceptHabitId) {
+            int i = find(key);
+            if (i < 0) {
+                return null;
+            }
+            for (String habitId : sorted[i].habitIds) {
+                if (!habitId.equals(exceptHabitId)) {
+                    return habitId;
+                }
+            }
+            return null;
+        }
+
+        synchronized List<TitleSuggestion> suggest(String prefix, int limit) {
+            List<TitleSuggestion> habits = new ArrayList<>();
+            List<TitleSuggestion> templates = new ArrayList<>();
+            int i = find(prefix);
+            for (int at = i < 0 ? -i - 1 : i; at < size && habits.size() < limit; at++) {
+                Title title = sorted[at];
+                if (!title.key.startsWith(prefix)) {
+                    break;
+                }
+                if (!title.habitIds.isEmpty()) {
+                    habits.add(new TitleSuggestion(title.display, TitleSuggestion.HABIT));
+                } else if (templates.size() < limit) {
+                    templates.add(new TitleSuggestion(title.display, TitleSuggestion.TEMPLATE));
+                }
+            }
+            habits.addAll(templates.subList(0, Math.min(templates.size(), limit - habits.size())));
+            return habits;
+        }
+
+        void addTemplateTitle(String display) {
+            if (display != null && !display.isBlank()) {
+                titleFor(normalize(display), display).template = true;
+            }
+        }
+
+        // Idempotent, so a habit both found by the build and announced by its event counts once
+        void putHabit(String habitId, String display) {
+            String key = normalize(display);
+            if (key.equals(keyByHabit.get(habitId))) {
+                return;
+            }
+            removeHabit(habitId);
+            Title title = titleFor(key, display);
+            // The habit's own spelling wins over a template's
+            if (title.habitIds.isEmpty()) {
+                title.display = display.strip();
+            }
+            title.habitIds.add(habitId);
+            keyByHabit.put(habitId, key);
+        }
+
+        void removeHabit(String habitId) {
+            String key = keyByHabit.remove(habitId);
+            if (key == null) {
+                return;
+            }
+            int i = find(key);
+            Title title = sorted[i];
+            title.habitIds.remove(habitId);
+            if (title.habitIds.isEmpty() && !title.template) {
+                System.arraycopy(sorted, i + 1, sorted, i, size - i - 1);
+                sorted[--size] = null;
+            }
+        }
+
+        private Title titleFor(String key, String display) {
+            int i = find(key);
+            if (i >= 0) {
+                return sorted[i];
+            }
+            int at = -i - 1;
+            if (size == sorted.length) {
+                sorted = Arrays.copyOf(sorted, size * 2);
+            }
+            System.arraycopy(sorted, at, sorted, at + 1, size - at);
+            sorted[at] = new Title(key, display);
+            size++;
+            return sorted[at];
+        }
+
+        // Arrays.binarySearch contract: the index, or -(insertion point) - 1
+        private int find(String key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = sorted[mid].key.compareTo(key);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private static final class Title {
+
+        final String key;
+        String display;
+        boolean template;
+        // Usually one; more only for duplicates made before titles were deduped
+        final List<String> habitIds = new ArrayList<>(1);
+
+        Title(String key, String display) {
+            this.key = key;
+            this.display = display.strip();
+        }
+    }
+}
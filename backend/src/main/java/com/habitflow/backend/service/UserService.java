@@ -1,15 +1,21 @@
 package com.habitflow.backend.service;
 
+import com.habitflow.backend.dto.ProfileView;
+import com.habitflow.backend.event.HabitChangeEvent;
 import com.habitflow.backend.model.User;
 import com.habitflow.backend.repository.UserRepository;
 import com.habitflow.backend.repository.HabitRepository;
 import com.habitflow.backend.repository.HabitTemplateRepository;
+import com.habitflow.backend.security.TokenRevocations;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
@@ -17,12 +23,15 @@ public class UserService {
     private final UserRepository userRepository;
     private final HabitRepository habitRepository;
     private final HabitTemplateRepository habitTemplateRepository;
+    private final AvatarService avatarService;
+    private final TokenRevocations tokenRevocations;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public Optional<User> findByEmail(String email) {
-        return userRepository.findByEmail(email);
+    public Optional<ProfileView> findProfile(String email) {
+        return userRepository.findProfileByEmail(email).map(UserService::toProfile);
     }
 
-    public User updateUser(String email, User updatedUser) {
+    public ProfileView updateUser(String email, User updatedUser) {
         return userRepository.findByEmail(email).map(user -> {
             if (updatedUser.getName() != null)
                 user.setName(updatedUser.getName());
@@ -34,22 +43,80 @@ public class UserService {
                 user.setHeight(updatedUser.getHeight());
             if (updatedUser.getWeight() != null)
                 user.setWeight(updatedUser.getWeight());
-            if (updatedUser.getProfilePicture() != null)
-                user.setProfilePicture(updatedUser.getProfilePicture());
-            return userRepository.save(user);
+            if (user.getAvatarVersion() == null) {
+                // The inline picture is not loaded, and the update below unsets it
+                userRepository.findPictureById(user.getId())
+                        .filter(legacy -> AvatarService.isDataUrl(legacy.getProfilePicture()))
+                        .ifPresent(legacy -> user.setAvatarVersion(
+                                moveInlinePicture(user.getId(), legacy.getProfilePicture())));
+            }
+            // Clients echo back the avatar URL they were given; only a new upload or "" changes it
+            String picture = updatedUser.getProfilePicture();
+            if (AvatarService.isDataUrl(picture)) {
+                user.setAvatarVersion(avatarService.store(user.getId(), picture));
+            } else if (picture != null && picture.isEmpty() && user.getAvatarVersion() != null) {
+                avatarService.delete(user.getId());
+                user.setAvatarVersion(null);
+            }
+            user.setProfilePicture(null);
+            // Not save(): the user was read before, and a whole-document write would undo a
+            // logout-everywhere that bumped the token version meanwhile
+            userRepository.updateProfile(email, user.getName(), user.getUsername(), user.getAge(), user.getHeight(),
+                    user.getWeight(), user.getAvatarVersion());
+            return toProfile(user);
         }).orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     @Transactional
     public void deleteUserData(String email) {
-        habitRepository.deleteByUserId(email);
-        habitTemplateRepository.deleteByUserId(email);
-        // Add tasks deletion if there is a task repository
+        deleteUserData(userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found")));
+    }
+
+    // Habits and templates belong to the user id, not the email
+    private void deleteUserData(User user) {
+        habitRepository.deleteByUserId(user.getId());
+        habitTemplateRepository.deleteByUserId(user.getId());
+        // A bulk write like an import: caches and open clients reload
+        eventPublisher.publishEvent(HabitChangeEvent.imported(user.getId()));
+    }
+
+    // Every token issued so far stops working, on all nodes within the revocation refresh interval
+    public void logoutEverywhere(String email) {
+        if (userRepository.incrementTokenVersion(email) == 0) {
+            throw new RuntimeException("User not found");
+        }
+        User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
+        tokenRevocations.revoke(email, user.getTokenVersion());
     }
 
     @Transactional
     public void deleteUser(String email) {
-        deleteUserData(email);
-        userRepository.findByEmail(email).ifPresent(userRepository::delete);
+        userRepository.findByEmail(email).ifPresent(user -> {
+            // First, so the deleted account's tokens stop reaching the user lookup
+            tokenRevocations.revoke(email, user.getTokenVersion() + 1);
+            deleteUserData(user);
+            avatarService.delete(user.getId());
+            userRepository.delete(user);
+        });
+    }
+
+    /**
+     * Moves a legacy inline picture to the avatar store and returns its version. A
+     * picture that cannot be decoded is dropped. Does nothing to the user document
+     * if the picture was changed meanwhile.
+     */
+    public String moveInlinePicture(String userId, String picture) {
+        String version = null;
+        try {
+            version = avatarService.store(userId, picture);
+        } catch (IllegalArgumentException e) {
+            log.warn("Dropping unreadable profile picture of user {}: {}", userId, e.getMessage());
+        }
+        userRepository.moveInlinePicture(userId, picture, version);
+        return version;
+    }
+
+    private static ProfileView toProfile(User user) {
+        return ProfileView.of(user, AvatarService.urlFor(user));
     }
 }
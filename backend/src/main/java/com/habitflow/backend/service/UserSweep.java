@@ -0,0 +1,205 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.model.AnalyticsSnapshotRun;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.AnalyticsSnapshotRunRepository;
+import com.habitflow.backend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * A resumable pass over every user, shared by the batch jobs. The run is claimed
+ * in {@code analytics_snapshot_runs} under its id; user ids are streamed in order
+ * through a cursor, cut into batches and handed to a worker pool, at most
+ * {@code maxInFlight} batches at a time.
+ *
+ * Progress is checkpointed as the last user of the finished prefix of batches, so
+ * a run that dies resumes there, on this node or - once the heartbeat is stale -
+ * another. A run taken over meanwhile stops at its next checkpoint.
+ */
+@Slf4j
+@Component
+public class UserSweep {
+
+    private static final ObjectId MIN_ID = new ObjectId("000000000000000000000000");
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 5_000;
+
+    private final UserRepository userRepository;
+    private final AnalyticsSnapshotRunRepository runRepository;
+    private final String owner = defaultOwner();
+
+    public UserSweep(UserRepository userRepository, AnalyticsSnapshotRunRepository runRepository) {
+        this.userRepository = userRepository;
+        this.runRepository = runRepository;
+    }
+
+    /** The work for one batch of user ids. */
+    @FunctionalInterface
+    public interface BatchWork {
+
+        /** Called on the cursor thread; what it returns runs on the pool. Either may throw to fail the batch. */
+        Runnable prepare(List<String> userIds);
+    }
+
+    /** Users the run went over, this time and in earlier attempts, and those of failed batches. */
+    public record Summary(long processed, int failed, long millis) {
+    }
+
+    /**
+     * Runs {@code work} over every user not done yet and shuts {@code pool} down.
+     * Empty if the run is finished, owned by another node, or was taken over.
+     *
+     * @param batchIntervalNanos the least time between two batches being prepared, 0 for no pacing
+     */
+    public Optional<Summary> run(String runId, String name, Duration staleAfter, int batchSize, int maxInFlight,
+                                 long batchIntervalNanos, ExecutorService pool, BatchWork work) {
+        AnalyticsSnapshotRun run = runRepository.claim(runId, owner, Instant.now().minus(staleAfter)).orElse(null);
+        if (run == null) {
+            pool.shutdown();
+            log.info("{} run {} is finished or owned by another node", name, runId);
+            return Optional.empty();
+        }
+        ObjectId after = run.getLastUserId() != null ? new ObjectId(run.getLastUserId()) : MIN_ID;
+        log.info("{} run {} starting after {} ({} users done)", name, runId, after, run.getProcessed());
+
+        long start = System.nanoTime();
+        AtomicInteger failures = new AtomicInteger();
+        // last user id of a batch -> the batch; the finished prefix is what the checkpoint may advance over
+        ConcurrentSkipListMap<String, Batch> inFlight = new ConcurrentSkipListMap<>();
+        Semaphore permits = new Semaphore(maxInFlight);
+
+        Progress progress = new Progress(run.getLastUserId(), run.getProcessed());
+        boolean owned = true;
+        try (Stream<User> users = userRepository.streamIdsAfter(after)) {
+            Iterator<User> iterator = users.iterator();
+            long lastCheckpoint = System.currentTimeMillis();
+            long nextBatch = System.nanoTime();
+            while (owned && iterator.hasNext()) {
+                List<String> userIds = new ArrayList<>(batchSize);
+                while (userIds.size() < batchSize && iterator.hasNext()) {
+                    userIds.add(iterator.next().getId());
+                }
+                permits.acquireUninterruptibly();
+                nextBatch = pace(nextBatch, batchIntervalNanos);
+                Batch batch = new Batch(userIds.size());
+                inFlight.put(userIds.get(userIds.size() - 1), batch);
+                try {
+                    Runnable task = work.prepare(userIds);
+                    pool.execute(() -> {
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            failed(name, userIds, e, failures);
+                        } finally {
+                            batch.done = true;
+                            permits.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    failed(name, userIds, e, failures);
+                    batch.done = true;
+                    permits.release();
+                }
+                if (System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_INTERVAL_MILLIS) {
+                    owned = checkpoint(runId, inFlight, progress);
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+            }
+        } finally {
+            pool.shutdown();
+            awaitTermination(pool);
+        }
+
+        if (!owned || !checkpoint(runId, inFlight, progress)) {
+            log.warn("{} run {} was taken over by another node", name, runId);
+            return Optional.empty();
+        }
+        runRepository.finish(runId, owner);
+        return Optional.of(new Summary(progress.processed, failures.get(), (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private static void failed(String name, List<String> userIds, RuntimeException e, AtomicInteger failures) {
+        failures.addAndGet(userIds.size());
+        log.warn("{} of {} users from {} failed: {}", name, userIds.size(), userIds.get(0), e.getMessage());
+    }
+
+    // Waits until the next batch is due and returns when the one after it is
+    private static long pace(long nextBatch, long intervalNanos) {
+        if (intervalNanos <= 0) {
+            return nextBatch;
+        }
+        long wait = nextBatch - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return Math.max(nextBatch, System.nanoTime()) + intervalNanos;
+    }
+
+    private boolean checkpoint(String runId, ConcurrentSkipListMap<String, Batch> inFlight, Progress progress) {
+        // Advance over the finished prefix only; anything after a pending batch is redone on resume
+        for (Map.Entry<String, Batch> first = inFlight.firstEntry(); first != null && first.getValue().done;
+             first = inFlight.firstEntry()) {
+            inFlight.pollFirstEntry();
+            progress.lastUserId = first.getKey();
+            progress.processed += first.getValue().users;
+        }
+        return runRepository.checkpoint(runId, owner, progress.lastUserId, progress.processed);
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String defaultOwner() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    private static class Batch {
+        final int users;
+        volatile boolean done;
+
+        Batch(int users) {
+            this.users = users;
+        }
+    }
+
+    private static class Progress {
+        String lastUserId;
+        long processed;
+
+        Progress(String lastUserId, long processed) {
+            this.lastUserId = lastUserId;
+            this.processed = processed;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.habitflow.backend.startup;
+
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.UserRepository;
+import com.habitflow.backend.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Moves profile pictures still stored inline in user documents to the avatar
+ * store. Safe to run on every start: migrated users no longer match.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnBooleanProperty(name = "habitflow.avatars.migrate-inline", matchIfMissing = true)
+public class AvatarMigration implements DeferredTask {
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+
+    @Override
+    public String getName() {
+        return "avatar-migration";
+    }
+
+    @Override
+    public void run() {
+        int migrated = 0;
+        try (Stream<User> users = userRepository.streamWithInlinePicture()) {
+            for (User user : (Iterable<User>) users::iterator) {
+                userService.moveInlinePicture(user.getId(), user.getProfilePicture());
+                migrated++;
+            }
+        }
+        if (migrated > 0) {
+            log.info("Moved {} inline profile pictures to the avatar store", migrated);
+        }
+    }
+}
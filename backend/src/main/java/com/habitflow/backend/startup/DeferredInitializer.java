@@ -0,0 +1,43 @@
+package com.habitflow.backend.startup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Runs every {@link DeferredTask} on a background thread once the application is
+ * ready. A failing task is logged and does not stop the others.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeferredInitializer {
+
+    private final List<DeferredTask> tasks;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        Thread worker = new Thread(this::runAll, "deferred-init");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void runAll() {
+        for (DeferredTask task : tasks) {
+            long start = System.nanoTime();
+            try {
+                task.run();
+                log.info("Deferred task '{}' finished in {} ms", task.getName(), (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.warn("Deferred task '{}' failed: {}", task.getName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.habitflow.backend.startup;
+
+/**
+ * Non-critical initialization that can run after the application reports ready,
+ * so it does not add to time-to-first-request.
+ */
+public interface DeferredTask {
+
+    String getName();
+
+    void run();
+}
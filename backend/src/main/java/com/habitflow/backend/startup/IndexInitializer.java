@@ -0,0 +1,63 @@
+package com.habitflow.backend.startup;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitTemplate;
+import com.habitflow.backend.model.TokenRevocation;
+import com.habitflow.backend.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the entities after startup instead of during
+ * mapping context initialization, in every mode: a slow or failing index build
+ * holds up neither startup nor the first request. Our mapping context never
+ * creates indexes itself, whatever {@code spring.data.mongodb.auto-index-creation} says.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnBooleanProperty(name = "habitflow.startup.deferred-index-creation", matchIfMissing = true)
+public class IndexInitializer implements DeferredTask {
+
+    static final List<Class<?>> ENTITIES = List.of(User.class, Habit.class, HabitTemplate.class,
+            TokenRevocation.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    @Override
+    public String getName() {
+        return "ensure-indexes";
+    }
+
+    @Override
+    public void run() {
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        for (Class<?> type : ENTITIES) {
+            if (!type.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            for (IndexDefinition definition : resolver.resolveIndexFor(type)) {
+                try {
+                    indexOps.createIndex(definition);
+                } catch (RuntimeException e) {
+                    // E.g. duplicates under a new unique index, or an old index with other options
+                    log.warn("Creating index {} on {} failed: {}", definition.getIndexKeys().toJson(),
+                            type.getSimpleName(), e.getMessage());
+                }
+            }
+            log.debug("Indexes ensured for {}", type.getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.habitflow.backend.startup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens the first pooled connection (DNS, TLS, auth handshake) in the background
+ * so the first user request does not pay for it.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnBooleanProperty("habitflow.startup.warmup")
+public class MongoWarmup implements DeferredTask {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public String getName() {
+        return "mongo-warmup";
+    }
+
+    @Override
+    public void run() {
+        mongoTemplate.executeCommand("{ ping: 1 }");
+    }
+}
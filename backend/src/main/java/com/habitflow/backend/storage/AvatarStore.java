@@ -0,0 +1,21 @@
+package com.habitflow.backend.storage;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps each user's avatar as a set of fixed-size JPEG thumbnails, out of the user
+ * document so that auth and profile reads stay small.
+ */
+public interface AvatarStore {
+
+    /** Replaces all of the user's thumbnails with {@code thumbnails} (size -> JPEG bytes). */
+    void save(String userId, String version, Map<Integer, byte[]> thumbnails);
+
+    Optional<StoredAvatar> load(String userId, int size);
+
+    void delete(String userId);
+
+    record StoredAvatar(String version, byte[] data) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.habitflow.backend.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Thumbnails on the local disk, for running without MongoDB. A user's directory
+ * holds one {@code <size>-<version>.jpg} per size.
+ */
+@Component
+@ConditionalOnProperty(name = "habitflow.avatars.store", havingValue = "file")
+public class FileAvatarStore implements AvatarStore {
+
+    private final Path root;
+
+    public FileAvatarStore(@Value("${habitflow.avatars.dir:${java.io.tmpdir}/habitflow-avatars}") Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void save(String userId, String version, Map<Integer, byte[]> thumbnails) {
+        Path dir = directory(userId);
+        try {
+            Files.createDirectories(dir);
+            for (Map.Entry<Integer, byte[]> thumbnail : thumbnails.entrySet()) {
+                Path tmp = Files.createTempFile(dir, "upload", ".tmp");
+                Files.write(tmp, thumbnail.getValue());
+                Files.move(tmp, dir.resolve(thumbnail.getKey() + "-" + version + ".jpg"),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            try (var files = Files.list(dir)) {
+                for (Path file : files.filter(f -> !f.getFileName().toString().endsWith("-" + version + ".jpg")).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<StoredAvatar> load(String userId, int size) {
+        Path dir = directory(userId);
+        if (!Files.isDirectory(dir)) {
+            return Optional.empty();
+        }
+        String prefix = size + "-";
+        try (var files = Files.list(dir)) {
+            Optional<Path> match = files.filter(f -> f.getFileName().toString().startsWith(prefix)).findFirst();
+            if (match.isEmpty()) {
+                return Optional.empty();
+            }
+            String name = match.get().getFileName().toString();
+            String version = name.substring(prefix.length(), name.length() - ".jpg".length());
+            return Optional.of(new StoredAvatar(version, Files.readAllBytes(match.get())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void delete(String userId) {
+        try {
+            FileSystemUtils.deleteRecursively(directory(userId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path directory(String userId) {
+        // User ids are ObjectId hex; refuse anything that could escape the root
+        if (!userId.matches("[0-9a-fA-F]{1,64}")) {
+            throw new IllegalArgumentException("Invalid user id");
+        }
+        return root.resolve(userId);
+    }
+}
@@ -0,0 +1,94 @@
+package com.habitflow.backend.storage;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+/** Thumbnails in the {@code avatars} GridFS bucket, one file per size named {@code <userId>/<size>}. */
+@Component
+@ConditionalOnProperty(name = "habitflow.avatars.store", havingValue = "gridfs", matchIfMissing = true)
+public class GridFsAvatarStore implements AvatarStore {
+
+    private static final String CONTENT_TYPE = "image/jpeg";
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "_id");
+
+    private final GridFsTemplate gridFs;
+
+    public GridFsAvatarStore(MongoDatabaseFactory databaseFactory, MongoConverter converter) {
+        this.gridFs = new GridFsTemplate(databaseFactory, converter, "avatars");
+    }
+
+    @Override
+    public void save(String userId, String version, Map<Integer, byte[]> thumbnails) {
+        // Write the new version before dropping the old one, so readers never see nothing
+        Set<String> names = new HashSet<>();
+        thumbnails.forEach((size, data) -> {
+            gridFs.store(new ByteArrayInputStream(data), filename(userId, size), CONTENT_TYPE,
+                    new Document("userId", userId).append("version", version));
+            names.add(filename(userId, size));
+        });
+        // Keep the newest file of each size, which may be a concurrent upload's rather than
+        // ours, and delete the rest by id: re-uploading the same picture leaves no duplicates,
+        // and two uploads never delete each other's last copy
+        List<ObjectId> stale = new ArrayList<>();
+        Set<String> kept = new HashSet<>();
+        for (GridFSFile file : gridFs.find(files(userId).with(NEWEST_FIRST))) {
+            if (!names.contains(file.getFilename()) || !kept.add(file.getFilename())) {
+                stale.add(file.getObjectId());
+            }
+        }
+        if (!stale.isEmpty()) {
+            gridFs.delete(query(where("_id").in(stale)));
+        }
+    }
+
+    @Override
+    public Optional<StoredAvatar> load(String userId, int size) {
+        GridFSFile file = gridFs.findOne(query(whereFilename().is(filename(userId, size))).with(NEWEST_FIRST));
+        if (file == null) {
+            return Optional.empty();
+        }
+        try (InputStream in = gridFs.getResource(file).getInputStream()) {
+            String version = file.getMetadata() != null ? file.getMetadata().getString("version") : null;
+            return Optional.of(new StoredAvatar(version, in.readAllBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void delete(String userId) {
+        gridFs.delete(files(userId));
+    }
+
+    private static Query files(String userId) {
+        return query(whereFilename().regex("^" + Pattern.quote(userId + "/")));
+    }
+
+    private static String filename(String userId, int size) {
+        return userId + "/" + size;
+    }
+}
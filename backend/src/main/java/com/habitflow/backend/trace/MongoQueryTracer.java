@@ -0,0 +1,56 @@
+package com.habitflow.backend.trace;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports every command the MongoDB driver runs into the caller's
+ * {@link QueryTrace}. The synchronous driver raises the events on the calling
+ * thread, so the thread-local trace is the right one.
+ */
+public class MongoQueryTracer implements CommandListener {
+
+    // driver request id -> collection, between started and succeeded/failed
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (QueryTrace.current() != null) {
+            QueryTrace.commandStarted();
+            collections.put(event.getRequestId(), collectionOf(event.getCommandName(), event.getCommand()));
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        if (collection != null) {
+            // The driver hands listeners the raw reply, so its size is free to read
+            long bytes = event.getResponse() instanceof RawBsonDocument raw ? raw.getByteBuffer().remaining() : 0;
+            QueryTrace.record(event.getCommandName(), collection, event.getElapsedTime(TimeUnit.NANOSECONDS), bytes);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        if (collection != null) {
+            QueryTrace.record(event.getCommandName(), collection, event.getElapsedTime(TimeUnit.NANOSECONDS), 0);
+        }
+    }
+
+    private static String collectionOf(String commandName, BsonDocument command) {
+        // getMore names the cursor, not the collection, in its first field
+        BsonValue value = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return value != null && value.isString() ? value.asString().getValue() : "-";
+    }
+}
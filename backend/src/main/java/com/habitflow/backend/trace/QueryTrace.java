@@ -0,0 +1,156 @@
+package com.habitflow.backend.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Counts, times and sizes the database commands issued on the current thread
+ * while it is active. Traces nest: a trace started inside another (a request
+ * inside a test, say) also reports into its parent.
+ *
+ * Fed by {@link MongoQueryTracer} for MongoDB and by the in-memory repositories,
+ * so budgets can be checked without a database.
+ */
+public final class QueryTrace {
+
+    private static final ThreadLocal<QueryTrace> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> SUPPRESSED = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final QueryTrace parent;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, CommandStats> commands = new LinkedHashMap<>();
+    private int count;
+    private long nanos;
+    private long bytes;
+    // Start of the command the thread is waiting on now, 0 if none
+    private volatile long runningSince;
+
+    private QueryTrace(QueryTrace parent) {
+        this.parent = parent;
+    }
+
+    public static QueryTrace start() {
+        QueryTrace trace = new QueryTrace(CURRENT.get());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static QueryTrace current() {
+        return CURRENT.get();
+    }
+
+    public void end() {
+        if (CURRENT.get() == this) {
+            if (parent != null) {
+                CURRENT.set(parent);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /** Marks a command as started on this thread; the {@link #record} for it marks the end. */
+    public static void commandStarted() {
+        QueryTrace trace = CURRENT.get();
+        if (trace != null && SUPPRESSED.get()[0] == 0) {
+            trace.runningSince = System.nanoTime();
+        }
+    }
+
+    public static void record(String command, String collection, long elapsedNanos, long responseBytes) {
+        if (SUPPRESSED.get()[0] > 0) {
+            return;
+        }
+        if (CURRENT.get() != null) {
+            CURRENT.get().runningSince = 0;
+        }
+        for (QueryTrace trace = CURRENT.get(); trace != null; trace = trace.parent) {
+            trace.add(command + " " + collection, elapsedNanos, responseBytes);
+        }
+    }
+
+    /** Runs {@code body} as a single command, whatever it does internally. */
+    public static <R> R asOne(String command, String collection, Supplier<R> body) {
+        long start = System.nanoTime();
+        commandStarted();
+        int[] depth = SUPPRESSED.get();
+        depth[0]++;
+        try {
+            return body.get();
+        } finally {
+            depth[0]--;
+            record(command, collection, System.nanoTime() - start, 0);
+        }
+    }
+
+    /** Runs {@code body} reporting into {@code trace}, e.g. on a pool thread working for a traced request. */
+    public static <R> R within(QueryTrace trace, Supplier<R> body) {
+        QueryTrace previous = CURRENT.get();
+        set(trace);
+        try {
+            return body.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    private static void set(QueryTrace trace) {
+        if (trace != null) {
+            CURRENT.set(trace);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    private synchronized void add(String key, long elapsedNanos, long responseBytes) {
+        CommandStats stats = commands.computeIfAbsent(key, k -> new CommandStats());
+        stats.count++;
+        stats.nanos += elapsedNanos;
+        stats.bytes += responseBytes;
+        count++;
+        nanos += elapsedNanos;
+        bytes += responseBytes;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized long nanos() {
+        return nanos;
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /** Time spent in the database so far, including a command still running. */
+    public synchronized long databaseNanos() {
+        long since = runningSince;
+        return since != 0 ? nanos + System.nanoTime() - since : nanos;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    // e.g. "find users x2 1.4ms 812B, update habits x1 0.9ms 60B"
+    public synchronized String breakdown() {
+        StringBuilder sb = new StringBuilder();
+        commands.forEach((key, stats) -> {
+            if (!sb.isEmpty()) {
+                sb.append(", ");
+            }
+            sb.append(key).append(" x").append(stats.count)
+                    .append(String.format(" %.1fms %dB", stats.nanos / 1e6, stats.bytes));
+        });
+        return sb.toString();
+    }
+
+    private static class CommandStats {
+        int count;
+        long nanos;
+        long bytes;
+    }
+}
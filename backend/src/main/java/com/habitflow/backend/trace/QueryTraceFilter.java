@@ -0,0 +1,68 @@
+package com.habitflow.backend.trace;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Traces the database commands of each request - including the ones made by the
+ * security filters - and logs a {@code slow-request} line with the breakdown when
+ * the request issued too many, spent too long in the database, or was slow overall.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnBooleanProperty(name = "habitflow.trace.enabled", matchIfMissing = true)
+public class QueryTraceFilter extends OncePerRequestFilter {
+
+    private final int maxQueries;
+    private final long slowQueriesNanos;
+    private final long slowRequestNanos;
+
+    public QueryTraceFilter(@Value("${habitflow.trace.max-queries:8}") int maxQueries,
+            @Value("${habitflow.trace.slow-queries:200ms}") Duration slowQueries,
+            @Value("${habitflow.trace.slow-request:1s}") Duration slowRequest) {
+        this.maxQueries = maxQueries;
+        this.slowQueriesNanos = slowQueries.toNanos();
+        this.slowRequestNanos = slowRequest.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryTrace trace = QueryTrace.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            trace.end();
+            report(request, response, trace);
+        }
+    }
+
+    private void report(HttpServletRequest request, HttpServletResponse response, QueryTrace trace) {
+        long elapsed = trace.elapsedNanos();
+        boolean tooMany = trace.count() > maxQueries;
+        boolean slowQueries = trace.nanos() > slowQueriesNanos;
+        boolean slowRequest = elapsed > slowRequestNanos;
+        if (!tooMany && !slowQueries && !slowRequest) {
+            return;
+        }
+        String reasons = (tooMany ? "queries," : "") + (slowQueries ? "db-time," : "") + (slowRequest ? "duration," : "");
+        log.warn("slow-request method={} path={} status={} reasons={} durationMs={} queries={} queryMs={} bytes={} breakdown=\"{}\"",
+                request.getMethod(), request.getRequestURI(), response.getStatus(),
+                reasons.substring(0, reasons.length() - 1),
+                elapsed / 1_000_000, trace.count(), String.format("%.1f", trace.nanos() / 1e6), trace.bytes(),
+                trace.breakdown());
+    }
+}
@@ -0,0 +1,161 @@
+package com.habitflow.backend.usage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Quantile sketch over non-negative values with logarithmic buckets (as in
+ * DDSketch): bucket i counts the values in (gamma^(i-1), gamma^i], so any quantile
+ * is returned within {@code relativeAccuracy} of a value actually seen. Merging
+ * adds bucket counts, which makes the result independent of how the values were
+ * split across nodes. Values below 1 share one bucket and are reported as 0.
+ *
+ * At most {@link #MAX_BUCKETS} buckets are kept; past that the lowest ones are
+ * folded together, which only costs accuracy at the bottom of the distribution.
+ */
+public final class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    static final int MAX_BUCKETS = 2048;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+    private double max;
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public synchronized void add(double value) {
+        if (value < 0 || Double.isNaN(value)) {
+            throw new IllegalArgumentException("Values must not be negative");
+        }
+        count++;
+        max = Math.max(max, value);
+        if (value < 1) {
+            zeroCount++;
+            return;
+        }
+        buckets.merge((int) Math.ceil(Math.log(value) / logGamma), 1L, Long::sum);
+        if (buckets.size() > MAX_BUCKETS) {
+            Map.Entry<Integer, Long> lowest = buckets.pollFirstEntry();
+            buckets.merge(buckets.firstKey(), lowest.getValue(), Long::sum);
+        }
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches of different accuracy");
+        }
+        // Copied first, so two sketches merging into each other cannot deadlock
+        QuantileSketch theirs = other.copy();
+        synchronized (this) {
+            count += theirs.count;
+            zeroCount += theirs.zeroCount;
+            max = Math.max(max, theirs.max);
+            theirs.buckets.forEach((index, n) -> buckets.merge(index, n, Long::sum));
+            while (buckets.size() > MAX_BUCKETS) {
+                Map.Entry<Integer, Long> lowest = buckets.pollFirstEntry();
+                buckets.merge(buckets.firstKey(), lowest.getValue(), Long::sum);
+            }
+        }
+    }
+
+    /** The value at quantile {@code q} (0 to 1), or NaN when nothing was added. */
+    public synchronized double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+        long seen = zeroCount;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) {
+                // The bucket's midpoint in relative terms, never above the largest value seen
+                return Math.min(max, 2 * Math.pow(gamma, bucket.getKey()) / (gamma + 1));
+            }
+        }
+        return max;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized double max() {
+        return max;
+    }
+
+    public double relativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public synchronized QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(relativeAccuracy);
+        copy.buckets.putAll(buckets);
+        copy.zeroCount = zeroCount;
+        copy.count = count;
+        copy.max = max;
+        return copy;
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + buckets.size() * 12);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeDouble(relativeAccuracy);
+            out.writeLong(zeroCount);
+            out.writeDouble(max);
+            out.writeInt(buckets.size());
+            for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+                out.writeInt(bucket.getKey());
+                out.writeLong(bucket.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            QuantileSketch sketch = new QuantileSketch(in.readDouble());
+            sketch.zeroCount = in.readLong();
+            sketch.count = sketch.zeroCount;
+            sketch.max = in.readDouble();
+            int size = in.readInt();
+            if (size < 0 || size > MAX_BUCKETS) {
+                throw new IllegalArgumentException("Not a quantile sketch: " + size + " buckets");
+            }
+            for (int i = 0; i < size; i++) {
+                int index = in.readInt();
+                long n = in.readLong();
+                sketch.buckets.put(index, n);
+                sketch.count += n;
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not a quantile sketch", e);
+        }
+    }
+}
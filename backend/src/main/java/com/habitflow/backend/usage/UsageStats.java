@@ -0,0 +1,304 @@
+package com.habitflow.backend.usage;
+
+import com.habitflow.backend.dto.UsageStatsResponse;
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.model.DailyUsage;
+import com.habitflow.backend.repository.DailyUsageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Operator-wide usage (active users, completions, habits per user, how long after
+ * the start of a day it gets marked done) without scanning anyone's logs.
+ *
+ * This node's writes update in-memory sketches for the current day as they
+ * happen; every {@code flush-interval} each day's sketches are written to this
+ * node's own {@code usage_stats} document. A report merges the documents of all
+ * nodes for the requested days, so it costs one query and a few kilobytes per
+ * node and day however many users there are. A node that dies loses at most its
+ * last interval; a restarted one writes under a new node id.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "habitflow.usage.enabled", matchIfMissing = true)
+public class UsageStats {
+
+    public static final int MAX_DAYS = 366;
+
+    private final DailyUsageRepository repository;
+    private final String nodeId;
+    private final long flushIntervalMillis;
+    private final int retentionDays;
+    private final Map<LocalDate, Day> days = new ConcurrentHashMap<>();
+    private LocalDate lastPurge;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "usage-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UsageStats(DailyUsageRepository repository,
+            @Value("${habitflow.usage.node-id:}") String nodeId,
+            @Value("${habitflow.usage.flush-interval:60s}") Duration flushInterval,
+            @Value("${habitflow.usage.retention-days:400}") int retentionDays) {
+        if (retentionDays < MAX_DAYS) {
+            throw new IllegalArgumentException("habitflow.usage.retention-days must be at least " + MAX_DAYS);
+        }
+        this.repository = repository;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdownNow();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flushQuietly();
+    }
+
+    @EventListener
+    public void onHabitChange(HabitChangeEvent event) {
+        switch (event.getType()) {
+            case CREATE -> today().created(event.getUserId(), 1);
+            case TEMPLATE_APPLY -> today().created(event.getUserId(),
+                    event.getHabitIds() != null ? event.getHabitIds().size() : 0);
+            case TOGGLE -> {
+                Day day = today();
+                day.active.add(event.getUserId());
+                if (Boolean.TRUE.equals(event.getValue())) {
+                    day.completions.incrementAndGet();
+                    Instant dayStart = LocalDate.parse(event.getDate()).atStartOfDay(ZoneId.systemDefault()).toInstant();
+                    // A client ahead of the server's time zone can be slightly negative
+                    day.completionDelay.add(Math.max(0, Duration.between(dayStart, Instant.now()).toMinutes()));
+                }
+                day.dirty = true;
+            }
+            default -> {
+            }
+        }
+    }
+
+    /** Called once per user by the nightly snapshot pass for {@code day}. */
+    public void recordHabitsOwned(LocalDate day, int habits) {
+        // Older days have been flushed and dropped; a fresh entry would overwrite them
+        if (day.isBefore(LocalDate.now().minusDays(1))) {
+            return;
+        }
+        Day usage = days.computeIfAbsent(day, Day::new);
+        usage.habitsPerUser.add(habits);
+        usage.dirty = true;
+    }
+
+    public synchronized void flush() {
+        LocalDate today = LocalDate.now();
+        List<DailyUsage> changed = new ArrayList<>();
+        for (Day day : days.values()) {
+            if (day.dirty) {
+                day.dirty = false;
+                changed.add(day.toDocument(nodeId));
+            }
+        }
+        if (!changed.isEmpty()) {
+            repository.saveAll(changed);
+        }
+        // Nothing updates a day before yesterday any more
+        days.values().removeIf(day -> day.date.isBefore(today.minusDays(1)) && !day.dirty);
+        // Only nodes with something to write clean up, so an idle one stays off the database
+        if (!changed.isEmpty() && !today.equals(lastPurge)) {
+            repository.deleteByDayLessThan(today.minusDays(retentionDays).toString());
+            lastPurge = today;
+        }
+    }
+
+    public UsageStatsResponse report(int numberOfDays) {
+        if (numberOfDays < 1 || numberOfDays > MAX_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_DAYS);
+        }
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(numberOfDays - 1);
+        LocalDate loadFrom = numberOfDays < 7 ? to.minusDays(6) : from;
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = loadFrom; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(day.toString());
+        }
+
+        // This node's live sketches replace what it last flushed
+        Map<String, Merged> merged = new HashMap<>();
+        Set<String> nodes = new HashSet<>();
+        nodes.add(nodeId);
+        for (DailyUsage usage : repository.findByDayIn(keys)) {
+            nodes.add(usage.getNode());
+            if (!usage.getNode().equals(nodeId) || !days.containsKey(LocalDate.parse(usage.getDay()))) {
+                merged.computeIfAbsent(usage.getDay(), k -> new Merged()).add(usage);
+            }
+        }
+        for (Day day : days.values()) {
+            if (!day.date.isBefore(loadFrom) && !day.date.isAfter(to)) {
+                merged.computeIfAbsent(day.date.toString(), k -> new Merged()).add(day.toDocument(nodeId));
+            }
+        }
+
+        HyperLogLog range = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        HyperLogLog week = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        QuantileSketch delay = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+        String habitsAsOf = null;
+        QuantileSketch habitsPerUser = null;
+        List<UsageStatsResponse.Day> dayStats = new ArrayList<>();
+        for (LocalDate day = loadFrom; !day.isAfter(to); day = day.plusDays(1)) {
+            Merged m = merged.getOrDefault(day.toString(), new Merged());
+            if (day.isAfter(to.minusDays(7))) {
+                week.merge(m.active);
+            }
+            if (day.isBefore(from)) {
+                continue;
+            }
+            range.merge(m.active);
+            delay.merge(m.completionDelay);
+            if (m.habitsPerUser.count() > 0) {
+                habitsAsOf = day.toString();
+                habitsPerUser = m.habitsPerUser;
+            }
+            dayStats.add(UsageStatsResponse.Day.builder()
+                    .date(day.toString())
+                    .activeUsers(m.active.estimate())
+                    .completions(m.completions)
+                    .habitsCreated(m.habitsCreated)
+                    .build());
+        }
+
+        return UsageStatsResponse.builder()
+                .from(from.toString())
+                .to(to.toString())
+                .nodes(nodes.size())
+                .activeUsers(range.estimate())
+                .weeklyActiveUsers(week.estimate())
+                .activeUsersError(round(range.standardError(), 4))
+                .quantileError(QuantileSketch.DEFAULT_RELATIVE_ACCURACY)
+                .days(dayStats)
+                .habitsPerUser(habitsPerUser != null ? quantiles(habitsAsOf, habitsPerUser) : null)
+                .completionDelayMinutes(delay.count() > 0 ? quantiles(to.toString(), delay) : null)
+                .build();
+    }
+
+    private Day today() {
+        return days.computeIfAbsent(LocalDate.now(), Day::new);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Kept in memory and retried on the next flush
+            log.warn("Flushing usage statistics failed: {}", e.getMessage());
+            days.values().forEach(day -> day.dirty = true);
+        }
+    }
+
+    private static UsageStatsResponse.Quantiles quantiles(String asOf, QuantileSketch sketch) {
+        return UsageStatsResponse.Quantiles.builder()
+                .asOf(asOf)
+                .count(sketch.count())
+                .p50(round(sketch.quantile(0.5), 1))
+                .p90(round(sketch.quantile(0.9), 1))
+                .p99(round(sketch.quantile(0.99), 1))
+                .max(round(sketch.max(), 1))
+                .build();
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+
+    private static final class Day {
+        final LocalDate date;
+        final HyperLogLog active = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        final AtomicLong completions = new AtomicLong();
+        final AtomicLong habitsCreated = new AtomicLong();
+        final QuantileSketch habitsPerUser = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+        final QuantileSketch completionDelay = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+        volatile boolean dirty;
+
+        Day(LocalDate date) {
+            this.date = date;
+        }
+
+        void created(String userId, int habits) {
+            active.add(userId);
+            habitsCreated.addAndGet(habits);
+            dirty = true;
+        }
+
+        DailyUsage toDocument(String nodeId) {
+            DailyUsage usage = new DailyUsage();
+            usage.setId(date + ":" + nodeId);
+            usage.setDay(date.toString());
+            usage.setNode(nodeId);
+            usage.setCompletions(completions.get());
+            usage.setHabitsCreated(habitsCreated.get());
+            usage.setActiveUsers(active.toBytes());
+            usage.setHabitsPerUser(habitsPerUser.toBytes());
+            usage.setCompletionDelay(completionDelay.toBytes());
+            usage.setUpdatedAt(Instant.now());
+            return usage;
+        }
+    }
+
+    private static final class Merged {
+        final HyperLogLog active = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        final QuantileSketch habitsPerUser = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+        final QuantileSketch completionDelay = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+        long completions;
+        long habitsCreated;
+
+        void add(DailyUsage usage) {
+            active.merge(HyperLogLog.fromBytes(usage.getActiveUsers()));
+            habitsPerUser.merge(QuantileSketch.fromBytes(usage.getHabitsPerUser()));
+            completionDelay.merge(QuantileSketch.fromBytes(usage.getCompletionDelay()));
+            completions += usage.getCompletions();
+            habitsCreated += usage.getHabitsCreated();
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.habitflow.backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Index creation, the avatar migration and reminder leases need a live server; the context itself does not
+@SpringBootTest(properties = {"habitflow.startup.deferred-index-creation=false", "habitflow.avatars.migrate-inline=false",
+		"habitflow.reminders.enabled=false"})
 class HabitBackendApplicationTests {
 
 	@Test
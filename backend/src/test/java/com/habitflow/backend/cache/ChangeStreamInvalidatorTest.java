@@ -0,0 +1,88 @@
+package com.habitflow.backend.cache;
+
+import com.habitflow.backend.model.Habit;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Needs a replica set at MONGODB_URI (see scripts/mongo-replset.sh); excluded from
+ * the normal build, run with {@code mvn test -Preplset}. Writes go straight through
+ * MongoTemplate, as another node's would, so only the change stream can report them.
+ */
+@Tag("replset")
+@SpringBootTest(properties = {
+        "habitflow.invalidation.change-streams=true",
+        "habitflow.invalidation.node-id=replset-test",
+        "habitflow.invalidation.checkpoint-interval=0s"
+})
+class ChangeStreamInvalidatorTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Test
+    void writesFromAnyNodeInvalidateTheOwner() throws Exception {
+        String userId = new ObjectId().toHexString();
+        Habit habit = new Habit(userId, "Replicated");
+        habit.setCreatedAt(Instant.now());
+        // The stream opens once the application is ready; give it a moment
+        Thread.sleep(2000);
+        listener.events.clear();
+
+        mongoTemplate.insert(habit);
+        assertEquals("user:" + userId, listener.events.poll(10, TimeUnit.SECONDS));
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(habit.getId())),
+                new Update().set("logs.2024-01-01", true), Habit.class);
+        assertEquals("user:" + userId, listener.events.poll(10, TimeUnit.SECONDS));
+
+        // Named through the pre-image, not a flush of everything
+        mongoTemplate.remove(habit);
+        assertEquals("user:" + userId, listener.events.poll(10, TimeUnit.SECONDS));
+
+        assertEquals(1, mongoTemplate.getDb().getCollection(ChangeStreamInvalidator.CHECKPOINTS)
+                .countDocuments(new Document("_id", "replset-test")));
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener implements CacheInvalidationListener {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void invalidateUser(String userId) {
+            events.add("user:" + userId);
+        }
+
+        @Override
+        public void invalidateAll() {
+            events.add("all");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.habitflow.backend.cache;
+
+import com.habitflow.backend.trace.QueryTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientReadsTest {
+
+    private static final String USER = "stall@example.com";
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    // 50ms deadline, 30ms counts as slow, opens when half of at least 2 calls were bad
+    private final ResilientReads reads = new ResilientReads(meters, true, Duration.ofMillis(50),
+            Duration.ofMillis(200), Duration.ofMillis(30), 4, 2, 50, Duration.ofMillis(300), 4, 100);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        reads.stop();
+    }
+
+    @Test
+    void stalledReadServesLastGoodValueWithinDeadline() throws Exception {
+        assertEquals("v1", reads.read("habits", USER, () -> "v1").value());
+
+        long start = System.nanoTime();
+        ReadResult<String> result = reads.read("habits", USER, this::stalled);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result.stale());
+        assertEquals("v1", result.value());
+        assertTrue(waitedMillis < 1000, "waited " + waitedMillis + "ms");
+        assertEquals(1, count("habitflow.resilience.stale-serves", "timeout"));
+
+        // The overrunning read finishes in the background and becomes the value to fall back on
+        release.countDown();
+        assertEquals("v2", awaitStale("habits"));
+    }
+
+    @Test
+    void openBreakerSkipsTheDatabaseUntilTheProbeSucceeds() throws Exception {
+        reads.read("analytics", USER, () -> "v1");
+        reads.read("analytics", USER, this::stalled);
+        assertEquals(1, loads.get());
+
+        ReadResult<String> served = reads.read("analytics", USER, this::stalled);
+        assertTrue(served.stale());
+        assertEquals(1, loads.get(), "no database call while open");
+        assertEquals(1, count("habitflow.resilience.stale-serves", "open"));
+
+        DatabaseUnavailableException e = assertThrows(DatabaseUnavailableException.class,
+                () -> reads.read("analytics", "nobody@example.com", () -> "never"));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(1, breakerState("analytics"));
+        // Other endpoints keep reading from the database
+        assertEquals("t1", reads.read("templates", USER, () -> "t1").value());
+        assertEquals(0, breakerState("templates"));
+
+        release.countDown();
+        Thread.sleep(350);
+        ReadResult<String> probe = reads.read("analytics", USER, () -> "v3");
+        assertFalse(probe.stale());
+        assertEquals("v3", probe.value());
+        assertEquals(0, breakerState("analytics"));
+    }
+
+    @Test
+    void slowComputationOnAQuickReadDoesNotOpenTheBreaker() {
+        // Quick database command, then 250ms of work on top: past the deadline, slow-call and max-wait
+        Supplier<String> heavy = () -> {
+            QueryTrace.asOne("find", "habits", () -> null);
+            sleep(250);
+            return "computed";
+        };
+        ReadResult<String> first = reads.read("analytics", USER, heavy);
+        assertFalse(first.stale());
+        assertEquals("computed", first.value());
+
+        // With a value to fall back on the caller still gets it at the deadline, without blaming the database
+        for (int i = 0; i < 4; i++) {
+            assertEquals("computed", reads.read("analytics", USER, heavy).value());
+        }
+        sleep(300);
+        assertEquals(0, breakerState("analytics"));
+        assertEquals(0, count("habitflow.resilience.stale-serves", "timeout"));
+        assertTrue(count("habitflow.resilience.stale-serves", "slow") > 0);
+        assertEquals("fresh", reads.read("analytics", USER, () -> "fresh").value());
+    }
+
+    @Test
+    void ownErrorsPropagateWithoutFallback() {
+        reads.read("templates", USER, () -> "v1");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> reads.read("templates", USER, () -> {
+                    throw new IllegalArgumentException("bad input");
+                }));
+        assertEquals("bad input", e.getMessage());
+        assertThrows(DatabaseUnavailableException.class, () -> reads.read("templates", "new@example.com", () -> {
+            throw new DataAccessResourceFailureException("down");
+        }));
+    }
+
+    // A database command that does not come back until released
+    private String stalled() {
+        loads.incrementAndGet();
+        return QueryTrace.asOne("find", "habits", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "v2";
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double breakerState(String endpoint) {
+        return meters.get("habitflow.resilience.breaker.state").tag("endpoint", endpoint).gauge().value();
+    }
+
+    private String awaitStale(String endpoint) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String value;
+        do {
+            Thread.sleep(5);
+            value = reads.<String>read(endpoint, USER, () -> {
+                throw new DataAccessResourceFailureException("primary stepped down");
+            }).value();
+        } while (!"v2".equals(value) && System.nanoTime() < deadline);
+        return value;
+    }
+
+    private double count(String name, String reason) {
+        var counter = meters.find(name).tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
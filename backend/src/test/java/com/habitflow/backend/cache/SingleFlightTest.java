@@ -0,0 +1,185 @@
+package com.habitflow.backend.cache;
+
+import com.habitflow.backend.dto.AnalyticsResponse;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.AnalyticsSnapshotRepository;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import com.habitflow.backend.service.AnalyticsService;
+import com.habitflow.backend.service.AnalyticsSnapshotService;
+import com.habitflow.backend.service.CompletionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+    private static final String USER_ID = "64b7f0c2a1b2c3d4e5f60718";
+    private static final String EMAIL = "burst@example.com";
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final UserDataVersions versions = new UserDataVersions();
+    private final SingleFlight singleFlight = new SingleFlight(versions, meters, Duration.ofSeconds(5));
+    private final ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+
+    private final HabitRepository habitRepository = mock(HabitRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AtomicInteger scans = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(USER_ID);
+        user.setEmail(EMAIL);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        Habit habit = new Habit(USER_ID, "Read");
+        habit.setId("64b7f0c2a1b2c3d4e5f60719");
+        habit.setCreatedAt(Instant.now().minus(Duration.ofDays(10)));
+        habit.getLogs().put(LocalDate.now().toString(), true);
+        when(habitRepository.findByUserId(anyString())).thenAnswer(invocation -> {
+            scans.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return new ArrayList<>(List.of(habit));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void burstOfAnalyticsRequestsScansOnce() throws Exception {
+        AnalyticsSnapshotService snapshots = new AnalyticsSnapshotService(
+                mock(AnalyticsSnapshotRepository.class), habitRepository);
+        AnalyticsService analytics = new AnalyticsService(habitRepository, userRepository, singleFlight, snapshots,
+                mock(CompletionIndex.class), new ResilientReads(meters, false, Duration.ofMillis(500),
+                        Duration.ofSeconds(3), Duration.ofMillis(300), 20, 10, 50, Duration.ofSeconds(10), 4, 100));
+
+        List<Future<AnalyticsResponse>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> analytics.getAnalytics(EMAIL).value()));
+        }
+        awaitCoalesced("analytics", CALLERS - 1);
+        release.countDown();
+
+        AnalyticsResponse first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<AnalyticsResponse> result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, scans.get());
+        assertEquals(1, count("executions", "analytics"));
+        assertEquals(CALLERS - 1, count("coalesced", "analytics"));
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(pool.submit(() -> singleFlight.execute("habits", USER_ID, () -> {
+                scans.incrementAndGet();
+                awaitRelease();
+                throw new IllegalStateException("mongo down");
+            })));
+        }
+        awaitCoalesced("habits", CALLERS - 1);
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("mongo down", e.getCause().getMessage());
+        }
+        assertEquals(1, scans.get());
+        assertEquals(1, count("failures", "habits"));
+    }
+
+    @Test
+    void writeDuringFlightStartsAFreshComputation() throws Exception {
+        Future<Object> before = pool.submit(() -> singleFlight.execute("habits", USER_ID, () -> {
+            scans.incrementAndGet();
+            awaitRelease();
+            return "before";
+        }));
+        while (scans.get() == 0) {
+            Thread.onSpinWait();
+        }
+
+        versions.invalidateUser(USER_ID);
+        Object after = singleFlight.execute("habits", USER_ID, () -> {
+            scans.incrementAndGet();
+            return "after";
+        });
+        release.countDown();
+
+        assertEquals("after", after);
+        assertEquals("before", before.get(5, TimeUnit.SECONDS));
+        assertEquals(2, scans.get());
+    }
+
+    @Test
+    void waitersGiveUpAfterTimeout() throws Exception {
+        SingleFlight impatient = new SingleFlight(versions, meters, Duration.ofMillis(50));
+        Future<Object> leader = pool.submit(() -> impatient.execute("habits", USER_ID, () -> {
+            scans.incrementAndGet();
+            awaitRelease();
+            return "done";
+        }));
+        while (scans.get() == 0) {
+            Thread.onSpinWait();
+        }
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> impatient.execute("habits", USER_ID, () -> "never"));
+        assertEquals("Timed out waiting for habits", e.getMessage());
+        release.countDown();
+        assertEquals("done", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1, count("timeouts", "habits"));
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitCoalesced(String endpoint, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("coalesced", endpoint) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private double count(String outcome, String endpoint) {
+        var counter = meters.find("habitflow.singleflight." + outcome).tag("endpoint", endpoint).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
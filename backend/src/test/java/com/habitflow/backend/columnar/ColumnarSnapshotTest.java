@@ -0,0 +1,145 @@
+package com.habitflow.backend.columnar;
+
+import com.habitflow.backend.cache.DatabaseUnavailableException;
+import com.habitflow.backend.cache.ResilientReads;
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.AnalyticsResponse;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.AnalyticsSnapshotRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryUserRepository;
+import com.habitflow.backend.service.AnalyticsService;
+import com.habitflow.backend.service.AnalyticsSnapshotService;
+import com.habitflow.backend.service.CompletionIndex;
+import com.habitflow.backend.service.MappedAnalyticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class ColumnarSnapshotTest {
+
+    private static final int USERS = 40;
+
+    @TempDir
+    Path dir;
+
+    private final LocalDate today = LocalDate.now();
+    private final List<String> emails = new ArrayList<>();
+    private InMemoryUserRepository userRepository;
+    private InMemoryHabitRepository habitRepository;
+    private AnalyticsService live;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        userRepository = new InMemoryUserRepository(converter);
+        habitRepository = new InMemoryHabitRepository(converter);
+
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        UserDataVersions versions = new UserDataVersions();
+        SingleFlight singleFlight = new SingleFlight(versions, meters, Duration.ofSeconds(5));
+        live = new AnalyticsService(habitRepository, userRepository, singleFlight,
+                new AnalyticsSnapshotService(mock(AnalyticsSnapshotRepository.class), habitRepository),
+                new CompletionIndex(habitRepository, versions, singleFlight, 100),
+                new ResilientReads(meters, false, Duration.ofMillis(500), Duration.ofSeconds(3),
+                        Duration.ofMillis(300), 20, 10, 50, Duration.ofSeconds(10), 4, 100));
+
+        Random random = new Random(49);
+        for (int u = 0; u < USERS; u++) {
+            String email = "columnar" + u + "@example.com";
+            String userId = userRepository.save(new User(email, "secret")).getId();
+            emails.add(email);
+            for (int h = 0; h < u % 4; h++) {
+                Habit habit = new Habit(userId, "Habit " + u + "." + h);
+                LocalDate createdOn = today.minusDays(random.nextInt(300));
+                habit.setCreatedAt(createdOn.atStartOfDay(ZoneId.systemDefault()).toInstant());
+                // A streak up to today for some, gaps, an unticked day, a day before creation, tomorrow
+                int streak = random.nextInt(40);
+                for (int d = 0; d < 300; d++) {
+                    if (d <= streak || random.nextInt(3) == 0) {
+                        habit.getLogs().put(today.minusDays(d).toString(), d != 5);
+                    }
+                }
+                habit.getLogs().put(createdOn.minusDays(3).toString(), true);
+                if (h == 1) {
+                    habit.getLogs().put(today.plusDays(1).toString(), true);
+                }
+                habitRepository.save(habit);
+            }
+        }
+    }
+
+    @Test
+    void mappedSnapshotAnswersLikeTheLiveService() {
+        MappedAnalyticsService mapped = new MappedAnalyticsService(dir.resolve("analytics.col"), Duration.ofSeconds(30));
+        assertThrows(DatabaseUnavailableException.class, () -> mapped.getAnalytics(emails.get(0)));
+
+        exporter().export();
+        mapped.reload();
+
+        for (String email : emails) {
+            assertEquals(live.getAnalytics(email).value(), mapped.getAnalytics(email).value(), email);
+            for (int[] range : new int[][] {{0, 0}, {6, 0}, {29, 0}, {64, 1}, {400, 0}, {130, 70}, {10, -30}}) {
+                LocalDate from = today.minusDays(range[0]);
+                LocalDate to = today.minusDays(range[1]);
+                assertEquals(live.getRangeAnalytics(email, from, to), mapped.getRangeAnalytics(email, from, to),
+                        email + " " + from + ".." + to);
+            }
+        }
+        AnalyticsResponse stranger = mapped.getAnalytics("signed-up-later@example.com").value();
+        assertEquals("No data yet", stranger.getMostCompletedHabit());
+    }
+
+    @Test
+    void newExportIsSwappedIn() throws Exception {
+        Path path = dir.resolve("analytics.col");
+        MappedAnalyticsService mapped = new MappedAnalyticsService(path, Duration.ofSeconds(30));
+        exporter().export();
+        mapped.reload();
+        String email = emails.get(3);
+        int before = mapped.getAnalytics(email).value().getTotalCompleted();
+
+        Habit habit = habitRepository.findByUserId(userRepository.findByEmail(email).orElseThrow().getId()).get(0);
+        habit.getLogs().put(today.minusDays(350).toString(), true);
+        habitRepository.save(habit);
+        // Not visible until the next export
+        assertEquals(before, mapped.getAnalytics(email).value().getTotalCompleted());
+
+        Thread.sleep(5);
+        exporter().export();
+        mapped.reload();
+        assertEquals(before + 1, mapped.getAnalytics(email).value().getTotalCompleted());
+        assertEquals(USERS, ColumnarSnapshot.open(path).userCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ColumnarSnapshotExporter exporter() {
+        return new ColumnarSnapshotExporter(userRepository, habitRepository, mock(ObjectProvider.class),
+                dir.resolve("analytics.col"), Duration.ofMinutes(15), 7);
+    }
+}
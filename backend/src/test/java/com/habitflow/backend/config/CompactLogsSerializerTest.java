@@ -0,0 +1,83 @@
+package com.habitflow.backend.config;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitArchive;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactLogsSerializerTest {
+
+    private static final LocalDate START = LocalDate.of(2023, 12, 20);
+
+    @Test
+    void archivedDaysOverriddenAsNotDoneSurviveTheRoundTripWithoutTheArchive() {
+        Habit habit = new Habit("user", "Read");
+        byte[] year = new byte[HabitArchive.YEAR_BYTES];
+        for (int day = 1; day <= 20; day++) {
+            HabitArchive.set(year, day, true);
+        }
+        habit.setArchive(new HashMap<>(Map.of("2024", year)));
+        // Un-ticked after archiving: these must stay not done
+        habit.getLogs().put("2024-01-03", false);
+        habit.getLogs().put("2024-01-15", false);
+        habit.getLogs().put("2024-01-25", true);
+        habit.getLogs().put("2023-12-24", true);
+        habit.getLogs().put("2024-02-01", false);
+
+        for (ObjectMapper mapper : List.of(WireFormatConfig.compactCborMapper(), WireFormatConfig.compactSmileMapper())) {
+            JsonNode node = mapper.readTree(mapper.writeValueAsBytes(habit));
+            // The calendar decodes the archive; lists only carry the logs that override it
+            assertFalse(node.has("archive"));
+            Habit decoded = decode(node);
+            assertEquals(habit.getLogs(), decoded.getLogs());
+            for (LocalDate date = START; date.isBefore(START.plusDays(60)); date = date.plusDays(1)) {
+                String day = date.toString();
+                if (habit.getLogs().containsKey(day)) {
+                    assertEquals(habit.isDone(day), decoded.isDone(day), day);
+                }
+            }
+        }
+    }
+
+    @Test
+    void logsWithoutFalseEntriesHaveNoUndoneMask() {
+        Habit habit = new Habit("user", "Run");
+        habit.getLogs().put("2024-03-01", true);
+        ObjectMapper cbor = WireFormatConfig.compactCborMapper();
+        JsonNode logs = cbor.readTree(cbor.writeValueAsBytes(habit)).get("logs");
+        assertTrue(logs.has("days"));
+        assertFalse(logs.has("undone"));
+    }
+
+    // What a client does with the compact encoding
+    private static Habit decode(JsonNode node) {
+        Habit habit = new Habit("user", node.get("title").asString());
+        JsonNode logs = node.get("logs");
+        LocalDate from = LocalDate.parse(logs.get("from").asString());
+        readMask(logs.get("days"), from, true, habit.getLogs());
+        readMask(logs.get("undone"), from, false, habit.getLogs());
+        return habit;
+    }
+
+    private static void readMask(JsonNode mask, LocalDate from, boolean value, Map<String, Boolean> logs) {
+        if (mask == null) {
+            return;
+        }
+        byte[] bits = mask.binaryValue();
+        for (int i = 0; i < bits.length * 8; i++) {
+            if ((bits[i >> 3] & (1 << (i & 7))) != 0) {
+                logs.put(from.plusDays(i).toString(), value);
+            }
+        }
+    }
+}
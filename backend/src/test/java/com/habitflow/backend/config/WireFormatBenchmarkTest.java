@@ -0,0 +1,109 @@
+package com.habitflow.backend.config;
+
+import com.habitflow.backend.model.Habit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Payload size and serialization CPU of GET /api/habits for a large account in each
+ * wire format. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class WireFormatBenchmarkTest {
+
+    private static final int HABITS = 200;
+    private static final int DAYS = 3 * 365;
+    private static final int ITERATIONS = 50;
+
+    @Test
+    void reportSizeAndCpu() throws IOException {
+        List<Habit> habits = largeAccount();
+        ObjectMapper json = JsonMapper.builder().build();
+        ObjectMapper cbor = WireFormatConfig.compactCborMapper();
+        ObjectMapper smile = WireFormatConfig.compactSmileMapper();
+
+        System.out.printf("%d habits x %d days%n", HABITS, DAYS);
+        System.out.printf("%-14s %12s %14s%n", "format", "bytes", "cpu ms/op");
+        report("json", habits, json, false);
+        report("json+gzip", habits, json, true);
+        report("cbor", habits, cbor, false);
+        report("smile", habits, smile, false);
+
+        // The bitmask must carry exactly the completed days
+        JsonNode decoded = cbor.readTree(cbor.writeValueAsBytes(habits.get(0)));
+        LocalDate from = LocalDate.parse(decoded.get("logs").get("from").asString());
+        byte[] days = decoded.get("logs").get("days").binaryValue();
+        long done = habits.get(0).getLogs().values().stream().filter(v -> v).count();
+        int bits = 0;
+        for (int i = 0; i < days.length * 8; i++) {
+            if ((days[i >> 3] & (1 << (i & 7))) != 0) {
+                bits++;
+                assertEquals(Boolean.TRUE, habits.get(0).getLogs().get(from.plusDays(i).toString()));
+            }
+        }
+        assertEquals(done, bits);
+    }
+
+    private void report(String name, List<Habit> habits, ObjectMapper mapper, boolean gzip) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int size = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            size = encode(habits, mapper, gzip).length;
+        }
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encode(habits, mapper, gzip);
+        }
+        double cpuMillis = (threads.getCurrentThreadCpuTime() - start) / 1e6 / ITERATIONS;
+        System.out.printf("%-14s %12d %14.2f%n", name, size, cpuMillis);
+    }
+
+    private byte[] encode(List<Habit> habits, ObjectMapper mapper, boolean gzip) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(habits);
+        if (!gzip) {
+            return bytes;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private List<Habit> largeAccount() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<Habit> habits = new ArrayList<>();
+        for (int h = 0; h < HABITS; h++) {
+            Habit habit = new Habit("64b7f0c2a1b2c3d4e5f60718", "Habit number " + h);
+            habit.setId(String.format("64b7f0c2a1b2c3d4e5f6%04x", h));
+            habit.setCreatedAt(Instant.now().minusSeconds(DAYS * 86_400L));
+            for (int d = 0; d < DAYS; d++) {
+                double roll = random.nextDouble();
+                if (roll < 0.7) {
+                    habit.getLogs().put(today.minusDays(d).toString(), true);
+                } else if (roll < 0.75) {
+                    habit.getLogs().put(today.minusDays(d).toString(), false);
+                }
+            }
+            habits.add(habit);
+        }
+        return habits;
+    }
+}
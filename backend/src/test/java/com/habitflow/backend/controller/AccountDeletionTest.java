@@ -0,0 +1,110 @@
+package com.habitflow.backend.controller;
+
+import com.habitflow.backend.model.HabitReminder;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.HabitTemplateRepository;
+import com.habitflow.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest
+@AutoConfigureMockMvc
+class AccountDeletionTest {
+
+    private static final Set<Integer> ALL_SHARDS = IntStream.range(0, HabitReminder.SHARDS).boxed()
+            .collect(Collectors.toSet());
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HabitRepository habitRepository;
+
+    @Autowired
+    private HabitTemplateRepository templateRepository;
+
+    @Test
+    void deletedAccountLeavesNoHabitsTemplatesOrDueReminders() throws Exception {
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        String token = login(email);
+        String userId = userRepository.findByEmail(email).orElseThrow().getId();
+        String habitId = createHabitWithReminder(token);
+        mvc.perform(post("/api/templates").header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Morning\",\"habitTitles\":[\"Read\"]}"))
+                .andExpect(status().isOk());
+        assertTrue(isDue(habitId));
+
+        mvc.perform(delete("/api/users/me").header("Authorization", "Bearer " + token)).andExpect(status().isOk());
+
+        assertEquals(0, habitRepository.findByUserId(userId).size());
+        assertEquals(0, templateRepository.findByUserId(userId).size());
+        assertFalse(isDue(habitId));
+    }
+
+    @Test
+    void deletingTheDataKeepsTheAccount() throws Exception {
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        String token = login(email);
+        String habitId = createHabitWithReminder(token);
+
+        mvc.perform(delete("/api/users/me/data").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        assertFalse(isDue(habitId));
+        assertTrue(userRepository.findByEmail(email).isPresent());
+    }
+
+    private boolean isDue(String habitId) {
+        return habitRepository.findDueReminders(ALL_SHARDS, Instant.now().plus(2, ChronoUnit.DAYS), 100_000).stream()
+                .anyMatch(habit -> habit.getId().equals(habitId));
+    }
+
+    private String createHabitWithReminder(String token) throws Exception {
+        String habitId = json.readTree(mvc.perform(post("/api/habits").header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Read\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asString();
+        mvc.perform(put("/api/habits/" + habitId + "/reminder").header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"time\":\"07:30\",\"zone\":\"UTC\"}"))
+                .andExpect(status().isOk());
+        return habitId;
+    }
+
+    private String login(String email) throws Exception {
+        String credentials = "{\"email\":\"" + email + "\",\"password\":\"password1\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk());
+        return json.readTree(mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content(credentials))
+                .andReturn().getResponse().getContentAsString()).get("token").asString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.habitflow.backend.controller;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest(properties = "habitflow.admin.emails=jfr-admin@example.com,usage-admin@example.com")
+@AutoConfigureMockMvc
+class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Test
+    void onlyAdminsMayRecord() throws Exception {
+        String token = login("user-" + UUID.randomUUID() + "@example.com");
+        mvc.perform(get("/api/admin/jfr").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mvc.perform(post("/api/admin/jfr")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void recordingCapturesHotPathEvents() throws Exception {
+        String admin = "Bearer " + login("jfr-admin@example.com");
+        long id = json.readTree(mvc.perform(post("/api/admin/jfr").param("duration", "PT1M")
+                        .header("Authorization", admin))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+
+        String habitId = json.readTree(mvc.perform(post("/api/habits").header("Authorization", admin)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Profile me\"}"))
+                .andReturn().getResponse().getContentAsString()).get("id").asString();
+        mvc.perform(post("/api/habits/" + habitId + "/toggle").param("date", LocalDate.now().toString())
+                .header("Authorization", admin)).andExpect(status().isOk());
+        mvc.perform(get("/api/analytics").header("Authorization", admin)).andExpect(status().isOk());
+
+        mvc.perform(post("/api/admin/jfr/" + id + "/stop").header("Authorization", admin))
+                .andExpect(status().isOk());
+        byte[] recording = mvc.perform(get("/api/admin/jfr/" + id).header("Authorization", admin))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        mvc.perform(delete("/api/admin/jfr/" + id).header("Authorization", admin)).andExpect(status().isOk());
+
+        Path file = Files.createTempFile("admin-test-", ".jfr");
+        Set<String> seen = new HashSet<>();
+        try {
+            Files.write(file, recording);
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                seen.add(event.getEventType().getName());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        for (String name : Set.of("habitflow.Toggle", "habitflow.JwtVerification", "habitflow.RepositoryCall",
+                "habitflow.AnalyticsPhase")) {
+            assertTrue(seen.contains(name), name + " missing");
+        }
+    }
+
+    @Test
+    void usageCountsThisNodesActivity() throws Exception {
+        String admin = "Bearer " + login("usage-admin@example.com");
+        String user = "Bearer " + login("user-" + UUID.randomUUID() + "@example.com");
+        String habitId = json.readTree(mvc.perform(post("/api/habits").header("Authorization", user)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Count me\"}"))
+                .andReturn().getResponse().getContentAsString()).get("id").asString();
+        mvc.perform(post("/api/habits/" + habitId + "/toggle").param("date", LocalDate.now().toString())
+                .header("Authorization", user)).andExpect(status().isOk());
+
+        JsonNode usage = json.readTree(mvc.perform(get("/api/admin/usage").param("days", "1")
+                        .header("Authorization", admin))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        JsonNode today = usage.get("days").get(0);
+        assertEquals(LocalDate.now().toString(), today.get("date").asString());
+        assertTrue(today.get("activeUsers").asLong() >= 1);
+        assertTrue(today.get("completions").asLong() >= 1);
+        assertTrue(today.get("habitsCreated").asLong() >= 1);
+        assertTrue(usage.get("completionDelayMinutes").get("count").asLong() >= 1);
+
+        mvc.perform(get("/api/admin/usage").param("days", "0").header("Authorization", admin))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String login(String email) throws Exception {
+        String credentials = "{\"email\":\"" + email + "\",\"password\":\"password1\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(credentials));
+        return json.readTree(mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content(credentials)).andReturn().getResponse().getContentAsString()).get("token").asString();
+    }
+}
@@ -0,0 +1,265 @@
+package com.habitflow.backend.controller;
+
+import com.habitflow.backend.dto.PageCursor;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitArchive;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import com.habitflow.backend.trace.QueryTrace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest
+@AutoConfigureMockMvc
+class HabitControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Autowired
+    private HabitRepository habitRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String email;
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        email = "habits-" + UUID.randomUUID() + "@example.com";
+        String credentials = "{\"email\":\"" + email + "\",\"password\":\"password1\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk());
+        token = json.readTree(mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content(credentials)).andReturn().getResponse().getContentAsString()).get("token").asString();
+    }
+
+    @Test
+    void emptyTitlesAreRejected() throws Exception {
+        create("   ").andExpect(status().isBadRequest())
+                .andExpect(content().string("Habit title cannot be empty"));
+        String id = createdId("Read");
+        perform(put("/api/habits/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Habit title cannot be empty"));
+    }
+
+    @Test
+    void titlesDifferingOnlyInCaseOrSpacingAreDuplicates() throws Exception {
+        createdId("Morning  run");
+        create(" morning RUN").andExpect(status().isBadRequest())
+                .andExpect(content().string("You already have a habit called \"morning RUN\""));
+
+        String id = createdId("Read");
+        perform(put("/api/habits/" + id).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"MORNING RUN\"}"))
+                .andExpect(status().isBadRequest());
+        // Its own case may change
+        perform(put("/api/habits/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"READ\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void uniqueTitleKeyCatchesWhatTheTitleIndexMissed() throws Exception {
+        String id = createdId("Read");
+        // Written behind this node's back, as another node would
+        String userId = userRepository.findByEmail(email).orElseThrow().getId();
+        habitRepository.save(new Habit(userId, "Walk"));
+
+        create("  WALK ").andExpect(status().isBadRequest())
+                .andExpect(content().string("You already have a habit called \"WALK\""));
+        perform(put("/api/habits/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"walk\"}"))
+                .andExpect(status().isBadRequest());
+        assertEquals(2, habitRepository.findByUserId(userId).size());
+    }
+
+    @Test
+    void archiveIsServedThroughTheCalendarOnly() throws Exception {
+        Habit habit = habitRepository.findById(createdId("Read")).orElseThrow();
+        byte[] year = new byte[HabitArchive.YEAR_BYTES];
+        HabitArchive.set(year, LocalDate.of(2022, 3, 5).getDayOfYear(), true);
+        habit.setArchive(new HashMap<>(Map.of("2022", year)));
+        habit.setCreatedAt(Instant.parse("2021-06-01T00:00:00Z"));
+        habitRepository.save(habit);
+
+        JsonNode list = json.readTree(perform(get("/api/habits")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertFalse(list.get(0).has("archive"));
+
+        JsonNode month = json.readTree(perform(get("/api/habits/calendar").param("month", "2022-03")
+                .param("habits", "true")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals(1 << 4, month.get("habits").get(0).get("mask").asInt());
+    }
+
+    @Test
+    void calendarMonthCombinesLogsWithThatYearsArchive() throws Exception {
+        Habit read = habitRepository.findById(createdId("Read")).orElseThrow();
+        read.setCreatedAt(Instant.parse("2021-06-01T12:00:00Z"));
+        read.getLogs().putAll(Map.of("2023-01-02", true, "2023-01-03", false, "2023-02-01", true));
+        byte[] archived2023 = new byte[HabitArchive.YEAR_BYTES];
+        HabitArchive.set(archived2023, 3, true); // overridden by the false entry in logs
+        HabitArchive.set(archived2023, 4, true);
+        byte[] archived2022 = new byte[HabitArchive.YEAR_BYTES];
+        HabitArchive.set(archived2022, 5, true);
+        read.setArchive(new HashMap<>(Map.of("2023", archived2023, "2022", archived2022)));
+        habitRepository.save(read);
+        Habit walk = habitRepository.findById(createdId("Walk")).orElseThrow();
+        walk.setCreatedAt(Instant.parse("2023-01-15T12:00:00Z"));
+        walk.getLogs().put("2023-01-20", true);
+        habitRepository.save(walk);
+
+        JsonNode month = json.readTree(perform(get("/api/habits/calendar").param("month", "2023-01")
+                .param("habits", "true")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+        JsonNode days = month.get("days");
+        assertEquals(31, days.size());
+        int[] completed = new int[31];
+        for (int d = 0; d < 31; d++) {
+            completed[d] = days.get(d).get("completed").asInt();
+            assertEquals(d < 14 ? 1 : 2, days.get(d).get("active").asInt(), "active on day " + (d + 1));
+        }
+        int[] expected = new int[31];
+        expected[1] = 1;
+        expected[3] = 1;
+        expected[19] = 1;
+        assertArrayEquals(expected, completed);
+        Map<String, Integer> masks = new HashMap<>();
+        month.get("habits").forEach(habit -> masks.put(habit.get("title").asString(), habit.get("mask").asInt()));
+        assertEquals(Map.of("Read", 1 << 1 | 1 << 3, "Walk", 1 << 19), masks);
+    }
+
+    @Test
+    void unchangedMonthIsNotModifiedWithoutReadingIt() throws Exception {
+        String id = createdId("Read");
+        String month = YearMonth.now().toString();
+        String etag = perform(get("/api/habits/calendar").param("month", month)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        QueryTrace trace = QueryTrace.start();
+        try {
+            perform(get("/api/habits/calendar").param("month", month).header("If-None-Match", etag))
+                    .andExpect(status().isNotModified());
+        } finally {
+            trace.end();
+        }
+        assertFalse(trace.breakdown().contains("habits"), trace.breakdown());
+        // The same month with the habits is another representation
+        perform(get("/api/habits/calendar").param("month", month).param("habits", "true")
+                .header("If-None-Match", etag)).andExpect(status().isOk());
+
+        perform(post("/api/habits/" + id + "/toggle").param("date", LocalDate.now().toString()))
+                .andExpect(status().isOk());
+        String changed = perform(get("/api/habits/calendar").param("month", month).header("If-None-Match", etag))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    void defaultCallReturnsThePlainList() throws Exception {
+        createdId("Read");
+        createdId("Walk");
+        JsonNode list = json.readTree(perform(get("/api/habits")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertTrue(list.isArray());
+        assertEquals(2, list.size());
+        assertTrue(list.get(0).has("logs"));
+    }
+
+    @Test
+    void pagesWalkEveryHabitOnceAndTheLastHasNoCursor() throws Exception {
+        List<String> created = new ArrayList<>();
+        for (String title : List.of("Read", "Walk", "Run", "Stretch", "Write")) {
+            created.add(createdId(title));
+        }
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/habits").param("limit", "2")
+                    .param("includeLogs", "false");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = json.readTree(perform(request).andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            JsonNode items = page.get("items");
+            for (JsonNode item : items) {
+                assertFalse(item.has("logs"));
+                seen.add(item.get("id").asString());
+            }
+            cursor = page.path("next").isNull() || page.path("next").isMissingNode() ? null : page.get("next").asString();
+            if (cursor != null) {
+                // The cursor is the last id of the page
+                assertEquals(items.get(items.size() - 1).get("id").asString(), PageCursor.decode(cursor).toHexString());
+            }
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(created, seen);
+        // A page that ends exactly at the last habit has no next cursor either
+        JsonNode exact = json.readTree(perform(get("/api/habits").param("limit", "5")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        assertEquals(5, exact.get("items").size());
+        assertTrue(exact.get("next").isNull());
+        assertTrue(exact.get("items").get(0).has("logs"));
+    }
+
+    @Test
+    void badPageParametersAreRejected() throws Exception {
+        perform(get("/api/habits").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor"));
+        perform(get("/api/habits").param("limit", "0")).andExpect(status().isBadRequest())
+                .andExpect(content().string("Limit must be positive"));
+    }
+
+    private ResultActions create(String title) throws Exception {
+        return perform(post("/api/habits").contentType(MediaType.APPLICATION_JSON)
+                .content(json.writeValueAsString(Map.of("title", title))));
+    }
+
+    private String createdId(String title) throws Exception {
+        return json.readTree(create(title).andExpect(status().isOk()).andReturn().getResponse()
+                .getContentAsString()).get("id").asString();
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mvc.perform(request.header("Authorization", "Bearer " + token));
+    }
+}
@@ -0,0 +1,137 @@
+package com.habitflow.backend.controller;
+
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.repository.HabitRepository;
+import com.habitflow.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bytes per response for the write and profile endpoints, against what serializing
+ * the entity - as they used to - would have cost, for a habit with two years of
+ * history.
+ */
+@ActiveProfiles("inmemory")
+@SpringBootTest
+@AutoConfigureMockMvc
+class ResponseSizeTest {
+
+    private static final int HISTORY_DAYS = 2 * 365;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Autowired
+    private HabitRepository habitRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String email;
+    private String token;
+    private String habitId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        email = "size-" + UUID.randomUUID() + "@example.com";
+        String credentials = "{\"email\":\"" + email + "\",\"password\":\"password1\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk());
+        token = json.readTree(mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content(credentials)).andReturn().getResponse().getContentAsString()).get("token").asString();
+
+        JsonNode created = json.readTree(body(post("/api/habits").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Read\"}")));
+        habitId = created.get("id").asString();
+        Habit habit = habitRepository.findById(habitId).orElseThrow();
+        LocalDate today = LocalDate.now();
+        for (int day = 1; day <= HISTORY_DAYS; day++) {
+            habit.getLogs().put(today.minusDays(day).toString(), day % 3 != 0);
+        }
+        habitRepository.save(habit);
+    }
+
+    @Test
+    void profileCarriesNoSecrets() throws Exception {
+        byte[] before = json.writeValueAsBytes(userRepository.findByEmail(email).orElseThrow());
+        String after = body(get("/api/users/me"));
+
+        assertNotLarger("GET /api/users/me", before.length, after);
+        assertFalse(after.contains("password"));
+        assertEquals(email, json.readTree(after).get("email").asString());
+    }
+
+    @Test
+    void createReturnsSummary() throws Exception {
+        String after = body(post("/api/habits").contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Walk\"}"));
+        String id = json.readTree(after).get("id").asString();
+        byte[] before = json.writeValueAsBytes(habitRepository.findById(id).orElseThrow());
+
+        assertNotLarger("POST /api/habits", before.length, after);
+        assertFalse(after.contains("logs"));
+    }
+
+    @Test
+    void toggleReturnsOnlyTheDay() throws Exception {
+        String today = LocalDate.now().toString();
+        String after = body(post("/api/habits/" + habitId + "/toggle").param("date", today));
+        byte[] before = json.writeValueAsBytes(habitRepository.findById(habitId).orElseThrow());
+
+        assertNotLarger("POST /api/habits/{id}/toggle", before.length, after);
+        JsonNode result = json.readTree(after);
+        assertEquals(habitId, result.get("habitId").asString());
+        assertEquals(today, result.get("date").asString());
+        assertTrue(result.get("value").asBoolean());
+        assertTrue(after.length() < 100, after);
+        // The rest of the history is untouched by the projected write
+        assertEquals(HISTORY_DAYS + 1, habitRepository.findById(habitId).orElseThrow().getLogs().size());
+    }
+
+    @Test
+    void renameReturnsSummary() throws Exception {
+        String after = body(put("/api/habits/" + habitId).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Read more\"}"));
+        Habit renamed = habitRepository.findById(habitId).orElseThrow();
+        byte[] before = json.writeValueAsBytes(renamed);
+
+        assertNotLarger("PUT /api/habits/{id}", before.length, after);
+        assertEquals("Read more", json.readTree(after).get("title").asString());
+        assertEquals("Read more", renamed.getTitle());
+        assertEquals(HISTORY_DAYS, renamed.getLogs().size());
+    }
+
+    private String body(MockHttpServletRequestBuilder request) throws Exception {
+        return mvc.perform(request.header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private static void assertNotLarger(String endpoint, int before, String after) {
+        int bytes = after.getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(bytes <= before, endpoint + " grew from " + before + " to " + bytes + " bytes");
+    }
+}
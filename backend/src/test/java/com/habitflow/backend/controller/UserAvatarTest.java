@@ -0,0 +1,122 @@
+package com.habitflow.backend.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest(properties = "habitflow.avatars.max-upload-size=32KB")
+@AutoConfigureMockMvc
+class UserAvatarTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Test
+    void avatarIsCachedForeverUnderItsVersionAndRevalidatedWithout() throws Exception {
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        String token = login(email);
+        String url = updateProfile(token, email, picture(400, 300)).get("profilePicture").asString();
+        String version = url.substring(url.indexOf("?v=") + 3);
+
+        MockHttpServletResponse current = mvc.perform(get(url).param("size", "64"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG_VALUE))
+                .andReturn().getResponse();
+        assertTrue(current.getHeader(HttpHeaders.CACHE_CONTROL).contains("immutable"));
+        assertTrue(current.getHeader(HttpHeaders.CACHE_CONTROL).contains("max-age=31536000"));
+        String etag = current.getHeader(HttpHeaders.ETAG);
+        assertEquals("\"" + version + "-64\"", etag);
+
+        // An old ?v= or none at all: the browser has to come back and ask
+        String unversioned = url.substring(0, url.indexOf('?'));
+        MockHttpServletResponse stale = mvc.perform(get(unversioned).param("v", "0000").param("size", "64"))
+                .andExpect(status().isOk()).andReturn().getResponse();
+        assertTrue(stale.getHeader(HttpHeaders.CACHE_CONTROL).contains("no-cache"));
+        mvc.perform(get(unversioned).param("size", "64").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        // A new picture gets a new URL and no longer matches the old ETag
+        String replaced = updateProfile(token, email, picture(300, 300)).get("profilePicture").asString();
+        assertNotEquals(url, replaced);
+        mvc.perform(get(unversioned).param("size", "64").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        // Echoing the URL back keeps the picture; "" clears it
+        assertEquals(replaced, updateProfile(token, email, replaced).get("profilePicture").asString());
+        assertTrue(updateProfile(token, email, "").get("profilePicture").isNull());
+        mvc.perform(get(unversioned)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void badOrOversizedPicturesAreRejected() throws Exception {
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        String token = login(email);
+        for (String picture : new String[] {
+                "data:image/png;base64,not-base64!",
+                "data:image/png;base64," + Base64.getEncoder().encodeToString("plain text".getBytes()),
+                "data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[64 * 1024])}) {
+            mvc.perform(put("/api/users/me").header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json.writeValueAsString(Map.of("email", email, "profilePicture", picture))))
+                    .andExpect(status().isBadRequest());
+        }
+        JsonNode profile = json.readTree(mvc.perform(get("/api/users/me").header("Authorization", "Bearer " + token))
+                .andReturn().getResponse().getContentAsString());
+        assertTrue(profile.get("profilePicture").isNull());
+    }
+
+    // The profile page sends the whole profile back
+    private JsonNode updateProfile(String token, String email, String picture) throws Exception {
+        return json.readTree(mvc.perform(put("/api/users/me").header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json.writeValueAsString(Map.of("email", email, "profilePicture", picture))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static String picture(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(width / 2, height / 2, 0xFFFFFF);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    private String login(String email) throws Exception {
+        String credentials = "{\"email\":\"" + email + "\",\"password\":\"password1\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk());
+        return json.readTree(mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content(credentials))
+                .andReturn().getResponse().getContentAsString()).get("token").asString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.habitflow.backend.digest;
+
+import com.habitflow.backend.cache.ResilientReads;
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.model.WeeklyDigest;
+import com.habitflow.backend.repository.AnalyticsSnapshotRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryAnalyticsSnapshotRunRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryUserRepository;
+import com.habitflow.backend.service.AnalyticsService;
+import com.habitflow.backend.service.AnalyticsSnapshotService;
+import com.habitflow.backend.service.CompletionIndex;
+import com.habitflow.backend.service.UserSweep;
+import com.habitflow.backend.trace.QueryTrace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class WeeklyDigestJobTest {
+
+    private static final int USERS = 23;
+    private static final int BATCH_SIZE = 5;
+
+    // A Sunday
+    private final LocalDate weekEnd = LocalDate.of(2026, 10, 18);
+
+    private InMemoryUserRepository userRepository;
+    private InMemoryHabitRepository habitRepository;
+    private InMemoryAnalyticsSnapshotRunRepository runRepository;
+    private AnalyticsService analyticsService;
+    private final Map<String, WeeklyDigest> delivered = new ConcurrentHashMap<>();
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        userRepository = new InMemoryUserRepository(converter);
+        habitRepository = new InMemoryHabitRepository(converter);
+        runRepository = new InMemoryAnalyticsSnapshotRunRepository(converter);
+        AnalyticsSnapshotService snapshotService =
+                new AnalyticsSnapshotService(mock(AnalyticsSnapshotRepository.class), habitRepository);
+        analyticsService = new AnalyticsService(habitRepository, userRepository, mock(SingleFlight.class),
+                snapshotService, mock(CompletionIndex.class), mock(ResilientReads.class));
+
+        Instant createdAt = weekEnd.minusDays(40).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        for (int u = 0; u < USERS; u++) {
+            String userId = userRepository.save(new User("digest" + u + "@example.com", "secret")).getId();
+            userIds.add(userId);
+            // Every third user has no habits and gets no digest
+            if (u % 3 == 2) {
+                continue;
+            }
+            Habit daily = new Habit(userId, "Daily");
+            Habit rare = new Habit(userId, "Rare");
+            daily.setCreatedAt(createdAt);
+            rare.setCreatedAt(createdAt);
+            // Daily: the last u + 1 days up to the week's end; Rare: only the Wednesday
+            for (int d = 0; d <= u; d++) {
+                daily.getLogs().put(weekEnd.minusDays(d).toString(), true);
+            }
+            rare.getLogs().put(weekEnd.minusDays(4).toString(), true);
+            // After the week: must not count
+            rare.getLogs().put(weekEnd.plusDays(1).toString(), true);
+            habitRepository.saveAll(List.of(daily, rare));
+        }
+    }
+
+    @Test
+    void digestsEveryUserWithHabitsInBatchedQueries() {
+        QueryTrace trace = QueryTrace.start();
+        try {
+            job(Duration.ofMinutes(10)).run(weekEnd);
+        } finally {
+            trace.end();
+        }
+
+        assertEquals(USERS - USERS / 3, delivered.size());
+        int batchCount = (USERS + BATCH_SIZE - 1) / BATCH_SIZE;
+        assertEquals(batchCount, batches.size());
+        // A claim, the cursor, one habit query per batch, a checkpoint and the finish
+        assertEquals(batchCount + 4, trace.count());
+
+        // Saturday and Sunday, plus the Wednesday
+        WeeklyDigest second = delivered.get(userIds.get(1) + ":" + weekEnd);
+        assertEquals(weekEnd.minusDays(6).toString(), second.getWeekStart());
+        assertEquals(14, second.getSummary().getTotalPossible());
+        assertEquals(3, second.getSummary().getTotalDone());
+        assertEquals("Daily", second.getBestHabit());
+        assertEquals("Rare", second.getWorstHabit());
+        assertEquals(2, second.getStreak());
+        assertEquals(2, second.getStreakChange());
+
+        // 10 days up to the week's end: every day of the week, a streak of 10, 7 more than the week before
+        WeeklyDigest tenth = delivered.get(userIds.get(9) + ":" + weekEnd);
+        assertEquals(8, tenth.getSummary().getTotalDone());
+        assertEquals(10, tenth.getStreak());
+        assertEquals(7, tenth.getStreakChange());
+
+        assertNull(delivered.get(userIds.get(2) + ":" + weekEnd));
+        assertNotNull(runRepository.findById("digest-" + weekEnd).orElseThrow().getFinishedAt());
+    }
+
+    @Test
+    void resumesAfterTheCheckpointOfAnAbandonedRun() throws InterruptedException {
+        String runId = "digest-" + weekEnd;
+        runRepository.claim(runId, "crashed-node", Instant.now());
+        runRepository.checkpoint(runId, "crashed-node", userIds.get(9), 10);
+        Thread.sleep(5);
+
+        job(Duration.ofMillis(1)).run(weekEnd);
+
+        for (int u = 0; u < USERS; u++) {
+            boolean expected = u > 9 && u % 3 != 2;
+            assertEquals(expected, delivered.containsKey(userIds.get(u) + ":" + weekEnd), "user " + u);
+        }
+        assertEquals(USERS, runRepository.findById(runId).orElseThrow().getProcessed());
+
+        // Finished: a second run does nothing
+        delivered.clear();
+        job(Duration.ofMillis(1)).run(weekEnd);
+        assertTrue(delivered.isEmpty());
+    }
+
+    private WeeklyDigestJob job(Duration staleAfter) {
+        DigestSink sink = digests -> {
+            batches.add(digests.size());
+            digests.forEach(digest -> delivered.put(digest.getId(), digest));
+        };
+        return new WeeklyDigestJob(new UserSweep(userRepository, runRepository), habitRepository, analyticsService,
+                sink, 3, BATCH_SIZE, 2, 0, staleAfter);
+    }
+}
@@ -0,0 +1,217 @@
+package com.habitflow.backend.event;
+
+import com.habitflow.backend.model.Habit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HabitEventHubTest {
+
+    private final List<HabitEventHub> hubs = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hubs.forEach(HabitEventHub::shutdown);
+    }
+
+    @Test
+    void eachConnectionGetsItsUsersEventsInOrder() throws Exception {
+        HabitEventHub hub = hub(256, 64, Duration.ofSeconds(10));
+        RecordingEmitter alice = new RecordingEmitter();
+        RecordingEmitter bob = new RecordingEmitter();
+        hub.subscribe("alice", null, alice);
+        hub.subscribe("bob", null, bob);
+
+        ExecutorService publishers = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 200; i++) {
+            String user = i % 4 == 0 ? "bob" : "alice";
+            publishers.execute(() -> hub.onChange(toggled(user)));
+        }
+        publishers.shutdown();
+        assertTrue(publishers.awaitTermination(5, TimeUnit.SECONDS));
+
+        await(() -> alice.events.size() == 150 && bob.events.size() == 50);
+        assertIncreasing(alice.events);
+        assertIncreasing(bob.events);
+        assertTrue(alice.events.stream().allMatch(e -> "alice".equals(e.habitId())));
+    }
+
+    @Test
+    void replayIsPerUserAndAGapItCannotFillMeansResync() throws Exception {
+        HabitEventHub hub = hub(64, 4, Duration.ofSeconds(10));
+        RecordingEmitter first = new RecordingEmitter();
+        hub.subscribe("alice", null, first);
+        hub.onChange(toggled("alice"));
+        await(() -> first.events.size() == 1);
+        String lastSeen = first.events.get(0).id();
+
+        hub.onChange(toggled("alice"));
+        hub.onChange(toggled("alice"));
+        // Plenty of traffic from someone else must not push alice's events out
+        for (int i = 0; i < 100; i++) {
+            hub.onChange(toggled("bob"));
+        }
+        RecordingEmitter resumed = new RecordingEmitter();
+        hub.subscribe("alice", lastSeen, resumed);
+        await(() -> resumed.events.size() == 2);
+        assertFalse(resumed.resynced());
+        assertIncreasing(resumed.events);
+
+        // More of alice's own events than the ring holds
+        String older = resumed.events.get(1).id();
+        for (int i = 0; i < 5; i++) {
+            hub.onChange(toggled("alice"));
+        }
+        RecordingEmitter tooLate = new RecordingEmitter();
+        hub.subscribe("alice", older, tooLate);
+        await(tooLate::resynced);
+
+        // An id from another node or an earlier process
+        RecordingEmitter foreign = new RecordingEmitter();
+        hub.subscribe("alice", "zzzz-3", foreign);
+        await(foreign::resynced);
+    }
+
+    @Test
+    void stuckClientIsCutOffWithoutHoldingUpOthers() throws Exception {
+        HabitEventHub hub = hub(64, 64, Duration.ofMillis(100));
+        RecordingEmitter stuck = new RecordingEmitter(release);
+        RecordingEmitter other = new RecordingEmitter();
+        hub.subscribe("alice", null, stuck);
+        hub.subscribe("bob", null, other);
+
+        hub.onChange(toggled("alice"));
+        for (int i = 0; i < 10; i++) {
+            hub.onChange(toggled("bob"));
+        }
+        await(() -> other.events.size() == 10);
+
+        // Past the send timeout alice's connection is dropped, though its send is still hanging
+        await(() -> hub.getConnectionCount() == 1);
+        release.countDown();
+        await(() -> stuck.completed);
+    }
+
+    @Test
+    void clientThatFallsTooFarBehindIsCutOff() throws Exception {
+        HabitEventHub hub = hub(4, 64, Duration.ofMinutes(1));
+        RecordingEmitter slow = new RecordingEmitter(release);
+        hub.subscribe("alice", null, slow);
+        for (int i = 0; i < 10; i++) {
+            hub.onChange(toggled("alice"));
+        }
+        assertEquals(0, hub.getConnectionCount());
+        release.countDown();
+        await(() -> slow.completed);
+        assertTrue(slow.events.size() <= 5, "sent " + slow.events.size());
+    }
+
+    private HabitEventHub hub(int bufferSize, int replaySize, Duration sendTimeout) {
+        HabitEventHub hub = new HabitEventHub(5, bufferSize, replaySize, 100, Duration.ofMinutes(30), sendTimeout,
+                Duration.ofHours(1));
+        hubs.add(hub);
+        return hub;
+    }
+
+    // The user id doubles as the habit id, so a connection can tell whose event it got
+    private static HabitChangeEvent toggled(String user) {
+        Habit habit = new Habit(user, "Read");
+        habit.setId(user);
+        return HabitChangeEvent.toggled(habit, "2024-03-01", true);
+    }
+
+    private static void assertIncreasing(List<Sent> events) {
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(sequence(events.get(i - 1)) < sequence(events.get(i)), events.toString());
+        }
+    }
+
+    private static long sequence(Sent event) {
+        return Long.parseLong(event.id().substring(event.id().lastIndexOf('-') + 1));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private record Sent(String id, String name, String habitId) {
+    }
+
+    // Records what would go over the wire; with a latch, every send hangs until it is released
+    private static class RecordingEmitter extends SseEmitter {
+
+        final List<Sent> events = new CopyOnWriteArrayList<>();
+        volatile boolean completed;
+        private final CountDownLatch latch;
+
+        RecordingEmitter() {
+            this(null);
+        }
+
+        RecordingEmitter(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String id = null;
+            String name = null;
+            String habitId = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof HabitChangeEvent event) {
+                    habitId = event.getHabitId();
+                } else {
+                    for (String line : part.getData().toString().split("\n")) {
+                        if (line.startsWith("id:")) {
+                            id = line.substring(3);
+                        } else if (line.startsWith("event:")) {
+                            name = line.substring(6);
+                        }
+                    }
+                }
+            }
+            if (name != null) {
+                events.add(new Sent(id, name, habitId));
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+
+        boolean resynced() {
+            return events.stream().anyMatch(e -> HabitEventHub.RESYNC_EVENT.equals(e.name()));
+        }
+    }
+}
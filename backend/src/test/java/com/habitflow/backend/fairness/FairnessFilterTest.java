@@ -0,0 +1,85 @@
+package com.habitflow.backend.fairness;
+
+import com.habitflow.backend.trace.QueryTrace;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest(properties = {"server.forward-headers-strategy=native",
+        "habitflow.fairness.read.rate=0.01", "habitflow.fairness.read.burst=2",
+        "habitflow.fairness.auth.rate=0.01", "habitflow.fairness.auth.burst=3"})
+@AutoConfigureMockMvc
+class FairnessFilterTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Test
+    void rejectedRequestCostsNoUserLookup() throws Exception {
+        String token = login("198.51.100.1");
+        for (int i = 0; i < 2; i++) {
+            mvc.perform(get("/api/habits").header("Authorization", "Bearer " + token)).andExpect(status().isOk());
+        }
+
+        QueryTrace trace = QueryTrace.start();
+        try {
+            mvc.perform(get("/api/habits").header("Authorization", "Bearer " + token))
+                    .andExpect(status().isTooManyRequests());
+        } finally {
+            trace.end();
+        }
+        assertEquals(0, trace.count(), trace.breakdown());
+    }
+
+    @Test
+    void authIsLimitedPerClientAddress() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertNotEquals(429, badLogin("203.0.113.7"));
+        }
+        assertEquals(429, badLogin("203.0.113.7"));
+        assertNotEquals(429, badLogin("203.0.113.8"));
+    }
+
+    private int badLogin(String address) throws Exception {
+        return mvc.perform(from(address, post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"nobody@example.com\",\"password\":\"wrong-password\"}")))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private String login(String address) throws Exception {
+        String credentials = "{\"email\":\"user-" + UUID.randomUUID() + "@example.com\",\"password\":\"password1\"}";
+        mvc.perform(from(address, post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                        .content(credentials)))
+                .andExpect(status().isOk());
+        return json.readTree(mvc.perform(from(address, post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content(credentials)))
+                .andReturn().getResponse().getContentAsString()).get("token").asString();
+    }
+
+    private static MockHttpServletRequestBuilder from(String address, MockHttpServletRequestBuilder request) {
+        RequestPostProcessor remote = r -> {
+            r.setRemoteAddr(address);
+            return r;
+        };
+        return request.with(remote);
+    }
+}
@@ -0,0 +1,114 @@
+package com.habitflow.backend.fairness;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairnessLimiterTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @Test
+    void ratesAreKeptPerUserAndClass() {
+        FairnessLimiter limiter = limiter(8, 100, 10, Duration.ofSeconds(1));
+        for (int i = 0; i < 10; i++) {
+            limiter.release(admitted(limiter.admit("hammer@example.com", EndpointClass.ANALYTICS)));
+        }
+        FairnessLimiter.Admission limited = limiter.admit("hammer@example.com", EndpointClass.ANALYTICS);
+        assertEquals(429, limited.status());
+        assertTrue(limited.retryAfterSeconds() >= 1);
+
+        // Neither the user's other classes nor other users are affected
+        limiter.release(admitted(limiter.admit("hammer@example.com", EndpointClass.READ)));
+        limiter.release(admitted(limiter.admit("someone-else@example.com", EndpointClass.ANALYTICS)));
+        assertEquals(1, rejected("rate"));
+    }
+
+    @Test
+    void oneUserCannotHoldMoreThanItsShareOfSlots() {
+        FairnessLimiter limiter = limiter(3, 100, 10, Duration.ofSeconds(1));
+        List<FairnessLimiter.Admission> held = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            held.add(admitted(limiter.admit("retry-loop@example.com", EndpointClass.WRITE)));
+        }
+        assertEquals(429, limiter.admit("retry-loop@example.com", EndpointClass.WRITE).status());
+        limiter.release(admitted(limiter.admit("someone-else@example.com", EndpointClass.WRITE)));
+
+        held.forEach(limiter::release);
+        limiter.release(admitted(limiter.admit("retry-loop@example.com", EndpointClass.WRITE)));
+    }
+
+    @Test
+    void authIsLimitedByRateNotConcurrencyAndUnkeyedRequestsOnlyBySlots() {
+        FairnessLimiter limiter = limiter(2, 100, 10, Duration.ofSeconds(1));
+        // A burst of slow registrations from one address, all in flight at once
+        List<FairnessLimiter.Admission> held = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            held.add(admitted(limiter.admit("address:10.0.0.7", EndpointClass.AUTH)));
+        }
+        assertEquals(429, limiter.admit("address:10.0.0.7", EndpointClass.AUTH).status());
+        held.forEach(limiter::release);
+
+        // Without a trusted address there is no key: only the node-wide slots apply
+        held.clear();
+        for (int i = 0; i < 50; i++) {
+            held.add(admitted(limiter.admit(null, EndpointClass.AUTH)));
+        }
+        held.forEach(limiter::release);
+        assertEquals(1, rejected("rate"));
+        assertEquals(0, rejected("user-concurrency"));
+    }
+
+    @Test
+    void busyNodeQueuesBrieflyThenSheds() throws Exception {
+        FairnessLimiter limiter = limiter(8, 2, 1, Duration.ofMillis(300));
+        FairnessLimiter.Admission first = admitted(limiter.admit("a@example.com", EndpointClass.READ));
+        FairnessLimiter.Admission second = admitted(limiter.admit("b@example.com", EndpointClass.READ));
+
+        CompletableFuture<FairnessLimiter.Admission> waiting =
+                CompletableFuture.supplyAsync(() -> limiter.admit("c@example.com", EndpointClass.READ));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meters.get("habitflow.fairness.queued").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        // The queue holds one
+        FairnessLimiter.Admission full = limiter.admit("d@example.com", EndpointClass.READ);
+        assertEquals(503, full.status());
+
+        // A slot freed within the deadline goes to the one waiting
+        limiter.release(first);
+        FairnessLimiter.Admission third = admitted(waiting.get(5, TimeUnit.SECONDS));
+
+        // Nothing freed: shed at the deadline
+        FairnessLimiter.Admission late = limiter.admit("e@example.com", EndpointClass.READ);
+        assertEquals(503, late.status());
+        assertEquals(1, rejected("queue-full"));
+        assertEquals(1, rejected("queue-timeout"));
+
+        limiter.release(second);
+        limiter.release(third);
+    }
+
+    private FairnessLimiter limiter(int maxPerUser, int maxConcurrent, int maxQueued, Duration maxWait) {
+        return new FairnessLimiter(meters, 1024, maxPerUser, 1000, 1000, 1000, 1000, 1, 10, 1, 20,
+                maxConcurrent, maxQueued, maxWait);
+    }
+
+    private static FairnessLimiter.Admission admitted(FairnessLimiter.Admission admission) {
+        assertTrue(admission.admitted(), () -> "rejected with " + admission.status());
+        return admission;
+    }
+
+    private double rejected(String reason) {
+        return meters.find("habitflow.fairness.rejected").tag("reason", reason).counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+}
@@ -0,0 +1,247 @@
+package com.habitflow.backend.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-model load generator: journeys start at a fixed arrival rate regardless of
+ * how fast earlier ones finish, and journey latency is measured from the intended
+ * start so queueing on the server shows up instead of being hidden (coordinated
+ * omission).
+ *
+ * A journey is what the app does when a user opens it: read habits, toggle one for
+ * today, sometimes look at analytics, now and then apply a template or log in again.
+ *
+ * Runs against any server via {@code main}, or embedded through {@link LoadTest}.
+ */
+public class LoadGenerator {
+
+    static final String LOGIN = "login";
+    static final String HABITS = "habits";
+    static final String TOGGLE = "toggle";
+    static final String APPLY = "apply";
+    static final String ANALYTICS = "analytics";
+    static final String JOURNEY = "journey";
+
+    private static final String PASSWORD = "load-test-password";
+
+    private final LoadTestSettings settings;
+    private final HttpClient http;
+    private final JsonMapper json = JsonMapper.builder().build();
+    private final LoadReport report = new LoadReport();
+    private final List<VirtualUser> users = new ArrayList<>();
+
+    public LoadGenerator(LoadTestSettings settings) {
+        this.settings = settings;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(8))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties("http://localhost:8080");
+        LoadReport report = new LoadGenerator(settings).run();
+        System.out.print(report.format(settings));
+        List<String> violations = report.violations(settings.slos());
+        violations.forEach(v -> System.out.println("SLO violated: " + v));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    public LoadReport run() throws InterruptedException {
+        setUp();
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(settings.maxConcurrency(), settings.maxConcurrency(),
+                30, TimeUnit.SECONDS, new SynchronousQueue<>());
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / settings.ratePerSecond());
+        long startNanos = System.nanoTime();
+        long warmupEnd = startNanos + settings.warmup().toNanos();
+        long end = warmupEnd + settings.duration().toNanos();
+        AtomicLong tick = new AtomicLong();
+
+        ticker.scheduleAtFixedRate(() -> {
+            long intendedStart = startNanos + tick.getAndIncrement() * intervalNanos;
+            boolean measured = intendedStart >= warmupEnd;
+            try {
+                workers.execute(() -> journey(intendedStart, measured));
+            } catch (RejectedExecutionException e) {
+                if (measured) {
+                    report.recordDropped();
+                }
+            }
+        }, 0, intervalNanos, TimeUnit.NANOSECONDS);
+
+        TimeUnit.NANOSECONDS.sleep(end - System.nanoTime());
+        ticker.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        return report;
+    }
+
+    private void setUp() throws InterruptedException {
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(16, settings.users()));
+        List<Future<VirtualUser>> created = new ArrayList<>();
+        for (int i = 0; i < settings.users(); i++) {
+            String email = "loadtest-" + runId + "-" + i + "@example.com";
+            created.add(pool.submit(() -> createUser(email)));
+        }
+        pool.shutdown();
+        try {
+            // A run against fewer users than asked for would measure the wrong thing: stop at the first failure
+            for (Future<VirtualUser> user : created) {
+                users.add(user.get(5, TimeUnit.MINUTES));
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("User setup failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("User setup did not finish", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private VirtualUser createUser(String email) {
+        send(null, "POST", "/auth/register", "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}");
+        VirtualUser user = new VirtualUser(email);
+        login(user);
+        for (int h = 0; h < settings.habitsPerUser(); h++) {
+            send(user.token, "POST", "/habits", "{\"title\":\"Habit " + h + "\"}");
+        }
+        // Half of the template's habits already exist, so apply exercises the dedupe path
+        JsonNode template = send(user.token, "POST", "/templates",
+                "{\"name\":\"Morning\",\"habitTitles\":[\"Habit 0\",\"Habit 1\",\"Stretch\",\"Journal\"]}").body;
+        user.templateId = template.get("id").asString();
+        return user;
+    }
+
+    private void journey(long intendedStart, boolean measured) {
+        VirtualUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+        boolean ok = true;
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < 0.05) {
+                ok &= timed(LOGIN, measured, () -> login(user));
+            }
+
+            Result habits = call(HABITS, measured, user, "GET", "/habits", null);
+            ok &= habits.success;
+            if (habits.success && habits.body != null && !habits.body.isEmpty()) {
+                JsonNode habit = habits.body.get(random.nextInt(habits.body.size()));
+                String path = "/habits/" + habit.get("id").asString() + "/toggle?date=" + LocalDate.now();
+                ok &= call(TOGGLE, measured, user, "POST", path, null).success;
+            }
+
+            if (random.nextDouble() < 0.5) {
+                ok &= call(ANALYTICS, measured, user, "GET", "/analytics", null).success;
+            }
+            if (random.nextDouble() < 0.05) {
+                ok &= call(APPLY, measured, user, "POST", "/templates/" + user.templateId + "/apply", null).success;
+            }
+        } catch (RuntimeException e) {
+            ok = false;
+        }
+        if (measured) {
+            report.record(JOURNEY, System.nanoTime() - intendedStart, ok);
+        }
+    }
+
+    private boolean timed(String endpoint, boolean measured, Runnable action) {
+        long start = System.nanoTime();
+        boolean success = true;
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            success = false;
+        }
+        if (measured) {
+            report.record(endpoint, System.nanoTime() - start, success);
+        }
+        return success;
+    }
+
+    private Result call(String endpoint, boolean measured, VirtualUser user, String method, String path, String body) {
+        long start = System.nanoTime();
+        Result result;
+        try {
+            result = send(user.token, method, path, body);
+        } catch (RuntimeException e) {
+            result = new Result(false, null);
+        }
+        if (measured) {
+            report.record(endpoint, System.nanoTime() - start, result.success);
+        }
+        return result;
+    }
+
+    private void login(VirtualUser user) {
+        JsonNode response = send(null, "POST", "/auth/login",
+                "{\"email\":\"" + user.email + "\",\"password\":\"" + PASSWORD + "\"}").body;
+        user.token = response.get("token").asString();
+    }
+
+    private Result send(String token, String method, String path, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(settings.baseUrl() + "/api" + path))
+                .timeout(Duration.ofSeconds(30))
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        try {
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException(method + " " + path + " -> " + response.statusCode());
+            }
+            String text = response.body();
+            boolean isJson = text.startsWith("{") || text.startsWith("[");
+            return new Result(true, isJson ? json.readTree(text) : null);
+        } catch (IOException e) {
+            throw new IllegalStateException(method + " " + path + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    private record Result(boolean success, JsonNode body) {
+    }
+
+    private static class VirtualUser {
+        final String email;
+        volatile String token;
+        volatile String templateId;
+
+        VirtualUser(String email) {
+            this.email = email;
+        }
+    }
+}
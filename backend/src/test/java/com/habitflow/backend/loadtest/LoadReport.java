@@ -0,0 +1,102 @@
+package com.habitflow.backend.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms (microseconds) and error counts for one run,
+ * plus the SLO verdict.
+ */
+class LoadReport {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    void record(String endpoint, long elapsedNanos, boolean success) {
+        EndpointStats stats = endpoints.computeIfAbsent(endpoint, k -> new EndpointStats());
+        stats.histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), MAX_TRACKABLE_MICROS));
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    List<String> violations(Map<String, LoadTestSettings.Slo> slos) {
+        List<String> violations = new ArrayList<>();
+        if (dropped.sum() > 0) {
+            violations.add(dropped.sum() + " journeys dropped because the generator ran out of workers");
+        }
+        new TreeMap<>(endpoints).forEach((endpoint, stats) -> {
+            LoadTestSettings.Slo slo = slos.get(endpoint);
+            if (slo == null) {
+                return;
+            }
+            check(violations, endpoint, "p50", stats.percentileMillis(50), slo.p50Millis());
+            check(violations, endpoint, "p99", stats.percentileMillis(99), slo.p99Millis());
+            check(violations, endpoint, "p999", stats.percentileMillis(99.9), slo.p999Millis());
+            if (stats.errorRate() > slo.maxErrorRate()) {
+                violations.add(String.format("%s error rate %.4f > %.4f", endpoint, stats.errorRate(), slo.maxErrorRate()));
+            }
+        });
+        return violations;
+    }
+
+    private static void check(List<String> violations, String endpoint, String name, double actual, double limit) {
+        if (actual > limit) {
+            violations.add(String.format("%s %s %.1fms > %.1fms", endpoint, name, actual, limit));
+        }
+    }
+
+    String format(LoadTestSettings settings) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Load test: %.1f journeys/s for %s (%d users) against %s%n",
+                settings.ratePerSecond(), settings.duration(), settings.users(), settings.baseUrl()));
+        sb.append(String.format("%-12s %9s %8s %9s %9s %9s %9s  %s%n",
+                "endpoint", "count", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms", "SLO p50/p99/p999"));
+        new TreeMap<>(endpoints).forEach((endpoint, stats) -> {
+            LoadTestSettings.Slo slo = settings.slos().get(endpoint);
+            sb.append(String.format("%-12s %9d %8d %9.1f %9.1f %9.1f %9.1f  %s%n",
+                    endpoint,
+                    stats.histogram.getTotalCount(),
+                    stats.errors.sum(),
+                    stats.percentileMillis(50),
+                    stats.percentileMillis(99),
+                    stats.percentileMillis(99.9),
+                    stats.histogram.getMaxValue() / 1000.0,
+                    slo == null ? "-" : String.format("%.0f/%.0f/%.0f", slo.p50Millis(), slo.p99Millis(), slo.p999Millis())));
+        });
+        sb.append(String.format("dropped journeys: %d%n", dropped.sum()));
+        return sb.toString();
+    }
+
+    private static class EndpointStats {
+        final Histogram histogram = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+
+        double percentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        double errorRate() {
+            long total = histogram.getTotalCount();
+            return total == 0 ? 0 : (double) errors.sum() / total;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.habitflow.backend.loadtest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the app over real HTTP with the in-memory repositories, so it runs
+ * anywhere without MongoDB. Excluded from the normal build; run with
+ * {@code mvn test -Ploadtest}. The report is printed and written to
+ * {@code target/loadtest-report.txt}.
+ */
+@Tag("loadtest")
+@ActiveProfiles("inmemory")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void meetsSlos() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties("http://localhost:" + port);
+        LoadReport report = new LoadGenerator(settings).run();
+
+        String text = report.format(settings);
+        List<String> violations = report.violations(settings.slos());
+        if (!violations.isEmpty()) {
+            text += "SLO violations:\n  " + String.join("\n  ", violations) + "\n";
+        }
+        System.out.print(text);
+        Files.writeString(Path.of("target", "loadtest-report.txt"), text);
+
+        assertTrue(violations.isEmpty(), () -> "SLO violations: " + violations);
+    }
+}
@@ -0,0 +1,74 @@
+package com.habitflow.backend.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Load test knobs, read from {@code loadtest.*} system properties so they can be
+ * passed straight through Maven, e.g. {@code mvn test -Ploadtest -Dloadtest.rate=100}.
+ *
+ * SLOs use {@code p50=..,p99=..,p999=..,errors=..} (milliseconds, error ratio), with
+ * {@code loadtest.slo.default} applying to every endpoint and
+ * {@code loadtest.slo.<endpoint>} overriding single fields for one endpoint.
+ */
+record LoadTestSettings(
+        String baseUrl,
+        double ratePerSecond,
+        Duration duration,
+        Duration warmup,
+        int users,
+        int habitsPerUser,
+        int maxConcurrency,
+        Map<String, Slo> slos) {
+
+    static final String[] ENDPOINTS = {
+            LoadGenerator.LOGIN, LoadGenerator.HABITS, LoadGenerator.TOGGLE,
+            LoadGenerator.APPLY, LoadGenerator.ANALYTICS, LoadGenerator.JOURNEY
+    };
+
+    record Slo(double p50Millis, double p99Millis, double p999Millis, double maxErrorRate) {
+
+        Slo with(String spec) {
+            double p50 = p50Millis, p99 = p99Millis, p999 = p999Millis, errors = maxErrorRate;
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split("=");
+                if (kv.length != 2) {
+                    continue;
+                }
+                double value = Double.parseDouble(kv[1].trim());
+                switch (kv[0].trim()) {
+                    case "p50" -> p50 = value;
+                    case "p99" -> p99 = value;
+                    case "p999" -> p999 = value;
+                    case "errors" -> errors = value;
+                    default -> throw new IllegalArgumentException("Unknown SLO field: " + kv[0]);
+                }
+            }
+            return new Slo(p50, p99, p999, errors);
+        }
+    }
+
+    static LoadTestSettings fromSystemProperties(String defaultBaseUrl) {
+        Slo defaults = new Slo(50, 250, 1000, 0.01)
+                .with(System.getProperty("loadtest.slo.default", ""));
+        Map<String, Slo> slos = new HashMap<>();
+        for (String endpoint : ENDPOINTS) {
+            Slo base = endpoint.equals(LoadGenerator.LOGIN) || endpoint.equals(LoadGenerator.JOURNEY)
+                    // BCrypt makes logins (and journeys that contain one) slow by design
+                    ? defaults.with("p50=500,p99=1500,p999=3000")
+                    : defaults;
+            slos.put(endpoint, base.with(System.getProperty("loadtest.slo." + endpoint, "")));
+        }
+
+        return new LoadTestSettings(
+                System.getProperty("loadtest.baseUrl", defaultBaseUrl),
+                Double.parseDouble(System.getProperty("loadtest.rate", "20")),
+                Duration.parse("PT" + System.getProperty("loadtest.duration", "30s").toUpperCase()),
+                Duration.parse("PT" + System.getProperty("loadtest.warmup", "5s").toUpperCase()),
+                Integer.getInteger("loadtest.users", 50),
+                Integer.getInteger("loadtest.habitsPerUser", 8),
+                Integer.getInteger("loadtest.maxConcurrency", 64),
+                slos);
+    }
+}
@@ -0,0 +1,67 @@
+package com.habitflow.backend.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    @Test
+    void everyItemFiresOnceOnItsOwnTick() {
+        Random random = new Random(7);
+        long start = 1_700_000_123_456L;
+        // Small wheel, so items cascade through every level many times
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 4, 3, start);
+        Map<Integer, Long> dueTick = new HashMap<>();
+        Map<Integer, Long> firedTick = new HashMap<>();
+        long now = start;
+        int next = 0;
+
+        for (int step = 0; step < 2000; step++) {
+            for (int i = random.nextInt(4); i > 0; i--) {
+                long due = now + (long) (random.nextDouble() * wheel.rangeMillis());
+                assertTrue(wheel.add(next, due));
+                dueTick.put(next++, Math.max(due / TICK, now / TICK + 1));
+            }
+            now += random.nextInt(3) * TICK + random.nextInt((int) TICK);
+            long tick = now / TICK;
+            List<Integer> fired = new ArrayList<>();
+            wheel.advance(now, fired::add);
+            for (int item : fired) {
+                assertFalse(firedTick.containsKey(item), "fired twice: " + item);
+                firedTick.put(item, tick);
+            }
+        }
+        wheel.advance(now + wheel.rangeMillis() + TICK, item -> firedTick.put(item, dueTick.get(item)));
+
+        assertEquals(dueTick.size(), firedTick.size());
+        assertEquals(0, wheel.size());
+        dueTick.forEach((item, due) -> {
+            long fired = firedTick.get(item);
+            // Fired on the advance that passed its tick: never before, and at most one step late
+            assertTrue(fired >= due, item + " fired at " + fired + " before " + due);
+            assertTrue(fired <= due + 3, item + " fired at " + fired + ", due " + due);
+        });
+    }
+
+    @Test
+    void overdueFiresOnNextTickAndFarFutureIsRefused() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 60, 3, 0);
+        assertTrue(wheel.add("late", -5_000));
+        assertFalse(wheel.add("too far", wheel.rangeMillis() + TICK));
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(TICK, fired::add);
+        assertEquals(List.of("late"), fired);
+    }
+}
@@ -0,0 +1,114 @@
+package com.habitflow.backend.security;
+
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.UserRepository;
+import com.habitflow.backend.trace.QueryTrace;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenRevocationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JsonMapper json;
+
+    @Autowired
+    private TokenRevocations revocations;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void logoutEverywhereRevokesEveryEarlierToken() throws Exception {
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        register(email);
+        String laptop = login(email);
+        String phone = login(email);
+
+        mvc.perform(post("/api/users/me/logout-all").header("Authorization", "Bearer " + laptop))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/habits").header("Authorization", "Bearer " + laptop))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(get("/api/habits").header("Authorization", "Bearer " + phone))
+                .andExpect(status().isUnauthorized());
+
+        mvc.perform(get("/api/habits").header("Authorization", "Bearer " + login(email)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void profileUpdateFromAnEarlierReadKeepsTheTokenVersion() throws Exception {
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        register(email);
+        User read = userRepository.findByEmail(email).orElseThrow();
+        // Logout everywhere lands between the profile update's read and its write
+        userRepository.incrementTokenVersion(email);
+        userRepository.updateProfile(email, "Renamed", read.getUsername(), read.getAge(), read.getHeight(),
+                read.getWeight(), read.getAvatarVersion());
+
+        User stored = userRepository.findByEmail(email).orElseThrow();
+        assertEquals("Renamed", stored.getName());
+        assertEquals(read.getTokenVersion() + 1, stored.getTokenVersion());
+    }
+
+    @Test
+    void deletedAccountsTokensStopWorkingButTheEmailCanBeReused() throws Exception {
+        String email = "user-" + UUID.randomUUID() + "@example.com";
+        register(email);
+        String token = login(email);
+        mvc.perform(delete("/api/users/me").header("Authorization", "Bearer " + token)).andExpect(status().isOk());
+        mvc.perform(get("/api/users/me").header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+
+        register(email);
+        mvc.perform(get("/api/users/me").header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(get("/api/users/me").header("Authorization", "Bearer " + login(email)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void usersNeverRevokedAreCheckedWithoutQueries() {
+        QueryTrace trace = QueryTrace.start();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                assertFalse(revocations.isRevoked("never-" + i + "@example.com", 0));
+            }
+        } finally {
+            trace.end();
+        }
+        // The odd false positive costs one lookup
+        assertEquals(0, trace.count(), 50);
+    }
+
+    private void register(String email) throws Exception {
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"password1\"}")).andExpect(status().isOk());
+    }
+
+    private String login(String email) throws Exception {
+        return json.readTree(mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"password1\"}"))
+                .andReturn().getResponse().getContentAsString()).get("token").asString();
+    }
+}
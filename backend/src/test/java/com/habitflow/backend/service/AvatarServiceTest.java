@@ -0,0 +1,112 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.storage.AvatarStore;
+import com.habitflow.backend.storage.FileAvatarStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvatarServiceTest {
+
+    private static final String USER = "65f0c0ffee0000000000abcd";
+
+    @TempDir
+    Path dir;
+
+    private AvatarService avatars;
+
+    @BeforeEach
+    void setUp() {
+        avatars = new AvatarService(new FileAvatarStore(dir), DataSize.ofKilobytes(64));
+    }
+
+    @Test
+    void storesSquareThumbnailsCroppedToTheCenter() throws IOException {
+        // A wide picture: red and blue bands either side of a green square in the middle
+        BufferedImage wide = new BufferedImage(900, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = wide.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 300, 300);
+        g.setColor(Color.GREEN);
+        g.fillRect(300, 0, 300, 300);
+        g.setColor(Color.BLUE);
+        g.fillRect(600, 0, 300, 300);
+        g.dispose();
+
+        String version = avatars.store(USER, dataUrl(wide, "png"));
+        for (int size : AvatarService.SIZES) {
+            AvatarStore.StoredAvatar stored = avatars.load(USER, size).orElseThrow();
+            assertEquals(version, stored.version());
+            BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(stored.data()));
+            assertEquals(size, thumbnail.getWidth());
+            assertEquals(size, thumbnail.getHeight());
+            for (int[] point : new int[][] {{1, 1}, {size - 2, 1}, {size / 2, size / 2}, {1, size - 2}}) {
+                Color pixel = new Color(thumbnail.getRGB(point[0], point[1]));
+                assertTrue(pixel.getGreen() > 200 && pixel.getRed() < 60 && pixel.getBlue() < 60,
+                        size + "px at " + point[0] + "," + point[1] + ": " + pixel);
+            }
+        }
+        // Between the stored sizes, the next larger one; beyond them, the largest
+        assertEquals(256, thumbnailWidth(100));
+        assertEquals(256, thumbnailWidth(1024));
+        assertEquals(64, thumbnailWidth(32));
+
+        String replaced = avatars.store(USER, dataUrl(new BufferedImage(80, 80, BufferedImage.TYPE_INT_RGB), "jpeg"));
+        assertNotEquals(version, replaced);
+        assertEquals(replaced, avatars.load(USER, 64).orElseThrow().version());
+    }
+
+    @Test
+    void rejectsWhatIsNotASmallEnoughImage() throws IOException {
+        assertRejected("https://example.com/me.png");
+        assertRejected("data:image/png,rawbytes");
+        assertRejected("data:image/png;base64,***");
+        assertRejected("data:image/png;base64," + Base64.getEncoder().encodeToString("not an image".getBytes()));
+        assertRejected("data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[100 * 1024]));
+        assertRejected(hugeDimensions());
+        assertTrue(avatars.load(USER, 64).isEmpty());
+    }
+
+    private void assertRejected(String dataUrl) {
+        assertThrows(IllegalArgumentException.class, () -> avatars.store(USER, dataUrl));
+    }
+
+    private int thumbnailWidth(int size) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(avatars.load(USER, size).orElseThrow().data())).getWidth();
+    }
+
+    // A tiny PNG whose header claims 20000 x 20000 pixels
+    private static String hugeDimensions() throws IOException {
+        byte[] png = encode(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), "png");
+        // IHDR width and height follow the 8-byte signature, chunk length and type
+        ByteBuffer.wrap(png).putInt(16, 20_000).putInt(20, 20_000);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+    }
+
+    static String dataUrl(BufferedImage image, String format) throws IOException {
+        return "data:image/" + format + ";base64," + Base64.getEncoder().encodeToString(encode(image, format));
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,159 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitRepository;
+import com.habitflow.backend.trace.QueryTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Randomized check of {@link CompletionIndex} against a day-by-day scan, across
+ * archived history, toggles applied in place and rebuilds.
+ */
+class CompletionIndexTest {
+
+    private static final int TRIALS = 60;
+    private static final String USER_ID = "64b7f0c2a1b2c3d4e5f60718";
+
+    private final LocalDate today = LocalDate.now();
+    private InMemoryHabitRepository habitRepository;
+    private UserDataVersions versions;
+    private CompletionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        habitRepository = new InMemoryHabitRepository(converter);
+        versions = new UserDataVersions();
+        SingleFlight singleFlight = new SingleFlight(versions, new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        index = new CompletionIndex(habitRepository, versions, singleFlight, 100);
+    }
+
+    @Test
+    void matchesBruteForceScan() {
+        for (int trial = 0; trial < TRIALS; trial++) {
+            Random random = new Random(trial);
+            habitRepository.deleteAll();
+            versions.invalidateUser(USER_ID);
+            createHabits(random);
+
+            for (int step = 0; step < 30; step++) {
+                int action = random.nextInt(10);
+                if (action < 5) {
+                    toggle(random, randomDay(random, 120));
+                } else if (action < 6) {
+                    toggle(random, randomDay(random, 5 * 365));
+                } else if (action < 7) {
+                    // A write seen only through the bus, e.g. from another node
+                    versions.invalidateUser(USER_ID);
+                }
+
+                LocalDate from = randomDay(random, 6 * 365);
+                LocalDate to = random.nextInt(4) == 0 ? from.plusDays(random.nextInt(7))
+                        : from.plusDays(random.nextInt(6 * 365));
+                assertEquals(bruteForce(from, to), index.count(USER_ID, from, to), "trial " + trial + " step " + step);
+            }
+        }
+    }
+
+    @Test
+    void toggleIsAppliedWithoutRescanning() {
+        Habit habit = new Habit(USER_ID, "Read");
+        habit.setCreatedAt(today.minusDays(60).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        habit.getLogs().put(today.minusDays(3).toString(), true);
+        habitRepository.save(habit);
+        LocalDate from = today.minusDays(10);
+        assertEquals(bruteForce(from, today), index.count(USER_ID, from, today));
+
+        toggle(new Random(1), today.minusDays(5));
+        toggle(new Random(1), today.minusDays(3));
+
+        QueryTrace trace = QueryTrace.start();
+        try {
+            assertEquals(bruteForce(from, today), index.count(USER_ID, from, today));
+        } finally {
+            trace.end();
+        }
+        // bruteForce itself reads the habits once
+        assertEquals(1, trace.count());
+    }
+
+    private void createHabits(Random random) {
+        int habits = 1 + random.nextInt(4);
+        for (int h = 0; h < habits; h++) {
+            Habit habit = new Habit(USER_ID, "Habit " + h);
+            LocalDate created = today.minusDays(random.nextInt(4 * 365));
+            habit.setCreatedAt(created.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            double density = random.nextDouble();
+            // Logged days may predate the habit, e.g. toggled back in time
+            for (LocalDate day = created.minusDays(30); !day.isAfter(today.plusDays(1)); day = day.plusDays(1)) {
+                double roll = random.nextDouble();
+                if (roll < density) {
+                    habit.getLogs().put(day.toString(), true);
+                } else if (roll < density + 0.1) {
+                    habit.getLogs().put(day.toString(), false);
+                }
+            }
+            habit = habitRepository.save(habit);
+            if (random.nextBoolean()) {
+                new HabitRetentionJob(null, habitRepository, 400).archive(habit, today.minusDays(random.nextInt(400, 900)));
+            }
+        }
+    }
+
+    // Toggles like HabitService does, then delivers the event the way the application does
+    private void toggle(Random random, LocalDate day) {
+        List<Habit> habits = habitRepository.findByUserId(USER_ID);
+        Habit habit = habits.get(random.nextInt(habits.size()));
+        String date = day.toString();
+        boolean done = !habit.isDone(date);
+        habit.getLogs().put(date, done);
+        habitRepository.save(habit);
+
+        versions.invalidateUser(USER_ID);
+        index.onHabitChange(HabitChangeEvent.toggled(habit, date, done));
+    }
+
+    private List<CompletionIndex.RangeCounts> bruteForce(LocalDate from, LocalDate to) {
+        List<CompletionIndex.RangeCounts> expected = new ArrayList<>();
+        for (Habit habit : habitRepository.findByUserId(USER_ID)) {
+            LocalDate created = habit.getCreatedAt().atZone(ZoneId.systemDefault()).toLocalDate();
+            int possible = 0;
+            int completed = 0;
+            for (LocalDate day = created.isAfter(from) ? created : from; !day.isAfter(to); day = day.plusDays(1)) {
+                possible++;
+                if (habit.isDone(day.toString())) {
+                    completed++;
+                }
+            }
+            expected.add(new CompletionIndex.RangeCounts(habit.getId(), habit.getTitle(), possible, completed));
+        }
+        return expected;
+    }
+
+    private LocalDate randomDay(Random random, int maxDaysBack) {
+        return today.plusDays(1).minusDays(random.nextInt(maxDaysBack));
+    }
+}
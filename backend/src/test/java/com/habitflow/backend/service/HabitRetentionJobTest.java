@@ -0,0 +1,161 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.CalendarResponse;
+import com.habitflow.backend.model.AnalyticsSnapshot;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.AnalyticsSnapshotRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class HabitRetentionJobTest {
+
+    private static final String EMAIL = "archive@example.com";
+    private static final int HOT_DAYS = 400;
+
+    private final LocalDate today = LocalDate.now();
+    private final LocalDate horizon = today.minusDays(HOT_DAYS);
+    private final LocalDate firstDay = today.minusDays(3 * 365);
+
+    private InMemoryHabitRepository habitRepository;
+    private InMemoryUserRepository userRepository;
+    private AnalyticsSnapshotService snapshotService;
+    private CalendarService calendarService;
+    private HabitRetentionJob job;
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        habitRepository = new InMemoryHabitRepository(converter);
+        userRepository = new InMemoryUserRepository(converter);
+        snapshotService = new AnalyticsSnapshotService(mock(AnalyticsSnapshotRepository.class), habitRepository);
+        calendarService = new CalendarService(habitRepository, userRepository, new UserDataVersions());
+        job = new HabitRetentionJob(userRepository, habitRepository, HOT_DAYS);
+        userId = userRepository.save(new User(EMAIL, "secret")).getId();
+    }
+
+    @Test
+    void lifetimeStatisticsSurviveTiering() {
+        Random random = new Random(37);
+        for (int h = 0; h < 5; h++) {
+            Habit habit = new Habit(userId, "Habit " + h);
+            habit.setCreatedAt(firstDay.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            for (LocalDate day = firstDay; day.isBefore(today); day = day.plusDays(1)) {
+                int roll = random.nextInt(10);
+                // A streak running from before the horizon up to yesterday, for the first habit
+                if (h == 0 && !day.isBefore(horizon.minusDays(20))) {
+                    roll = 0;
+                }
+                if (roll < 5) {
+                    habit.getLogs().put(day.toString(), true);
+                } else if (roll < 7) {
+                    habit.getLogs().put(day.toString(), false);
+                }
+            }
+            habitRepository.save(habit);
+        }
+
+        Stats before = stats();
+        job.run(horizon);
+        Stats after = stats();
+
+        for (Habit habit : habitRepository.findByUserId(userId)) {
+            assertTrue(habit.getLogs().keySet().stream().allMatch(date -> date.compareTo(horizon.toString()) >= 0));
+            assertFalse(habit.getArchive().isEmpty());
+        }
+        assertEquals(before, after);
+        assertTrue(before.snapshot.getStreak() > HOT_DAYS);
+
+        // A second run finds nothing left to move
+        List<Habit> tiered = habitRepository.findByUserId(userId);
+        for (Habit habit : tiered) {
+            assertEquals(0, job.archive(habit, horizon));
+        }
+    }
+
+    @Test
+    void logEntriesOverrideTheArchiveUntilTheNextRun() {
+        LocalDate old = horizon.minusDays(100);
+        Habit habit = new Habit(userId, "Read");
+        habit.setCreatedAt(firstDay.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        habit.getLogs().put(old.toString(), true);
+        habit.getLogs().put(old.plusDays(1).toString(), true);
+        habit = habitRepository.save(habit);
+        assertEquals(2, job.archive(habit, horizon));
+
+        // Un-checking an archived day, the way HabitService toggles it
+        habit = habitRepository.findById(habit.getId()).orElseThrow();
+        assertTrue(habit.isDone(old.toString()));
+        habit.getLogs().put(old.toString(), !habit.isDone(old.toString()));
+        habit = habitRepository.save(habit);
+        assertFalse(habit.isDone(old.toString()));
+        assertEquals(1, habit.archivedCompletions());
+
+        assertEquals(1, job.archive(habit, horizon));
+        habit = habitRepository.findById(habit.getId()).orElseThrow();
+        assertTrue(habit.getLogs().isEmpty());
+        assertFalse(habit.isDone(old.toString()));
+        assertEquals(1, habit.archivedCompletions());
+    }
+
+    @Test
+    void concurrentChangeAbortsTheMove() {
+        Habit habit = new Habit(userId, "Run");
+        habit.getLogs().put(horizon.minusDays(3).toString(), true);
+        habit = habitRepository.save(habit);
+
+        Habit stale = habitRepository.findById(habit.getId()).orElseThrow();
+        habit.getLogs().put(horizon.minusDays(3).toString(), false);
+        habitRepository.save(habit);
+
+        assertEquals(-1, job.archive(stale, horizon));
+        Habit current = habitRepository.findById(habit.getId()).orElseThrow();
+        assertEquals(Boolean.FALSE, current.getLogs().get(horizon.minusDays(3).toString()));
+        assertEquals(null, current.getArchive());
+    }
+
+    private Stats stats() {
+        List<Habit> habits = habitRepository.findByUserId(userId);
+        AnalyticsSnapshot snapshot = snapshotService.compute(userId, habits, today.minusDays(1), 0);
+        List<CalendarResponse> months = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(firstDay); !month.isAfter(YearMonth.from(today)); month = month.plusMonths(1)) {
+            months.add(calendarService.getMonth(EMAIL, month, true));
+        }
+        List<Boolean> days = new ArrayList<>();
+        for (Habit habit : habits) {
+            for (LocalDate day = firstDay; day.isBefore(today); day = day.plusDays(1)) {
+                days.add(habit.isDone(day.toString()));
+            }
+        }
+        snapshot.setComputedAt(null);
+        return new Stats(snapshot, months, days);
+    }
+
+    private record Stats(AnalyticsSnapshot snapshot, List<CalendarResponse> months, List<Boolean> days) {
+    }
+}
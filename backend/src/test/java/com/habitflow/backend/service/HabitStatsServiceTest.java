@@ -0,0 +1,101 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.HabitStatsResponse;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitRepository;
+import com.habitflow.backend.trace.QueryTrace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HabitStatsServiceTest {
+
+    private static final String USER_ID = "64b7f0c2a1b2c3d4e5f60718";
+
+    private final LocalDate today = LocalDate.now();
+    private InMemoryHabitRepository habitRepository;
+    private UserDataVersions versions;
+    private HabitStatsService service;
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        habitRepository = new InMemoryHabitRepository(converter);
+        versions = new UserDataVersions();
+        service = new HabitStatsService(habitRepository, versions, 100);
+
+        // Created 20 days ago; done 19..15 days ago (5 in a row), then 3..1 days ago
+        habit = new Habit(USER_ID, "Read");
+        habit.setCreatedAt(today.minusDays(19).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        for (int daysAgo : new int[] {19, 18, 17, 16, 15, 3, 2, 1}) {
+            habit.getLogs().put(today.minusDays(daysAgo).toString(), true);
+        }
+        habit.getLogs().put(today.minusDays(10).toString(), false);
+        habit = habitRepository.save(habit);
+    }
+
+    @Test
+    void computesStreaksAndWindows() {
+        HabitStatsResponse stats = service.getStats(habit.getId(), USER_ID, List.of(7, 30));
+
+        // Today is still open, so the streak runs up to yesterday
+        assertEquals(3, stats.getCurrentStreak());
+        assertEquals(5, stats.getLongestStreak());
+        assertEquals(8, stats.getTotalCompleted());
+
+        HabitStatsResponse.WindowStats week = stats.getWindows().get(0);
+        assertEquals(7, week.getPossibleDays());
+        assertEquals(3, week.getCompletedDays());
+        assertEquals(4, week.getMissedDays());
+        assertEquals(42.9, week.getCompletionRate());
+        assertEquals("Needs Focus", week.getTrend());
+
+        // Only the 20 days the habit has existed count
+        HabitStatsResponse.WindowStats month = stats.getWindows().get(1);
+        assertEquals(20, month.getPossibleDays());
+        assertEquals(8, month.getCompletedDays());
+    }
+
+    @Test
+    void memoizedUntilTheOwnersDataChanges() {
+        service.getStats(habit.getId(), USER_ID, null);
+
+        QueryTrace trace = QueryTrace.start();
+        try {
+            service.getStats(habit.getId(), USER_ID, null);
+            assertEquals(0, trace.count());
+
+            habit.getLogs().put(today.toString(), true);
+            habitRepository.save(habit);
+            versions.invalidateUser(USER_ID);
+            assertEquals(4, service.getStats(habit.getId(), USER_ID, null).getCurrentStreak());
+            assertEquals(2, trace.count());
+        } finally {
+            trace.end();
+        }
+    }
+
+    @Test
+    void rejectsOtherUsersAndBadWindows() {
+        service.getStats(habit.getId(), USER_ID, null);
+        assertThrows(RuntimeException.class, () -> service.getStats(habit.getId(), "someone-else", null));
+        assertThrows(IllegalArgumentException.class, () -> service.getStats(habit.getId(), USER_ID, List.of(0)));
+    }
+}
@@ -0,0 +1,170 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.ImportResult;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitTemplateRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryUserRepository;
+import com.habitflow.backend.trace.QueryTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportServiceTest {
+
+    private static final String EMAIL = "importer@example.com";
+
+    private InMemoryHabitRepository habitRepository;
+    private ImportService imports;
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        InMemoryUserRepository userRepository = new InMemoryUserRepository(converter);
+        habitRepository = new InMemoryHabitRepository(converter);
+        UserDataVersions versions = new UserDataVersions();
+        SingleFlight singleFlight = new SingleFlight(versions, new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        TitleIndex titleIndex = new TitleIndex(habitRepository, new InMemoryHabitTemplateRepository(converter),
+                versions, singleFlight, 100);
+        // Batches of 3 rows, one import at a time per node
+        imports = new ImportService(userRepository, habitRepository, titleIndex, event -> { },
+                JsonMapper.builder().build(), 3, 1000, 1);
+        userId = userRepository.save(new User(EMAIL, "secret")).getId();
+    }
+
+    @Test
+    void csvRowsOfOneTitleInAnySpellingGoToOneHabit() throws IOException {
+        Habit read = new Habit(userId, "Read");
+        read.setCreatedAt(Instant.parse("2024-01-10T00:00:00Z"));
+        read.getLogs().put("2024-01-10", true);
+        read = habitRepository.save(read);
+
+        QueryTrace trace = QueryTrace.start();
+        ImportResult result;
+        try {
+            result = imports.importHistory(EMAIL, body("""
+                    title,date,done
+                    read ,2024-01-02,1
+                    Walk,2024-01-02,yes
+                    "Run, far",2024-01-03,true
+                    READ,2024-01-03,x
+                    walk,2024-01-04,0
+                    "Run,  FAR",2024-01-05,n
+                    Stretch,2024-01-05,y
+                    """), ImportService.Format.CSV);
+        } finally {
+            trace.end();
+        }
+
+        assertTrue(result.isFinished());
+        assertEquals(7, result.getRowsRead());
+        assertEquals(7, result.getRowsImported());
+        assertEquals(4, result.getHabits());
+        assertEquals(0, result.getErrorCount());
+        // 7 rows in batches of 3
+        assertTrue(trace.breakdown().contains("bulkWrite habits x3"), trace.breakdown());
+
+        Map<String, Habit> habits = habitRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(Habit::getTitle, habit -> habit));
+        assertEquals(List.of("Read", "Run, far", "Stretch", "Walk"), habits.keySet().stream().sorted().toList());
+        Habit merged = habits.get("Read");
+        assertEquals(read.getId(), merged.getId());
+        assertEquals(Map.of("2024-01-02", true, "2024-01-03", true, "2024-01-10", true), merged.getLogs());
+        assertTrue(merged.getCreatedAt().isBefore(Instant.parse("2024-01-10T00:00:00Z")));
+        assertEquals(Map.of("2024-01-02", true, "2024-01-04", false), habits.get("Walk").getLogs());
+        assertEquals(Map.of("2024-01-03", true, "2024-01-05", false), habits.get("Run, far").getLogs());
+    }
+
+    @Test
+    void badNdjsonRowsAreReportedAndTheRestImported() throws IOException {
+        String future = LocalDate.now().plusDays(2).toString();
+        ImportResult result = imports.importHistory(EMAIL, body("""
+                {"title":"Read","date":"2024-02-01","done":true}
+                not json
+                {"title":"  ","date":"2024-02-01","done":true}
+                {"title":"Read","date":"02/02/2024","done":true}
+                {"title":"Read","date":"%s","done":true}
+                {"title":"Read","date":"2024-02-03","done":"maybe"}
+                ["Read","2024-02-04",true]
+                {"title":"read","date":"2024-02-05","done":"no"}
+                """.formatted(future)), ImportService.Format.NDJSON);
+
+        assertEquals(8, result.getRowsRead());
+        assertEquals(2, result.getRowsImported());
+        assertEquals(6, result.getErrorCount());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L),
+                result.getErrors().stream().map(ImportResult.RowError::getLine).toList());
+        assertEquals("Missing title", result.getErrors().get(1).getMessage());
+
+        List<Habit> habits = habitRepository.findByUserId(userId);
+        assertEquals(1, habits.size());
+        assertEquals(Map.of("2024-02-01", true, "2024-02-05", false), habits.get(0).getLogs());
+    }
+
+    @Test
+    void onlyOneImportRunsPerUser() throws Exception {
+        PipedOutputStream upload = new PipedOutputStream();
+        InputStream body = new PipedInputStream(upload);
+        CompletableFuture<ImportResult> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return imports.importHistory(EMAIL, body, ImportService.Format.CSV);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        upload.write("Read,2024-03-01,1\n".getBytes(StandardCharsets.UTF_8));
+        upload.flush();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (imports.getProgress(EMAIL) == null || imports.getProgress(EMAIL).getRowsRead() == 0) {
+            assertTrue(System.nanoTime() < deadline, "first import did not start");
+            Thread.sleep(5);
+        }
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> imports.importHistory(EMAIL, body("Run,2024-03-01,1\n"), ImportService.Format.CSV));
+        assertEquals("An import is already running for this account", e.getMessage());
+
+        upload.close();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).getRowsImported());
+        // Once it is done the next one may start
+        assertEquals(1, imports.importHistory(EMAIL, body("Run,2024-03-01,1\n"), ImportService.Format.CSV)
+                .getRowsImported());
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,175 @@
+package com.habitflow.backend.service;
+
+import com.habitflow.backend.cache.SingleFlight;
+import com.habitflow.backend.cache.UserDataVersions;
+import com.habitflow.backend.dto.TitleSuggestion;
+import com.habitflow.backend.event.HabitChangeEvent;
+import com.habitflow.backend.model.Habit;
+import com.habitflow.backend.model.HabitTemplate;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitRepository;
+import com.habitflow.backend.repository.inmemory.InMemoryHabitTemplateRepository;
+import com.habitflow.backend.trace.QueryTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Randomized check of {@link TitleIndex} against the titles in the repositories,
+ * across creates, renames and deletes applied in place and rebuilds.
+ */
+class TitleIndexTest {
+
+    private static final String USER_ID = "64b7f0c2a1b2c3d4e5f60718";
+    private static final String[] WORDS = {"Read", "read ", "  READ", "Run", "Running", "Run  far", "run far",
+            "Walk", "Write", "Ｗrite", "Stretch", "Sleep early"};
+    private static final String[] PREFIXES = {"", "r", "RUN", "run ", "w", "s", "sleep e", "x"};
+
+    private InMemoryHabitRepository habitRepository;
+    private InMemoryHabitTemplateRepository templateRepository;
+    private UserDataVersions versions;
+    private TitleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        habitRepository = new InMemoryHabitRepository(converter);
+        templateRepository = new InMemoryHabitTemplateRepository(converter);
+        versions = new UserDataVersions();
+        SingleFlight singleFlight = new SingleFlight(versions, new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        index = new TitleIndex(habitRepository, templateRepository, versions, singleFlight, 100);
+    }
+
+    @Test
+    void normalizesCaseSpacingAndWidth() {
+        assertEquals("read", TitleIndex.normalize("  Read "));
+        assertEquals("run far", TitleIndex.normalize("Run \t far"));
+        assertEquals("write", TitleIndex.normalize("Ｗrite"));
+    }
+
+    @Test
+    void matchesRepositoryContents() {
+        for (int trial = 0; trial < 40; trial++) {
+            Random random = new Random(trial);
+            habitRepository.deleteAll();
+            templateRepository.deleteAll();
+            versions.invalidateUser(USER_ID);
+
+            for (int step = 0; step < 40; step++) {
+                List<Habit> habits = habitRepository.findByUserId(USER_ID);
+                int action = random.nextInt(10);
+                if (action < 4 || habits.isEmpty()) {
+                    Habit habit = new Habit(USER_ID, word(random));
+                    habit.setCreatedAt(Instant.now());
+                    try {
+                        habit = habitRepository.save(habit);
+                        publish(HabitChangeEvent.created(habit));
+                    } catch (DuplicateKeyException e) {
+                        // Title taken; the unique title key refuses it
+                    }
+                } else if (action < 6) {
+                    Habit habit = habits.get(random.nextInt(habits.size()));
+                    habit.setTitle(word(random));
+                    try {
+                        habitRepository.save(habit);
+                        publish(HabitChangeEvent.renamed(habit));
+                    } catch (DuplicateKeyException e) {
+                        // Title taken
+                    }
+                } else if (action < 8) {
+                    Habit habit = habits.get(random.nextInt(habits.size()));
+                    habitRepository.delete(habit);
+                    publish(HabitChangeEvent.deleted(habit));
+                } else if (action < 9) {
+                    templateRepository.save(new HabitTemplate(USER_ID, "T", List.of(word(random), word(random))));
+                    index.templatesChanged(USER_ID);
+                } else {
+                    // A write seen only through the bus, e.g. from another node
+                    versions.invalidateUser(USER_ID);
+                }
+
+                for (String prefix : PREFIXES) {
+                    assertEquals(bruteForce(prefix), keys(index.suggest(USER_ID, prefix, 100)),
+                            "trial " + trial + " step " + step + " prefix '" + prefix + "'");
+                }
+                String probe = word(random);
+                boolean taken = habitRepository.findByUserId(USER_ID).stream()
+                        .anyMatch(h -> TitleIndex.normalize(h.getTitle()).equals(TitleIndex.normalize(probe)));
+                assertEquals(taken, index.habitWithTitle(USER_ID, probe, null) != null, probe);
+            }
+        }
+    }
+
+    @Test
+    void createsAreAppliedWithoutReloading() {
+        Habit read = habitRepository.save(new Habit(USER_ID, "Read"));
+        assertNull(index.habitWithTitle(USER_ID, "walk", null));
+
+        Habit walk = habitRepository.save(new Habit(USER_ID, "Walk"));
+        publish(HabitChangeEvent.created(walk));
+
+        QueryTrace trace = QueryTrace.start();
+        try {
+            assertEquals(walk.getId(), index.habitWithTitle(USER_ID, " WALK ", null));
+            assertNull(index.habitWithTitle(USER_ID, "read", read.getId()));
+            assertNotNull(index.habitWithTitle(USER_ID, "read", walk.getId()));
+            assertEquals(List.of(new TitleSuggestion("Walk", TitleSuggestion.HABIT)), index.suggest(USER_ID, "wa", 5));
+        } finally {
+            trace.end();
+        }
+        assertEquals(0, trace.count());
+    }
+
+    // Delivers the event the way the application does: the bus moves the version first
+    private void publish(HabitChangeEvent event) {
+        versions.invalidateUser(USER_ID);
+        index.onHabitChange(event);
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    // Habit titles first, then template titles no habit has, each in key order
+    private List<String> bruteForce(String prefix) {
+        String normalized = TitleIndex.normalize(prefix);
+        TreeSet<String> habits = new TreeSet<>();
+        for (Habit habit : habitRepository.findByUserId(USER_ID)) {
+            habits.add(TitleIndex.normalize(habit.getTitle()));
+        }
+        TreeSet<String> templates = new TreeSet<>();
+        for (HabitTemplate template : templateRepository.findByUserId(USER_ID)) {
+            template.getHabitTitles().forEach(title -> templates.add(TitleIndex.normalize(title)));
+        }
+        templates.removeAll(habits);
+
+        List<String> expected = new ArrayList<>();
+        habits.stream().filter(key -> key.startsWith(normalized)).forEach(key -> expected.add("habit:" + key));
+        templates.stream().filter(key -> key.startsWith(normalized)).forEach(key -> expected.add("template:" + key));
+        return expected;
+    }
+
+    private static List<String> keys(List<TitleSuggestion> suggestions) {
+        return suggestions.stream().map(s -> s.getSource() + ":" + TitleIndex.normalize(s.getTitle())).toList();
+    }
+}
@@ -0,0 +1,91 @@
+package com.habitflow.backend.startup;
+
+import com.habitflow.backend.model.User;
+import com.habitflow.backend.repository.UserRepository;
+import com.habitflow.backend.service.AvatarService;
+import com.habitflow.backend.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ActiveProfiles("inmemory")
+@SpringBootTest
+class AvatarMigrationTest {
+
+    @Autowired
+    private AvatarMigration migration;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AvatarService avatarService;
+
+    @Test
+    void inlinePicturesMoveToTheStoreAndUnreadableOnesAreDropped() throws Exception {
+        User withPicture = inlineUser(picture());
+        User unreadable = inlineUser("data:image/png;base64,AAAA");
+
+        migration.run();
+
+        User moved = userRepository.findById(withPicture.getId()).orElseThrow();
+        assertNull(moved.getProfilePicture());
+        assertNotNull(moved.getAvatarVersion());
+        assertEquals(moved.getAvatarVersion(), avatarService.load(moved.getId(), 64).orElseThrow().version());
+
+        User dropped = userRepository.findById(unreadable.getId()).orElseThrow();
+        assertNull(dropped.getProfilePicture());
+        assertNull(dropped.getAvatarVersion());
+
+        // Nothing left to do on the next start
+        try (var remaining = userRepository.streamWithInlinePicture()) {
+            assertTrue(remaining.noneMatch(user -> user.getId().equals(withPicture.getId())));
+        }
+    }
+
+    @Test
+    void pictureChangedDuringTheMoveIsLeftAlone() throws Exception {
+        String original = picture();
+        User user = inlineUser(original);
+        // The user uploads a new picture between the migration reading the old one and moving it
+        String uploaded = picture();
+        user.setProfilePicture(uploaded);
+        userRepository.save(user);
+
+        userService.moveInlinePicture(user.getId(), original);
+
+        User current = userRepository.findById(user.getId()).orElseThrow();
+        assertEquals(uploaded, current.getProfilePicture());
+        assertNull(current.getAvatarVersion());
+    }
+
+    private User inlineUser(String picture) {
+        User user = new User("user-" + UUID.randomUUID() + "@example.com", "secret");
+        user.setProfilePicture(picture);
+        return userRepository.save(user);
+    }
+
+    // A different picture on every call
+    private static String picture() throws Exception {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, UUID.randomUUID().hashCode() & 0xFFFFFF);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+}
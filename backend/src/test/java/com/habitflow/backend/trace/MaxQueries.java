@@ -0,0 +1,21 @@
+package com.habitflow.backend.trace;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails the test if its body issues more than {@code value} database commands
+ * (setup in {@code @BeforeEach} does not count). Requests made through MockMvc run
+ * on the test thread, so their commands, security filters included, are counted.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(MaxQueriesExtension.class)
+public @interface MaxQueries {
+
+    int value();
+}
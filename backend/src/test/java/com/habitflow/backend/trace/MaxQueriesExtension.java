@@ -0,0 +1,32 @@
+package com.habitflow.backend.trace;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+class MaxQueriesExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(MaxQueriesExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), QueryTrace.start());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        QueryTrace trace = context.getStore(NAMESPACE).remove(context.getUniqueId(), QueryTrace.class);
+        trace.end();
+
+        int budget = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), MaxQueries.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), MaxQueries.class))
+                .map(MaxQueries::value)
+                .orElseThrow();
+        if (trace.count() > budget) {
+            throw new AssertionFailedError(String.format("%d database commands, budget is %d: %s",
+                    trace.count(), budget, trace.breakdown()), budget, trace.count());
+        }
+    }
+}
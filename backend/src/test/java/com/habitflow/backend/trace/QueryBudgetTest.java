@@ -0,0 +1,94 @@
+package com.habitflow.backend.trace;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Database round trips per endpoint, counted on the in-memory repositories. A
+ * failure here means a change added queries to a hot path; lower a budget when an
+ * endpoint gets cheaper.
+ */
+@ActiveProfiles("inmemory")
+@SpringBootTest
+@AutoConfigureMockMvc
+class QueryBudgetTest {
+
+    private final JsonMapper json = JsonMapper.builder().build();
+
+    @Autowired
+    private MockMvc mvc;
+
+    private String token;
+    private String habitId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String credentials = "{\"email\":\"budget-" + UUID.randomUUID() + "@example.com\",\"password\":\"password1\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk());
+        token = read(mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andReturn().getResponse().getContentAsString()).get("token").asString();
+        habitId = read(mvc.perform(post("/api/habits").header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"Read\"}"))
+                .andReturn().getResponse().getContentAsString()).get("id").asString();
+    }
+
+    @Test
+    @MaxQueries(3)
+    void listHabits() throws Exception {
+        mvc.perform(get("/api/habits").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @MaxQueries(4)
+    void toggleHabit() throws Exception {
+        mvc.perform(post("/api/habits/" + habitId + "/toggle").param("date", LocalDate.now().toString())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @MaxQueries(3)
+    void calendarMonth() throws Exception {
+        mvc.perform(get("/api/habits/calendar").param("month", YearMonth.now().toString())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    // The authenticating user lookup and the one habit; nothing per other habit
+    @Test
+    @MaxQueries(2)
+    void habitStats() throws Exception {
+        mvc.perform(get("/api/habits/" + habitId + "/stats").param("windows", "7,30,365")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @MaxQueries(5)
+    void analytics() throws Exception {
+        mvc.perform(get("/api/analytics").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode read(String body) {
+        return json.readTree(body);
+    }
+}
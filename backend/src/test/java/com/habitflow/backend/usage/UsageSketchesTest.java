@@ -0,0 +1,82 @@
+package com.habitflow.backend.usage;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsageSketchesTest {
+
+    @Test
+    void distinctCountsStayWithinTheErrorBoundAndMergeAsUnions() {
+        HyperLogLog monday = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        HyperLogLog tuesday = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        String[] users = new String[200_000];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new ObjectId().toHexString();
+        }
+        // 150k users on Monday, 100k on Tuesday, 50k of them on both days; repeats do not count
+        for (int i = 0; i < 150_000; i++) {
+            monday.add(users[i]);
+            monday.add(users[i]);
+        }
+        for (int i = 100_000; i < 200_000; i++) {
+            tuesday.add(users[i]);
+        }
+        assertWithin(150_000, monday.estimate(), 3 * monday.standardError());
+        assertWithin(100_000, tuesday.estimate(), 3 * tuesday.standardError());
+
+        HyperLogLog week = HyperLogLog.fromBytes(monday.toBytes());
+        week.merge(tuesday);
+        assertWithin(200_000, week.estimate(), 3 * week.standardError());
+
+        // Small counts too: a day with a handful of users
+        HyperLogLog few = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        Random random = new Random(47);
+        for (int i = 0; i < 50; i++) {
+            few.add(new UUID(random.nextLong(), random.nextLong()).toString());
+        }
+        assertWithin(50, few.estimate(), 3 * few.standardError());
+    }
+
+    @Test
+    void quantilesStayWithinTheRelativeErrorAcrossMergedNodes() {
+        Random random = new Random(11);
+        double[] values = new double[50_000];
+        QuantileSketch[] nodes = new QuantileSketch[3];
+        for (int n = 0; n < nodes.length; n++) {
+            nodes[n] = new QuantileSketch(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+        }
+        for (int i = 0; i < values.length; i++) {
+            // Minutes: mostly the same day, with a long tail of back-filled days
+            values[i] = i % 10 == 0 ? random.nextInt(60 * 24 * 30) : random.nextInt(60 * 24);
+            nodes[random.nextInt(nodes.length)].add(values[i]);
+        }
+        QuantileSketch merged = QuantileSketch.fromBytes(nodes[0].toBytes());
+        merged.merge(nodes[1]);
+        merged.merge(QuantileSketch.fromBytes(nodes[2].toBytes()));
+
+        Arrays.sort(values);
+        assertEquals(values.length, merged.count());
+        assertEquals(values[values.length - 1], merged.max());
+        for (double q : new double[]{0.01, 0.25, 0.5, 0.9, 0.99, 1}) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            double estimate = merged.quantile(q);
+            if (exact < 1) {
+                assertEquals(0, estimate, "q=" + q);
+            } else {
+                assertWithin(exact, estimate, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+            }
+        }
+    }
+
+    private static void assertWithin(double expected, double actual, double relativeError) {
+        assertTrue(Math.abs(actual - expected) <= expected * relativeError,
+                actual + " is not within " + relativeError * 100 + "% of " + expected);
+    }
+}
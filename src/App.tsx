@@ -12,7 +12,7 @@ import FaqPage from './pages/FaqPage';
 import { LayoutList, BarChart3, LogOut, Calendar, Layers, Sun, Moon, User as UserIcon, Settings, HelpCircle, ChevronDown } from 'lucide-react';
 import clsx from 'clsx';
 import { AuthProvider, useAuth } from './context/AuthContext';
-import api from './api/api';
+import api, { avatarSrc } from './api/api';
 import { useIsMobile } from './hooks/useMediaQuery';
 
 
@@ -76,7 +76,7 @@ function UserDropdown({ user, logout, theme, toggleTheme }: { user: string | nul
       >
         <div className="w-9 h-9 rounded-xl bg-indigo-600 overflow-hidden flex items-center justify-center text-white font-black text-sm shadow-lg shadow-indigo-500/20 group-hover:scale-105 transition-transform">
           {profile?.profilePicture ? (
-            <img src={profile.profilePicture} alt="Avatar" className="w-full h-full object-cover" />
+            <img src={avatarSrc(profile.profilePicture, 64)} alt="Avatar" className="w-full h-full object-cover" />
           ) : (
             initial
           )}
@@ -29,4 +29,14 @@ api.interceptors.response.use(
     }
 );
 
+// Avatar URLs from the API are relative to its origin ("/api/users/{id}/avatar?v=...");
+// a freshly picked file is still a data: URL until it is saved
+export const avatarSrc = (url: string, size: number) => {
+    if (url.startsWith('data:')) {
+        return url;
+    }
+    const origin = new URL(api.defaults.baseURL ?? '', window.location.href).origin;
+    return `${origin}${url}&size=${size}`;
+};
+
 export default api;
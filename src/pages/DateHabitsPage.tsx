@@ -9,8 +9,22 @@ interface Habit {
     id: string;
     title: string;
     logs: Record<string, boolean>; // Key: YYYY-MM-DD
+    doneInMonth?: boolean; // From the calendar, which also covers days past the retention horizon
 }
 
+interface HabitMonth {
+    id: string;
+    title: string;
+    mask: number; // Bit (day of month - 1) set when completed
+}
+
+// An entry in logs (e.g. toggled on this page) takes precedence over the calendar
+const isDone = (habit: Habit, dateStr: string) => {
+    const logged = habit.logs?.[dateStr];
+    if (logged !== undefined) return logged;
+    return habit.doneInMonth ?? false;
+};
+
 export default function DateHabitsPage() {
     const { date } = useParams<{ date: string }>();
     const navigate = useNavigate();
@@ -58,8 +72,14 @@ export default function DateHabitsPage() {
 
     const fetchHabits = async () => {
         try {
-            const res = await api.get<Habit[]>('/habits');
-            setHabits(res.data);
+            // The list no longer carries archived history; the month view decides older days
+            const [res, calendar] = await Promise.all([
+                api.get<Habit[]>('/habits'),
+                api.get<{ habits: HabitMonth[] }>('/habits/calendar', { params: { month: dateStr.slice(0, 7), habits: true } }),
+            ]);
+            const bit = 1 << (Number(dateStr.slice(8, 10)) - 1);
+            const masks = new Map(calendar.data.habits.map(h => [h.id, h.mask]));
+            setHabits(res.data.map(h => ({ ...h, doneInMonth: ((masks.get(h.id) ?? 0) & bit) !== 0 })));
         } catch (e) {
             console.error(e);
         } finally {
@@ -78,8 +98,9 @@ export default function DateHabitsPage() {
 
     const applyTemplate = async (templateId: string) => {
         try {
-            const res = await api.post(`/templates/${templateId}/apply`);
-            setHabits(res.data);
+            // Only the habits the template added come back
+            const res = await api.post<Omit<Habit, 'logs'>[]>(`/templates/${templateId}/apply`);
+            setHabits(prev => [...prev, ...res.data.map(h => ({ ...h, logs: {} }))]);
             setShowTemplates(false);
         } catch (e) {
             alert("Failed to apply template");
@@ -121,7 +142,7 @@ export default function DateHabitsPage() {
         const previousHabits = [...habits];
         setHabits(prev => prev.map(h => {
             if (h.id !== id) return h;
-            const isCompleted = !!h.logs[dateStr];
+            const isCompleted = isDone(h, dateStr);
             const newLogs = { ...h.logs };
             newLogs[dateStr] = !isCompleted;
             return { ...h, logs: newLogs };
@@ -143,12 +164,13 @@ export default function DateHabitsPage() {
         }
 
         try {
-            const res = await api.post<Habit>('/habits', { title: newHabitName });
-            setHabits([...habits, res.data]);
+            // The response is a summary without history; a new habit has none yet
+            const res = await api.post<Omit<Habit, 'logs'>>('/habits', { title: newHabitName });
+            setHabits([...habits, { ...res.data, logs: {} }]);
             setNewHabitName('');
             setAdding(false);
-        } catch (e) {
-            alert("Failed to create habit");
+        } catch (e: any) {
+            alert(`Error: ${e.response?.data || "Failed to create habit"}`);
         }
     };
 
@@ -172,7 +194,7 @@ export default function DateHabitsPage() {
         </div>
     );
 
-    const completedCount = habits.filter(h => h.logs[dateStr]).length;
+    const completedCount = habits.filter(h => isDone(h, dateStr)).length;
     const totalCount = habits.length;
     const completionRate = totalCount > 0 ? Math.round((completedCount / totalCount) * 100) : 0;
 
@@ -259,7 +281,7 @@ export default function DateHabitsPage() {
             <div className="premium-card glass flex-1 flex flex-col min-h-0 overflow-hidden">
                 <div className="p-4 sm:p-6 space-y-3 overflow-y-auto custom-scrollbar flex-1">
                     {habits.map((habit) => {
-                        const isChecked = !!habit.logs?.[dateStr];
+                        const isChecked = isDone(habit, dateStr);
                         const canToggle = isToday;
 
                         return (
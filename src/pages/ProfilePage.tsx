@@ -1,6 +1,6 @@
 import { useState, useEffect } from 'react';
 import { Camera, Mail, User as UserIcon, Calendar, TrendingUp, Target, Save, Loader2 } from 'lucide-react';
-import api from '../api/api';
+import api, { avatarSrc } from '../api/api';
 import clsx from 'clsx';
 
 interface UserProfile {
@@ -99,7 +99,7 @@ export default function ProfilePage() {
                         <div className="relative group">
                             <div className="w-32 h-32 rounded-3xl overflow-hidden bg-indigo-600 flex items-center justify-center text-white text-4xl font-black shadow-2xl shadow-indigo-500/20 mb-4 border-4 border-[var(--border)]">
                                 {profile.profilePicture ? (
-                                    <img src={profile.profilePicture} alt="Avatar" className="w-full h-full object-cover" />
+                                    <img src={avatarSrc(profile.profilePicture, 256)} alt="Avatar" className="w-full h-full object-cover" />
                                 ) : (
                                     profile.name?.[0]?.toUpperCase() || profile.email[0].toUpperCase()
                                 )}
@@ -1,5 +1,5 @@
 import { useState, useEffect } from 'react';
-import { Shield, Trash2, Sun, Moon, Database, AlertCircle, Loader2 } from 'lucide-react';
+import { Shield, Trash2, Sun, Moon, Database, AlertCircle, Loader2, LogOut } from 'lucide-react';
 import { useAuth } from '../context/AuthContext';
 import api from '../api/api';
 import clsx from 'clsx';
@@ -14,6 +14,7 @@ export default function SettingsPage() {
     const [deleteConfirm, setDeleteConfirm] = useState('');
     const [isDeleting, setIsDeleting] = useState(false);
     const [isClearingData, setIsClearingData] = useState(false);
+    const [isLoggingOutAll, setIsLoggingOutAll] = useState(false);
     const [message, setMessage] = useState({ type: '', text: '' });
 
     useEffect(() => {
@@ -65,6 +66,19 @@ export default function SettingsPage() {
         }
     };
 
+    const handleLogoutEverywhere = async () => {
+        if (!confirm("Log out on every device, including this one?")) return;
+
+        setIsLoggingOutAll(true);
+        try {
+            await api.post('/users/me/logout-all');
+            logout();
+        } catch (e) {
+            setMessage({ type: 'error', text: 'Failed to log out of other devices.' });
+            setIsLoggingOutAll(false);
+        }
+    };
+
     const handleClearData = async () => {
         if (!confirm("Delete all habits, templates, and logs? Your account will remain active.")) return;
 
@@ -101,6 +115,18 @@ export default function SettingsPage() {
                             <p className="text-sm font-bold text-[var(--text-primary)]">{user}</p>
                         </div>
 
+                        <div className="flex items-center justify-between gap-4">
+                            <p className="text-xs text-[var(--text-secondary)] font-medium">Signed in somewhere you shouldn't be? End every session at once.</p>
+                            <button
+                                onClick={handleLogoutEverywhere}
+                                disabled={isLoggingOutAll}
+                                className="px-4 py-2 bg-[var(--surface-muted)] hover:bg-indigo-500 text-[var(--text-primary)] hover:text-white rounded-xl text-sm font-bold transition-all disabled:opacity-50 flex items-center gap-2 shrink-0"
+                            >
+                                {isLoggingOutAll ? <Loader2 className="w-4 h-4 animate-spin" /> : <LogOut className="w-4 h-4" />}
+                                Log Out Everywhere
+                            </button>
+                        </div>
+
                         <div className="pt-6 border-t border-[var(--border)]">
                             <h3 className="text-sm font-bold text-rose-500 flex items-center gap-2 mb-2">
                                 <AlertCircle className="w-4 h-4" /> Danger Zone
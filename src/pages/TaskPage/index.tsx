@@ -102,12 +102,13 @@ export default function TaskPage() {
         }
 
         try {
-            const res = await api.post<Habit>('/habits', { title: newHabitName });
-            setHabits([...habits, res.data]);
+            // The response is a summary without history; a new habit has none yet
+            const res = await api.post<Omit<Habit, 'logs'>>('/habits', { title: newHabitName });
+            setHabits([...habits, { ...res.data, logs: {} }]);
             setNewHabitName('');
             setAdding(false);
-        } catch (e) {
-            alert("Failed to create habit");
+        } catch (e: any) {
+            alert(`Error: ${e.response?.data || "Failed to create habit"}`);
         }
     };
 